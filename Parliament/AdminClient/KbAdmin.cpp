@@ -146,6 +146,10 @@ void pmnt::KbAdmin::printUsage(string_view msg)
 		"      Releases excess capacity in the KB files to make them\n"
 		"      as compact as possible (without loss of information).\n"
 		"\n"
+		"   " << k_soi << "cmp or " << k_loi << "compact\n"
+		"      Removes deleted statements from the KB files.  Run\n"
+		"      releaseExcessCapacity afterwards to shrink the files.\n"
+		"\n"
 		"   " << k_soi << "ge or " << k_loi << "guaranteeEntailments\n"
 		"      Runs all configured inference rules to guarantee that all\n"
 		"      entailments have been asserted.  Useful when a new rule\n"
@@ -183,6 +187,7 @@ pmnt::KbAdmin::KbAdmin(uint32 numArgs, const char*const* argList) :
 	m_listClassesOpt(false),
 	m_statisticsOpt(false),
 	m_relExCapOpt(false),
+	m_compactOpt(false),
 	m_grnteeEntlmntsOpt(false),
 	m_validateOpt(false),
 	m_exportOpt(false),
@@ -230,6 +235,10 @@ pmnt::KbAdmin::KbAdmin(uint32 numArgs, const char*const* argList) :
 		{
 			m_relExCapOpt = true;
 		}
+		else if ((isShortIntroducer && arg == "cmp") || (isLongIntroducer && arg == "compact"))
+		{
+			m_compactOpt = true;
+		}
 		else if ((isShortIntroducer && arg == "ge") || (isLongIntroducer && arg == "guaranteeEntailments"))
 		{
 			m_grnteeEntlmntsOpt = true;
@@ -292,7 +301,7 @@ pmnt::KbAdmin::KbAdmin(uint32 numArgs, const char*const* argList) :
 	int numCommandsGiven = (int) m_helpOpt + (int) m_versionOpt
 		+ (int) m_createKbOpt + (int) m_countClassesOpt
 		+ (int) m_listClassesOpt + (int) m_statisticsOpt
-		+ (int) m_relExCapOpt + (int) m_grnteeEntlmntsOpt
+		+ (int) m_relExCapOpt + (int) m_compactOpt + (int) m_grnteeEntlmntsOpt
 		+ (int) m_validateOpt + (int) m_exportOpt;
 	numCommandsGiven += (m_rsrcDumpOpt == DumpFormat::k_noDump) ? 0 : 1;
 	numCommandsGiven += (m_stmtDumpOpt == DumpFormat::k_noDump) ? 0 : 1;
@@ -398,6 +407,30 @@ void pmnt::KbAdmin::run()
 			timeInMicroSec = timer.getMicroSec();
 		}
 	}
+	else if (m_compactOpt)
+	{
+		KbDisposition disp = determineDisposition();
+		if (disp != KbDisposition::k_kbExists)
+		{
+			cout << "Unable to find the KB." << endl;
+		}
+		else
+		{
+			HiResTimer timer;
+
+			KbConfig config;
+			config.readFromFile();
+			config.kbDirectoryPath(k_kbDir);
+			config.readOnly(false);
+			KbInstance kb(config);
+
+			size_t numRemoved = kb.compact();
+
+			timer.stop();
+			timeInMicroSec = timer.getMicroSec();
+			cout << "Removed " << numRemoved << " deleted statements." << endl;
+		}
+	}
 	else if (m_grnteeEntlmntsOpt)
 	{
 		KbDisposition disp = determineDisposition();
@@ -52,6 +52,7 @@ private:
 	bool								m_listClassesOpt;		// List the RDF classes
 	bool								m_statisticsOpt;		// Print KB statistics
 	bool								m_relExCapOpt;			// Release excess file capacity
+	bool								m_compactOpt;			// Remove deleted statements
 	bool								m_grnteeEntlmntsOpt;	// guarantee entailments
 	bool								m_validateOpt;			// check for file corruption
 	bool								m_exportOpt;			// Export KB as n-triples
@@ -6,6 +6,7 @@
 
 #include "parliament/JNIHelper.h"
 
+#include <algorithm>
 #include <cstdarg>
 
 namespace pmnt = ::bbn::parliament;
@@ -15,6 +16,8 @@ using ::std::basic_string;
 using ::std::exception;
 using ::std::size_t;
 using ::std::string;
+using ::std::string_view;
+using ::std::vector;
 
 jclass pmnt::JNIHelper::findClass(JNIEnv* pEnv, const char* pClassName)
 {
@@ -193,6 +196,154 @@ void pmnt::JNIHelper::throwJavaException(JNIEnv* pEnv,
 	}
 }
 
+// Copies the first count elements of a Java long[] into a vector of resource ids.
+vector<pmnt::ResourceId> pmnt::JNIHelper::getRsrcIdArray(JNIEnv* pEnv, jlongArray array, jint count)
+{
+	if (count < 0)
+	{
+		throw Exception(format{"Negative element count %1%"} % count);
+	}
+	else if (array == 0 || pEnv->GetArrayLength(array) < count)
+	{
+		throw Exception(format{"Array is too short to hold %1% elements"} % count);
+	}
+
+	vector<jlong> buffer(static_cast<size_t>(count));
+	pEnv->GetLongArrayRegion(array, 0, count, buffer.data());
+	if (pEnv->ExceptionCheck())
+	{
+		throw JavaException();
+	}
+
+	vector<ResourceId> result;
+	result.reserve(buffer.size());
+	for (jlong id : buffer)
+	{
+		result.push_back(static_cast<ResourceId>(id));
+	}
+	return result;
+}
+
+void* pmnt::JNIHelper::getDirectBufferAddress(JNIEnv* pEnv, jobject buffer, jlong& capacity)
+{
+	void* pResult = (buffer == 0) ? nullptr : pEnv->GetDirectBufferAddress(buffer);
+	capacity = (buffer == 0) ? -1 : pEnv->GetDirectBufferCapacity(buffer);
+	if (pResult == nullptr || capacity < 0)
+	{
+		throw Exception("The buffer is not a direct buffer");
+	}
+	return pResult;
+}
+
+#if defined(PARLIAMENT_RSRC_AS_UTF16)
+
+// Modified UTF-8 encodes each UTF-16 code unit (including each half of a
+// surrogate pair) separately in one to three bytes, and encodes U+0000 in
+// two bytes so that the result never contains a null byte.
+static size_t modifiedUtf8CharLength(pmnt::Utf16Char ch)
+{
+	if (ch != 0 && ch < 0x80)
+	{
+		return 1;
+	}
+	else if (ch < 0x800)
+	{
+		return 2;
+	}
+	else
+	{
+		return 3;
+	}
+}
+
+pmnt::RsrcString pmnt::JNIHelper::modifiedUtf8ToRsrcString(string_view src)
+{
+	RsrcString result;
+	result.reserve(src.size());
+	for (size_t i = 0; i < src.size();)
+	{
+		auto b0 = static_cast<unsigned char>(src[i]);
+		if (b0 < 0x80)
+		{
+			result.push_back(static_cast<Utf16Char>(b0));
+			i += 1;
+		}
+		else if ((b0 & 0xe0) == 0xc0 && i + 1 < src.size())
+		{
+			auto b1 = static_cast<unsigned char>(src[i + 1]);
+			result.push_back(static_cast<Utf16Char>(((b0 & 0x1f) << 6) | (b1 & 0x3f)));
+			i += 2;
+		}
+		else if ((b0 & 0xf0) == 0xe0 && i + 2 < src.size())
+		{
+			auto b1 = static_cast<unsigned char>(src[i + 1]);
+			auto b2 = static_cast<unsigned char>(src[i + 2]);
+			result.push_back(static_cast<Utf16Char>(
+				((b0 & 0x0f) << 12) | ((b1 & 0x3f) << 6) | (b2 & 0x3f)));
+			i += 3;
+		}
+		else
+		{
+			throw UnicodeException(format{"Malformed modified UTF-8 at byte offset %1%"} % i);
+		}
+	}
+	return result;
+}
+
+size_t pmnt::JNIHelper::modifiedUtf8Length(RsrcStringView src)
+{
+	size_t result = 0;
+	for (Utf16Char ch : src)
+	{
+		result += modifiedUtf8CharLength(ch);
+	}
+	return result;
+}
+
+char* pmnt::JNIHelper::copyAsModifiedUtf8(RsrcStringView src, char* pDest)
+{
+	for (Utf16Char ch : src)
+	{
+		switch (modifiedUtf8CharLength(ch))
+		{
+		case 1:
+			*pDest++ = static_cast<char>(ch);
+			break;
+		case 2:
+			*pDest++ = static_cast<char>(0xc0 | (ch >> 6));
+			*pDest++ = static_cast<char>(0x80 | (ch & 0x3f));
+			break;
+		default:
+			*pDest++ = static_cast<char>(0xe0 | (ch >> 12));
+			*pDest++ = static_cast<char>(0x80 | ((ch >> 6) & 0x3f));
+			*pDest++ = static_cast<char>(0x80 | (ch & 0x3f));
+			break;
+		}
+	}
+	return pDest;
+}
+
+#else
+
+// Resource strings are stored exactly as the JNI string functions hand them
+// to us, so no conversion is needed:
+pmnt::RsrcString pmnt::JNIHelper::modifiedUtf8ToRsrcString(string_view src)
+{
+	return RsrcString{src};
+}
+
+size_t pmnt::JNIHelper::modifiedUtf8Length(RsrcStringView src)
+{
+	return src.size();
+}
+
+char* pmnt::JNIHelper::copyAsModifiedUtf8(RsrcStringView src, char* pDest)
+{
+	return ::std::copy(src.begin(), src.end(), pDest);
+}
+
+#endif
+
 jobject pmnt::JNIHelper::newObject(JNIEnv* pEnv, jclass cls, const char* pCtorSignature, ...)
 {
 	jmethodID methodId = pEnv->GetMethodID(cls, "<init>", pCtorSignature);
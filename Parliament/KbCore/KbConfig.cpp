@@ -28,6 +28,7 @@ static ::boost::once_flag g_onceInitFlag = BOOST_ONCE_INIT;
 static auto g_log = pmnt::log::getSource("KbConfig");
 static constexpr char k_bdbCacheSizeOptName[] = "bdbCacheSize";
 static constexpr pmnt::TChar k_bdbCacheSizeVarName[] = _T("PARLIAMENT_BDB_CACHE_SIZE");
+static constexpr char k_graphFileName[] = "graphs.mem";
 pmnt::KbConfig::ConfigEntryMap pmnt::KbConfig::g_ceMap;
 bool pmnt::KbConfig::g_isConfigEntryMapInitialized = pmnt::KbConfig::initConfigEntryMap();
 
@@ -99,6 +100,28 @@ void pmnt::KbConfig::unsynchronizedInitConfigEntryMap()
 		};
 	g_ceMap["normalizeTypedStringLiterals"] = [](string_view value, uint32 lineNum, KbConfig& c)
 		{ c.m_normalizeTypedStringLiterals = ConfigFileReader::parseBool(value, lineNum); };
+	g_ceMap["nodeIdCacheSize"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_nodeIdCacheSize = ConfigFileReader::parseUnsigned(value, lineNum); };
+	g_ceMap["enablePermutationIndexes"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_enablePermutationIndexes = ConfigFileReader::parseBool(value, lineNum); };
+	g_ceMap["compactionTombstoneRatio"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_compactionTombstoneRatio = ConfigFileReader::parseDouble(value, lineNum); };
+	g_ceMap["namedGraphOpenThreads"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_namedGraphOpenThreads = ConfigFileReader::parseUnsigned(value, lineNum); };
+	g_ceMap["namedGraphInitialRsrcCapacity"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_namedGraphInitialRsrcCapacity = ConfigFileReader::parseUnsigned(value, lineNum); };
+	g_ceMap["namedGraphInitialStmtCapacity"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_namedGraphInitialStmtCapacity = ConfigFileReader::parseUnsigned(value, lineNum); };
+	g_ceMap["namedGraphGrowthFactor"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_namedGraphGrowthFactor = ConfigFileReader::parseDouble(value, lineNum); };
+	g_ceMap["namedGraphQuadStore"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_namedGraphQuadStore = ConfigFileReader::parseBool(value, lineNum); };
+	g_ceMap["journalEnabled"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_journalEnabled = ConfigFileReader::parseBool(value, lineNum); };
+	g_ceMap["journalSyncOnCommit"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_journalSyncOnCommit = ConfigFileReader::parseBool(value, lineNum); };
+	g_ceMap["journalGroupCommitDelay"] = [](string_view value, uint32 lineNum, KbConfig& c)
+		{ c.m_journalGroupCommitDelay = ConfigFileReader::parseUnsigned(value, lineNum); };
 	g_ceMap["TimeoutDuration"] = [](string_view value, uint32 lineNum, KbConfig& c)
 		{ c.m_timeoutDuration = ConfigFileReader::parseUnsigned(value, lineNum); };
 	g_ceMap["TimeoutUnit"] = [](string_view value, uint32 lineNum, KbConfig& c)
@@ -155,6 +178,17 @@ pmnt::KbConfig::KbConfig() :
 	m_stmtGrowthIncrement(1000000),
 	m_stmtGrowthFactor(0),
 	m_normalizeTypedStringLiterals(true),
+	m_nodeIdCacheSize(100000),
+	m_enablePermutationIndexes(false),
+	m_compactionTombstoneRatio(0),
+	m_namedGraphOpenThreads(0),
+	m_namedGraphInitialRsrcCapacity(1000),
+	m_namedGraphInitialStmtCapacity(1000),
+	m_namedGraphGrowthFactor(2),
+	m_namedGraphQuadStore(false),
+	m_journalEnabled(true),
+	m_journalSyncOnCommit(false),
+	m_journalGroupCommitDelay(0),
 	m_timeoutDuration(5),
 	m_timeoutUnit(TimeUnit::k_min),
 	m_runAllRulesAtStartup(false),
@@ -233,6 +267,11 @@ pmnt::KbConfig::Path pmnt::KbConfig::uriToIntFilePath() const
 	return m_kbDirectoryPath / convertUtf8ToPath(m_uriToIntFileName);
 }
 
+pmnt::KbConfig::Path pmnt::KbConfig::graphFilePath() const
+{
+	return m_kbDirectoryPath / convertUtf8ToPath(k_graphFileName);
+}
+
 string pmnt::KbConfig::javaTimeoutUnit() const
 {
 	switch (m_timeoutUnit)
@@ -40,6 +40,17 @@ static void assignCppConfigToJavaConfig(JNIEnv* pEnv, jobject obj, const KbConfi
 	JNIHelper::setLongFld(pEnv, obj,		"m_stmtGrowthIncrement",			config.stmtGrowthIncrement());
 	JNIHelper::setDoubleFld(pEnv, obj,	"m_stmtGrowthFactor",				config.stmtGrowthFactor());
 	JNIHelper::setBooleanFld(pEnv, obj,	"m_normalizeTypedStringLiterals",config.normalizeTypedStringLiterals());
+	JNIHelper::setLongFld(pEnv, obj,		"m_nodeIdCacheSize",					config.nodeIdCacheSize());
+	JNIHelper::setBooleanFld(pEnv, obj,	"m_enablePermutationIndexes",	config.enablePermutationIndexes());
+	JNIHelper::setDoubleFld(pEnv, obj,	"m_compactionTombstoneRatio",	config.compactionTombstoneRatio());
+	JNIHelper::setLongFld(pEnv, obj,		"m_namedGraphOpenThreads",			config.namedGraphOpenThreads());
+	JNIHelper::setLongFld(pEnv, obj,		"m_namedGraphInitialRsrcCapacity",config.namedGraphInitialRsrcCapacity());
+	JNIHelper::setLongFld(pEnv, obj,		"m_namedGraphInitialStmtCapacity",config.namedGraphInitialStmtCapacity());
+	JNIHelper::setDoubleFld(pEnv, obj,	"m_namedGraphGrowthFactor",		config.namedGraphGrowthFactor());
+	JNIHelper::setBooleanFld(pEnv, obj,	"m_namedGraphQuadStore",			config.namedGraphQuadStore());
+	JNIHelper::setBooleanFld(pEnv, obj,	"m_journalEnabled",					config.journalEnabled());
+	JNIHelper::setBooleanFld(pEnv, obj,	"m_journalSyncOnCommit",			config.journalSyncOnCommit());
+	JNIHelper::setLongFld(pEnv, obj,		"m_journalGroupCommitDelay",		config.journalGroupCommitDelay());
 	JNIHelper::setLongFld(pEnv, obj,		"m_timeoutDuration",					config.timeoutDuration());
 	JNIHelper::setTimeoutUnitFld(pEnv, obj,										config.javaTimeoutUnit().c_str());
 	JNIHelper::setBooleanFld(pEnv, obj,	"m_runAllRulesAtStartup",			config.runAllRulesAtStartup());
@@ -32,10 +32,14 @@
 #include <boost/filesystem/operations.hpp>
 #include <boost/format.hpp>
 
+#include <algorithm>
+#include <cmath>
 #include <iomanip>
 #include <iterator>
 #include <memory>
+#include <mutex>
 #include <ostream>
+#include <unordered_map>
 #include <utility>
 #include <vector>
 
@@ -70,6 +74,13 @@ pmnt::KbInstance::KbInstance(const KbConfig& config) :
 	PMNT_LOG(g_log, log::Level::info) << "Initializing KbInstance for "
 		<< m_pi->m_config.kbDirectoryPath().generic_string();
 
+	openGraphTable(false);
+
+	if (m_pi->m_config.enablePermutationIndexes())
+	{
+		buildPermutationIndex();
+	}
+
 	if (!m_pi->m_config.readOnly())
 	{
 		// Note:  Normally, we need to be careful not to add the same rule twice.
@@ -130,6 +141,66 @@ pmnt::KbInstance::KbInstance(const KbConfig& config) :
 	}
 }
 
+void pmnt::KbInstance::buildPermutationIndex()
+{
+	m_pi->m_permutationIndex.clear();
+	size_t numStmts = stmtCount();
+	for (StatementId stmtId = 0; stmtId < numStmts; ++stmtId)
+	{
+		const KbStmt& stmt = m_pi->m_stmtTbl.getRecordAt(stmtId);
+		m_pi->m_permutationIndex.insert(stmt.m_subjectId, stmt.m_predicateId,
+			stmt.m_objectId, stmtId);
+	}
+
+	PMNT_LOG(g_log, log::Level::debug) << "Built permutation indexes over "
+		<< numStmts << " statements (" << m_pi->m_permutationIndex.keyCount() << " keys)";
+}
+
+// Opens the table that holds the graph id of each statement, creating it if
+// requested.  The table is created when the first statement is added to a
+// named graph, so a KB without named graphs does without it.  It is kept
+// parallel to the statement table:  Statements added before it existed are
+// in no graph, and an entry beyond the last statement (left by a crash
+// between the two writes in addStmtCore) is discarded.
+void pmnt::KbInstance::openGraphTable(bool createIfMissing)
+{
+	if (m_pi->m_graphTbl
+		|| (!createIfMissing && !is_regular_file(m_pi->m_config.graphFilePath())))
+	{
+		return;
+	}
+
+	m_pi->m_graphTbl = make_unique<Impl::GraphTable>(m_pi->m_config.graphFilePath(),
+		m_pi->m_config.readOnly(), m_pi->m_config.initialStmtCapacity(),
+		m_pi->m_config.stmtGrowthIncrement(), m_pi->m_config.stmtGrowthFactor());
+	Impl::GraphTable& graphTbl = *m_pi->m_graphTbl;
+
+	const size_t numStmts = stmtCount();
+	if (!m_pi->m_config.readOnly())
+	{
+		if (graphTbl.recordCount() > numStmts)
+		{
+			graphTbl.popBack(graphTbl.recordCount() - numStmts);
+		}
+		else if (graphTbl.recordCount() < numStmts)
+		{
+			::std::vector<ResourceId> padding(numStmts - graphTbl.recordCount(), k_nullRsrcId);
+			graphTbl.pushBack(padding.data(), padding.size());
+		}
+	}
+
+	m_pi->m_graphStmtCounts.clear();
+	const size_t numGraphRecs = ::std::min(numStmts, graphTbl.recordCount());
+	for (StatementId stmtId = 0; stmtId < numGraphRecs; ++stmtId)
+	{
+		const ResourceId graphId = graphTbl.getRecordAt(stmtId);
+		if (graphId != k_nullRsrcId && !m_pi->m_stmtTbl.getRecordAt(stmtId).isDeleted())
+		{
+			++m_pi->m_graphStmtCounts[graphId];
+		}
+	}
+}
+
 pmnt::KbDisposition pmnt::KbInstance::determineDisposition(
 	const KbConfig& config, bool throwIfIndeterminate)
 {
@@ -180,6 +251,10 @@ void pmnt::KbInstance::sync()
 		m_pi->m_uriToRsrcId.sync();
 		m_pi->m_stmtTbl.sync();
 		m_pi->m_rsrcTbl.sync();
+		if (m_pi->m_graphTbl)
+		{
+			m_pi->m_graphTbl->sync();
+		}
 	}
 }
 
@@ -208,6 +283,115 @@ void pmnt::KbInstance::releaseExcessCapacity()
 	m_pi->m_uriToRsrcId.compact();
 	m_pi->m_stmtTbl.releaseExcessCapacity();
 	m_pi->m_rsrcTbl.releaseExcessCapacity();
+	if (m_pi->m_graphTbl)
+	{
+		m_pi->m_graphTbl->releaseExcessCapacity();
+	}
+}
+
+// Removes the deleted statements from the statement table.  The remaining
+// statements are moved down to fill the gaps, in their original order, and
+// the subject, predicate, and object chains (and use counts) of every
+// resource are rebuilt over them.  A deleted statement that carries a
+// statement tag is kept, because its reifications refer to it by statement
+// id.  The graph table, if any, is compacted along with the statements.
+// Resource ids do not change, since callers cache them.
+//
+// Statement ids do change, so no iterator may be open on the KB during the
+// compaction.  Returns the number of statements removed.
+size_t pmnt::KbInstance::compact()
+{
+	ensureNotReadOnly("KbInstance::compact");
+
+	const size_t oldStmtCount = stmtCount();
+	::std::vector<StatementId> newStmtIds(oldStmtCount, k_nullStmtId);
+	StatementId newStmtCount = 0;
+	for (StatementId stmtId = 0; stmtId < oldStmtCount; ++stmtId)
+	{
+		const KbStmt& stmt = m_pi->m_stmtTbl.getRecordAt(stmtId);
+		if (!stmt.isDeleted() || stmt.m_statementTag != k_nullRsrcId)
+		{
+			newStmtIds[stmtId] = newStmtCount++;
+		}
+	}
+
+	const size_t numRemoved = oldStmtCount - newStmtCount;
+	if (numRemoved == 0)
+	{
+		return 0;
+	}
+
+	const size_t numRsrcs = rsrcCount();
+	for (ResourceId rsrcId = 0; rsrcId < numRsrcs; ++rsrcId)
+	{
+		KbRsrc& rsrc = m_pi->m_rsrcTbl.getRecordAt(rsrcId);
+		rsrc.m_subjectFirst = k_nullStmtId;
+		rsrc.m_predicateFirst = k_nullStmtId;
+		rsrc.m_objectFirst = k_nullStmtId;
+		rsrc.m_subjectCount = 0;
+		rsrc.m_predicateCount = 0;
+		rsrc.m_objectCount = 0;
+		if (rsrc.isStatementTag())
+		{
+			rsrc.m_uriOffset = newStmtIds[rsrc.m_uriOffset];
+		}
+	}
+
+	// Each statement moves to an id no greater than its old one, so moving
+	// them in ascending order never overwrites one that is yet to be moved.
+	// Linking each at the head of its chains, as addStmtCore does, leaves the
+	// chains in the same order as before.
+	for (StatementId stmtId = 0; stmtId < oldStmtCount; ++stmtId)
+	{
+		const StatementId newStmtId = newStmtIds[stmtId];
+		if (newStmtId == k_nullStmtId)
+		{
+			continue;
+		}
+
+		KbStmt stmt = m_pi->m_stmtTbl.getRecordAt(stmtId);
+
+		KbRsrc& subRsrc = m_pi->m_rsrcTbl.getRecordAt(stmt.m_subjectId);
+		stmt.m_subjectNext = subRsrc.m_subjectFirst;
+		subRsrc.m_subjectFirst = newStmtId;
+		++subRsrc.m_subjectCount;
+
+		KbRsrc& predRsrc = m_pi->m_rsrcTbl.getRecordAt(stmt.m_predicateId);
+		stmt.m_predicateNext = predRsrc.m_predicateFirst;
+		predRsrc.m_predicateFirst = newStmtId;
+		++predRsrc.m_predicateCount;
+
+		KbRsrc& objRsrc = m_pi->m_rsrcTbl.getRecordAt(stmt.m_objectId);
+		stmt.m_objectNext = objRsrc.m_objectFirst;
+		objRsrc.m_objectFirst = newStmtId;
+		++objRsrc.m_objectCount;
+
+		m_pi->m_stmtTbl.getRecordAt(newStmtId) = stmt;
+		if (m_pi->m_graphTbl)
+		{
+			m_pi->m_graphTbl->getRecordAt(newStmtId) = m_pi->m_graphTbl->getRecordAt(stmtId);
+		}
+	}
+	m_pi->m_stmtTbl.popBack(numRemoved);
+	if (m_pi->m_graphTbl)
+	{
+		m_pi->m_graphTbl->popBack(numRemoved);
+	}
+
+	if (m_pi->m_config.enablePermutationIndexes())
+	{
+		buildPermutationIndex();
+	}
+	{
+		::std::lock_guard<::std::mutex> lock(m_pi->m_predicateStatsMutex);
+		m_pi->m_predicateStats.clear();
+	}
+	sync();
+
+	PMNT_LOG(g_log, log::Level::info) << "Compacted KbInstance for "
+		<< m_pi->m_config.kbDirectoryPath().generic_string() << ", removing "
+		<< numRemoved << " of " << oldStmtCount << " statements";
+	return numRemoved;
 }
 
 pmnt::ResourceId pmnt::KbInstance::uriToRsrcId(RsrcStringView uri, bool isLiteral, bool createIfMissing)
@@ -302,22 +486,29 @@ pmnt::ResourceId pmnt::KbInstance::createStmtTagRsrc(StatementId reifiedStmtId)
 	return rsrcId;
 }
 
-pmnt::Statement pmnt::KbInstance::findStatement(
-	ResourceId subjectId, ResourceId predicateId, ResourceId objectId) const
+// Finds the statement in exactly the given graph.  Unlike find(), which
+// takes k_nullRsrcId to mean any graph, this takes it to mean no graph,
+// because a triple in a named graph is a different statement from the same
+// triple outside of it.
+pmnt::Statement pmnt::KbInstance::findStatement(ResourceId subjectId,
+	ResourceId predicateId, ResourceId objectId, ResourceId graphId) const
 {
-	StmtIterator it = find(subjectId, predicateId, objectId, StmtIteratorFlags::k_showHidden);
-	return it.isEnd()
-		? Statement(this, k_nullStmtId)
-		: it.statement();
+	for (StmtIterator it = find(subjectId, predicateId, objectId,
+		StmtIteratorFlags::k_showHidden, graphId); !it.isEnd(); ++it)
+	{
+		const Statement& stmt = it.statementRef();
+		if (stmt.isVirtual() || graph(stmt.getStatementId()) == graphId)
+		{
+			return stmt;
+		}
+	}
+	return Statement(this, k_nullStmtId);
 }
 
-pmnt::StatementId pmnt::KbInstance::findStatementId(
-	ResourceId subjectId, ResourceId predicateId, ResourceId objectId) const
+pmnt::StatementId pmnt::KbInstance::findStatementId(ResourceId subjectId,
+	ResourceId predicateId, ResourceId objectId, ResourceId graphId) const
 {
-	StmtIterator it = find(subjectId, predicateId, objectId, StmtIteratorFlags::k_showHidden);
-	return it.isEnd()
-		? k_nullStmtId
-		: it.statementRef().getStatementId();
+	return findStatement(subjectId, predicateId, objectId, graphId).getStatementId();
 }
 
 size_t pmnt::KbInstance::rsrcCount() const
@@ -408,7 +599,7 @@ void pmnt::KbInstance::countStmts(/* out */ size_t& total, /* out */ size_t& num
 // which is okay because that is the blanket assumption across all KbInstance
 // methods that write.
 pmnt::StatementId pmnt::KbInstance::addStmt(ResourceId subjectId,
-	ResourceId predicateId, ResourceId objectId, bool isInferred)
+	ResourceId predicateId, ResourceId objectId, bool isInferred, ResourceId graphId)
 {
 	ensureNotReadOnly("KbInstance::addStmt");
 	excludeReservedIris(subjectId, predicateId, objectId);
@@ -419,23 +610,11 @@ pmnt::StatementId pmnt::KbInstance::addStmt(ResourceId subjectId,
 		// statement ID to return later.  Also, add a dummy record to the stack so we
 		// know that we're recursing on the next addStmt call.
 		m_pi->m_addStmtStack.emplace_back(k_nullRsrcId, k_nullRsrcId, k_nullRsrcId, false);
-		StatementId stmtId = addStmtInternal(subjectId, predicateId, objectId, isInferred);
+		StatementId stmtId = addStmtInternal(subjectId, predicateId, objectId, isInferred, graphId);
 
 		// In the midst of the addStmtInternal call above, we may have accumulated new
-		// inferences to add in m_pi->m_addStmtStack, so we add those now.  Note that
-		// the mode of iterating over the collection is a little odd because the call
-		// to addStmtInternal in the body of the loop may cause recursive calls to addStmt
-		// that add new entries to the collection, so we can't use iterators.
-		while (!m_pi->m_addStmtStack.empty())
-		{
-			StmtToAdd stmtToAdd{m_pi->m_addStmtStack.back()};
-			m_pi->m_addStmtStack.pop_back();
-			if (stmtToAdd.m_subjId != k_nullRsrcId)
-			{
-				addStmtInternal(stmtToAdd.m_subjId, stmtToAdd.m_predId, stmtToAdd.m_objId,
-					stmtToAdd.m_isInferred);
-			}
-		}
+		// inferences to add in m_pi->m_addStmtStack, so we add those now.
+		addPendingStmts();
 
 		// Now return the statement ID from above:
 		return stmtId;
@@ -445,30 +624,87 @@ pmnt::StatementId pmnt::KbInstance::addStmt(ResourceId subjectId,
 		// We are in the midst of a recursion, so don't actually add the new statement,
 		// just remember that we need to add it later and return.  (This breaks the
 		// recursion so we don't overflow the stack.)
-		m_pi->m_addStmtStack.emplace_back(subjectId, predicateId, objectId, isInferred);
+		m_pi->m_addStmtStack.emplace_back(subjectId, predicateId, objectId, isInferred, graphId);
 		return k_nullStmtId;
 	}
 }
 
+// Add a batch of statements to the kb.  This behaves like a series of calls to
+// addStmt, except that the inferences triggered by the statements in the batch
+// are accumulated and then added in a single pass after the entire batch has
+// been added.  The whole batch is checked for reserved IRIs before any of it is
+// added, so that a bad statement does not leave the batch partially applied.
+//
+// The same threading assumptions as for addStmt apply here.
+void pmnt::KbInstance::addStmts(const ResourceId* pSubjectIds,
+	const ResourceId* pPredicateIds, const ResourceId* pObjectIds,
+	size_t count, bool isInferred, ResourceId graphId)
+{
+	ensureNotReadOnly("KbInstance::addStmts");
+	for (size_t i = 0; i < count; ++i)
+	{
+		excludeReservedIris(pSubjectIds[i], pPredicateIds[i], pObjectIds[i]);
+	}
+
+	if (m_pi->m_addStmtStack.empty())
+	{
+		m_pi->m_addStmtStack.emplace_back(k_nullRsrcId, k_nullRsrcId, k_nullRsrcId, false);
+		for (size_t i = 0; i < count; ++i)
+		{
+			addStmtInternal(pSubjectIds[i], pPredicateIds[i], pObjectIds[i], isInferred, graphId);
+		}
+		addPendingStmts();
+	}
+	else
+	{
+		// See the comment on the recursive case in addStmt:
+		for (size_t i = 0; i < count; ++i)
+		{
+			m_pi->m_addStmtStack.emplace_back(pSubjectIds[i], pPredicateIds[i],
+				pObjectIds[i], isInferred, graphId);
+		}
+	}
+}
+
+// Drains m_pi->m_addStmtStack, which holds the statements (mostly inferences)
+// whose addition was deferred by recursive calls to addStmt.  Note that the mode
+// of iterating over the collection is a little odd because the call to
+// addStmtInternal in the body of the loop may cause recursive calls to addStmt
+// that add new entries to the collection, so we can't use iterators.
+void pmnt::KbInstance::addPendingStmts()
+{
+	while (!m_pi->m_addStmtStack.empty())
+	{
+		StmtToAdd stmtToAdd{m_pi->m_addStmtStack.back()};
+		m_pi->m_addStmtStack.pop_back();
+		if (stmtToAdd.m_subjId != k_nullRsrcId)
+		{
+			addStmtInternal(stmtToAdd.m_subjId, stmtToAdd.m_predId, stmtToAdd.m_objId,
+				stmtToAdd.m_isInferred, stmtToAdd.m_graphId);
+		}
+	}
+}
+
 // Add a new statement to the kb.  If the statement is part of a reification
 // and thus is virtual, return k_nullStmtId.  Else return new statement id.
+// In a named graph, the reification vocabulary is stored like any other.
 pmnt::StatementId pmnt::KbInstance::addStmtInternal(ResourceId subjectId,
-	ResourceId predicateId, ResourceId objectId, bool isInferred)
+	ResourceId predicateId, ResourceId objectId, bool isInferred, ResourceId graphId)
 {
 	excludeReservedIris(subjectId, predicateId, objectId);
 
 	// Test to see if this statement is part of a reification
-	if (predicateId == uriLib().m_rdfSubject.id()
+	if (graphId == k_nullRsrcId && (predicateId == uriLib().m_rdfSubject.id()
 		|| predicateId == uriLib().m_rdfPredicate.id()
 		|| predicateId == uriLib().m_rdfObject.id()
-		|| (predicateId == uriLib().m_rdfType.id() && objectId == uriLib().m_rdfStatement.id()))
+		|| (predicateId == uriLib().m_rdfType.id() && objectId == uriLib().m_rdfStatement.id())))
 	{
 		handleReificationAdd(subjectId, predicateId, objectId);
 		return k_nullStmtId;
 	}
 	else
 	{
-		Statement s = findStatement(subjectId, predicateId, objectId);
+		Statement s = findStatement(subjectId, predicateId, objectId, graphId);
 		StatementId result = s.getStatementId();
 		if (result != k_nullStmtId)
 		{
@@ -482,6 +718,10 @@ pmnt::StatementId pmnt::KbInstance::addStmtInternal(ResourceId subjectId,
 
 			if (wasDeleted)
 			{
+				if (graphId != k_nullRsrcId)
+				{
+					++m_pi->m_graphStmtCounts[graphId];
+				}
 				for (auto pStmtHndlr : m_pi->m_stmtHndlrList)
 				{
 					pStmtHndlr->onNewStmt(this, Statement(this, result));
@@ -491,7 +731,7 @@ pmnt::StatementId pmnt::KbInstance::addStmtInternal(ResourceId subjectId,
 		else if (!s.isVirtual())
 		{
 			// Physically add the statement in the statement table:
-			result = addStmtCore(subjectId, predicateId, objectId, false, false, isInferred);
+			result = addStmtCore(subjectId, predicateId, objectId, false, false, isInferred, graphId);
 
 			// Fire the trigger
 			for (auto pStmtHndlr : m_pi->m_stmtHndlrList)
@@ -507,7 +747,7 @@ pmnt::StatementId pmnt::KbInstance::addStmtInternal(ResourceId subjectId,
 // are made to the statement table itself.  Do not call this directly unless you are
 // very clear about what you are doing!
 pmnt::StatementId pmnt::KbInstance::addStmtCore(ResourceId subjectId, ResourceId predicateId,
-	ResourceId objectId, bool isHidden, bool isDeleted, bool isInferred)
+	ResourceId objectId, bool isHidden, bool isDeleted, bool isInferred, ResourceId graphId)
 {
 	excludeReservedIris(subjectId, predicateId, objectId);
 
@@ -551,8 +791,27 @@ pmnt::StatementId pmnt::KbInstance::addStmtCore(ResourceId subjectId, ResourceId
 	objRsrc.m_objectFirst = nextStmtID;
 	++objRsrc.m_objectCount;
 
-	// Store the stmt
+	// Store the stmt, after its graph id so that a crash in between leaves an
+	// extra graph id (which openGraphTable discards) rather than a statement
+	// that has lost its graph:
+	if (graphId != k_nullRsrcId)
+	{
+		openGraphTable(true);
+	}
+	if (m_pi->m_graphTbl)
+	{
+		m_pi->m_graphTbl->pushBack(graphId);
+	}
 	m_pi->m_stmtTbl.pushBack(stmt);
+	if (graphId != k_nullRsrcId && !isDeleted)
+	{
+		++m_pi->m_graphStmtCounts[graphId];
+	}
+
+	if (m_pi->m_config.enablePermutationIndexes())
+	{
+		m_pi->m_permutationIndex.insert(subjectId, predicateId, objectId, nextStmtID);
+	}
 
 	return nextStmtID;
 }
@@ -581,25 +840,68 @@ void pmnt::KbInstance::excludeReservedIris(ResourceId rsrcIdToTest, const LazyRs
 }
 
 void pmnt::KbInstance::deleteStmt(ResourceId subjectId, ResourceId predicateId,
-	ResourceId objectId)
+	ResourceId objectId, ResourceId graphId)
 {
 	ensureNotReadOnly("KbInstance::deleteStmt");
 	// Test to see if this statement is part of a reification
-	if (predicateId == uriLib().m_rdfSubject.id()
+	if (graphId == k_nullRsrcId && (predicateId == uriLib().m_rdfSubject.id()
 		|| predicateId == uriLib().m_rdfPredicate.id()
 		|| predicateId == uriLib().m_rdfObject.id()
-		|| (predicateId == uriLib().m_rdfType.id() && objectId == uriLib().m_rdfStatement.id()))
+		|| (predicateId == uriLib().m_rdfType.id() && objectId == uriLib().m_rdfStatement.id())))
 	{
 		handleReificationDelete(subjectId, predicateId, objectId);
 	}
 	else
 	{
-		StatementId stmtId = findStatementId(subjectId, predicateId, objectId);
+		StatementId stmtId = findStatementId(subjectId, predicateId, objectId, graphId);
 		if (stmtId != k_nullStmtId)
 		{
-			stmtIdToStmt(stmtId)->setFlag(StatementFlags::k_stmtFlagDeleted, true);
+			KbStmt* pStmt = stmtIdToStmt(stmtId);
+			if (graphId != k_nullRsrcId && !pStmt->isDeleted())
+			{
+				--m_pi->m_graphStmtCounts[graphId];
+			}
+			pStmt->setFlag(StatementFlags::k_stmtFlagDeleted, true);
+		}
+	}
+}
+
+void pmnt::KbInstance::deleteStmts(const ResourceId* pSubjectIds,
+	const ResourceId* pPredicateIds, const ResourceId* pObjectIds, size_t count,
+	ResourceId graphId)
+{
+	ensureNotReadOnly("KbInstance::deleteStmts");
+	for (size_t i = 0; i < count; ++i)
+	{
+		deleteStmt(pSubjectIds[i], pPredicateIds[i], pObjectIds[i], graphId);
+	}
+}
+
+// Marks every statement in the given graph as deleted, and returns the number
+// of statements deleted.  This walks the whole graph table, so its cost is
+// proportional to the size of the quad store rather than that of the graph.
+size_t pmnt::KbInstance::clearGraph(ResourceId graphId)
+{
+	ensureNotReadOnly("KbInstance::clearGraph");
+	size_t result = 0;
+	if (m_pi->m_graphTbl && graphId != k_nullRsrcId)
+	{
+		const size_t numGraphRecs = ::std::min(stmtCount(), m_pi->m_graphTbl->recordCount());
+		for (StatementId stmtId = 0; stmtId < numGraphRecs; ++stmtId)
+		{
+			if (m_pi->m_graphTbl->getRecordAt(stmtId) == graphId)
+			{
+				KbStmt& stmt = m_pi->m_stmtTbl.getRecordAt(stmtId);
+				if (!stmt.isDeleted())
+				{
+					stmt.setFlag(StatementFlags::k_stmtFlagDeleted, true);
+					++result;
+				}
+			}
 		}
+		m_pi->m_graphStmtCounts.erase(graphId);
 	}
+	return result;
 }
 
 void pmnt::KbInstance::handleReificationDelete(ResourceId subjectId,
@@ -757,6 +1059,14 @@ pmnt::ResourceId pmnt::KbInstance::statementTag(StatementId stmtId) const
 	return stmtIdToStmt(stmtId)->m_statementTag;
 }
 
+// Returns the graph of the given statement, or k_nullRsrcId if it is in none.
+pmnt::ResourceId pmnt::KbInstance::graph(StatementId stmtId) const
+{
+	return (m_pi->m_graphTbl && stmtId < m_pi->m_graphTbl->recordCount())
+		? m_pi->m_graphTbl->getRecordAt(stmtId)
+		: k_nullRsrcId;
+}
+
 pmnt::StmtIterator pmnt::KbInstance::begin(StmtIteratorFlags flags) const
 {
 	return StmtIterator(this, k_nullRsrcId, k_nullRsrcId, k_nullRsrcId, flags);
@@ -769,14 +1079,24 @@ pmnt::StmtIterator pmnt::KbInstance::end() const
 
 pmnt::StmtIterator pmnt::KbInstance::find(
 	ResourceId subjectId, ResourceId predicateId,
-	ResourceId objectId, StmtIteratorFlags flags) const
+	ResourceId objectId, StmtIteratorFlags flags, ResourceId graphId) const
 {
 	if (m_pi->testAndClearRunAddNewRulesFlag() && m_pi->m_config.enableSWRLRuleEngine())
 	{
 		m_pi->m_re.addNewRules();
 	}
 
-	return StmtIterator(this, subjectId, predicateId, objectId, flags);
+	return StmtIterator(this, subjectId, predicateId, objectId, flags, graphId);
+}
+
+// Returns the candidate statements for a find() with at least two positions
+// bound, or nullptr if the permutation indexes are disabled.
+const pmnt::PermutationIndex::StmtIdList* pmnt::KbInstance::findInPermutationIndex(
+	ResourceId subjectId, ResourceId predicateId, ResourceId objectId) const
+{
+	return m_pi->m_config.enablePermutationIndexes()
+		? &m_pi->m_permutationIndex.find(subjectId, predicateId, objectId)
+		: nullptr;
 }
 
 pmnt::PhysicalStmtIterator pmnt::KbInstance::beginPhysical(
@@ -844,6 +1164,118 @@ size_t pmnt::KbInstance::objectCount(ResourceId objectId) const
 	return rsrcIdToRsrc(objectId)->m_objectCount;
 }
 
+// Returns the number of non-deleted statements in the given graph.  This is
+// maintained as statements are added and deleted, so it costs no more than a
+// hash lookup.
+size_t pmnt::KbInstance::graphStmtCount(ResourceId graphId) const
+{
+	auto it = m_pi->m_graphStmtCounts.find(graphId);
+	return (it == cend(m_pi->m_graphStmtCounts)) ? 0 : it->second;
+}
+
+// Returns the number of statements that find() returns for the given pattern
+// with the default flags.  With two or more positions bound, this costs no more
+// than walking the shortest chain of the bound resources (or the matching list
+// of the permutation indexes, if they are on).  With fewer, it walks an entire
+// chain, so callers who only need an upper bound should use subjectCount,
+// predicateCount, or objectCount instead.
+size_t pmnt::KbInstance::countMatches(ResourceId subjectId, ResourceId predicateId,
+	ResourceId objectId) const
+{
+	size_t result = 0;
+	auto end = this->end();
+	for (auto it = find(subjectId, predicateId, objectId); it != end; ++it)
+	{
+		++result;
+	}
+	return result;
+}
+
+// The number of a predicate's statements that predicateStats examines to
+// estimate its numbers of distinct subjects and objects when the permutation
+// indexes are off.
+static constexpr size_t k_predicateStatsSampleSize = 4096;
+
+using OccurrenceCounts = ::std::unordered_map<pmnt::ResourceId, size_t>;
+
+// Estimates the number of distinct values among numValues values, given how
+// often each value occurs in a sample of sampleSize of them.  If every sampled
+// value occurs once, the values look unique, and the estimate scales with the
+// sample.  Otherwise this is the Guaranteed-Error Estimator of Charikar et al.,
+// in which each value seen once stands for sqrt(numValues / sampleSize) values.
+static size_t estimateDistinct(const OccurrenceCounts& counts, size_t sampleSize,
+	size_t numValues)
+{
+	size_t numSeen = counts.size();
+	if (sampleSize == 0 || sampleSize >= numValues)
+	{
+		return numSeen;
+	}
+	size_t numSeenOnce = ::std::count_if(cbegin(counts), cend(counts),
+		[](const auto& entry) { return entry.second == 1; });
+	double estimate = (numSeenOnce == numSeen)
+		? static_cast<double>(numSeen) * numValues / sampleSize
+		: ::std::sqrt(static_cast<double>(numValues) / sampleSize) * numSeenOnce
+			+ (numSeen - numSeenOnce);
+	return ::std::clamp(static_cast<size_t>(::std::llround(estimate)), numSeen, numValues);
+}
+
+// Returns the number of statements with the given predicate, along with the
+// numbers of distinct subjects and objects that occur with it.  All three
+// counts include deleted statements.  When the permutation indexes are on,
+// the distinct counts are maintained as statements are added.  Otherwise they
+// are estimated from the first k_predicateStatsSampleSize statements of the
+// predicate's chain (exact when the chain is no longer than that), and
+// estimated again once the number of statements has grown by more than a
+// tenth.  The sample is taken without holding m_predicateStatsMutex, so that
+// callers for other predicates do not wait on it.
+void pmnt::KbInstance::predicateStats(ResourceId predicateId, size_t& numStmts,
+	size_t& numDistinctSubjects, size_t& numDistinctObjects) const
+{
+	predicateId = uriLib().translateReservedPredicate(predicateId);
+	numStmts = rsrcIdToRsrc(predicateId)->m_predicateCount;
+
+	if (m_pi->m_config.enablePermutationIndexes())
+	{
+		m_pi->m_permutationIndex.distinctCounts(predicateId, numDistinctSubjects,
+			numDistinctObjects);
+		return;
+	}
+
+	{
+		::std::lock_guard<::std::mutex> lock(m_pi->m_predicateStatsMutex);
+		auto it = m_pi->m_predicateStats.find(predicateId);
+		if (it != cend(m_pi->m_predicateStats)
+			&& numStmts <= it->second.m_numStmts + it->second.m_numStmts / 10)
+		{
+			numDistinctSubjects = it->second.m_numDistinctSubjects;
+			numDistinctObjects = it->second.m_numDistinctObjects;
+			return;
+		}
+	}
+
+	OccurrenceCounts subjects;
+	OccurrenceCounts objects;
+	size_t sampleSize = 0;
+	StatementId stmtId = firstPredicate(predicateId, DeletedStmtsAction::include);
+	for (; stmtId != k_nullStmtId && sampleSize < k_predicateStatsSampleSize;
+		stmtId = nextPredicate(stmtId, DeletedStmtsAction::include), ++sampleSize)
+	{
+		const KbStmt* pStmt = stmtIdToStmt(stmtId);
+		++subjects[pStmt->m_subjectId];
+		++objects[pStmt->m_objectId];
+	}
+
+	// If the sample reached the end of the chain, it is the whole chain:
+	size_t numValues = (stmtId == k_nullStmtId) ? sampleSize : numStmts;
+	numDistinctSubjects = estimateDistinct(subjects, sampleSize, numValues);
+	numDistinctObjects = estimateDistinct(objects, sampleSize, numValues);
+
+	::std::lock_guard<::std::mutex> lock(m_pi->m_predicateStatsMutex);
+	m_pi->m_predicateStats.insert_or_assign(predicateId,
+		PredicateStats{numStmts, numDistinctSubjects, numDistinctObjects});
+}
+
 pmnt::StatementId pmnt::KbInstance::firstSubject(ResourceId subjectId,
 	DeletedStmtsAction delStmtsAction) const
 {
@@ -1333,6 +1765,10 @@ void pmnt::KbInstance::deleteKb(const KbConfig& cfg, bool deleteContainingDir)
 	remove_all(cfg.uriToIntFilePath());
 	remove(cfg.stmtFilePath());
 	remove(cfg.rsrcFilePath());
+	remove(cfg.graphFilePath());
+
+	// The write-ahead log kept by the Java layer (see RecoveryManager):
+	remove_all(cfg.kbDirectoryPath() / "journal");
 
 	if (deleteContainingDir
 		&& exists(cfg.kbDirectoryPath())
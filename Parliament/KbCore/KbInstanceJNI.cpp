@@ -17,11 +17,16 @@
 #include "parliament/Util.h"
 
 #include <ostream>
+#include <vector>
 
 using namespace ::bbn::parliament;
 namespace pmnt = ::bbn::parliament;
 using ::std::basic_ostream;
+using ::boost::format;
+using ::std::size_t;
 using ::std::string;
+using ::std::string_view;
+using ::std::vector;
 
 static auto g_log(pmnt::log::getSource("KbInstanceJNI"));
 
@@ -99,6 +104,17 @@ static void assignJavaConfigToCppConfig(KbConfig& config, JNIEnv* pEnv, jobject
 	config.stmtGrowthIncrement(				JNIHelper::getSizeTFld(pEnv, obj,	"m_stmtGrowthIncrement"));
 	config.stmtGrowthFactor(					JNIHelper::getDoubleFld(pEnv, obj,	"m_stmtGrowthFactor"));
 	config.normalizeTypedStringLiterals(	JNIHelper::getBooleanFld(pEnv, obj,	"m_normalizeTypedStringLiterals"));
+	config.nodeIdCacheSize(						JNIHelper::getSizeTFld(pEnv, obj,	"m_nodeIdCacheSize"));
+	config.enablePermutationIndexes(			JNIHelper::getBooleanFld(pEnv, obj,	"m_enablePermutationIndexes"));
+	config.compactionTombstoneRatio(			JNIHelper::getDoubleFld(pEnv, obj,	"m_compactionTombstoneRatio"));
+	config.namedGraphOpenThreads(				JNIHelper::getSizeTFld(pEnv, obj,	"m_namedGraphOpenThreads"));
+	config.namedGraphInitialRsrcCapacity(	JNIHelper::getSizeTFld(pEnv, obj,	"m_namedGraphInitialRsrcCapacity"));
+	config.namedGraphInitialStmtCapacity(	JNIHelper::getSizeTFld(pEnv, obj,	"m_namedGraphInitialStmtCapacity"));
+	config.namedGraphGrowthFactor(			JNIHelper::getDoubleFld(pEnv, obj,	"m_namedGraphGrowthFactor"));
+	config.namedGraphQuadStore(				JNIHelper::getBooleanFld(pEnv, obj,	"m_namedGraphQuadStore"));
+	config.journalEnabled(						JNIHelper::getBooleanFld(pEnv, obj,	"m_journalEnabled"));
+	config.journalSyncOnCommit(				JNIHelper::getBooleanFld(pEnv, obj,	"m_journalSyncOnCommit"));
+	config.journalGroupCommitDelay(			JNIHelper::getSizeTFld(pEnv, obj,	"m_journalGroupCommitDelay"));
 	config.timeoutDuration(						JNIHelper::getSizeTFld(pEnv, obj,	"m_timeoutDuration"));
 	config.timeoutUnit(							JNIHelper::getTimeoutUnitFld(pEnv, obj));
 	config.runAllRulesAtStartup(				JNIHelper::getBooleanFld(pEnv, obj,	"m_runAllRulesAtStartup"));
@@ -135,10 +151,12 @@ JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_init(
 }
 
 JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_dispose(
-	JNIEnv* pEnv, jobject obj)
+	JNIEnv* pEnv, jclass /* cls */, jlong pKbAsLong)
 {
 	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
-		disposeInternal(pEnv, obj);
+		KbInstance* pKb = reinterpret_cast<KbInstance*>(
+			static_cast<intPtr>(pKbAsLong));
+		delete pKb;
 	END_JNI_EXCEPTION_HANDLER(pEnv)
 }
 
@@ -191,6 +209,17 @@ JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_releaseExcessCapac
 	END_JNI_EXCEPTION_HANDLER(pEnv)
 }
 
+JNIEXPORT jlong JNICALL Java_com_bbn_parliament_jni_KbInstance_compact(
+	JNIEnv* pEnv, jobject obj)
+{
+	jlong result = -1;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		result = static_cast<jlong>(pKb->compact());
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
+
 JNIEXPORT jshort JNICALL Java_com_bbn_parliament_jni_KbInstance_determineDisposition(
 	JNIEnv* pEnv, jclass /* cls */, jobject javaConfig, jboolean throwIfIndeterminate)
 {
@@ -304,6 +333,25 @@ JNIEXPORT jobject JNICALL Java_com_bbn_parliament_jni_KbInstance_find(
 	return pResult;
 }
 
+JNIEXPORT jobject JNICALL Java_com_bbn_parliament_jni_KbInstance_findQuads(
+	JNIEnv* pEnv, jobject obj, jlong subjectId,
+	jlong predicateId, jlong objectId, jlong graphId, jint flags)
+{
+	jobject pResult = 0;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		StmtIterator* pIter = new StmtIterator(pKb->find(
+			static_cast<ResourceId>(subjectId), static_cast<ResourceId>(predicateId),
+			static_cast<ResourceId>(objectId), static_cast<StmtIteratorFlags>(flags),
+			static_cast<ResourceId>(graphId)));
+		jclass iterCls = JNIHelper::findClass(pEnv,
+			"com/bbn/parliament/jni/StmtIterator");
+		pResult = JNIHelper::newObject(pEnv, iterCls, "(J)V",
+			static_cast<uint64>(reinterpret_cast<uintPtr>(pIter)));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return pResult;
+}
+
 JNIEXPORT jobject JNICALL Java_com_bbn_parliament_jni_KbInstance_findReifications(
 	JNIEnv* pEnv, jobject obj, jlong statementName, jlong subjectId,
 	jlong predicateId, jlong objectId)
@@ -384,6 +432,51 @@ JNIEXPORT jlong JNICALL Java_com_bbn_parliament_jni_KbInstance_objectCount(
 	return result;
 }
 
+JNIEXPORT jlong JNICALL Java_com_bbn_parliament_jni_KbInstance_graphStmtCount(
+	JNIEnv* pEnv, jobject obj, jlong graphId)
+{
+	jlong result = 0;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		result = static_cast<jlong>(pKb->graphStmtCount(static_cast<ResourceId>(graphId)));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
+
+JNIEXPORT jlong JNICALL Java_com_bbn_parliament_jni_KbInstance_countMatches(
+	JNIEnv* pEnv, jobject obj, jlong subjectId, jlong predicateId, jlong objectId)
+{
+	jlong result = 0;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		result = static_cast<jlong>(pKb->countMatches(static_cast<ResourceId>(subjectId),
+			static_cast<ResourceId>(predicateId), static_cast<ResourceId>(objectId)));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
+
+JNIEXPORT jobject JNICALL Java_com_bbn_parliament_jni_KbInstance_predicateStats(
+	JNIEnv* pEnv, jobject obj, jlong predicateId)
+{
+	jobject result = 0;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+
+		size_t numStmts = 0;
+		size_t numDistinctSubjects = 0;
+		size_t numDistinctObjects = 0;
+
+		pKb->predicateStats(static_cast<ResourceId>(predicateId), numStmts,
+			numDistinctSubjects, numDistinctObjects);
+
+		result = JNIHelper::newObject(pEnv,
+			JNIHelper::findClass(pEnv, "com/bbn/parliament/jni/KbInstance$PredicateStatsResult"),
+			"(JJJ)V", static_cast<uint64>(numStmts), static_cast<uint64>(numDistinctSubjects),
+			static_cast<uint64>(numDistinctObjects));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
+
 JNIEXPORT jboolean JNICALL Java_com_bbn_parliament_jni_KbInstance_isRsrcLiteral(
 	JNIEnv* pEnv, jobject obj, jlong rsrcId)
 {
@@ -433,6 +526,121 @@ JNIEXPORT jstring JNICALL Java_com_bbn_parliament_jni_KbInstance_rsrcIdToUri(
 	return result;
 }
 
+JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_uriToRsrcIds(
+	JNIEnv* pEnv, jobject obj, jobject buffer, jintArray ends, jbooleanArray isLiteral,
+	jint count, jboolean createIfMissing, jlongArray rsrcIds)
+{
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		jlong capacity = 0;
+		const char* pBuffer = static_cast<const char*>(
+			JNIHelper::getDirectBufferAddress(pEnv, buffer, capacity));
+		if (count < 0 || pEnv->GetArrayLength(ends) < count
+			|| pEnv->GetArrayLength(isLiteral) < count || pEnv->GetArrayLength(rsrcIds) < count)
+		{
+			throw Exception(format{"Array is too short to hold %1% elements"} % count);
+		}
+
+		vector<jint> endOffsets(static_cast<size_t>(count));
+		vector<jboolean> literalFlags(static_cast<size_t>(count));
+		pEnv->GetIntArrayRegion(ends, 0, count, endOffsets.data());
+		pEnv->GetBooleanArrayRegion(isLiteral, 0, count, literalFlags.data());
+		if (pEnv->ExceptionCheck())
+		{
+			throw JavaException();
+		}
+
+		vector<jlong> result(static_cast<size_t>(count));
+		jint start = 0;
+		for (size_t i = 0; i < result.size(); ++i)
+		{
+			jint end = endOffsets[i];
+			if (end < start || end > capacity)
+			{
+				throw Exception(format{"Invalid end offset %1% for string %2%"} % end % i);
+			}
+			RsrcString uri = JNIHelper::modifiedUtf8ToRsrcString(
+				string_view{pBuffer + start, static_cast<size_t>(end - start)});
+			result[i] = static_cast<jlong>(pKb->uriToRsrcId(uri, !!literalFlags[i], !!createIfMissing));
+			start = end;
+		}
+
+		pEnv->SetLongArrayRegion(rsrcIds, 0, count, result.data());
+		if (pEnv->ExceptionCheck())
+		{
+			throw JavaException();
+		}
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+}
+
+// Encodes as many of the count resources beginning at offset as will fit in
+// the buffer, and returns the number encoded.  ends[i] receives the end
+// offset of the i-th encoded string, or -1 if the resource has no URI (e.g.,
+// a blank node).  If the first string does not fit, this returns zero and
+// stores the required capacity in ends[0].
+JNIEXPORT jint JNICALL Java_com_bbn_parliament_jni_KbInstance_rsrcIdsToUris(
+	JNIEnv* pEnv, jobject obj, jlongArray rsrcIds, jint offset, jint count,
+	jobject buffer, jintArray ends)
+{
+	jint result = 0;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		jlong capacity = 0;
+		char* pBuffer = static_cast<char*>(
+			JNIHelper::getDirectBufferAddress(pEnv, buffer, capacity));
+		if (offset < 0 || count < 0 || pEnv->GetArrayLength(rsrcIds) - offset < count
+			|| pEnv->GetArrayLength(ends) < count)
+		{
+			throw Exception(format{"Arrays are too short to hold %1% elements at offset %2%"}
+				% count % offset);
+		}
+
+		vector<jlong> ids(static_cast<size_t>(count));
+		pEnv->GetLongArrayRegion(rsrcIds, offset, count, ids.data());
+		if (pEnv->ExceptionCheck())
+		{
+			throw JavaException();
+		}
+
+		vector<jint> endOffsets;
+		endOffsets.reserve(ids.size());
+		size_t pos = 0;
+		size_t requiredCapacity = 0;
+		for (jlong id : ids)
+		{
+			const RsrcChar* pUri = pKb->rsrcIdToUri(static_cast<ResourceId>(id));
+			if (pUri == nullptr)
+			{
+				endOffsets.push_back(-1);
+				continue;
+			}
+
+			RsrcStringView uri{pUri};
+			size_t len = JNIHelper::modifiedUtf8Length(uri);
+			if (pos + len > static_cast<size_t>(capacity))
+			{
+				requiredCapacity = len;
+				break;
+			}
+			pos = static_cast<size_t>(JNIHelper::copyAsModifiedUtf8(uri, pBuffer + pos) - pBuffer);
+			endOffsets.push_back(static_cast<jint>(pos));
+		}
+
+		result = static_cast<jint>(endOffsets.size());
+		if (endOffsets.empty() && requiredCapacity > 0)
+		{
+			endOffsets.push_back(static_cast<jint>(requiredCapacity));
+		}
+
+		pEnv->SetIntArrayRegion(ends, 0, static_cast<jsize>(endOffsets.size()), endOffsets.data());
+		if (pEnv->ExceptionCheck())
+		{
+			throw JavaException();
+		}
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
+
 JNIEXPORT jlong JNICALL Java_com_bbn_parliament_jni_KbInstance_createAnonymousRsrc(
 	JNIEnv* pEnv, jobject obj)
 {
@@ -467,6 +675,98 @@ JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_deleteStmt(
 	END_JNI_EXCEPTION_HANDLER(pEnv)
 }
 
+JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_addStmts(
+	JNIEnv* pEnv, jobject obj, jlongArray subjectIds, jlongArray predicateIds,
+	jlongArray objectIds, jint count, jboolean isInferred)
+{
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		vector<ResourceId> subjects = JNIHelper::getRsrcIdArray(pEnv, subjectIds, count);
+		vector<ResourceId> predicates = JNIHelper::getRsrcIdArray(pEnv, predicateIds, count);
+		vector<ResourceId> objects = JNIHelper::getRsrcIdArray(pEnv, objectIds, count);
+		pKb->addStmts(subjects.data(), predicates.data(), objects.data(),
+			subjects.size(), !!isInferred);
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+}
+
+JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_deleteStmts(
+	JNIEnv* pEnv, jobject obj, jlongArray subjectIds, jlongArray predicateIds,
+	jlongArray objectIds, jint count)
+{
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		vector<ResourceId> subjects = JNIHelper::getRsrcIdArray(pEnv, subjectIds, count);
+		vector<ResourceId> predicates = JNIHelper::getRsrcIdArray(pEnv, predicateIds, count);
+		vector<ResourceId> objects = JNIHelper::getRsrcIdArray(pEnv, objectIds, count);
+		pKb->deleteStmts(subjects.data(), predicates.data(), objects.data(),
+			subjects.size());
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+}
+
+JNIEXPORT jlong JNICALL Java_com_bbn_parliament_jni_KbInstance_addQuad(
+	JNIEnv* pEnv, jobject obj, jlong subjectId,
+	jlong predicateId, jlong objectId, jlong graphId)
+{
+	jlong result = k_nullStmtId;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		result = static_cast<jlong>(pKb->addStmt(static_cast<ResourceId>(subjectId),
+			static_cast<ResourceId>(predicateId), static_cast<ResourceId>(objectId),
+			false, static_cast<ResourceId>(graphId)));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
+
+JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_deleteQuad(
+	JNIEnv* pEnv, jobject obj, jlong subjectId, jlong predicateId, jlong objectId,
+	jlong graphId)
+{
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		pKb->deleteStmt(static_cast<ResourceId>(subjectId), static_cast<ResourceId>(predicateId),
+			static_cast<ResourceId>(objectId), static_cast<ResourceId>(graphId));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+}
+
+JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_addQuads(
+	JNIEnv* pEnv, jobject obj, jlongArray subjectIds, jlongArray predicateIds,
+	jlongArray objectIds, jint count, jlong graphId)
+{
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		vector<ResourceId> subjects = JNIHelper::getRsrcIdArray(pEnv, subjectIds, count);
+		vector<ResourceId> predicates = JNIHelper::getRsrcIdArray(pEnv, predicateIds, count);
+		vector<ResourceId> objects = JNIHelper::getRsrcIdArray(pEnv, objectIds, count);
+		pKb->addStmts(subjects.data(), predicates.data(), objects.data(),
+			subjects.size(), false, static_cast<ResourceId>(graphId));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+}
+
+JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_deleteQuads(
+	JNIEnv* pEnv, jobject obj, jlongArray subjectIds, jlongArray predicateIds,
+	jlongArray objectIds, jint count, jlong graphId)
+{
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		vector<ResourceId> subjects = JNIHelper::getRsrcIdArray(pEnv, subjectIds, count);
+		vector<ResourceId> predicates = JNIHelper::getRsrcIdArray(pEnv, predicateIds, count);
+		vector<ResourceId> objects = JNIHelper::getRsrcIdArray(pEnv, objectIds, count);
+		pKb->deleteStmts(subjects.data(), predicates.data(), objects.data(),
+			subjects.size(), static_cast<ResourceId>(graphId));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+}
+
+JNIEXPORT jlong JNICALL Java_com_bbn_parliament_jni_KbInstance_clearGraph(
+	JNIEnv* pEnv, jobject obj, jlong graphId)
+{
+	jlong result = 0;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		KbInstance* pKb = kbPtr(pEnv, obj);
+		result = static_cast<jlong>(pKb->clearGraph(static_cast<ResourceId>(graphId)));
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
+
 JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_KbInstance_dumpKbAsNTriples(
 	JNIEnv* pEnv, jobject obj, jobject outputStream, jboolean includeInferredStmts,
 	jboolean includeDeletedStmts, jboolean useAsciiOnlyEncoding)
@@ -0,0 +1,84 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2022, BBN Technologies, Inc.
+// All rights reserved.
+
+#include "parliament/PermutationIndex.h"
+#include "parliament/Exceptions.h"
+
+namespace pmnt = ::bbn::parliament;
+
+const pmnt::PermutationIndex::StmtIdList pmnt::PermutationIndex::k_emptyList;
+
+void pmnt::PermutationIndex::insert(ResourceId subjectId, ResourceId predicateId,
+	ResourceId objectId, StatementId stmtId)
+{
+	StmtIdList& spList = m_spIndex[Key(subjectId, predicateId)];
+	StmtIdList& poList = m_poIndex[Key(predicateId, objectId)];
+	if (spList.empty() || poList.empty())
+	{
+		DistinctCounts& counts = m_distinctCounts[predicateId];
+		counts.m_numSubjects += spList.empty() ? 1 : 0;
+		counts.m_numObjects += poList.empty() ? 1 : 0;
+	}
+	spList.push_back(stmtId);
+	poList.push_back(stmtId);
+	m_osIndex[Key(objectId, subjectId)].push_back(stmtId);
+}
+
+void pmnt::PermutationIndex::clear()
+{
+	m_spIndex.clear();
+	m_poIndex.clear();
+	m_osIndex.clear();
+	m_distinctCounts.clear();
+}
+
+void pmnt::PermutationIndex::distinctCounts(ResourceId predicateId,
+	size_t& numDistinctSubjects, size_t& numDistinctObjects) const
+{
+	auto it = m_distinctCounts.find(predicateId);
+	numDistinctSubjects = (it == cend(m_distinctCounts)) ? 0 : it->second.m_numSubjects;
+	numDistinctObjects = (it == cend(m_distinctCounts)) ? 0 : it->second.m_numObjects;
+}
+
+const pmnt::PermutationIndex::StmtIdList& pmnt::PermutationIndex::find(
+	ResourceId subjectId, ResourceId predicateId, ResourceId objectId) const
+{
+	const StmtIdList* pResult = nullptr;
+	if (subjectId != k_nullRsrcId && predicateId != k_nullRsrcId)
+	{
+		pResult = &lookup(m_spIndex, subjectId, predicateId);
+	}
+	if (predicateId != k_nullRsrcId && objectId != k_nullRsrcId)
+	{
+		const StmtIdList& list = lookup(m_poIndex, predicateId, objectId);
+		if (pResult == nullptr || list.size() < pResult->size())
+		{
+			pResult = &list;
+		}
+	}
+	if (objectId != k_nullRsrcId && subjectId != k_nullRsrcId)
+	{
+		const StmtIdList& list = lookup(m_osIndex, objectId, subjectId);
+		if (pResult == nullptr || list.size() < pResult->size())
+		{
+			pResult = &list;
+		}
+	}
+	if (pResult == nullptr)
+	{
+		throw Exception("PermutationIndex::find requires at least two bound positions");
+	}
+	return *pResult;
+}
+
+const pmnt::PermutationIndex::StmtIdList& pmnt::PermutationIndex::lookup(
+	const Index& index, ResourceId first, ResourceId second)
+{
+	auto it = index.find(Key(first, second));
+	return (it == cend(index))
+		? k_emptyList
+		: it->second;
+}
@@ -17,7 +17,7 @@ namespace pmnt = ::bbn::parliament;
 static auto g_log(pmnt::log::getSource("ReificationIteratorJNI"));
 
 JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_ReificationIterator_dispose(
-	JNIEnv* pEnv, jobject /* obj */, jlong iterPtr)
+	JNIEnv* pEnv, jclass /* cls */, jlong iterPtr)
 {
 	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
 		ReificationIterator* pIter = reinterpret_cast<ReificationIterator*>(
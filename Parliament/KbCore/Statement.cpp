@@ -70,6 +70,13 @@ pmnt::ResourceId pmnt::Statement::getObjectId() const
 	}
 }
 
+pmnt::ResourceId pmnt::Statement::getGraphId() const
+{
+	return (m_stmtName == k_nullRsrcId)
+		? m_pKb->graph(m_stmtId)
+		: k_nullRsrcId;
+}
+
 bool pmnt::Statement::isDeleted() const
 {
 	return m_stmtName == k_nullRsrcId && m_pKb->isStmtDeleted(m_stmtId);
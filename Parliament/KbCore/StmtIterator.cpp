@@ -19,14 +19,17 @@ using ::std::numeric_limits;
 
 pmnt::StmtIterator::StmtIterator(const KbInstance* pKB,
 		ResourceId subjectId, ResourceId predicateId,
-		ResourceId objectId, StmtIteratorFlags flags) :
+		ResourceId objectId, StmtIteratorFlags flags, ResourceId graphId) :
 	m_pKb(pKB),
 	m_subjectId(subjectId),
 	m_predicateId(m_pKb->uriLib().translateReservedPredicate(predicateId)),
 	m_objectId(objectId),
+	m_graphId(graphId),
 	m_flags(flags),
 	m_stmtId(k_nullStmtId),
 	m_pStmtAdvanceFxn(0),
+	m_pIndexList(nullptr),
+	m_indexPos(0),
 	m_reificationEmit(0),
 	m_reificationEmitMode4SubMode(0),
 	m_reificationIter(m_pKb),
@@ -46,6 +49,27 @@ pmnt::StmtIterator::StmtIterator(const KbInstance* pKB,
 		m_flags |= StmtIteratorFlags::k_skipInferred;
 	}
 
+	// The virtual reification statements are in no graph:
+	if (m_graphId != k_nullRsrcId)
+	{
+		m_flags |= StmtIteratorFlags::k_skipVirtual;
+	}
+
+	int numBound = (m_subjectId != k_nullRsrcId)
+		+ (m_predicateId != k_nullRsrcId)
+		+ (m_objectId != k_nullRsrcId);
+	if (numBound >= 2)
+	{
+		m_pIndexList = m_pKb->findInPermutationIndex(m_subjectId, m_predicateId, m_objectId);
+		if (m_pIndexList != nullptr)
+		{
+			m_pStmtAdvanceFxn = &StmtIterator::advanceByIndex;
+			m_stmtId = m_pIndexList->empty() ? k_nullStmtId : (*m_pIndexList)[0];
+			advanceByIndexInternal();
+			return;
+		}
+	}
+
 	size_t subCount = (m_subjectId == k_nullRsrcId)
 		? numeric_limits<size_t>::max()
 		: m_pKb->subjectCount(m_subjectId);
@@ -102,7 +126,8 @@ void pmnt::StmtIterator::advanceByNoneInternal()
 			&& (includeInferredStmts() || !m_pKb->isStmtInferred(m_stmtId))
 			&& (includeLiteralStmts() || !isObjLiteral)
 			&& (includeNonLiteralStmts() || isObjLiteral)
-			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId)))
+			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId))
+			&& isInGraph())
 		{
 			prepareBasicStatement();
 			return;
@@ -136,7 +161,8 @@ void pmnt::StmtIterator::advanceBySubjectInternal()
 			&& (includeInferredStmts() || !m_pKb->isStmtInferred(m_stmtId))
 			&& (includeLiteralStmts() || !isObjLiteral)
 			&& (includeNonLiteralStmts() || isObjLiteral)
-			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId)))
+			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId))
+			&& isInGraph())
 		{
 			prepareBasicStatement();
 			return;
@@ -165,7 +191,8 @@ void pmnt::StmtIterator::advanceByPredicateInternal()
 			&& (includeInferredStmts() || !m_pKb->isStmtInferred(m_stmtId))
 			&& (includeLiteralStmts() || !isObjLiteral)
 			&& (includeNonLiteralStmts() || isObjLiteral)
-			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId)))
+			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId))
+			&& isInGraph())
 		{
 			prepareBasicStatement();
 			return;
@@ -194,11 +221,52 @@ void pmnt::StmtIterator::advanceByObjectInternal()
 			&& (includeInferredStmts() || !m_pKb->isStmtInferred(m_stmtId))
 			&& (includeLiteralStmts() || !isObjLiteral)
 			&& (includeNonLiteralStmts() || isObjLiteral)
-			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId)))
+			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId))
+			&& isInGraph())
+		{
+			prepareBasicStatement();
+			return;
+		}
+	}
+	prepareForReificationTriples();
+}
+
+void pmnt::StmtIterator::advanceByIndex()
+{
+	if (m_stmtId != k_nullStmtId)
+	{
+		++m_indexPos;
+		m_stmtId = (m_indexPos < m_pIndexList->size())
+			? (*m_pIndexList)[m_indexPos]
+			: k_nullStmtId;
+	}
+	advanceByIndexInternal();
+}
+
+// Unlike the chains, the index lists include deleted statements, so this
+// filters on all three positions and on the deleted flag.
+void pmnt::StmtIterator::advanceByIndexInternal()
+{
+	while (m_stmtId != k_nullStmtId)
+	{
+		bool isObjLiteral = m_pKb->isRsrcLiteral(m_pKb->object(m_stmtId));
+		if ((m_subjectId == k_nullRsrcId || m_pKb->subject(m_stmtId) == m_subjectId)
+			&& (m_predicateId == k_nullRsrcId || m_pKb->predicate(m_stmtId) == m_predicateId)
+			&& (m_objectId == k_nullRsrcId || m_pKb->object(m_stmtId) == m_objectId)
+			&& (includeDeletedStmts() || !m_pKb->isStmtDeleted(m_stmtId))
+			&& (includeInferredStmts() || !m_pKb->isStmtInferred(m_stmtId))
+			&& (includeLiteralStmts() || !isObjLiteral)
+			&& (includeNonLiteralStmts() || isObjLiteral)
+			&& (includeHiddenStmts() || !m_pKb->isStmtHidden(m_stmtId))
+			&& isInGraph())
 		{
 			prepareBasicStatement();
 			return;
 		}
+		++m_indexPos;
+		m_stmtId = (m_indexPos < m_pIndexList->size())
+			? (*m_pIndexList)[m_indexPos]
+			: k_nullStmtId;
 	}
 	prepareForReificationTriples();
 }
@@ -348,6 +416,11 @@ void pmnt::StmtIterator::advanceByReificationInternal()
 	}
 }
 
+bool pmnt::StmtIterator::isInGraph() const
+{
+	return m_graphId == k_nullRsrcId || m_pKb->graph(m_stmtId) == m_graphId;
+}
+
 void pmnt::StmtIterator::prepareBasicStatement()
 {
 	m_statement = Statement(m_pKb, m_stmtId);
@@ -11,13 +11,18 @@
 #include "parliament/Log.h"
 #include "parliament/StmtIterator.h"
 
+#include <algorithm>
+#include <vector>
+
 using namespace ::bbn::parliament;
 namespace pmnt = ::bbn::parliament;
+using ::std::min;
+using ::std::vector;
 
 static auto g_log(pmnt::log::getSource("StmtIteratorJNI"));
 
 JNIEXPORT void JNICALL Java_com_bbn_parliament_jni_StmtIterator_dispose(
-	JNIEnv* pEnv, jobject /* obj */, jlong iterPtr)
+	JNIEnv* pEnv, jclass /* cls */, jlong iterPtr)
 {
 	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
 		StmtIterator* pIter = reinterpret_cast<StmtIterator*>(
@@ -54,10 +59,11 @@ JNIEXPORT jobject JNICALL Java_com_bbn_parliament_jni_StmtIterator_nextStatement
 		const Statement& stmt = pIter->statementRef();
 		result = JNIHelper::newObject(pEnv,
 			JNIHelper::findClass(pEnv, "com/bbn/parliament/jni/StmtIterator$Statement"),
-			"(JJJZZZ)V",
+			"(JJJJZZZ)V",
 			static_cast<uint64>(stmt.getSubjectId()),
 			static_cast<uint64>(stmt.getPredicateId()),
 			static_cast<uint64>(stmt.getObjectId()),
+			static_cast<uint64>(stmt.getGraphId()),
 			stmt.isLiteral(),
 			stmt.isDeleted(),
 			stmt.isInferred());
@@ -65,3 +71,83 @@ JNIEXPORT jobject JNICALL Java_com_bbn_parliament_jni_StmtIterator_nextStatement
 	END_JNI_EXCEPTION_HANDLER(pEnv)
 	return result;
 }
+
+// Copies as many of the remaining statements as will fit into the Java
+// arrays. The graphs array may be null, in which case graphs are not copied.
+static jint fillBatch(JNIEnv* pEnv, jlong iterPtr, jlongArray subjects,
+	jlongArray predicates, jlongArray objects, jlongArray graphs, jbyteArray flags)
+{
+	StmtIterator* pIter = reinterpret_cast<StmtIterator*>(
+		static_cast<intPtr>(iterPtr));
+	jsize capacity = min(
+		min(pEnv->GetArrayLength(subjects), pEnv->GetArrayLength(predicates)),
+		min(pEnv->GetArrayLength(objects), pEnv->GetArrayLength(flags)));
+	if (graphs != nullptr)
+	{
+		capacity = min(capacity, pEnv->GetArrayLength(graphs));
+	}
+
+	// Fill native buffers first so that the statement chains are walked
+	// without holding any of the Java arrays pinned:
+	const auto bufferSize = static_cast<size_t>(capacity);
+	vector<jlong> subjBuffer(bufferSize);
+	vector<jlong> predBuffer(bufferSize);
+	vector<jlong> objBuffer(bufferSize);
+	vector<jlong> graphBuffer((graphs == nullptr) ? 0 : bufferSize);
+	vector<jbyte> flagBuffer(bufferSize);
+	jint result = 0;
+	for (; result < capacity && !pIter->isEnd(); ++result, ++*pIter)
+	{
+		const Statement& stmt = pIter->statementRef();
+		subjBuffer[result] = static_cast<jlong>(stmt.getSubjectId());
+		predBuffer[result] = static_cast<jlong>(stmt.getPredicateId());
+		objBuffer[result] = static_cast<jlong>(stmt.getObjectId());
+		if (graphs != nullptr)
+		{
+			graphBuffer[result] = static_cast<jlong>(stmt.getGraphId());
+		}
+		flagBuffer[result] = static_cast<jbyte>(
+			(stmt.isLiteral() ? com_bbn_parliament_jni_StmtIterator_LITERAL_STMT_FLAG : 0)
+			| (stmt.isDeleted() ? com_bbn_parliament_jni_StmtIterator_DELETED_STMT_FLAG : 0)
+			| (stmt.isInferred() ? com_bbn_parliament_jni_StmtIterator_INFERRED_STMT_FLAG : 0));
+	}
+
+	if (result > 0)
+	{
+		pEnv->SetLongArrayRegion(subjects, 0, result, subjBuffer.data());
+		pEnv->SetLongArrayRegion(predicates, 0, result, predBuffer.data());
+		pEnv->SetLongArrayRegion(objects, 0, result, objBuffer.data());
+		if (graphs != nullptr)
+		{
+			pEnv->SetLongArrayRegion(graphs, 0, result, graphBuffer.data());
+		}
+		pEnv->SetByteArrayRegion(flags, 0, result, flagBuffer.data());
+		if (pEnv->ExceptionCheck())
+		{
+			throw JavaException();
+		}
+	}
+	return result;
+}
+
+JNIEXPORT jint JNICALL Java_com_bbn_parliament_jni_StmtIterator_nextBatch(
+	JNIEnv* pEnv, jobject /* obj */, jlong iterPtr, jlongArray subjects,
+	jlongArray predicates, jlongArray objects, jbyteArray flags)
+{
+	jint result = 0;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		result = fillBatch(pEnv, iterPtr, subjects, predicates, objects, nullptr, flags);
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
+
+JNIEXPORT jint JNICALL Java_com_bbn_parliament_jni_StmtIterator_nextQuadBatch(
+	JNIEnv* pEnv, jobject /* obj */, jlong iterPtr, jlongArray subjects,
+	jlongArray predicates, jlongArray objects, jlongArray graphs, jbyteArray flags)
+{
+	jint result = 0;
+	BEGIN_JNI_EXCEPTION_HANDLER(pEnv)
+		result = fillBatch(pEnv, iterPtr, subjects, predicates, objects, graphs, flags);
+	END_JNI_EXCEPTION_HANDLER(pEnv)
+	return result;
+}
@@ -24,6 +24,8 @@ using ::std::string_view;
 
 static auto g_log(pmnt::log::getSource("StringToId"));
 
+static constexpr size_t k_numInfoLogsToKeep = 4;
+
 static auto buildErrorMsg(const rdb::Status& status, string_view msg) -> string
 {
 	return str(format("%1%: %2% (%3%/%4%)")
@@ -215,6 +217,9 @@ auto pmnt::StringToId::createDb(const KbConfig& config) -> RocksDBPtr
 	RocksDBPtr pDB;
 	rdb::Options options;
 	options.create_if_missing = true;
+	// RocksDB keeps up to a thousand old info logs by default, which adds up
+	// when a KB has many named graphs, each with its own database:
+	options.keep_log_file_num = k_numInfoLogsToKeep;
 	auto status = rdb::DB::Open(options, pathAsUtf8(rocksDbPath), &pDB);
 	throwOnError(status, "Unable to open RocksDB database");
 	return pDB;
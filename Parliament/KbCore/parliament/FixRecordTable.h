@@ -78,10 +78,12 @@ public:
 				size_t newRecCount = oldRecCount + numNewRecords;
 				if (m_growthFactor > 1.0)
 				{
+					// Round up, so that a small table with a factor close to one
+					// still grows:
 					using ULongLong = ::std::make_unsigned<long long>::type;
 					newRecCount = static_cast<size_t>(
 						static_cast<ULongLong>(
-						::std::llrint(m_growthFactor * newRecCount)));
+						::std::llrint(::std::ceil(m_growthFactor * newRecCount))));
 				}
 				if (m_growthIncrement > 0)
 				{
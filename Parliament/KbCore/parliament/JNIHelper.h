@@ -224,6 +224,16 @@ public:
 		const char* pSrcFile, uint32 srcLineNum);
 	static void throwJavaException(JNIEnv* pEnv, const char* pClassName, const char* pMsg);
 
+	static ::std::vector<ResourceId> getRsrcIdArray(JNIEnv* pEnv, jlongArray array, jint count);
+	static void* getDirectBufferAddress(JNIEnv* pEnv, jobject buffer, jlong& capacity);
+
+	// Conversions between resource strings and the "modified UTF-8" encoding
+	// that JNI uses for strings.  When resources are stored as UTF-8, these are
+	// simple copies.
+	static RsrcString modifiedUtf8ToRsrcString(::std::string_view src);
+	static size_t modifiedUtf8Length(RsrcStringView src);
+	static char* copyAsModifiedUtf8(RsrcStringView src, char* pDest);
+
 	static jobject newObject(JNIEnv* pEnv, jclass cls, const char* pCtorSignature, ...);
 	static jobject newObjectByDefaultCtor(JNIEnv* pEnv, jclass cls);
 	static jobject newObjectByDefaultCtor(JNIEnv* pEnv, const char* pClassName);
@@ -71,6 +71,10 @@ public:
 	void uriToIntFileName(::std::string_view newValue)
 		{ m_uriToIntFileName = newValue; }
 
+	// Name of the memory-mapped file holding the graph id of each statement.
+	// It exists only in a KB that has statements in named graphs.
+	Path graphFilePath() const;
+
 	// Whether to open the KB in read-only mode.
 	bool readOnly() const
 		{ return m_readOnly; }
@@ -132,6 +136,85 @@ public:
 	void normalizeTypedStringLiterals(bool newValue)
 		{ m_normalizeTypedStringLiterals = newValue; }
 
+	// The maximum number of node-to-resource-id mappings (and of decoded
+	// nodes for resource ids) cached by each graph in the Java layer.
+	size_t nodeIdCacheSize() const
+		{ return m_nodeIdCacheSize; }
+	void nodeIdCacheSize(size_t newValue)
+		{ m_nodeIdCacheSize = newValue; }
+
+	// Whether to keep in-memory indexes of the statements by pairs of
+	// resources, so that finds with two positions bound need not walk an
+	// entire subject or object chain.  The indexes are built when the KB is
+	// opened.
+	bool enablePermutationIndexes() const
+		{ return m_enablePermutationIndexes; }
+	void enablePermutationIndexes(bool newValue)
+		{ m_enablePermutationIndexes = newValue; }
+
+	// The fraction of deleted statements at which the server compacts a
+	// graph's statement table.  Zero disables automatic compaction.
+	double compactionTombstoneRatio() const
+		{ return m_compactionTombstoneRatio; }
+	void compactionTombstoneRatio(double newValue)
+		{ m_compactionTombstoneRatio = newValue; }
+
+	// The number of threads with which the server opens the named graphs at
+	// startup.  Zero means to open each named graph on first use instead.
+	size_t namedGraphOpenThreads() const
+		{ return m_namedGraphOpenThreads; }
+	void namedGraphOpenThreads(size_t newValue)
+		{ m_namedGraphOpenThreads = newValue; }
+
+	// The initial resource and statement capacities of a new named graph.
+	// Zero means to use initialRsrcCapacity or initialStmtCapacity instead.
+	size_t namedGraphInitialRsrcCapacity() const
+		{ return m_namedGraphInitialRsrcCapacity; }
+	void namedGraphInitialRsrcCapacity(size_t newValue)
+		{ m_namedGraphInitialRsrcCapacity = newValue; }
+	size_t namedGraphInitialStmtCapacity() const
+		{ return m_namedGraphInitialStmtCapacity; }
+	void namedGraphInitialStmtCapacity(size_t newValue)
+		{ m_namedGraphInitialStmtCapacity = newValue; }
+
+	// The factor by which the resource and statement tables of a named graph
+	// grow.  If this is greater than one, named graphs grow geometrically
+	// from their small initial capacities, ignoring the growth increments.
+	// Otherwise, they grow according to the general growth settings.
+	double namedGraphGrowthFactor() const
+		{ return m_namedGraphGrowthFactor; }
+	void namedGraphGrowthFactor(double newValue)
+		{ m_namedGraphGrowthFactor = newValue; }
+
+	// Whether new named graphs share a single quad store, with a graph id per
+	// statement, rather than each having its own set of files.
+	bool namedGraphQuadStore() const
+		{ return m_namedGraphQuadStore; }
+	void namedGraphQuadStore(bool newValue)
+		{ m_namedGraphQuadStore = newValue; }
+
+	// Whether the Java layer records each change in a write-ahead log before
+	// applying it, so that the KB files need only be synced at checkpoints.
+	bool journalEnabled() const
+		{ return m_journalEnabled; }
+	void journalEnabled(bool newValue)
+		{ m_journalEnabled = newValue; }
+
+	// Whether each change waits for the write-ahead log to reach the disk,
+	// rather than the log being forced in the background.
+	bool journalSyncOnCommit() const
+		{ return m_journalSyncOnCommit; }
+	void journalSyncOnCommit(bool newValue)
+		{ m_journalSyncOnCommit = newValue; }
+
+	// In milliseconds, how long a change waits for others to share its forcing
+	// of the write-ahead log, or if journalSyncOnCommit is off, the interval
+	// between background forcings (zero for the default).
+	size_t journalGroupCommitDelay() const
+		{ return m_journalGroupCommitDelay; }
+	void journalGroupCommitDelay(size_t newValue)
+		{ m_journalGroupCommitDelay = newValue; }
+
 	// How long to allow a query to run before aborting it.
 	size_t timeoutDuration() const
 		{ return m_timeoutDuration; }
@@ -281,6 +364,17 @@ private:
 	double			m_stmtGrowthFactor;
 
 	bool				m_normalizeTypedStringLiterals;
+	size_t			m_nodeIdCacheSize;
+	bool				m_enablePermutationIndexes;
+	double			m_compactionTombstoneRatio;
+	size_t			m_namedGraphOpenThreads;
+	size_t			m_namedGraphInitialRsrcCapacity;
+	size_t			m_namedGraphInitialStmtCapacity;
+	double			m_namedGraphGrowthFactor;
+	bool				m_namedGraphQuadStore;
+	bool				m_journalEnabled;
+	bool				m_journalSyncOnCommit;
+	size_t			m_journalGroupCommitDelay;
 
 	size_t			m_timeoutDuration;
 	TimeUnit			m_timeoutUnit;
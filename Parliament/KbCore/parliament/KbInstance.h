@@ -8,6 +8,7 @@
 #define PARLIAMENT_KBINSTANCE_H_INCLUDED
 
 #include "parliament/Platform.h"
+#include "parliament/PermutationIndex.h"
 #include "parliament/PhysicalStmtIterator.h"
 #include "parliament/ReificationIterator.h"
 #include "parliament/StmtIterator.h"
@@ -48,6 +49,7 @@ public:
 	PARLIAMENT_EXPORT void getExcessCapacity(/* out */ double& pctUnusedUriCapacity,
 		/* out */ double& pctUnusedRsrcCapacity, /* out */ double& pctUnusedStmtCapacity) const;
 	PARLIAMENT_EXPORT void releaseExcessCapacity();
+	PARLIAMENT_EXPORT size_t compact();
 
 	PARLIAMENT_EXPORT ResourceId uriToRsrcId(RsrcStringView uri, bool isLiteral, bool createIfMissing);
 	PARLIAMENT_EXPORT const RsrcChar* rsrcIdToUri(ResourceId rsrcId) const;
@@ -60,10 +62,21 @@ public:
 		/* out */ size_t& numInferred, /* out */ size_t& numDelAndInferred,
 		/* out */ size_t& numHidden, /* out */ size_t& numVirtual) const;
 
+	// The graphId parameters below name the graph of a statement in a quad
+	// store.  For adds and deletes, k_nullRsrcId means the statement is in no
+	// graph, and for finds, it means the statement may be in any graph.
 	PARLIAMENT_EXPORT StatementId addStmt(ResourceId subjectId,
-		ResourceId predicateId, ResourceId objectId, bool isInferred);
+		ResourceId predicateId, ResourceId objectId, bool isInferred,
+		ResourceId graphId = k_nullRsrcId);
 	PARLIAMENT_EXPORT void deleteStmt(ResourceId subjectId, ResourceId predicateId,
-		ResourceId objectId);
+		ResourceId objectId, ResourceId graphId = k_nullRsrcId);
+	PARLIAMENT_EXPORT void addStmts(const ResourceId* pSubjectIds,
+		const ResourceId* pPredicateIds, const ResourceId* pObjectIds,
+		size_t count, bool isInferred, ResourceId graphId = k_nullRsrcId);
+	PARLIAMENT_EXPORT void deleteStmts(const ResourceId* pSubjectIds,
+		const ResourceId* pPredicateIds, const ResourceId* pObjectIds,
+		size_t count, ResourceId graphId = k_nullRsrcId);
+	PARLIAMENT_EXPORT size_t clearGraph(ResourceId graphId);
 
 	PARLIAMENT_EXPORT ::std::pair<ResourceId, StatementId> addReification(
 		ResourceId stmtName, ResourceId subjectId, ResourceId predicateId,
@@ -75,11 +88,16 @@ public:
 	PARLIAMENT_EXPORT ResourceId predicate(StatementId stmtId) const;
 	PARLIAMENT_EXPORT ResourceId object(StatementId stmtId) const;
 	PARLIAMENT_EXPORT ResourceId statementTag(StatementId stmtId) const;
+	PARLIAMENT_EXPORT ResourceId graph(StatementId stmtId) const;
 
 	PARLIAMENT_EXPORT StmtIterator begin(StmtIteratorFlags flags = StmtIteratorFlags::k_skipDeleted) const;
 	PARLIAMENT_EXPORT StmtIterator end() const;
 	PARLIAMENT_EXPORT StmtIterator find(ResourceId subjectId, ResourceId predicateId,
-		ResourceId objectId, StmtIteratorFlags flags = StmtIteratorFlags::k_skipDeleted) const;
+		ResourceId objectId, StmtIteratorFlags flags = StmtIteratorFlags::k_skipDeleted,
+		ResourceId graphId = k_nullRsrcId) const;
+
+	const PermutationIndex::StmtIdList* findInPermutationIndex(ResourceId subjectId,
+		ResourceId predicateId, ResourceId objectId) const;
 
 	PhysicalStmtIterator beginPhysical(StmtIteratorFlags flags = StmtIteratorFlags::k_skipDeleted) const;
 	PhysicalStmtIterator endPhysical() const;
@@ -99,6 +117,11 @@ public:
 	PARLIAMENT_EXPORT size_t subjectCount(ResourceId subjectId) const;
 	PARLIAMENT_EXPORT size_t predicateCount(ResourceId predicateId) const;
 	PARLIAMENT_EXPORT size_t objectCount(ResourceId objectId) const;
+	PARLIAMENT_EXPORT size_t graphStmtCount(ResourceId graphId) const;
+	PARLIAMENT_EXPORT size_t countMatches(ResourceId subjectId, ResourceId predicateId,
+		ResourceId objectId) const;
+	PARLIAMENT_EXPORT void predicateStats(ResourceId predicateId, /* out */ size_t& numStmts,
+		/* out */ size_t& numDistinctSubjects, /* out */ size_t& numDistinctObjects) const;
 
 	PARLIAMENT_EXPORT StatementId firstSubject(ResourceId subjectId,
 		DeletedStmtsAction delStmtsAction = DeletedStmtsAction::exclude) const;
@@ -162,15 +185,22 @@ public:
 
 private:
 	static double computeExcessCapacity(size_t capacity, size_t recCount);
+	void buildPermutationIndex();
 	ResourceId createStmtTagRsrc(StatementId reifiedStmtId);
 	KbRsrc* rsrcIdToRsrc(ResourceId rsrcId) const;
 	KbStmt* stmtIdToStmt(StatementId stmtId) const;
 	KbStmt* stmtIdToStmt(StatementId stmtId, const ::std::nothrow_t& nothrow) const;
-	Statement findStatement(ResourceId subjectId, ResourceId predicateId, ResourceId objectId) const;
-	StatementId findStatementId(ResourceId subjectId, ResourceId predicateId, ResourceId objectId) const;
-	StatementId addStmtInternal(ResourceId subjectId, ResourceId predicateId, ResourceId objectId, bool isInferred);
+	Statement findStatement(ResourceId subjectId, ResourceId predicateId,
+		ResourceId objectId, ResourceId graphId = k_nullRsrcId) const;
+	StatementId findStatementId(ResourceId subjectId, ResourceId predicateId,
+		ResourceId objectId, ResourceId graphId = k_nullRsrcId) const;
+	StatementId addStmtInternal(ResourceId subjectId, ResourceId predicateId,
+		ResourceId objectId, bool isInferred, ResourceId graphId);
+	void addPendingStmts();
 	StatementId addStmtCore(ResourceId subjectId, ResourceId predicateId,
-		ResourceId objectId, bool isHidden, bool isDeleted, bool isInferred);
+		ResourceId objectId, bool isHidden, bool isDeleted, bool isInferred,
+		ResourceId graphId = k_nullRsrcId);
+	void openGraphTable(bool createIfMissing);
 	void excludeReservedIris(ResourceId subjectId, ResourceId predicateId, ResourceId objectId);
 	void excludeReservedIris(ResourceId rsrcIdToTest);
 	void excludeReservedIris(ResourceId rsrcIdToTest, const LazyRsrc& excludedRsrc);
@@ -15,12 +15,15 @@
 #include "parliament/KbStmt.h"
 #include "parliament/Log.h"
 #include "parliament/NewStmtHandler.h"
+#include "parliament/PermutationIndex.h"
 #include "parliament/RuleEngine.h"
 #include "parliament/StringToId.h"
 #include "parliament/UriLib.h"
 #include "parliament/VarRecordTable.h"
 
 #include <atomic>
+#include <memory>
+#include <mutex>
 #include <unordered_map>
 #include <vector>
 
@@ -41,17 +44,29 @@ struct PartialReification
 };
 
 struct StmtToAdd {
-	StmtToAdd(ResourceId subjId, ResourceId predId, ResourceId objId, bool isInferred) :
+	StmtToAdd(ResourceId subjId, ResourceId predId, ResourceId objId, bool isInferred,
+			ResourceId graphId = k_nullRsrcId) :
 		m_subjId(subjId),
 		m_predId(predId),
 		m_objId(objId),
-		m_isInferred(isInferred)
+		m_isInferred(isInferred),
+		m_graphId(graphId)
 	{}
 
 	ResourceId m_subjId;
 	ResourceId m_predId;
 	ResourceId m_objId;
 	bool m_isInferred;
+	ResourceId m_graphId;
+};
+
+// Statistics about the statements with a given predicate, cached by
+// KbInstance::predicateStats when the permutation indexes are off.
+struct PredicateStats
+{
+	size_t m_numStmts;
+	size_t m_numDistinctSubjects;
+	size_t m_numDistinctObjects;
 };
 
 class KbInstance;
@@ -64,6 +79,9 @@ struct KbInstance::Impl
 	using RsrcTable = FixRecordTable<KbRsrc>;
 	using StmtTable = FixRecordTable<KbStmt>;
 	using AddStmtStack = ::std::vector<StmtToAdd>;
+	using PredicateStatsMap = ::std::unordered_map<ResourceId, PredicateStats>;
+	using GraphTable = FixRecordTable<ResourceId>;
+	using GraphStmtCountMap = ::std::unordered_map<ResourceId, size_t>;
 
 	Impl(const KbConfig& config, KbInstance* pKB) :
 		m_config(config.ensureKbDirExists()),
@@ -79,7 +97,12 @@ struct KbInstance::Impl
 			m_config.rsrcGrowthIncrement(), m_config.rsrcGrowthFactor()),
 		m_stmtTbl(m_config.stmtFilePath(), m_config.readOnly(), m_config.initialStmtCapacity(),
 			m_config.stmtGrowthIncrement(), m_config.stmtGrowthFactor()),
+		m_graphTbl(),
+		m_graphStmtCounts(),
 		m_uriLib(pKB),
+		m_permutationIndex(),
+		m_predicateStatsMutex(),
+		m_predicateStats(),
 		m_addStmtStack(),
 		m_re(pKB)
 	{
@@ -118,8 +141,13 @@ struct KbInstance::Impl
 	StringToId				m_uriToRsrcId;		// Mapping between URI's and ResourceId's
 	RsrcTable				m_rsrcTbl;			// Stores info about each resource (e.g., first use, validity)
 	StmtTable				m_stmtTbl;			// Stores triples (subjectId, predicateId, objectId)
+	::std::unique_ptr<GraphTable>	m_graphTbl;	// The graph of each statement, if any is in a graph
+	GraphStmtCountMap		m_graphStmtCounts;	// The number of non-deleted statements in each graph
 
 	UriLib					m_uriLib;
+	PermutationIndex		m_permutationIndex;	// Empty unless enablePermutationIndexes is on
+	mutable ::std::mutex	m_predicateStatsMutex;
+	mutable PredicateStatsMap	m_predicateStats;	// Used only when m_permutationIndex is off
 	AddStmtStack			m_addStmtStack;
 	RuleEngine				m_re;					// Implements SWRL-style rule inferencing
 };
@@ -0,0 +1,93 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2022, BBN Technologies, Inc.
+// All rights reserved.
+
+#if !defined(PARLIAMENT_PERMUTATIONINDEX_H_INCLUDED)
+#define PARLIAMENT_PERMUTATIONINDEX_H_INCLUDED
+
+#include "parliament/Types.h"
+
+#include <unordered_map>
+#include <utility>
+#include <vector>
+
+namespace bbn::parliament
+{
+
+// An in-memory index of the statement table keyed by pairs of resource ids,
+// in the three rotations (subject, predicate), (predicate, object), and
+// (object, subject).  Together these answer every find() with two or three
+// bound positions directly, rather than by walking the entire subject,
+// predicate, or object chain of one of the bound resources.
+//
+// Each key maps to the ids of the statements with that pair of resources, in
+// ascending order.  Statements are never removed from the statement table
+// (deletion only sets a flag), so the lists only ever grow.  The lists are
+// held in node-based maps, so a pointer to a list remains valid as new
+// statements are inserted, which lets a StmtIterator walk a list while the
+// KB is being modified.
+class PermutationIndex
+{
+public:
+	using StmtIdList = ::std::vector<StatementId>;
+
+	PermutationIndex() = default;
+	PermutationIndex(const PermutationIndex&) = delete;
+	PermutationIndex& operator=(const PermutationIndex&) = delete;
+	PermutationIndex(PermutationIndex&&) = delete;
+	PermutationIndex& operator=(PermutationIndex&&) = delete;
+	~PermutationIndex() = default;
+
+	void insert(ResourceId subjectId, ResourceId predicateId, ResourceId objectId,
+		StatementId stmtId);
+	void clear();
+
+	// Returns the statements matching the given pattern, in which at least
+	// two positions must be bound.  If all three are bound, the shortest of
+	// the candidate lists is returned.  In any case, the caller must still
+	// check the statements against the positions and flags it cares about.
+	const StmtIdList& find(ResourceId subjectId, ResourceId predicateId,
+		ResourceId objectId) const;
+
+	// The numbers of distinct subjects and objects that occur with the given
+	// predicate, counting deleted statements too.
+	void distinctCounts(ResourceId predicateId, /* out */ size_t& numDistinctSubjects,
+		/* out */ size_t& numDistinctObjects) const;
+
+	size_t keyCount() const
+		{ return m_spIndex.size() + m_poIndex.size() + m_osIndex.size(); }
+
+private:
+	using Key = ::std::pair<ResourceId, ResourceId>;
+
+	struct KeyHash
+	{
+		size_t operator()(const Key& key) const noexcept
+			{ return key.first * 0x9e3779b97f4a7c15ull ^ key.second; }
+	};
+
+	using Index = ::std::unordered_map<Key, StmtIdList, KeyHash>;
+
+	struct DistinctCounts
+	{
+		size_t m_numSubjects = 0;
+		size_t m_numObjects = 0;
+	};
+
+	using DistinctCountMap = ::std::unordered_map<ResourceId, DistinctCounts>;
+
+	static const StmtIdList& lookup(const Index& index, ResourceId first, ResourceId second);
+
+	Index m_spIndex;
+	Index m_poIndex;
+	Index m_osIndex;
+	DistinctCountMap m_distinctCounts;
+
+	static const StmtIdList k_emptyList;
+};
+
+}	// namespace end
+
+#endif // !PARLIAMENT_PERMUTATIONINDEX_H_INCLUDED
@@ -49,6 +49,7 @@ public:
 	PARLIAMENT_EXPORT ResourceId getSubjectId() const;
 	PARLIAMENT_EXPORT ResourceId getPredicateId() const;
 	PARLIAMENT_EXPORT ResourceId getObjectId() const;
+	PARLIAMENT_EXPORT ResourceId getGraphId() const;
 	StatementId getStatementId() const
 		{ return (m_stmtName == k_nullRsrcId) ? m_stmtId : k_nullStmtId; }
 	PARLIAMENT_EXPORT bool isDeleted() const;
@@ -9,6 +9,7 @@
 
 #include "parliament/Types.h"
 #include "parliament/KbStmt.h"
+#include "parliament/PermutationIndex.h"
 #include "parliament/Statement.h"
 #include "parliament/ReificationIterator.h"
 
@@ -37,9 +38,12 @@ public:
 			m_subjectId(k_nullRsrcId),
 			m_predicateId(k_nullRsrcId),
 			m_objectId(k_nullRsrcId),
+			m_graphId(k_nullRsrcId),
 			m_flags(StmtIteratorFlags::k_skipNone),
 			m_stmtId(k_nullStmtId),
 			m_pStmtAdvanceFxn(0),
+			m_pIndexList(nullptr),
+			m_indexPos(0),
 			m_reificationEmit(0),
 			m_reificationEmitMode4SubMode(0),
 			m_reificationIter(m_pKb),
@@ -47,7 +51,8 @@ public:
 		{}
 	StmtIterator(const KbInstance* pKB,
 		ResourceId subjectId, ResourceId predicateId,
-		ResourceId objectId, StmtIteratorFlags flags = StmtIteratorFlags::k_skipDeleted);
+		ResourceId objectId, StmtIteratorFlags flags = StmtIteratorFlags::k_skipDeleted,
+		ResourceId graphId = k_nullRsrcId);
 
 	StmtIterator(const StmtIterator&) = default;
 	StmtIterator& operator=(const StmtIterator&) = default;
@@ -123,19 +128,25 @@ private:
 	void advanceByPredicateInternal();
 	void advanceByObject();
 	void advanceByObjectInternal();
+	void advanceByIndex();
+	void advanceByIndexInternal();
 	void advanceByReification();
 	void advanceByReificationInternal();
 	void prepareForReificationTriples();
 	void prepareBasicStatement();
 	void prepareReificationStatement(int mode);
+	bool isInGraph() const;
 
 	const KbInstance*		m_pKb;
 	ResourceId				m_subjectId;
 	ResourceId				m_predicateId;
 	ResourceId				m_objectId;
+	ResourceId				m_graphId;			// k_nullRsrcId matches any graph
 	StmtIteratorFlags		m_flags;
 	StatementId				m_stmtId;
 	StmtAdvanceFxn			m_pStmtAdvanceFxn;
+	const PermutationIndex::StmtIdList*	m_pIndexList;	// Used only by advanceByIndex
+	size_t					m_indexPos;
 	int						m_reificationEmit;
 	int						m_reificationEmitMode4SubMode;
 	ReificationIterator	m_reificationIter;
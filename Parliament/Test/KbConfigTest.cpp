@@ -57,6 +57,17 @@ BOOST_AUTO_TEST_CASE(testConfigDefaultCtor)
 	BOOST_CHECK_EQUAL(0.0, defaults.stmtGrowthFactor());
 
 	BOOST_CHECK_EQUAL(true, defaults.normalizeTypedStringLiterals());
+	BOOST_CHECK_EQUAL(100000u, defaults.nodeIdCacheSize());
+	BOOST_CHECK_EQUAL(false, defaults.enablePermutationIndexes());
+	BOOST_CHECK_EQUAL(0.0, defaults.compactionTombstoneRatio());
+	BOOST_CHECK_EQUAL(0u, defaults.namedGraphOpenThreads());
+	BOOST_CHECK_EQUAL(1000u, defaults.namedGraphInitialRsrcCapacity());
+	BOOST_CHECK_EQUAL(1000u, defaults.namedGraphInitialStmtCapacity());
+	BOOST_CHECK_EQUAL(2.0, defaults.namedGraphGrowthFactor());
+	BOOST_CHECK_EQUAL(false, defaults.namedGraphQuadStore());
+	BOOST_CHECK_EQUAL(true, defaults.journalEnabled());
+	BOOST_CHECK_EQUAL(false, defaults.journalSyncOnCommit());
+	BOOST_CHECK_EQUAL(0u, defaults.journalGroupCommitDelay());
 
 	BOOST_CHECK_EQUAL(5u, defaults.timeoutDuration());
 	BOOST_CHECK(TimeUnit::k_min == defaults.timeoutUnit());
@@ -104,6 +115,17 @@ BOOST_AUTO_TEST_CASE(testConfigDefaultFileContainsDefaults)
 	BOOST_CHECK_EQUAL(defaults.stmtGrowthIncrement(), c.stmtGrowthIncrement());
 	BOOST_CHECK_EQUAL(defaults.stmtGrowthFactor(), c.stmtGrowthFactor());
 	BOOST_CHECK_EQUAL(defaults.normalizeTypedStringLiterals(), c.normalizeTypedStringLiterals());
+	BOOST_CHECK_EQUAL(defaults.nodeIdCacheSize(), c.nodeIdCacheSize());
+	BOOST_CHECK_EQUAL(defaults.enablePermutationIndexes(), c.enablePermutationIndexes());
+	BOOST_CHECK_EQUAL(defaults.compactionTombstoneRatio(), c.compactionTombstoneRatio());
+	BOOST_CHECK_EQUAL(defaults.namedGraphOpenThreads(), c.namedGraphOpenThreads());
+	BOOST_CHECK_EQUAL(defaults.namedGraphInitialRsrcCapacity(), c.namedGraphInitialRsrcCapacity());
+	BOOST_CHECK_EQUAL(defaults.namedGraphInitialStmtCapacity(), c.namedGraphInitialStmtCapacity());
+	BOOST_CHECK_EQUAL(defaults.namedGraphGrowthFactor(), c.namedGraphGrowthFactor());
+	BOOST_CHECK_EQUAL(defaults.namedGraphQuadStore(), c.namedGraphQuadStore());
+	BOOST_CHECK_EQUAL(defaults.journalEnabled(), c.journalEnabled());
+	BOOST_CHECK_EQUAL(defaults.journalSyncOnCommit(), c.journalSyncOnCommit());
+	BOOST_CHECK_EQUAL(defaults.journalGroupCommitDelay(), c.journalGroupCommitDelay());
 
 	BOOST_CHECK_EQUAL(defaults.timeoutDuration(), c.timeoutDuration());
 	BOOST_CHECK(defaults.timeoutUnit() == c.timeoutUnit());
@@ -217,9 +217,13 @@ static void runOpenTest(KbConfig& config)
 
 BOOST_AUTO_TEST_SUITE(KbInstanceTestSuite)
 
-BOOST_AUTO_TEST_CASE(testByQuickOverview)
+BOOST_DATA_TEST_CASE(
+	testByQuickOverview,
+	bdata::make({ false, true }),
+	enablePermutationIndexes)
 {
 	KbConfig config = createTestConfig(true);
+	config.enablePermutationIndexes(enablePermutationIndexes);
 	KbDeleter deleter(config, true);
 
 	runCreateTest(config);
@@ -338,6 +342,58 @@ BOOST_DATA_TEST_CASE(
 	}
 }
 
+BOOST_DATA_TEST_CASE(
+	testCountMatchesAndPredicateStats,
+	bdata::make({ false, true }),
+	enablePermutationIndexes)
+{
+	KbConfig config = createTestConfig(false);
+	config.enablePermutationIndexes(enablePermutationIndexes);
+	KbDeleter deleter(config, true);
+	KbInstance kb(config);
+
+	ResourceId rdfTypeRsrcId	= kb.uriLib().m_rdfType.id();
+	ResourceId humanRsrcId		= kb.uriToRsrcId(k_humanUri, false, true);
+	ResourceId dogRsrcId			= kb.uriToRsrcId(k_dogUri, false, true);
+	ResourceId catRsrcId			= kb.uriToRsrcId(k_catUri, false, true);
+	ResourceId mammalRsrcId		= kb.uriToRsrcId(k_mammalUri, false, true);
+	ResourceId animalRsrcId		= kb.uriToRsrcId(k_animalUri, false, true);
+	ResourceId dickRsrcId		= kb.uriToRsrcId(k_dickUri, false, true);
+	ResourceId janeRsrcId		= kb.uriToRsrcId(k_janeUri, false, true);
+	ResourceId spotRsrcId		= kb.uriToRsrcId(k_spotUri, false, true);
+	ResourceId puffRsrcId		= kb.uriToRsrcId(k_puffUri, false, true);
+
+	kb.addStmt(dickRsrcId, rdfTypeRsrcId, humanRsrcId, false);
+	kb.addStmt(dickRsrcId, rdfTypeRsrcId, mammalRsrcId, false);
+	kb.addStmt(janeRsrcId, rdfTypeRsrcId, humanRsrcId, false);
+	kb.addStmt(spotRsrcId, rdfTypeRsrcId, dogRsrcId, false);
+	kb.addStmt(puffRsrcId, rdfTypeRsrcId, catRsrcId, false);
+
+	BOOST_CHECK_EQUAL(2u, kb.countMatches(k_nullRsrcId, rdfTypeRsrcId, humanRsrcId));
+	BOOST_CHECK_EQUAL(2u, kb.countMatches(dickRsrcId, rdfTypeRsrcId, k_nullRsrcId));
+	BOOST_CHECK_EQUAL(1u, kb.countMatches(dickRsrcId, k_nullRsrcId, mammalRsrcId));
+	BOOST_CHECK_EQUAL(1u, kb.countMatches(dickRsrcId, rdfTypeRsrcId, humanRsrcId));
+	BOOST_CHECK_EQUAL(0u, kb.countMatches(k_nullRsrcId, rdfTypeRsrcId, animalRsrcId));
+	BOOST_CHECK_EQUAL(5u, kb.countMatches(k_nullRsrcId, rdfTypeRsrcId, k_nullRsrcId));
+
+	kb.deleteStmt(janeRsrcId, rdfTypeRsrcId, humanRsrcId);
+	BOOST_CHECK_EQUAL(1u, kb.countMatches(k_nullRsrcId, rdfTypeRsrcId, humanRsrcId));
+
+	// The statistics include the deleted statement:
+	size_t numStmts = 0;
+	size_t numDistinctSubjects = 0;
+	size_t numDistinctObjects = 0;
+	kb.predicateStats(rdfTypeRsrcId, numStmts, numDistinctSubjects, numDistinctObjects);
+	BOOST_CHECK_EQUAL(5u, numStmts);
+	BOOST_CHECK_EQUAL(4u, numDistinctSubjects);
+	BOOST_CHECK_EQUAL(4u, numDistinctObjects);
+
+	kb.predicateStats(humanRsrcId, numStmts, numDistinctSubjects, numDistinctObjects);
+	BOOST_CHECK_EQUAL(0u, numStmts);
+	BOOST_CHECK_EQUAL(0u, numDistinctSubjects);
+	BOOST_CHECK_EQUAL(0u, numDistinctObjects);
+}
+
 BOOST_AUTO_TEST_CASE(testDumpKbAsNTriples)
 {
 	auto config = createTestConfig(true);
@@ -419,9 +475,13 @@ BOOST_AUTO_TEST_CASE(testDumpKbAsNTriples)
 	checkSetsEqual(expectedLineSet, actualLineSet);
 }
 
-BOOST_AUTO_TEST_CASE(testReservedPredicates)
+BOOST_DATA_TEST_CASE(
+	testReservedPredicates,
+	bdata::make({ false, true }),
+	enablePermutationIndexes)
 {
 	KbConfig config = createTestConfig(true);
+	config.enablePermutationIndexes(enablePermutationIndexes);
 	KbDeleter deleter(config, true);
 	KbInstance kb(config);
 
@@ -500,4 +560,62 @@ BOOST_AUTO_TEST_CASE(testReservedPredicates)
 	BOOST_CHECK_EQUAL(0u, kb.objectCount(parDirectTypeRsrcId));
 }
 
+BOOST_DATA_TEST_CASE(
+	testCompact,
+	bdata::make({ false, true }),
+	enablePermutationIndexes)
+{
+	KbConfig config = createTestConfig(false);
+	config.enablePermutationIndexes(enablePermutationIndexes);
+	KbDeleter deleter(config, true);
+	KbInstance kb(config);
+
+	ResourceId rdfTypeRsrcId	= kb.uriLib().m_rdfType.id();
+	ResourceId humanRsrcId		= kb.uriToRsrcId(k_humanUri, false, true);
+	ResourceId dogRsrcId			= kb.uriToRsrcId(k_dogUri, false, true);
+	ResourceId dickRsrcId		= kb.uriToRsrcId(k_dickUri, false, true);
+	ResourceId janeRsrcId		= kb.uriToRsrcId(k_janeUri, false, true);
+	ResourceId spotRsrcId		= kb.uriToRsrcId(k_spotUri, false, true);
+	ResourceId mikeRsrcId		= kb.uriToRsrcId(k_mikeUri, false, true);
+
+	kb.addStmt(dickRsrcId, rdfTypeRsrcId, humanRsrcId, false);
+	kb.addStmt(spotRsrcId, rdfTypeRsrcId, dogRsrcId, false);
+	kb.addStmt(janeRsrcId, rdfTypeRsrcId, humanRsrcId, false);
+	kb.addStmt(mikeRsrcId, rdfTypeRsrcId, humanRsrcId, false);
+	kb.deleteStmt(dickRsrcId, rdfTypeRsrcId, humanRsrcId);
+	kb.deleteStmt(spotRsrcId, rdfTypeRsrcId, dogRsrcId);
+
+	size_t rsrcCount = kb.rsrcCount();
+	BOOST_CHECK_EQUAL(4u, kb.stmtCount());
+	BOOST_CHECK_EQUAL(2u, kb.compact());
+	BOOST_CHECK_EQUAL(2u, kb.stmtCount());
+	BOOST_CHECK_EQUAL(rsrcCount, kb.rsrcCount());
+	BOOST_CHECK_EQUAL(0u, kb.compact());
+
+	size_t total, numDel, numInferred, numDelAndInferred, numHidden, numVirtual;
+	kb.countStmts(total, numDel, numInferred, numDelAndInferred, numHidden, numVirtual);
+	BOOST_CHECK_EQUAL(2u, total);
+	BOOST_CHECK_EQUAL(0u, numDel);
+
+	// The chains and use counts cover only the remaining statements:
+	RsrcList expectedHumans;
+	expectedHumans.insert(janeRsrcId);
+	expectedHumans.insert(mikeRsrcId);
+	findInstances(kb, humanRsrcId, expectedHumans);
+	findInstances(kb, dogRsrcId, RsrcList());
+	BOOST_CHECK_EQUAL(2u, kb.objectCount(humanRsrcId));
+	BOOST_CHECK_EQUAL(0u, kb.objectCount(dogRsrcId));
+	BOOST_CHECK_EQUAL(2u, kb.predicateCount(rdfTypeRsrcId));
+	BOOST_CHECK_EQUAL(0u, kb.subjectCount(dickRsrcId));
+	BOOST_CHECK_EQUAL(1u, kb.subjectCount(mikeRsrcId));
+	BOOST_CHECK_EQUAL(1u, kb.countMatches(mikeRsrcId, rdfTypeRsrcId, humanRsrcId));
+
+	// The compacted KB accepts new statements, including re-adding one that was removed:
+	kb.addStmt(dickRsrcId, rdfTypeRsrcId, humanRsrcId, false);
+	expectedHumans.insert(dickRsrcId);
+	findInstances(kb, humanRsrcId, expectedHumans);
+	::std::ostringstream validationOut;
+	BOOST_CHECK_MESSAGE(kb.validate(validationOut), validationOut.str());
+}
+
 BOOST_AUTO_TEST_SUITE_END()
@@ -83,6 +83,74 @@ public class KbConfig {
 	/** Whether to translate typed string literals to plain literals */
 	public boolean m_normalizeTypedStringLiterals;
 
+	/**
+	 * The maximum number of node-to-resource-id mappings (and of decoded nodes
+	 * for resource ids) each graph caches in the Java layer
+	 */
+	public long    m_nodeIdCacheSize;
+
+	/**
+	 * Whether to keep in-memory indexes of the statements by pairs of
+	 * resources, to speed up finds with two positions bound
+	 */
+	public boolean m_enablePermutationIndexes;
+
+	/**
+	 * The fraction of deleted statements at which the server compacts a
+	 * graph's statement table, or zero to compact only on request
+	 */
+	public double  m_compactionTombstoneRatio;
+
+	/**
+	 * The number of threads with which the server opens the named graphs at
+	 * startup, or zero to open each named graph on first use
+	 */
+	public long    m_namedGraphOpenThreads;
+
+	/**
+	 * The initial # of resources for which space should be allocated in a new
+	 * named graph, or zero to use m_initialRsrcCapacity
+	 */
+	public long    m_namedGraphInitialRsrcCapacity;
+
+	/**
+	 * The initial # of statements for which space should be allocated in a new
+	 * named graph, or zero to use m_initialStmtCapacity
+	 */
+	public long    m_namedGraphInitialStmtCapacity;
+
+	/**
+	 * The factor by which the capacities of a named graph should be grown
+	 * whenever more space is required, or one or less to use the general
+	 * growth settings
+	 */
+	public double  m_namedGraphGrowthFactor;
+
+	/**
+	 * Whether new named graphs should share a single quad store, rather than
+	 * each having its own set of files
+	 */
+	public boolean m_namedGraphQuadStore;
+
+	/**
+	 * Whether to record each change to the KB in a write-ahead log before
+	 * applying it, so that the KB files need only be synced at checkpoints
+	 */
+	public boolean m_journalEnabled;
+
+	/**
+	 * Whether each change waits for the write-ahead log to be forced to disk,
+	 * rather than the log being forced in the background
+	 */
+	public boolean m_journalSyncOnCommit;
+
+	/**
+	 * The number of milliseconds a change waits for others to share its
+	 * forcing of the write-ahead log, or if m_journalSyncOnCommit is off, the
+	 * interval between background forcings (zero for the default of a second)
+	 */
+	public long    m_journalGroupCommitDelay;
+
 	/** How long a query should be allowed to run before being aborted */
 	public long m_timeoutDuration;
 
@@ -9,6 +9,7 @@ package com.bbn.parliament.jni;
 import java.io.Closeable;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 
 /** Parliament's JNI Interface */
 public class KbInstance implements Closeable {
@@ -88,6 +89,35 @@ public class KbInstance implements Closeable {
 		private double _pctUnusedStmtCapacity;
 	}
 
+	/**
+	 * The return value of the predicateStats() method, used to work around
+	 * Java's lack of "out" parameters.
+	 */
+	public static class PredicateStatsResult {
+		public PredicateStatsResult(long numStmts, long numDistinctSubjects,
+			long numDistinctObjects) {
+			_numStmts = numStmts;
+			_numDistinctSubjects = numDistinctSubjects;
+			_numDistinctObjects = numDistinctObjects;
+		}
+
+		public long getNumStmts() {
+			return _numStmts;
+		}
+
+		public long getNumDistinctSubjects() {
+			return _numDistinctSubjects;
+		}
+
+		public long getNumDistinctObjects() {
+			return _numDistinctObjects;
+		}
+
+		private long _numStmts;
+		private long _numDistinctSubjects;
+		private long _numDistinctObjects;
+	}
+
 	/** The null statement id (k_nullStmtId in C++). */
 	public static final long NULL_STMT_ID = tempInit();
 
@@ -118,7 +148,13 @@ public class KbInstance implements Closeable {
 	/** Instructs a statement iterator to skip non-literal statements. */
 	public static final int SKIP_NON_LITERAL_STMT_ITER_FLAG = tempInit();
 
+	private static final int DEFAULT_STRING_BUFFER_SIZE = 64 * 1024;
+	private static final ThreadLocal<ByteBuffer> stringBuffer = new ThreadLocal<>();
+
+	private static final NativeHandle.Tracker m_tracker = new NativeHandle.Tracker("KbInstance");
+
 	private long m_pKb = 0;
+	private final NativeHandle m_handle;
 
 	static {
 		LibraryLoader.loadLibraries();
@@ -142,6 +178,7 @@ public class KbInstance implements Closeable {
 	/** Creates or opens a KB. */
 	public KbInstance(KbConfig config) throws Throwable {
 		init(config);
+		m_handle = new NativeHandle(this, m_pKb, KbInstance::dispose, m_tracker);
 	}
 
 	/** Intended only to be called by the KbInstance instance ctor. */
@@ -151,36 +188,17 @@ public class KbInstance implements Closeable {
 	 * Frees system resources associated with the KB instance, and closes all KB
 	 * files. This is idempotent, so it may be called by application code
 	 * whenever the application is finished with the instance. (This is highly
-	 * recommended, as an un-finalized instance holds significant system
-	 * resources and prevents others from opening the KB.)
+	 * recommended, as an unclosed instance holds significant system resources
+	 * and prevents others from opening the KB until it becomes unreachable.)
 	 */
 	@Override
 	public void close() {
-		finalize();
+		m_pKb = 0;
+		m_handle.close();
 	}
 
-	/**
-	 * Frees system resources associated with the KB instance, and closes all KB
-	 * files. This is idempotent, so it may be called by application code
-	 * whenever the application is finished with the instance. (This is highly
-	 * recommended, as an un-finalized instance holds significant system
-	 * resources and prevents others from opening the KB.)
-	 */
-	@Override
-	public void finalize() {
-		if (m_pKb != 0) {
-			try {
-				dispose();
-			} catch (Throwable ex) {
-				// Do nothing
-			}
-
-			m_pKb = 0;
-		}
-	}
-
-	/** Intended only to be called by finalize(). */
-	private native void dispose();
+	/** Intended only to be called by the NativeHandle -- param MUST be m_pKb. */
+	private static native void dispose(long pKb);
 
 	public static native String getVersion();
 
@@ -196,6 +214,14 @@ public class KbInstance implements Closeable {
 	/** Release excess capacity */
 	public native void releaseExcessCapacity();
 
+	/**
+	 * Removes deleted statements from the statement table, and returns the
+	 * number removed. Statement ids change, so the caller must ensure that no
+	 * iterator is open on this KB, and that no other thread uses it, until this
+	 * returns. Resource ids do not change.
+	 */
+	public native long compact();
+
 	/**
 	 * Returns one of the four constants INDETERMINATE_KB_STATE,
 	 * KB_DOES_NOT_EXIST, KB_EXISTS_WITHOUT_URI_TO_INT, or KB_EXISTS.
@@ -249,6 +275,17 @@ public class KbInstance implements Closeable {
 	public native StmtIterator find(long subjectId, long predicateId,
 		long objectId, int flags);
 
+	/**
+	 * Like find(), but in a quad store returns only the statements in the
+	 * specified graph. Pass NULL_RSRC_ID for the graph to match statements in
+	 * any graph, in which case this is the same as find().
+	 */
+	public native StmtIterator findQuads(long subjectId, long predicateId,
+		long objectId, long graphId, int flags);
+
+	/** Returns the number of undeleted statements in the specified graph of a quad store. */
+	public native long graphStmtCount(long graphId);
+
 	/**
 	 * Returns the number of statements in which the specified resource occurs
 	 * as the subject.
@@ -267,6 +304,24 @@ public class KbInstance implements Closeable {
 	 */
 	public native long objectCount(long rsrcId);
 
+	/**
+	 * Returns the number of statements that find() returns for the given
+	 * pattern with SKIP_DELETED_STMT_ITER_FLAG.  Pass NULL_RSRC_ID for any
+	 * position you do not wish to constrain.  This is cheap when at least two
+	 * positions are bound, but otherwise walks every statement containing the
+	 * bound resource, so prefer subjectCount(), predicateCount(), and
+	 * objectCount() for an upper bound.
+	 */
+	public native long countMatches(long subjectId, long predicateId, long objectId);
+
+	/**
+	 * Returns the number of statements with the specified predicate and the
+	 * numbers of distinct subjects and objects that occur with it.  The counts
+	 * include deleted statements, and the distinct counts may lag behind
+	 * recent additions.
+	 */
+	public native PredicateStatsResult predicateStats(long predicateId);
+
 	/** Returns whether a resource is is a literal. */
 	public native boolean isRsrcLiteral(long rsrcId);
 
@@ -279,6 +334,81 @@ public class KbInstance implements Closeable {
 	/** Returns the URI associated with a given resource id. */
 	public native String rsrcIdToUri(long rsrcId);
 
+	/**
+	 * Returns the resource ids for the first count URIs (or literals, as
+	 * indicated by the isLiteral array) with a single call into native code.
+	 * The strings are handed over as bytes in a direct ByteBuffer rather than
+	 * as Java strings.  Entries of uris must not be null.  When createIfMissing
+	 * is false, missing resources yield NULL_RSRC_ID.
+	 */
+	public long[] uriToRsrcIds(String[] uris, boolean[] isLiteral, int count,
+		boolean createIfMissing) {
+		int[] ends = new int[count];
+		int totalLength = 0;
+		for (int i = 0; i < count; ++i) {
+			totalLength += ModifiedUtf8.encodedLength(uris[i]);
+			ends[i] = totalLength;
+		}
+		ByteBuffer buffer = getStringBuffer(totalLength);
+		int pos = 0;
+		for (int i = 0; i < count; ++i) {
+			pos = ModifiedUtf8.encode(uris[i], buffer, pos);
+		}
+		long[] result = new long[count];
+		uriToRsrcIds(buffer, ends, isLiteral, count, createIfMissing, result);
+		return result;
+	}
+
+	/**
+	 * Returns the URIs associated with the first count resource ids, fetching
+	 * as many as possible with each call into native code.  Entries for
+	 * resources that have no URI (e.g., blank nodes) are null.
+	 */
+	public String[] rsrcIdsToUris(long[] rsrcIds, int count) {
+		String[] result = new String[count];
+		int[] ends = new int[count];
+		ByteBuffer buffer = getStringBuffer(0);
+		for (int i = 0; i < count;) {
+			int numConverted = rsrcIdsToUris(rsrcIds, i, count - i, buffer, ends);
+			if (numConverted == 0) {
+				// The next string is larger than the buffer:
+				buffer = getStringBuffer(ends[0]);
+				continue;
+			}
+			int start = 0;
+			for (int j = 0; j < numConverted; ++j) {
+				if (ends[j] >= 0) {
+					result[i + j] = ModifiedUtf8.decode(buffer, start, ends[j]);
+					start = ends[j];
+				}
+			}
+			i += numConverted;
+		}
+		return result;
+	}
+
+	private native void uriToRsrcIds(ByteBuffer buffer, int[] ends, boolean[] isLiteral,
+		int count, boolean createIfMissing, long[] rsrcIds);
+
+	private native int rsrcIdsToUris(long[] rsrcIds, int offset, int count,
+		ByteBuffer buffer, int[] ends);
+
+	/**
+	 * Returns this thread's direct buffer for passing strings to and from native
+	 * code, enlarged if necessary to hold at least minCapacity bytes.
+	 */
+	private static ByteBuffer getStringBuffer(int minCapacity) {
+		ByteBuffer result = stringBuffer.get();
+		if (result == null || result.capacity() < minCapacity) {
+			int capacity = Math.max(minCapacity, (result == null)
+				? DEFAULT_STRING_BUFFER_SIZE
+				: 2 * result.capacity());
+			result = ByteBuffer.allocateDirect(capacity);
+			stringBuffer.set(result);
+		}
+		return result;
+	}
+
 	/** Creates and returns a new id for an anonymous resource. */
 	public native long createAnonymousRsrc();
 
@@ -289,6 +419,45 @@ public class KbInstance implements Closeable {
 	/** Marks the specified statement as deleted. */
 	public native void deleteStmt(long subjectId, long predicateId, long objectId);
 
+	/**
+	 * Adds a statement to the specified graph, making this KB a quad store. The
+	 * same triple may be added to several graphs. Inferences that a quad
+	 * triggers would be in no graph, so a quad store normally disables all rules.
+	 */
+	public native long addQuad(long subjectId, long predicateId, long objectId, long graphId);
+
+	/** Deletes a statement from the specified graph of a quad store. */
+	public native void deleteQuad(long subjectId, long predicateId, long objectId, long graphId);
+
+	/**
+	 * Creates the first count statements described by the three id arrays in a
+	 * single call into native code. Inferences triggered by the batch are added
+	 * once the whole batch has been added, rather than after each statement.
+	 */
+	public native void addStmts(long[] subjectIds, long[] predicateIds,
+		long[] objectIds, int count, boolean isInferred);
+
+	/**
+	 * Marks as deleted the first count statements described by the three id
+	 * arrays in a single call into native code.
+	 */
+	public native void deleteStmts(long[] subjectIds, long[] predicateIds,
+		long[] objectIds, int count);
+
+	/** Adds the first count entries of the arrays to the specified graph of a quad store. */
+	public native void addQuads(long[] subjectIds, long[] predicateIds,
+		long[] objectIds, int count, long graphId);
+
+	/** Deletes the first count entries of the arrays from the specified graph of a quad store. */
+	public native void deleteQuads(long[] subjectIds, long[] predicateIds,
+		long[] objectIds, int count, long graphId);
+
+	/**
+	 * Deletes every statement in the specified graph of a quad store, and
+	 * returns the number deleted. This walks the whole store.
+	 */
+	public native long clearGraph(long graphId);
+
 	/** Exports the KB in N-Triples format. */
 	public native void dumpKbAsNTriples(OutputStream s, boolean includeInferredStmts,
 		boolean includeDeletedStmts, boolean useAsciiOnlyEncoding);
@@ -0,0 +1,84 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2022, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jni;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes strings in the "modified UTF-8" form that the JNI string
+ * functions use, so that strings passed to native code in bulk through a
+ * ByteBuffer are stored exactly as the single-string methods store them.  Each
+ * UTF-16 code unit is encoded separately in one to three bytes, and U+0000 is
+ * encoded in two bytes.  The decoder also accepts the four-byte sequences of
+ * standard UTF-8, because resources loaded by native code may contain them.
+ */
+final class ModifiedUtf8 {
+	private ModifiedUtf8() {}	// prevents instantiation
+
+	/** Returns the number of bytes needed to encode str. */
+	static int encodedLength(String str) {
+		int result = 0;
+		for (int i = 0; i < str.length(); ++i) {
+			char ch = str.charAt(i);
+			if (ch != 0 && ch < 0x80) {
+				result += 1;
+			} else if (ch < 0x800) {
+				result += 2;
+			} else {
+				result += 3;
+			}
+		}
+		return result;
+	}
+
+	/** Encodes str into buffer at position pos, and returns the end position. */
+	static int encode(String str, ByteBuffer buffer, int pos) {
+		for (int i = 0; i < str.length(); ++i) {
+			char ch = str.charAt(i);
+			if (ch != 0 && ch < 0x80) {
+				buffer.put(pos++, (byte) ch);
+			} else if (ch < 0x800) {
+				buffer.put(pos++, (byte) (0xc0 | (ch >> 6)));
+				buffer.put(pos++, (byte) (0x80 | (ch & 0x3f)));
+			} else {
+				buffer.put(pos++, (byte) (0xe0 | (ch >> 12)));
+				buffer.put(pos++, (byte) (0x80 | ((ch >> 6) & 0x3f)));
+				buffer.put(pos++, (byte) (0x80 | (ch & 0x3f)));
+			}
+		}
+		return pos;
+	}
+
+	/** Decodes the bytes of buffer in the range [start, end). */
+	static String decode(ByteBuffer buffer, int start, int end) {
+		char[] chars = new char[end - start];
+		int count = 0;
+		for (int pos = start; pos < end;) {
+			int b0 = buffer.get(pos) & 0xff;
+			if (b0 < 0x80) {
+				chars[count++] = (char) b0;
+				pos += 1;
+			} else if ((b0 & 0xe0) == 0xc0 && pos + 1 < end) {
+				chars[count++] = (char) (((b0 & 0x1f) << 6) | (buffer.get(pos + 1) & 0x3f));
+				pos += 2;
+			} else if ((b0 & 0xf0) == 0xe0 && pos + 2 < end) {
+				chars[count++] = (char) (((b0 & 0x0f) << 12)
+					| ((buffer.get(pos + 1) & 0x3f) << 6) | (buffer.get(pos + 2) & 0x3f));
+				pos += 3;
+			} else if ((b0 & 0xf8) == 0xf0 && pos + 3 < end) {
+				int codePoint = ((b0 & 0x07) << 18) | ((buffer.get(pos + 1) & 0x3f) << 12)
+					| ((buffer.get(pos + 2) & 0x3f) << 6) | (buffer.get(pos + 3) & 0x3f);
+				count += Character.toChars(codePoint, chars, count);
+				pos += 4;
+			} else {
+				throw new IllegalArgumentException(
+					"Malformed UTF-8 at byte offset %1$d".formatted(pos - start));
+			}
+		}
+		return new String(chars, 0, count);
+	}
+}
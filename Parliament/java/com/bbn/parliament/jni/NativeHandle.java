@@ -0,0 +1,105 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jni;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Owns a pointer to a native object on behalf of a Java object, and frees the
+ * native object exactly once: when the owner is closed, or (failing that)
+ * after the owner becomes unreachable. Unlike a finalizer, the owner is not
+ * kept alive for an extra garbage collection cycle, and the native object is
+ * freed on a dedicated thread. An owner that is freed without having been
+ * closed is counted as a leak in its type's Tracker.
+ */
+final class NativeHandle {
+	private static final Logger LOG = LoggerFactory.getLogger(NativeHandle.class);
+
+	/** Counts the live and the leaked native objects of one type. */
+	static final class Tracker {
+		private final String typeName;
+		private final AtomicLong numOpen = new AtomicLong(0);
+		private final AtomicLong numLeaked = new AtomicLong(0);
+
+		Tracker(String typeName) {
+			this.typeName = typeName;
+		}
+
+		/** The number of native objects that have not yet been freed. */
+		long getNumOpen() {
+			return numOpen.get();
+		}
+
+		/** The number of native objects that were freed without being closed. */
+		long getNumLeaked() {
+			return numLeaked.get();
+		}
+	}
+
+	private static class CleanerHolder {
+		private static final Cleaner INSTANCE = Cleaner.create(runnable -> {
+			Thread thread = new Thread(runnable, "parliament-native-cleaner");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * The cleaning action. This must not refer to the owner, or the owner
+	 * would never become unreachable.
+	 */
+	private static class Disposer implements Runnable {
+		private final long ptr;
+		private final LongConsumer dispose;
+		private final Tracker tracker;
+		private volatile boolean isClosed = false;
+
+		public Disposer(long ptr, LongConsumer dispose, Tracker tracker) {
+			this.ptr = ptr;
+			this.dispose = dispose;
+			this.tracker = tracker;
+		}
+
+		@Override
+		public void run() {
+			tracker.numOpen.decrementAndGet();
+			if (!isClosed) {
+				long numLeaked = tracker.numLeaked.incrementAndGet();
+				LOG.debug("A {} was freed without being closed ({} so far)", tracker.typeName, numLeaked);
+			}
+			try {
+				dispose.accept(ptr);
+			} catch (Throwable ex) {
+				LOG.warn("Unable to free a native {}", tracker.typeName, ex);
+			}
+		}
+	}
+
+	private final Disposer disposer;
+	private final Cleaner.Cleanable cleanable;
+
+	/**
+	 * Takes ownership of a native pointer. The dispose function must not refer
+	 * to the owner either, so it is normally a static native method.
+	 */
+	NativeHandle(Object owner, long ptr, LongConsumer dispose, Tracker tracker) {
+		disposer = new Disposer(ptr, dispose, tracker);
+		tracker.numOpen.incrementAndGet();
+		cleanable = CleanerHolder.INSTANCE.register(owner, disposer);
+	}
+
+	/** Frees the native object now. This is idempotent. */
+	void close() {
+		disposer.isClosed = true;
+		cleanable.clean();
+	}
+}
@@ -66,7 +66,7 @@ public class ReificationIterator implements Iterator<ReificationIterator.Reifica
 		}
 
 		@Override
-		public void finalize() {
+		public void close() {
 		}
 
 		@Override
@@ -84,7 +84,10 @@ public class ReificationIterator implements Iterator<ReificationIterator.Reifica
 		}
 	}
 
+	private static final NativeHandle.Tracker m_tracker = new NativeHandle.Tracker("ReificationIterator");
+
 	private long m_pIter;
+	private final NativeHandle m_handle;
 
 	static
 	{
@@ -98,43 +101,42 @@ public class ReificationIterator implements Iterator<ReificationIterator.Reifica
 	ReificationIterator(long pIter)
 	{
 		m_pIter = pIter;
+		m_handle = (pIter == 0)
+			? null
+			: new NativeHandle(this, pIter, ReificationIterator::dispose, m_tracker);
 	}
 
 	/**
 	 * Frees the underlying native iterator associated with the instance. This is
 	 * idempotent, so it may be called by application code whenever the
-	 * application is finished with the instance.
-	 */
-	@Override
-	public void close() {
-		finalize();
-	}
-
-	/**
-	 * Frees the underlying native iterator associated with the instance. This is
-	 * idempotent, so it may be called by application code whenever the
-	 * application is finished with the instance.
+	 * application is finished with the instance. An instance that is never
+	 * closed is freed after it becomes unreachable, but it holds native memory
+	 * until then, and it is counted by getNumLeakedIterators().
 	 */
 	@Override
-	public void finalize()
+	public void close()
 	{
-		if (m_pIter != 0)
+		m_pIter = 0;
+		if (m_handle != null)
 		{
-			long pIter = m_pIter;
-			m_pIter = 0;
-			try
-			{
-				dispose(pIter);
-			}
-			catch (Throwable ex)
-			{
-				// Do nothing
-			}
+			m_handle.close();
 		}
 	}
 
-	/** Intended only to be called by finalize() -- param MUST be m_pIter. */
-	private native void dispose(long pIter);
+	/** Intended only to be called by the NativeHandle -- param MUST be m_pIter. */
+	private static native void dispose(long pIter);
+
+	/** Returns the number of ReificationIterator instances whose native iterators are not yet freed. */
+	public static long getNumOpenIterators()
+	{
+		return m_tracker.getNumOpen();
+	}
+
+	/** Returns the number of ReificationIterator instances that were freed without being closed. */
+	public static long getNumLeakedIterators()
+	{
+		return m_tracker.getNumLeaked();
+	}
 
 	/** The standard hasNext() method of the Iterator interface. */
 	@Override
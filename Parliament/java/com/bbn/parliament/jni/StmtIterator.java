@@ -26,15 +26,22 @@ public class StmtIterator implements Iterator<StmtIterator.Statement>, Closeable
 		private long subject;
 		private long predicate;
 		private long object;
+		private long graph;
 		private boolean isLiteral;
 		private boolean isDeleted;
 		private boolean isInferred;
 
 		public Statement(long subject, long predicate, long object, boolean isLiteral,
 				boolean isDeleted, boolean isInferred) {
+			this(subject, predicate, object, KbInstance.NULL_RSRC_ID, isLiteral, isDeleted, isInferred);
+		}
+
+		public Statement(long subject, long predicate, long object, long graph,
+				boolean isLiteral, boolean isDeleted, boolean isInferred) {
 			this.subject = subject;
 			this.predicate = predicate;
 			this.object = object;
+			this.graph = graph;
 			this.isLiteral = isLiteral;
 			this.isDeleted = isDeleted;
 			this.isInferred = isInferred;
@@ -52,6 +59,14 @@ public class StmtIterator implements Iterator<StmtIterator.Statement>, Closeable
 			return object;
 		}
 
+		/**
+		 * The graph of a statement in a quad store, or KbInstance.NULL_RSRC_ID if
+		 * the statement is in no graph.
+		 */
+		public long getGraph() {
+			return graph;
+		}
+
 		public boolean isLiteral() {
 			return isLiteral;
 		}
@@ -77,6 +92,15 @@ public class StmtIterator implements Iterator<StmtIterator.Statement>, Closeable
 		}
 	}
 
+	/** Set in the flags filled in by nextBatch() when the statement's object is a literal. */
+	public static final byte LITERAL_STMT_FLAG = 0x01;
+
+	/** Set in the flags filled in by nextBatch() when the statement is deleted. */
+	public static final byte DELETED_STMT_FLAG = 0x02;
+
+	/** Set in the flags filled in by nextBatch() when the statement is inferred. */
+	public static final byte INFERRED_STMT_FLAG = 0x04;
+
 	private static final ThreadLocal<AtomicBoolean> m_isQueryCanceled =
 		new ThreadLocal<>() {
 			@Override protected AtomicBoolean initialValue() {
@@ -84,7 +108,10 @@ public class StmtIterator implements Iterator<StmtIterator.Statement>, Closeable
 			}
 		};
 
+	private static final NativeHandle.Tracker m_tracker = new NativeHandle.Tracker("StmtIterator");
+
 	private long m_pIter;
+	private final NativeHandle m_handle;
 
 	static {
 		LibraryLoader.loadLibraries();
@@ -96,38 +123,34 @@ public class StmtIterator implements Iterator<StmtIterator.Statement>, Closeable
 	 */
 	private StmtIterator(long pIter) {
 		m_pIter = pIter;
+		m_handle = new NativeHandle(this, pIter, StmtIterator::dispose, m_tracker);
 	}
 
 	/**
 	 * Frees the underlying native iterator associated with the instance. This
 	 * is idempotent, so it may be called by application code whenever the
-	 * application is finished with the instance.
+	 * application is finished with the instance. An instance that is never
+	 * closed is freed after it becomes unreachable, but it holds native memory
+	 * until then, and it is counted by getNumLeakedIterators().
 	 */
 	@Override
 	public void close() {
-		finalize();
+		m_pIter = 0;
+		m_handle.close();
 	}
 
-	/**
-	 * Frees the underlying native iterator associated with the instance. This
-	 * is idempotent, so it may be called by application code whenever the
-	 * application is finished with the instance.
-	 */
-	@Override
-	public void finalize() {
-		if (m_pIter != 0) {
-			long pIter = m_pIter;
-			m_pIter = 0;
-			try {
-				dispose(pIter);
-			} catch (Throwable ex) {
-				// Do nothing
-			}
-		}
+	/** Intended only to be called by the NativeHandle -- param MUST be m_pIter. */
+	private static native void dispose(long pIter);
+
+	/** Returns the number of StmtIterator instances whose native iterators are not yet freed. */
+	public static long getNumOpenIterators() {
+		return m_tracker.getNumOpen();
 	}
 
-	/** Intended only to be called by finalize() -- param MUST be m_pIter. */
-	private native void dispose(long pIter);
+	/** Returns the number of StmtIterator instances that were freed without being closed. */
+	public static long getNumLeakedIterators() {
+		return m_tracker.getNumLeaked();
+	}
 
 	/** The standard hasNext() method of the Iterator interface. */
 	@Override
@@ -154,6 +177,45 @@ public class StmtIterator implements Iterator<StmtIterator.Statement>, Closeable
 		return nextStatement();
 	}
 
+	/**
+	 * Fills the caller-owned arrays with as many of the remaining statements as
+	 * will fit, using a single transition into native code and without creating
+	 * any Statement objects. The capacity of the batch is the length of the
+	 * shortest of the four arrays. For each statement copied, the flags array
+	 * receives a combination of LITERAL_STMT_FLAG, DELETED_STMT_FLAG, and
+	 * INFERRED_STMT_FLAG.
+	 *
+	 * @return The number of statements copied into the arrays. Zero indicates
+	 *         that the iteration is complete.
+	 */
+	public int nextBatch(long[] subjects, long[] predicates, long[] objects, byte[] flags) {
+		throwIfCanceled();
+		return nextBatch(m_pIter, subjects, predicates, objects, flags);
+	}
+
+	/** Intended only to be called by nextBatch() -- param MUST be m_pIter. */
+	private native int nextBatch(long pIter, long[] subjects, long[] predicates,
+		long[] objects, byte[] flags);
+
+	/**
+	 * Like nextBatch(), but also fills the graphs array with the graph of each
+	 * statement (see Statement.getGraph), so that a scan of a quad store can
+	 * tell the statements of its graphs apart. The capacity of the batch is the
+	 * length of the shortest of the five arrays.
+	 *
+	 * @return The number of statements copied into the arrays. Zero indicates
+	 *         that the iteration is complete.
+	 */
+	public int nextQuadBatch(long[] subjects, long[] predicates, long[] objects,
+		long[] graphs, byte[] flags) {
+		throwIfCanceled();
+		return nextQuadBatch(m_pIter, subjects, predicates, objects, graphs, flags);
+	}
+
+	/** Intended only to be called by nextQuadBatch() -- param MUST be m_pIter. */
+	private native int nextQuadBatch(long pIter, long[] subjects, long[] predicates,
+		long[] objects, long[] graphs, byte[] flags);
+
 	/**
 	 * The standard remove() method of the Iterator interface. On the
 	 * StmtIterator class, this optional method is unimplemented.
@@ -181,7 +243,7 @@ public class StmtIterator implements Iterator<StmtIterator.Statement>, Closeable
 	/**
 	 * Returns the query-canceled flag for the current thread.  If the flag returned by
 	 * this method is set to "true", then any subsequent call on this thread to the
-	 * hasNext(), next(), or nextStmtId() methods of any StmtIterator instance will
+	 * hasNext(), next(), or nextBatch() methods of any StmtIterator instance will
 	 * throw an exception of type InterruptedStmtIterationException.
 	 *
 	 * By caching a reference to this flag in a globally accessible data structure, the
@@ -0,0 +1,130 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.recovery;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups the changes a thread makes through KbJournals into one frame per
+ * journal, so that a request that changes many statements is replayed all or
+ * nothing, and costs one append (and in SYNC mode one fsync) rather than one
+ * per statement. Batches nest, and only the outermost one commits:
+ * <pre>
+ * try (JournalBatch batch = JournalBatch.begin()) {
+ *    ... changes ...
+ * }
+ * </pre>
+ * Committing has two steps. append ends the batch's block in each journal it
+ * changed, and should be called while the caller still holds whatever lock
+ * keeps a checkpoint from running, so that a checkpoint never syncs changes
+ * whose frame has not been appended. close calls append if it has not been
+ * called, and then waits for the frames to become durable, which should
+ * happen after that lock is released, so that other threads can append frames
+ * that share the same fsync. Changes to different journals are committed
+ * separately, and so are atomic only per journal.
+ */
+public class JournalBatch implements AutoCloseable {
+	private static final ThreadLocal<JournalBatch> CURRENT = new ThreadLocal<>();
+
+	/** A journal the batch has changed, with its new resources and commit position. */
+	static class Entry {
+		final Set<Long> pendingRsrcs = new HashSet<>();
+		long lsn = 0;
+	}
+
+	private final Map<KbJournal, Entry> entries = new LinkedHashMap<>();
+	private int depth = 0;
+	private boolean isAppended = false;
+
+	private JournalBatch() {
+	}
+
+	/** Begins a batch, or a nested batch within the thread's current batch. */
+	public static JournalBatch begin() {
+		JournalBatch batch = CURRENT.get();
+		if (batch == null) {
+			batch = new JournalBatch();
+			CURRENT.set(batch);
+		}
+		++batch.depth;
+		return batch;
+	}
+
+	/** Returns the thread's current batch, or null if there is none. */
+	static JournalBatch current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Returns the batch's entry for a journal, starting a block in the
+	 * journal's log if this is the first change the batch makes to it.
+	 */
+	Entry join(KbJournal journal) {
+		if (isAppended) {
+			throw new IllegalStateException("Journal batch changed after it was appended");
+		}
+		Entry entry = entries.get(journal);
+		if (entry == null) {
+			entry = new Entry();
+			journal.startBlock();
+			entries.put(journal, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * If this is the outermost batch, appends its frames to the logs of the
+	 * journals it changed. Every block is ended even if one fails, and then
+	 * the first failure is rethrown.
+	 */
+	public void append() {
+		if (depth > 1 || isAppended) {
+			return;
+		}
+		isAppended = true;
+		RuntimeException failure = null;
+		for (Map.Entry<KbJournal, Entry> e : entries.entrySet()) {
+			try {
+				e.getValue().lsn = e.getKey().endBlock(e.getValue());
+			} catch (RuntimeException ex) {
+				if (failure == null) {
+					failure = ex;
+				} else {
+					failure.addSuppressed(ex);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Ends the batch. If it is the outermost, this appends its frames if
+	 * append has not been called, and waits until they are durable.
+	 */
+	@Override
+	public void close() {
+		if (--depth > 0) {
+			return;
+		}
+		CURRENT.remove();
+		append();
+		for (Map.Entry<KbJournal, Entry> e : entries.entrySet()) {
+			try {
+				e.getKey().awaitCommit(e.getValue().lsn);
+			} catch (IOException ex) {
+				throw new UncheckedIOException("Unable to commit the journal", ex);
+			}
+		}
+	}
+}
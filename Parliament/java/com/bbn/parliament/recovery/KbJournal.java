@@ -0,0 +1,329 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.recovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.parliament.jni.KbConfig;
+import com.bbn.parliament.jni.KbInstance;
+
+/**
+ * Makes changes to a KbInstance, recording each in the KB's write-ahead log
+ * (see {@link RecoveryManager}) before applying it. Opening the journal
+ * replays whatever the log holds from a previous run, and a checkpoint syncs
+ * the KB's files and discards the log. If journaling is disabled in the
+ * configuration, or the KB is read-only, changes are applied directly and a
+ * checkpoint is just a sync.
+ * <p>
+ * A graph id of KbInstance.NULL_RSRC_ID means the KB is a triple store, and
+ * any other means the named graph with that id in a quad store.
+ * <p>
+ * Statements are logged by resource id, so each resource created since the
+ * last checkpoint is logged by name before the first change that uses it.
+ * Resource ids are assigned in sequence, so these are the ids at or above
+ * the KB's resource count at the last checkpoint.
+ * <p>
+ * A change is logged and applied while holding this journal's lock, as is a
+ * checkpoint, so a checkpoint never discards a logged change that has not
+ * yet reached the KB.
+ * <p>
+ * Each change is logged within the thread's current {@link JournalBatch},
+ * or in a batch of its own if there is none, so the frame holding it is
+ * appended when the batch is, and waiting for the frame to become durable
+ * happens outside this journal's lock. A resource logged in a batch counts
+ * as logged for other threads only once the batch's frame is appended, since
+ * their frames may be appended before it. Until then another thread may log
+ * the same resource again, which replay tolerates.
+ */
+public class KbJournal implements AutoCloseable {
+	/** The text journal written by earlier versions of RecoveryManager. */
+	public static final String LEGACY_JOURNAL_FILE_NAME = "recovery.journal";
+	private static final Logger LOG = LoggerFactory.getLogger(KbJournal.class);
+
+	private final KbInstance _kb;
+	private final RecoveryManager _log;
+	private long _firstNewRsrcId;
+	private final BitSet _loggedNewRsrcs = new BitSet();
+
+	/** Opens the journal of the KB, first replaying the changes logged since its last checkpoint. */
+	public KbJournal(KbInstance kb, KbConfig config) {
+		_kb = kb;
+		if (config.m_journalEnabled && !config.m_readOnly) {
+			discardLegacyJournal(config.m_kbDirectoryPath);
+			_log = new RecoveryManager(config.m_kbDirectoryPath, new KbRecoverable(kb),
+				config.m_journalSyncOnCommit
+					? RecoveryManager.Durability.SYNC
+					: RecoveryManager.Durability.ASYNC,
+				config.m_journalGroupCommitDelay, RecoveryManager.DEFAULT_MAX_SEGMENT_SIZE);
+		} else {
+			_log = null;
+		}
+		_firstNewRsrcId = kb.rsrcCount();
+	}
+
+	/**
+	 * Earlier versions never wrote the text journal, and its statements are
+	 * named rather than numbered, so there is nothing in it to replay.
+	 */
+	private static void discardLegacyJournal(String kbDirectoryPath) {
+		File legacyJournal = new File(kbDirectoryPath, LEGACY_JOURNAL_FILE_NAME);
+		if (legacyJournal.exists()) {
+			LOG.warn("Deleting the obsolete recovery journal {}", legacyJournal);
+			if (!legacyJournal.delete()) {
+				LOG.warn("Unable to delete {}", legacyJournal);
+			}
+		}
+	}
+
+	public boolean isEnabled() {
+		return _log != null;
+	}
+
+	public long addStmt(long subjectId, long predicateId, long objectId, long graphId) {
+		try (JournalBatch batch = JournalBatch.begin()) {
+			synchronized (this) {
+				if (_log != null) {
+					logStmts(batch, true, new long[] { subjectId }, new long[] { predicateId },
+						new long[] { objectId }, 1, graphId);
+				}
+				return (graphId == KbInstance.NULL_RSRC_ID)
+					? _kb.addStmt(subjectId, predicateId, objectId, false)
+					: _kb.addQuad(subjectId, predicateId, objectId, graphId);
+			}
+		}
+	}
+
+	public void addStmts(long[] subjectIds, long[] predicateIds, long[] objectIds,
+		int count, long graphId) {
+		try (JournalBatch batch = JournalBatch.begin()) {
+			synchronized (this) {
+				if (_log != null) {
+					logStmts(batch, true, subjectIds, predicateIds, objectIds, count, graphId);
+				}
+				if (graphId == KbInstance.NULL_RSRC_ID) {
+					_kb.addStmts(subjectIds, predicateIds, objectIds, count, false);
+				} else {
+					_kb.addQuads(subjectIds, predicateIds, objectIds, count, graphId);
+				}
+			}
+		}
+	}
+
+	public void deleteStmt(long subjectId, long predicateId, long objectId, long graphId) {
+		try (JournalBatch batch = JournalBatch.begin()) {
+			synchronized (this) {
+				if (_log != null) {
+					logStmts(batch, false, new long[] { subjectId }, new long[] { predicateId },
+						new long[] { objectId }, 1, graphId);
+				}
+				if (graphId == KbInstance.NULL_RSRC_ID) {
+					_kb.deleteStmt(subjectId, predicateId, objectId);
+				} else {
+					_kb.deleteQuad(subjectId, predicateId, objectId, graphId);
+				}
+			}
+		}
+	}
+
+	public void deleteStmts(long[] subjectIds, long[] predicateIds, long[] objectIds,
+		int count, long graphId) {
+		try (JournalBatch batch = JournalBatch.begin()) {
+			synchronized (this) {
+				if (_log != null) {
+					logStmts(batch, false, subjectIds, predicateIds, objectIds, count, graphId);
+				}
+				if (graphId == KbInstance.NULL_RSRC_ID) {
+					_kb.deleteStmts(subjectIds, predicateIds, objectIds, count);
+				} else {
+					_kb.deleteQuads(subjectIds, predicateIds, objectIds, count, graphId);
+				}
+			}
+		}
+	}
+
+	/** Deletes every statement of the graph with the given id in a quad store. */
+	public long clearGraph(long graphId) {
+		try (JournalBatch batch = JournalBatch.begin()) {
+			synchronized (this) {
+				if (_log != null) {
+					JournalBatch.Entry entry = batch.join(this);
+					try {
+						logNewRsrcs(entry, new long[] { graphId }, 1);
+						_log.recordClearGraph(graphId);
+					} catch (IOException ex) {
+						throw new UncheckedIOException("Unable to journal a change to the KB", ex);
+					}
+				}
+				return _kb.clearGraph(graphId);
+			}
+		}
+	}
+
+	/**
+	 * Makes the KB durable and discards the log. The caller must ensure that
+	 * the KB's files are not remapped meanwhile, as for KbInstance.sync.
+	 */
+	public synchronized void checkpoint() {
+		// Resources created from here on are created after the sync begins:
+		long rsrcCount = _kb.rsrcCount();
+		if (_log == null) {
+			_kb.sync();
+		} else {
+			try {
+				_log.checkpoint(_kb);
+			} catch (IOException ex) {
+				throw new UncheckedIOException("Unable to checkpoint the journal", ex);
+			}
+		}
+		_firstNewRsrcId = rsrcCount;
+		_loggedNewRsrcs.clear();
+	}
+
+	/**
+	 * Removes the deleted statements from the KB (see KbInstance.compact),
+	 * and returns the number removed. The log records changes by resource id,
+	 * which compaction preserves, but compaction moves statements within the
+	 * KB's files in place, and a crash part way through leaves those files
+	 * inconsistent, which replaying the log cannot repair. So the KB is
+	 * checkpointed first, and compaction is refused if any of the log remains
+	 * afterwards (for example because a segment could not be deleted), so
+	 * that there is never a log to replay over a half-compacted KB. The KB is
+	 * checkpointed again afterwards, so that later changes are logged against
+	 * the compacted files. A crash during compaction still leaves the KB
+	 * unusable, and it must then be restored from a backup or an export.
+	 * <p>
+	 * No change can be logged meanwhile, because this holds the journal's
+	 * lock. As for checkpoint, the caller must ensure that the KB's files are
+	 * not otherwise in use.
+	 */
+	public synchronized long compact() {
+		checkpoint();
+		if (_log != null && _log.hasSegments()) {
+			throw new IllegalStateException(
+				"Refusing to compact the KB, because its journal could not be fully checkpointed");
+		}
+		long numRemoved = _kb.compact();
+		checkpoint();
+		return numRemoved;
+	}
+
+	/**
+	 * Closes the log, which is kept, so that any changes logged since the last
+	 * checkpoint are replayed when the KB is next opened.
+	 */
+	@Override
+	public synchronized void close() {
+		if (_log != null) {
+			try {
+				_log.close();
+			} catch (IOException ex) {
+				throw new UncheckedIOException("Unable to close the journal", ex);
+			}
+		}
+	}
+
+	private void logStmts(JournalBatch batch, boolean isAdd, long[] subjectIds, long[] predicateIds,
+		long[] objectIds, int count, long graphId) {
+		JournalBatch.Entry entry = batch.join(this);
+		try {
+			logNewRsrcs(entry, subjectIds, count);
+			logNewRsrcs(entry, predicateIds, count);
+			logNewRsrcs(entry, objectIds, count);
+			if (graphId != KbInstance.NULL_RSRC_ID) {
+				logNewRsrcs(entry, new long[] { graphId }, 1);
+			}
+			for (int i = 0; i < count; ++i) {
+				if (isAdd && graphId == KbInstance.NULL_RSRC_ID) {
+					_log.recordAdd(subjectIds[i], predicateIds[i], objectIds[i]);
+				} else if (isAdd) {
+					_log.recordAdd(subjectIds[i], predicateIds[i], objectIds[i], graphId);
+				} else if (graphId == KbInstance.NULL_RSRC_ID) {
+					_log.recordDelete(subjectIds[i], predicateIds[i], objectIds[i]);
+				} else {
+					_log.recordDelete(subjectIds[i], predicateIds[i], objectIds[i], graphId);
+				}
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Unable to journal a change to the KB", ex);
+		}
+	}
+
+	/** Starts the block that holds a batch's changes to this journal. */
+	void startBlock() {
+		_log.startBlock();
+	}
+
+	/**
+	 * Ends the block that holds a batch's changes, appending it to the log,
+	 * and returns the position to wait for. Once appended, the resources
+	 * recorded in the block count as logged. If the block cannot be appended,
+	 * they are forgotten, so that the next change that uses them records them
+	 * again.
+	 */
+	synchronized long endBlock(JournalBatch.Entry entry) {
+		try {
+			long lsn = _log.endBlockUnsynced();
+			for (long id : entry.pendingRsrcs) {
+				// A checkpoint since the batch began may have covered the resource:
+				if (id >= _firstNewRsrcId) {
+					_loggedNewRsrcs.set(newRsrcIndex(id));
+				}
+			}
+			return lsn;
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Unable to journal a change to the KB", ex);
+		} finally {
+			entry.pendingRsrcs.clear();
+		}
+	}
+
+	/** Waits until the log is durable up to the position returned by endBlock. */
+	void awaitCommit(long lsn) throws IOException {
+		_log.awaitCommit(lsn);
+	}
+
+	/**
+	 * Records the resources among the given ids that were created since the
+	 * last checkpoint and have not been recorded yet, either in an appended
+	 * frame or in the batch's block. Their names are fetched with a single
+	 * call into native code.
+	 */
+	private void logNewRsrcs(JournalBatch.Entry entry, long[] rsrcIds, int count)
+		throws IOException {
+		Set<Long> pending = entry.pendingRsrcs;
+		long[] newIds = new long[count];
+		int numNew = 0;
+		for (int i = 0; i < count; ++i) {
+			long id = rsrcIds[i];
+			// Adding it now means that a resource repeated in the block is recorded once:
+			if (id >= _firstNewRsrcId && !_loggedNewRsrcs.get(newRsrcIndex(id)) && pending.add(id)) {
+				newIds[numNew++] = id;
+			}
+		}
+		if (numNew > 0) {
+			String[] uris = _kb.rsrcIdsToUris(newIds, numNew);
+			for (int i = 0; i < numNew; ++i) {
+				if (uris[i] == null) {
+					_log.recordAnonymousResource(newIds[i]);
+				} else {
+					_log.recordResource(newIds[i], uris[i], _kb.isRsrcLiteral(newIds[i]));
+				}
+			}
+		}
+	}
+
+	private int newRsrcIndex(long rsrcId) {
+		return Math.toIntExact(rsrcId - _firstNewRsrcId);
+	}
+}
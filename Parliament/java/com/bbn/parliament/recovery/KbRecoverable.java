@@ -0,0 +1,120 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.recovery;
+
+import com.bbn.parliament.jni.KbInstance;
+
+/**
+ * Replays a journal into a KbInstance. Consecutive adds to the same graph are
+ * collected into batches and added with one native call per batch; any other
+ * change first adds the pending batch, so the changes are applied in journal
+ * order.
+ */
+public class KbRecoverable implements Recoverable
+{
+	private static final int BATCH_SIZE = 1000;
+
+	private final KbInstance _kb;
+	private final long[]     _subjects   = new long[BATCH_SIZE];
+	private final long[]     _predicates = new long[BATCH_SIZE];
+	private final long[]     _objects    = new long[BATCH_SIZE];
+	private final long       _numRsrcsBeforeRecovery;
+	private long             _graphId    = KbInstance.NULL_RSRC_ID;
+	private int              _count      = 0;
+
+	public KbRecoverable(KbInstance kb)
+	{
+		_kb = kb;
+		_numRsrcsBeforeRecovery = kb.rsrcCount();
+	}
+
+	@Override
+	public long recoverResource(String uri, boolean isLiteral)
+	{
+		addPending();
+		return _kb.uriToRsrcId(uri, isLiteral, true);
+	}
+
+	/**
+	 * Resource ids are assigned in sequence and never reused, so an anonymous
+	 * resource with the logged id that the KB held before recovery began is
+	 * the logged resource itself.
+	 */
+	@Override
+	public long recoverAnonymousResource(long journalId)
+	{
+		addPending();
+		return (journalId < _numRsrcsBeforeRecovery && _kb.isRsrcAnonymous(journalId))
+			? journalId
+			: _kb.createAnonymousRsrc();
+	}
+
+	@Override
+	public void recoverAdd(long subjectId, long predicateId, long objectId)
+	{
+		recoverAddQuad(subjectId, predicateId, objectId, KbInstance.NULL_RSRC_ID);
+	}
+
+	@Override
+	public void recoverDelete(long subjectId, long predicateId, long objectId)
+	{
+		addPending();
+		_kb.deleteStmt(subjectId, predicateId, objectId);
+	}
+
+	/** Adds to the pending batch, which holds the adds to one graph only. */
+	@Override
+	public void recoverAddQuad(long subjectId, long predicateId, long objectId, long graphId)
+	{
+		if (graphId != _graphId)
+		{
+			addPending();
+			_graphId = graphId;
+		}
+		_subjects[_count] = subjectId;
+		_predicates[_count] = predicateId;
+		_objects[_count] = objectId;
+		if (++_count >= BATCH_SIZE)
+		{
+			addPending();
+		}
+	}
+
+	@Override
+	public void recoverDeleteQuad(long subjectId, long predicateId, long objectId, long graphId)
+	{
+		addPending();
+		_kb.deleteQuad(subjectId, predicateId, objectId, graphId);
+	}
+
+	@Override
+	public void recoverClearGraph(long graphId)
+	{
+		addPending();
+		_kb.clearGraph(graphId);
+	}
+
+	@Override
+	public void recoverFlush()
+	{
+		addPending();
+		_kb.sync();
+	}
+
+	private void addPending()
+	{
+		if (_count > 0 && _graphId == KbInstance.NULL_RSRC_ID)
+		{
+			_kb.addStmts(_subjects, _predicates, _objects, _count, false);
+		}
+		else if (_count > 0)
+		{
+			_kb.addQuads(_subjects, _predicates, _objects, _count, _graphId);
+		}
+		_count = 0;
+	}
+}
@@ -6,10 +6,32 @@
 
 package com.bbn.parliament.recovery;
 
-/** @author dkolas */
+/**
+ * The target of a journal replay. Resources are recreated first, and the ids
+ * they receive are substituted for the journaled ids in the statements that
+ * follow, so the recovered KB need not assign the same ids as the original.
+ *
+ * @author dkolas
+ */
 public interface Recoverable
 {
-	public void recoverAdd(String subject, String predicate, String object);
-	public void recoverDelete(String subject, String predicate, String object);
+	/** Recreates (or finds) a URI or literal resource, and returns its id. */
+	public long recoverResource(String uri, boolean isLiteral);
+	/**
+	 * Recreates (or finds) the anonymous resource that was logged with the given
+	 * id, and returns its id. If the resource reached the KB before the crash,
+	 * this must return it rather than create another, or replaying its
+	 * statements would duplicate them on a new blank node.
+	 */
+	public long recoverAnonymousResource(long journalId);
+	public void recoverAdd(long subjectId, long predicateId, long objectId);
+	public void recoverDelete(long subjectId, long predicateId, long objectId);
+	/** Adds a statement to the graph with the given id in a quad store. */
+	public void recoverAddQuad(long subjectId, long predicateId, long objectId, long graphId);
+	/** Deletes a statement from the graph with the given id in a quad store. */
+	public void recoverDeleteQuad(long subjectId, long predicateId, long objectId, long graphId);
+	/** Deletes every statement of the graph with the given id in a quad store. */
+	public void recoverClearGraph(long graphId);
+	/** Makes the recovered changes durable. */
 	public void recoverFlush();
 }
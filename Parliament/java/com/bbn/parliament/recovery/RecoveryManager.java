@@ -6,145 +6,646 @@
 
 package com.bbn.parliament.recovery;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** @author dkolas */
-public class RecoveryManager {
-	public static final String JOURNAL_FILE_NAME = "recovery.journal";
-	public static final long AUTO_FLUSH_INTERVAL = 5000;
+import com.bbn.parliament.jni.KbInstance;
+
+/**
+ * A binary write-ahead log of id-level changes to a KB. Changes are recorded
+ * before they are applied, so that the KB's memory-mapped files need only be
+ * synced at a checkpoint rather than after every request.
+ * <p>
+ * The changes recorded between startBlock and endBlock on a thread form one
+ * frame, which is appended to the current segment file with a CRC-32C
+ * checksum. A frame is replayed in full or not at all: replay stops at the
+ * first frame that is truncated or fails its checksum, which is what a crash
+ * in the middle of an append leaves behind.
+ * <p>
+ * In SYNC mode, endBlock returns once the frame has been forced to disk.
+ * Concurrent commits share an fsync: one thread forces the log on behalf of
+ * every frame appended so far, optionally after waiting for the group commit
+ * delay so that more frames can join. A caller that appends frames under a
+ * lock of its own can end the block with endBlockUnsynced instead, and wait
+ * with awaitCommit once it has released that lock, so that other threads can
+ * append frames that join its fsync. In ASYNC mode, endBlock returns once the
+ * frame is written, and the log is forced every sync interval, so a crash can
+ * lose the changes of the last interval but never leaves the KB torn.
+ * <p>
+ * Statements refer to resources by id, so a resource must be recorded (with
+ * recordResource or recordAnonymousResource) before the first statement that
+ * uses it, if it was created after the last checkpoint. On replay, each
+ * recorded resource is recreated and its new id substituted in the
+ * statements that follow. Replay is idempotent, since the KB files may
+ * already hold some of the logged changes: URI and literal resources are
+ * found by name, and an anonymous resource that already exists under its
+ * logged id is reused rather than created again.
+ * <p>
+ * KbJournal records each change made through a KbGraph here before applying
+ * it to the KB, and the KB is checkpointed when the graph is flushed, which
+ * the server does on its flush timer.
+ *
+ * @author dkolas
+ */
+public class RecoveryManager implements AutoCloseable {
+	public enum Durability { SYNC, ASYNC }
+
+	public static final String JOURNAL_DIR_NAME = "journal";
+	public static final long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+	public static final long DEFAULT_GROUP_COMMIT_DELAY = 0;
+	public static final long DEFAULT_ASYNC_SYNC_INTERVAL = 1000;
 	private static final Logger LOG = LoggerFactory.getLogger(RecoveryManager.class);
 
-	private final File _journalFile;
-	private volatile BufferedWriter _writer;
+	private static final int SEGMENT_MAGIC = 0x50574C31;	// "PWL1"
+	private static final int FRAME_HEADER_SIZE = 8;
+	private static final String SEGMENT_PREFIX = "wal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final byte RESOURCE = 1;
+	private static final byte ANONYMOUS_RESOURCE = 2;
+	private static final byte ADD = 3;
+	private static final byte DELETE = 4;
+	private static final byte ADD_QUAD = 5;
+	private static final byte DELETE_QUAD = 6;
+	private static final byte CLEAR_GRAPH = 7;
+	private static ScheduledExecutorService _syncer = null;
+
+	private final File _journalDir;
+	private final Durability _durability;
+	private final long _groupCommitDelay;
+	private final long _maxSegmentSize;
+	private final ScheduledFuture<?> _syncTask;
+	private final ThreadLocal<Block> _currentBlock = new ThreadLocal<>();
+
+	// The fields below are guarded by _lock:
+	private final ReentrantLock _lock = new ReentrantLock();
+	private final Condition _syncFinished = _lock.newCondition();
+	private FileChannel _segment;
+	private long _segmentSeqNum;
+	private long _segmentSize;
+	private volatile long _appendedLsn;
+	private long _durableLsn;
+	private boolean _isSyncing;
+	private long _numForces;
+	private boolean _isClosed;
+
+	/** A frame under construction, private to the thread recording it. */
+	private static class Block {
+		private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+		private final DataOutputStream _out = new DataOutputStream(_bytes);
+		private int _depth = 0;
+	}
 
 	public RecoveryManager(String directoryPath, Recoverable recoverable) {
-		_journalFile = new File(directoryPath, JOURNAL_FILE_NAME);
+		this(directoryPath, recoverable, Durability.SYNC, DEFAULT_GROUP_COMMIT_DELAY,
+			DEFAULT_MAX_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates a recovery manager, first replaying any journal left in the
+	 * directory by a previous run.
+	 *
+	 * @param groupCommitDelay In SYNC mode, how long (in milliseconds) a commit
+	 *        waits for others to join its fsync. In ASYNC mode, the interval
+	 *        between fsyncs, or DEFAULT_ASYNC_SYNC_INTERVAL if zero.
+	 * @param maxSegmentSize The size at which the log moves on to a new segment
+	 *        file.
+	 */
+	public RecoveryManager(String directoryPath, Recoverable recoverable, Durability durability,
+		long groupCommitDelay, long maxSegmentSize) {
+		if (groupCommitDelay < 0 || maxSegmentSize <= 0) {
+			throw new IllegalArgumentException("Invalid group commit delay or segment size");
+		}
+		_journalDir = new File(directoryPath, JOURNAL_DIR_NAME);
+		_durability = durability;
+		_groupCommitDelay = groupCommitDelay;
+		_maxSegmentSize = maxSegmentSize;
 
-		if (_journalFile.exists() && _journalFile.length() > 0) {
-			recover(recoverable);
+		List<File> segments = listSegments();
+		if (!segments.isEmpty()) {
+			recover(segments, recoverable);
+			segments.forEach(File::delete);
 		}
+		_segmentSeqNum = 0;
 
-		Thread autoFlusher = new Thread(() -> {
-			while (true) {
-				try {
-					Thread.sleep(AUTO_FLUSH_INTERVAL);
-				} catch (InterruptedException e) {
-					// Who cares?
-				}
-				try {
-					@SuppressWarnings("resource")
-					Writer wtr = getWriter();
-					wtr.flush();
-				} catch (IOException ex) {
-					throw new RuntimeException("Can't flush journal!", ex);
-				}
+		if (durability == Durability.ASYNC) {
+			long interval = (groupCommitDelay > 0) ? groupCommitDelay : DEFAULT_ASYNC_SYNC_INTERVAL;
+			_syncTask = getSyncer().scheduleWithFixedDelay(this::backgroundSync, interval, interval,
+				TimeUnit.MILLISECONDS);
+		} else {
+			_syncTask = null;
+		}
+	}
+
+	/**
+	 * Returns the thread that forces the logs in ASYNC mode. A server may have
+	 * a KB per named graph, so the logs share one thread rather than each
+	 * having its own.
+	 */
+	private static synchronized ScheduledExecutorService getSyncer() {
+		if (_syncer == null) {
+			_syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "RecoveryManagerSyncer");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return _syncer;
+	}
+
+	/** Starts a block. Blocks may nest, in which case the outermost block is the frame. */
+	public void startBlock() {
+		Block block = _currentBlock.get();
+		if (block == null) {
+			block = new Block();
+			_currentBlock.set(block);
+		}
+		++block._depth;
+	}
+
+	/** Ends a block, committing its changes if it is the outermost. */
+	public void endBlock() throws IOException {
+		awaitCommit(endBlockUnsynced());
+	}
+
+	/**
+	 * Ends a block, appending its frame to the log if it is the outermost, but
+	 * without waiting for the frame to reach the disk. Returns the position to
+	 * pass to awaitCommit, which completes the commit.
+	 */
+	public long endBlockUnsynced() throws IOException {
+		Block block = _currentBlock.get();
+		if (block == null) {
+			throw new IllegalStateException("endBlock called without startBlock");
+		}
+		if (--block._depth == 0) {
+			_currentBlock.remove();
+			if (block._bytes.size() > 0) {
+				return append(block._bytes.toByteArray());
 			}
+		}
+		return 0;
+	}
+
+	/**
+	 * In SYNC mode, waits until the log is durable up to the given position,
+	 * as returned by endBlockUnsynced. In ASYNC mode, returns at once.
+	 */
+	public void awaitCommit(long lsn) throws IOException {
+		if (_durability == Durability.SYNC) {
+			awaitDurable(lsn);
+		}
+	}
+
+	public void recordResource(long id, String uri, boolean isLiteral) throws IOException {
+		byte[] utf8 = uri.getBytes(StandardCharsets.UTF_8);
+		record(out -> {
+			out.writeByte(RESOURCE);
+			out.writeLong(id);
+			out.writeBoolean(isLiteral);
+			out.writeInt(utf8.length);
+			out.write(utf8);
 		});
-		autoFlusher.setName("RecoveryManagerAutoFlusher");
-		autoFlusher.setDaemon(true);
-		autoFlusher.start();
 	}
 
-	@SuppressWarnings("resource")
-	public void startBlock() throws IOException {
-		getWriter().write("~start~");
+	public void recordAnonymousResource(long id) throws IOException {
+		record(out -> {
+			out.writeByte(ANONYMOUS_RESOURCE);
+			out.writeLong(id);
+		});
 	}
 
-	@SuppressWarnings("resource")
-	public void endBlock() throws IOException {
-		getWriter().write("~end~");
+	public void recordAdd(long subjectId, long predicateId, long objectId) throws IOException {
+		recordStatement(ADD, subjectId, predicateId, objectId);
+	}
+
+	public void recordDelete(long subjectId, long predicateId, long objectId) throws IOException {
+		recordStatement(DELETE, subjectId, predicateId, objectId);
 	}
 
-	@SuppressWarnings("resource")
-	public void recordAdd(String subject, String predicate, String object) throws IOException {
-		getWriter().write(appendTriple('+', subject, predicate, object));
+	/** Records the addition of a statement to the graph with the given id in a quad store. */
+	public void recordAdd(long subjectId, long predicateId, long objectId, long graphId) throws IOException {
+		recordQuad(ADD_QUAD, subjectId, predicateId, objectId, graphId);
 	}
 
-	@SuppressWarnings("resource")
-	public void recordDelete(String subject, String predicate, String object) throws IOException {
-		getWriter().write(appendTriple('-', subject, predicate, object));
+	/** Records the deletion of a statement from the graph with the given id in a quad store. */
+	public void recordDelete(long subjectId, long predicateId, long objectId, long graphId) throws IOException {
+		recordQuad(DELETE_QUAD, subjectId, predicateId, objectId, graphId);
 	}
 
-	private static String appendTriple(char operation, String subject, String predicate, String object) {
-		StringBuilder buffer = new StringBuilder();
-		buffer.append(operation);
-		buffer.append(subject);
-		buffer.append(' ');
-		buffer.append(predicate);
-		buffer.append(' ');
-		buffer.append(object);
-		buffer.append('\n');
-		return buffer.toString();
+	/** Records the deletion of every statement of the graph with the given id in a quad store. */
+	public void recordClearGraph(long graphId) throws IOException {
+		record(out -> {
+			out.writeByte(CLEAR_GRAPH);
+			out.writeLong(graphId);
+		});
+	}
+
+	private void recordStatement(byte type, long subjectId, long predicateId, long objectId) throws IOException {
+		record(out -> {
+			out.writeByte(type);
+			out.writeLong(subjectId);
+			out.writeLong(predicateId);
+			out.writeLong(objectId);
+		});
+	}
+
+	private void recordQuad(byte type, long subjectId, long predicateId, long objectId, long graphId)
+		throws IOException {
+		record(out -> {
+			out.writeByte(type);
+			out.writeLong(subjectId);
+			out.writeLong(predicateId);
+			out.writeLong(objectId);
+			out.writeLong(graphId);
+		});
+	}
+
+	@FunctionalInterface
+	private interface RecordWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/** Adds a record to the current block, or commits it by itself if there is none. */
+	private void record(RecordWriter writer) throws IOException {
+		Block block = _currentBlock.get();
+		if (block != null) {
+			writer.write(block._out);
+		} else {
+			Block single = new Block();
+			writer.write(single._out);
+			awaitCommit(append(single._bytes.toByteArray()));
+		}
+	}
+
+	/** Appends a frame to the log, and returns the log position at its end. */
+	private long append(byte[] payload) throws IOException {
+		CRC32C crc = new CRC32C();
+		crc.update(payload);
+		ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+		frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+		long lsn;
+		_lock.lock();
+		try {
+			ensureOpen();
+			if (_segment == null) {
+				openNextSegment();
+			}
+			while (frame.hasRemaining()) {
+				_segment.write(frame);
+			}
+			_segmentSize += frame.limit();
+			_appendedLsn += frame.limit();
+			lsn = _appendedLsn;
+			if (_segmentSize >= _maxSegmentSize) {
+				closeSegment();
+			}
+		} finally {
+			_lock.unlock();
+		}
+		return lsn;
+	}
+
+	/** Forces every frame committed so far to disk. */
+	public void sync() throws IOException {
+		awaitDurable(_appendedLsn);
 	}
 
 	/**
-	 * Get the writer, with lazy initialization. This follows the double-check idiom
-	 * for lazy initialization of an instance field. See Item 83 of Effective Java,
-	 * Third Edition, by Joshua Bloch for details.
-	 *
-	 * @return the writer
+	 * Waits until the log is durable up to the given position. If no other
+	 * thread is forcing the log, this thread does so, on behalf of every frame
+	 * appended by the time it starts.
 	 */
-	private BufferedWriter getWriter() throws IOException {
-		BufferedWriter result = _writer;
-		if (result == null) {
-			synchronized (this) {
-				if (_writer == null) {
-					_writer = result = new BufferedWriter(
-						new OutputStreamWriter(
-							new FileOutputStream(_journalFile), StandardCharsets.UTF_8));
+	private void awaitDurable(long lsn) throws IOException {
+		_lock.lock();
+		try {
+			while (_durableLsn < lsn) {
+				if (_isSyncing) {
+					_syncFinished.awaitUninterruptibly();
+					continue;
+				}
+				if (_segment == null) {
+					// Closing a segment forces it, so everything appended is durable
+					_durableLsn = _appendedLsn;
+					break;
+				}
+				_isSyncing = true;
+				FileChannel segment = _segment;
+				long target;
+				_lock.unlock();
+				try {
+					if (_groupCommitDelay > 0 && _durability == Durability.SYNC) {
+						sleepUninterruptibly(_groupCommitDelay);
+					}
+					// Read before forcing, so that every frame counted is covered:
+					target = _appendedLsn;
+					segment.force(false);
+				} finally {
+					_lock.lock();
+					_isSyncing = false;
+					_syncFinished.signalAll();
 				}
+				_durableLsn = Math.max(_durableLsn, target);
+				++_numForces;
 			}
+		} finally {
+			_lock.unlock();
 		}
-		return result;
 	}
 
+	/** Returns the number of times the log has been forced for commits, for testing group commit. */
+	long getNumForces() {
+		_lock.lock();
+		try {
+			return _numForces;
+		} finally {
+			_lock.unlock();
+		}
+	}
+
+	private void backgroundSync() {
+		try {
+			sync();
+		} catch (IOException | RuntimeException ex) {
+			LOG.error("Unable to sync the journal", ex);
+		}
+	}
+
+	/**
+	 * Makes the KB durable and discards the journal up to this point. The
+	 * caller must ensure that no changes are applied to the KB while the
+	 * checkpoint runs, because a change recorded before the checkpoint but
+	 * applied after the KB is synced would be lost.
+	 */
+	public void checkpoint(KbInstance kb) throws IOException {
+		checkpoint(kb::sync);
+	}
+
+	/** Runs the given action, which must make the KB durable, and then discards the journal up to this point. */
+	public void checkpoint(Runnable syncKb) throws IOException {
+		long lastSegmentSeqNum;
+		_lock.lock();
+		try {
+			ensureOpen();
+			closeSegment();
+			lastSegmentSeqNum = _segmentSeqNum;
+		} finally {
+			_lock.unlock();
+		}
+		syncKb.run();
+		for (File segment : listSegments()) {
+			if (segmentSeqNum(segment) <= lastSegmentSeqNum && !segment.delete()) {
+				LOG.warn("Unable to delete journal segment {}", segment);
+			}
+		}
+	}
+
+	/** Returns true if the journal holds segments not yet discarded by a checkpoint. */
+	public boolean hasSegments() {
+		return !listSegments().isEmpty();
+	}
+
+	/** Discards the journal up to this point, after the caller has synced the KB. */
 	public void instanceFlushed() throws IOException {
-		if (_writer != null) {
-			_writer.close();
+		checkpoint(() -> {});
+	}
+
+	/**
+	 * Forces and closes the journal. The journal is kept, so that changes
+	 * applied since the last checkpoint are replayed by the next recovery
+	 * manager opened on this directory.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (_syncTask != null) {
+			_syncTask.cancel(false);
+		}
+		_lock.lock();
+		try {
+			if (!_isClosed) {
+				closeSegment();
+				_isClosed = true;
+			}
+		} finally {
+			_lock.unlock();
 		}
-		_writer = null;
-		_journalFile.delete();
 	}
 
-	private void recover(Recoverable recoverable) {
+	private void ensureOpen() {
+		if (_isClosed) {
+			throw new IllegalStateException("The recovery manager is closed");
+		}
+	}
+
+	/** Must be called with _lock held. */
+	private void openNextSegment() throws IOException {
+		_journalDir.mkdirs();
+		File file = new File(_journalDir, segmentName(++_segmentSeqNum));
+		_segment = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(4).putInt(SEGMENT_MAGIC).flip();
+		while (header.hasRemaining()) {
+			_segment.write(header);
+		}
+		_segmentSize = header.limit();
+	}
+
+	/** Forces and closes the current segment, if any. Must be called with _lock held. */
+	private void closeSegment() throws IOException {
+		while (_isSyncing) {
+			// Don't close the channel out from under an fsync in progress
+			_syncFinished.awaitUninterruptibly();
+		}
+		if (_segment != null) {
+			try {
+				_segment.force(false);
+			} finally {
+				_segment.close();
+				_segment = null;
+			}
+			_durableLsn = _appendedLsn;
+		}
+	}
+
+	private List<File> listSegments() {
+		File[] files = _journalDir.listFiles(
+			(dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		if (files == null) {
+			return new ArrayList<>();
+		}
+		Arrays.sort(files, (lhs, rhs) -> Long.compare(segmentSeqNum(lhs), segmentSeqNum(rhs)));
+		return new ArrayList<>(Arrays.asList(files));
+	}
+
+	private static String segmentName(long seqNum) {
+		return "%1$s%2$016d%3$s".formatted(SEGMENT_PREFIX, seqNum, SEGMENT_SUFFIX);
+	}
+
+	private static long segmentSeqNum(File segment) {
+		String name = segment.getName();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	private static void sleepUninterruptibly(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void recover(List<File> segments, Recoverable recoverable) {
 		LOG.warn("Needed to recover unflushed changes!");
-		boolean finishedRecovery = false;
-		try (BufferedReader rdr = Files.newBufferedReader(_journalFile.toPath(), StandardCharsets.UTF_8)) {
-			String line = null;
-			while ((line = rdr.readLine()) != null) {
-				int firstSpace = line.indexOf(' ');
-				int secondSpace = line.indexOf(' ', firstSpace + 1);
-				String subject = line.substring(1, firstSpace);
-				String predicate = line.substring(firstSpace + 1, secondSpace);
-				String object = line.substring(secondSpace + 1);
-
-				if (line.charAt(0) == '+') {
-					LOG.debug("Recovery: adding statement: {} {} {}", subject, predicate, object);
-					recoverable.recoverAdd(subject, predicate, object);
-				} else if (line.charAt(0) == '-') {
-					LOG.debug("Recovery: deleting statement: {} {} {}", subject, predicate, object);
-					recoverable.recoverDelete(subject, predicate, object);
+		Map<Long, Long> idMap = new HashMap<>();
+		Set<Long> anonIds = new HashSet<>();
+		long numFrames = 0;
+		try {
+			for (int i = 0; i < segments.size(); ++i) {
+				File segment = segments.get(i);
+				long numSegmentFrames = replaySegment(segment, recoverable, idMap, anonIds);
+				if (numSegmentFrames < 0) {
+					if (i < segments.size() - 1) {
+						LOG.error("Journal segment {} is damaged before its end. Changes recorded after "
+							+ "the damage, including those in later segments, cannot be recovered.", segment);
+					} else {
+						LOG.warn("Ignoring an incomplete frame at the end of the journal");
+					}
+					break;
 				}
+				numFrames += numSegmentFrames;
 			}
 			recoverable.recoverFlush();
-			finishedRecovery = true;
-			LOG.warn("Recovered successfully!");
-		} catch (IOException e) {
-			throw new RuntimeException("Error during recovery!", e);
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Error during recovery!", ex);
+		}
+		LOG.warn("Recovered {} committed blocks successfully!", numFrames);
+	}
+
+	/**
+	 * Replays the frames of a segment, and returns the number replayed, or -1
+	 * if the segment ends in an incomplete or damaged frame.
+	 */
+	private static long replaySegment(File segment, Recoverable recoverable, Map<Long, Long> idMap,
+		Set<Long> anonIds) throws IOException {
+		long numFrames = 0;
+		try (DataInputStream in = new DataInputStream(
+			new BufferedInputStream(new FileInputStream(segment), 1024 * 1024))) {
+			try {
+				if (in.readInt() != SEGMENT_MAGIC) {
+					throw new IOException("%1$s is not a journal segment".formatted(segment));
+				}
+			} catch (EOFException ex) {
+				return -1;	// Crashed while creating the segment
+			}
+			CRC32C crc = new CRC32C();
+			for (;;) {
+				int length;
+				try {
+					length = in.readInt();
+				} catch (EOFException ex) {
+					return numFrames;	// A clean end
+				}
+				byte[] payload;
+				try {
+					int checksum = in.readInt();
+					if (length < 0 || length > segment.length()) {
+						return -1;
+					}
+					payload = new byte[length];
+					in.readFully(payload);
+					crc.reset();
+					crc.update(payload);
+					if ((int) crc.getValue() != checksum) {
+						return -1;
+					}
+				} catch (EOFException ex) {
+					return -1;
+				}
+				replayFrame(payload, recoverable, idMap, anonIds);
+				++numFrames;
+			}
 		}
-		if (finishedRecovery) {
-			_journalFile.delete();
+	}
+
+	/**
+	 * Replays the records of a frame. Two threads writing the same KB at once
+	 * may each record the same new anonymous resource, so one that has been
+	 * recovered already (as recorded in anonIds) is not recreated.
+	 */
+	private static void replayFrame(byte[] payload, Recoverable recoverable, Map<Long, Long> idMap,
+		Set<Long> anonIds) {
+		ByteBuffer buffer = ByteBuffer.wrap(payload);
+		while (buffer.hasRemaining()) {
+			byte type = buffer.get();
+			switch (type) {
+			case RESOURCE -> {
+				long id = buffer.getLong();
+				boolean isLiteral = buffer.get() != 0;
+				byte[] utf8 = new byte[buffer.getInt()];
+				buffer.get(utf8);
+				putId(idMap, id, recoverable.recoverResource(new String(utf8, StandardCharsets.UTF_8), isLiteral));
+			}
+			case ANONYMOUS_RESOURCE -> {
+				long id = buffer.getLong();
+				if (anonIds.add(id)) {
+					putId(idMap, id, recoverable.recoverAnonymousResource(id));
+				}
+			}
+			case ADD -> recoverable.recoverAdd(mapId(idMap, buffer.getLong()),
+				mapId(idMap, buffer.getLong()), mapId(idMap, buffer.getLong()));
+			case DELETE -> recoverable.recoverDelete(mapId(idMap, buffer.getLong()),
+				mapId(idMap, buffer.getLong()), mapId(idMap, buffer.getLong()));
+			case ADD_QUAD -> recoverable.recoverAddQuad(mapId(idMap, buffer.getLong()),
+				mapId(idMap, buffer.getLong()), mapId(idMap, buffer.getLong()),
+				mapId(idMap, buffer.getLong()));
+			case DELETE_QUAD -> recoverable.recoverDeleteQuad(mapId(idMap, buffer.getLong()),
+				mapId(idMap, buffer.getLong()), mapId(idMap, buffer.getLong()),
+				mapId(idMap, buffer.getLong()));
+			case CLEAR_GRAPH -> recoverable.recoverClearGraph(mapId(idMap, buffer.getLong()));
+			default -> throw new IllegalStateException(
+				"Unknown journal record type %1$d in a frame with a valid checksum".formatted(type));
+			}
+		}
+	}
+
+	/** Only ids that changed are kept, so the map stays small when the KB assigns the same ids again. */
+	private static void putId(Map<Long, Long> idMap, long journalId, long recoveredId) {
+		if (journalId == recoveredId) {
+			idMap.remove(journalId);
+		} else {
+			idMap.put(journalId, recoveredId);
 		}
 	}
+
+	private static long mapId(Map<Long, Long> idMap, long journalId) {
+		Long recoveredId = idMap.get(journalId);
+		return (recoveredId == null) ? journalId : recoveredId;
+	}
 }
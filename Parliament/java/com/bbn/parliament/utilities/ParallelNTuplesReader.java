@@ -0,0 +1,295 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.openjena.atlas.lib.Sink;
+import org.openjena.riot.ErrorHandler;
+import org.openjena.riot.ErrorHandlerFactory;
+import org.openjena.riot.RiotParseException;
+import org.openjena.riot.RiotReader;
+import org.openjena.riot.lang.LabelToNode;
+import org.openjena.riot.lang.LangRIOT;
+import org.openjena.riot.system.MapWithScope;
+import org.openjena.riot.tokens.Tokenizer;
+import org.openjena.riot.tokens.TokenizerFactory;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.sparql.core.Quad;
+
+/**
+ * Parses N-Triples or N-Quads on several cores. Both formats have one
+ * statement per line, so the input is read in chunks that end at a line
+ * boundary, and the chunks are parsed on a fork/join pool. Parsed chunks are
+ * handed to the sink in input order, on the calling thread, and the number of
+ * chunks in flight is bounded, so memory use does not depend on the size of
+ * the input.
+ * <p>
+ * Blank node labels are scoped to the whole document, not to a chunk: each
+ * label is mapped to a blank node id made from the label and an id unique to
+ * this read, so every chunk maps a given label to the same blank node without
+ * sharing a table.
+ *
+ * @param <T> Triple for N-Triples, or Quad for N-Quads
+ */
+public class ParallelNTuplesReader<T> {
+	public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+	@FunctionalInterface
+	private interface ParserFactory<T> {
+		LangRIOT create(Tokenizer tokenizer, Sink<T> sink);
+	}
+
+	private final ParserFactory<T> parserFactory;
+	private final int chunkSize;
+	private final ForkJoinPool pool;
+
+	/** Returns an N-Triples reader with the default chunk size, using the common pool. */
+	public static ParallelNTuplesReader<Triple> nTriples() {
+		return nTriples(DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	public static ParallelNTuplesReader<Triple> nTriples(int chunkSize, ForkJoinPool pool) {
+		return new ParallelNTuplesReader<>(RiotReader::createParserNTriples, chunkSize, pool);
+	}
+
+	/** Returns an N-Quads reader with the default chunk size, using the common pool. */
+	public static ParallelNTuplesReader<Quad> nQuads() {
+		return nQuads(DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	public static ParallelNTuplesReader<Quad> nQuads(int chunkSize, ForkJoinPool pool) {
+		return new ParallelNTuplesReader<>(RiotReader::createParserNQuads, chunkSize, pool);
+	}
+
+	private ParallelNTuplesReader(ParserFactory<T> parserFactory, int chunkSize, ForkJoinPool pool) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive");
+		}
+		this.parserFactory = parserFactory;
+		this.chunkSize = chunkSize;
+		this.pool = pool;
+	}
+
+	/**
+	 * Parses the input, sending each statement to the sink in input order, and
+	 * returns the number of statements. A syntax error is thrown as a
+	 * RiotException whose line number is relative to the whole input. The sink
+	 * is flushed, but not closed.
+	 */
+	public long read(InputStream in, Sink<T> sink) throws IOException {
+		String documentId = UUID.randomUUID().toString().replace("-", "");
+		int maxChunksInFlight = 2 * pool.getParallelism();
+		Deque<Future<List<T>>> chunksInFlight = new ArrayDeque<>();
+		long numTuples = 0;
+		try {
+			byte[] buffer = new byte[chunkSize];
+			int bufferLen = 0;
+			long firstLine = 1;
+			for (;;) {
+				bufferLen = fill(in, buffer, bufferLen);
+				boolean isEof = bufferLen < buffer.length;
+				int chunkLen = isEof ? bufferLen : lastLineEnd(buffer, bufferLen);
+				if (chunkLen <= 0 && !isEof) {
+					// The buffer holds less than one line:
+					buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+					continue;
+				}
+				if (chunkLen > 0) {
+					byte[] chunk = Arrays.copyOf(buffer, chunkLen);
+					long chunkFirstLine = firstLine;
+					chunksInFlight.addLast(pool.submit(() -> parseChunk(chunk, chunkFirstLine, documentId)));
+					firstLine += countLines(chunk);
+					System.arraycopy(buffer, chunkLen, buffer, 0, bufferLen - chunkLen);
+					bufferLen -= chunkLen;
+				}
+				while (!chunksInFlight.isEmpty() && (isEof || chunksInFlight.size() >= maxChunksInFlight)) {
+					numTuples += emit(chunksInFlight.removeFirst(), sink);
+				}
+				if (isEof) {
+					break;
+				}
+			}
+		} finally {
+			chunksInFlight.forEach(chunk -> chunk.cancel(true));
+		}
+		sink.flush();
+		return numTuples;
+	}
+
+	private List<T> parseChunk(byte[] chunk, long firstLine, String documentId) {
+		List<T> tuples = new ArrayList<>();
+		LangRIOT parser = parserFactory.create(
+			TokenizerFactory.makeTokenizerUTF8(new ByteArrayInputStream(chunk)),
+			new Sink<T>() {
+				@Override
+				public void send(T tuple) {
+					tuples.add(tuple);
+				}
+
+				@Override
+				public void flush() {
+				}
+
+				@Override
+				public void close() {
+				}
+			});
+		parser.getProfile().setLabelToNode(new DocumentLabelToNode(documentId));
+		parser.getProfile().setHandler(new LineOffsetErrorHandler(
+			ErrorHandlerFactory.getDefaultErrorHandler(), firstLine - 1));
+		try {
+			parser.parse();
+		} catch (RiotParseException ex) {
+			throw new RiotParseException(ex.getOriginalMessage(),
+				ex.getLine() + firstLine - 1, ex.getCol());
+		}
+		return tuples;
+	}
+
+	private long emit(Future<List<T>> chunk, Sink<T> sink) throws IOException {
+		List<T> tuples;
+		try {
+			tuples = chunk.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while parsing");
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException rtEx) {
+				throw rtEx;
+			} else if (ex.getCause() instanceof Error err) {
+				throw err;
+			} else {
+				throw new IllegalStateException(ex.getCause());
+			}
+		}
+		tuples.forEach(sink::send);
+		return tuples.size();
+	}
+
+	/** Reads until the buffer is full or the input ends, and returns the number of bytes in the buffer. */
+	private static int fill(InputStream in, byte[] buffer, int len) throws IOException {
+		while (len < buffer.length) {
+			int numRead = in.read(buffer, len, buffer.length - len);
+			if (numRead < 0) {
+				break;
+			}
+			len += numRead;
+		}
+		return len;
+	}
+
+	/** Returns the length of the buffer up to and including its last newline, or 0 if it has none. */
+	private static int lastLineEnd(byte[] buffer, int len) {
+		for (int i = len - 1; i >= 0; --i) {
+			if (buffer[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	private static long countLines(byte[] chunk) {
+		long count = 0;
+		for (byte b : chunk) {
+			if (b == '\n') {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Maps a blank node label to the same blank node in every chunk of a
+	 * document. The map in each instance is only a cache for one chunk.
+	 */
+	private static class DocumentLabelToNode extends LabelToNode {
+		public DocumentLabelToNode(String documentId) {
+			super(new ChunkScope(), new DocumentAllocator(documentId));
+		}
+
+		private static class ChunkScope implements MapWithScope.ScopePolicy<String, Node, Node> {
+			private final Map<String, Node> map = new HashMap<>();
+
+			@Override
+			public Map<String, Node> getScope(Node scope) {
+				return map;
+			}
+
+			@Override
+			public void clear() {
+				map.clear();
+			}
+		}
+
+		private static class DocumentAllocator implements MapWithScope.Allocator<String, Node> {
+			private final String documentId;
+
+			public DocumentAllocator(String documentId) {
+				this.documentId = documentId;
+			}
+
+			@Override
+			public Node create(String label) {
+				return (label == null)
+					? Node.createAnon()
+					: Node.createAnon(AnonId.create(documentId + "_" + label));
+			}
+
+			@Override
+			public void reset() {
+			}
+		}
+	}
+
+	/** Reports errors with line numbers relative to the whole input. */
+	private static class LineOffsetErrorHandler implements ErrorHandler {
+		private final ErrorHandler delegate;
+		private final long lineOffset;
+
+		public LineOffsetErrorHandler(ErrorHandler delegate, long lineOffset) {
+			this.delegate = delegate;
+			this.lineOffset = lineOffset;
+		}
+
+		@Override
+		public void warning(String message, long line, long col) {
+			delegate.warning(message, offset(line), col);
+		}
+
+		@Override
+		public void error(String message, long line, long col) {
+			delegate.error(message, offset(line), col);
+		}
+
+		@Override
+		public void fatal(String message, long line, long col) {
+			delegate.fatal(message, offset(line), col);
+		}
+
+		private long offset(long line) {
+			return (line < 0) ? line : line + lineOffset;
+		}
+	}
+}
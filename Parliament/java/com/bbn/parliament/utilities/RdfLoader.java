@@ -7,7 +7,9 @@
 package com.bbn.parliament.utilities;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilenameFilter;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +29,7 @@ public class RdfLoader
 	public static final String BATCH_FLAG     = "--batch";
 	public static final String SUFFIX_FLAG    = "--suffix";
 	public static final String DEFAULT_SUFFIX = ".rdf";
+	public static final String NTRIPLES_SUFFIX = ".nt";
 
 	private static boolean checkOptFlag(final String arg, final String flag,
 		final boolean acceptShortFlag)
@@ -150,9 +153,21 @@ public class RdfLoader
 
 			for (LoadRDFCommand cmd : commands)
 			{
-				cmd.setStatementHandler(new StatementHandler(kb));
-				cmd.load();
-				cmd.setStatementHandler(null);
+				StatementHandler handler = new StatementHandler(kb);
+				if (cmd.getName().endsWith(NTRIPLES_SUFFIX))
+				{
+					// N-Triples files are parsed on all cores and added in batches
+					try (InputStream in = new FileInputStream(cmd.getName()))
+					{
+						ParallelNTuplesReader.nTriples().read(in, handler);
+					}
+				}
+				else
+				{
+					cmd.setStatementHandler(handler);
+					cmd.load();
+					cmd.setStatementHandler(null);
+				}
 			}
 
 			if (showTime)
@@ -7,23 +7,35 @@
 package com.bbn.parliament.utilities;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.openjena.atlas.lib.Sink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bbn.parliament.jni.KbInstance;
 import com.bbn.parliament.queryoptimization.TreeWidthEstimator;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.arp.ALiteral;
 import com.hp.hpl.jena.rdf.arp.AResource;
 
-public class StatementHandler implements com.hp.hpl.jena.rdf.arp.StatementHandler
+/**
+ * Adds statements to a KB, either one at a time from the ARP parser, or as a
+ * Sink of triples (e.g., from ParallelNTuplesReader), in which case they are
+ * added in batches with one call into the KB per batch.
+ */
+public class StatementHandler implements com.hp.hpl.jena.rdf.arp.StatementHandler,
+	Sink<Triple>
 {
 	private static final File STATEMENTS_FILE = new File("statements.mem");
 	private static final File RESOURCES_FILE  = new File("resources.mem");
 	private static final File URIS_FILE       = new File("uris.mem");
 	private static final File URI_2_ID_FILE   = new File("u2i.db");
+	private static final int  BATCH_SIZE      = 1000;
 
 	private static Logger     _logger = LoggerFactory.getLogger(TreeWidthEstimator.class);
 	private static boolean    _useCache       = true;
@@ -33,6 +45,8 @@ public class StatementHandler implements com.hp.hpl.jena.rdf.arp.StatementHandle
 	private AResource         _lastSubject    = null;
 	private long              _lastSubjectIndex;
 	private Map<String, Long> _predCache      = new HashMap<>();
+	private Map<Node, Long>   _bnodeCache     = new HashMap<>();
+	private List<Triple>      _batch          = new ArrayList<>(BATCH_SIZE);
 
 
 	public StatementHandler(KbInstance kb)
@@ -214,6 +228,93 @@ public class StatementHandler implements com.hp.hpl.jena.rdf.arp.StatementHandle
 		}
 	}
 
+	/** Adds a triple to the current batch, adding the batch to the KB when it is full. */
+	@Override
+	public void send(Triple t)
+	{
+		_batch.add(t);
+		if (_batch.size() >= BATCH_SIZE)
+		{
+			flush();
+		}
+	}
+
+	/**
+	 * Adds the current batch to the KB. The resource ids of the batch's URIs
+	 * and literals are looked up with one call, like the statements themselves.
+	 */
+	@Override
+	public void flush()
+	{
+		int count = _batch.size();
+		if (count == 0)
+		{
+			return;
+		}
+
+		Node[] nodes = new Node[3 * count];
+		for (int i = 0; i < count; ++i)
+		{
+			Triple t = _batch.get(i);
+			nodes[3 * i] = t.getSubject();
+			nodes[3 * i + 1] = t.getPredicate();
+			nodes[3 * i + 2] = t.getObject();
+		}
+
+		long[] ids = new long[nodes.length];
+		int[] missIndexes = new int[nodes.length];
+		String[] missStrings = new String[nodes.length];
+		boolean[] missIsLiteral = new boolean[nodes.length];
+		int missCount = 0;
+		for (int i = 0; i < nodes.length; ++i)
+		{
+			Node n = nodes[i];
+			if (n.isBlank())
+			{
+				ids[i] = _bnodeCache.computeIfAbsent(n, key -> _kb.createAnonymousRsrc());
+			}
+			else
+			{
+				// Literals are stored by lexical form, as in the ARP statement methods
+				missIndexes[missCount] = i;
+				missStrings[missCount] = n.isLiteral() ? n.getLiteralLexicalForm() : n.getURI();
+				missIsLiteral[missCount] = n.isLiteral();
+				++missCount;
+			}
+		}
+		long[] missIds = _kb.uriToRsrcIds(missStrings, missIsLiteral, missCount, true);
+		for (int i = 0; i < missCount; ++i)
+		{
+			ids[missIndexes[i]] = missIds[i];
+		}
+
+		long[] subjects = new long[count];
+		long[] predicates = new long[count];
+		long[] objects = new long[count];
+		for (int i = 0; i < count; ++i)
+		{
+			subjects[i] = ids[3 * i];
+			predicates[i] = ids[3 * i + 1];
+			objects[i] = ids[3 * i + 2];
+		}
+		_kb.addStmts(subjects, predicates, objects, count, false);
+		_batch.clear();
+
+		long previousCount = _stmtCount;
+		_stmtCount += count;
+		if ((previousCount / 5000 != _stmtCount / 5000) && _logger.isInfoEnabled())
+		{
+			logStatistics();
+		}
+	}
+
+	/** Adds any remaining triples to the KB. */
+	@Override
+	public void close()
+	{
+		flush();
+	}
+
 	static public long size(File file)
 	{
 		long retval = 0;
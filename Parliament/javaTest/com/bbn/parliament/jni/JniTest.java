@@ -7,6 +7,7 @@
 package com.bbn.parliament.jni;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Set;
@@ -22,6 +23,7 @@ public class JniTest {
 
 	private static final String RDFS_SUB_CLASS = "http://www.w3.org/2000/01/rdf-schema#subClassOf";
 	private static final String RDF_TYPE       = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+	private static final String RDFS_LABEL     = "http://www.w3.org/2000/01/rdf-schema#label";
 	private static final String HUMAN_URI      = "http://example.org/#Human";
 	private static final String DOG_URI        = "http://example.org/#Dog";
 	private static final String CAT_URI        = "http://example.org/#Cat";
@@ -158,6 +160,171 @@ public class JniTest {
 		}
 	}
 
+	@SuppressWarnings("static-method")
+	@Test
+	public void testNextBatch() {
+		KbConfig cfg = buildConfig(true);
+
+		// Clearing away old KB leftovers:
+		KbInstance.deleteKb(cfg, null);
+
+		try (KbInstance kb = new KbInstance(cfg)) {
+			long rdfsSubClassOfRsrcId = kb.uriToRsrcId(RDFS_SUB_CLASS, false, true);
+			long rdfTypeRsrcId = kb.uriToRsrcId(RDF_TYPE, false, true);
+			long humanRsrcId = kb.uriToRsrcId(HUMAN_URI, false, true);
+			long mammalRsrcId = kb.uriToRsrcId(MAMMAL_URI, false, true);
+			long animalRsrcId = kb.uriToRsrcId(ANIMAL_URI, false, true);
+			long dickRsrcId = kb.uriToRsrcId(DICK_URI, false, true);
+			long janeRsrcId = kb.uriToRsrcId(JANE_URI, false, true);
+			long rdfsLabelRsrcId = kb.uriToRsrcId(RDFS_LABEL, false, true);
+			long labelRsrcId = kb.uriToRsrcId(UNICODE_LABEL, true, true);
+
+			kb.addStmt(mammalRsrcId, rdfsSubClassOfRsrcId, animalRsrcId, false);
+			kb.addStmt(humanRsrcId, rdfsSubClassOfRsrcId, mammalRsrcId, false);
+			kb.addStmt(dickRsrcId, rdfTypeRsrcId, humanRsrcId, false);
+			kb.addStmt(janeRsrcId, rdfTypeRsrcId, humanRsrcId, false);
+			kb.addStmt(janeRsrcId, rdfsLabelRsrcId, labelRsrcId, false);
+
+			long numOpenIterators = StmtIterator.getNumOpenIterators();
+			Set<String> expectedResults = new TreeSet<>();
+			try (StmtIterator it = kb.find(KbInstance.NULL_RSRC_ID, KbInstance.NULL_RSRC_ID,
+				KbInstance.NULL_RSRC_ID, KbInstance.SKIP_DELETED_STMT_ITER_FLAG)) {
+				while (it.hasNext()) {
+					Statement stmt = it.next();
+					expectedResults.add(formatBatchEntry(stmt.getSubject(), stmt.getPredicate(),
+						stmt.getObject(), stmt.isLiteral(), stmt.isInferred()));
+				}
+			}
+
+			// Use a batch size smaller than the result count to exercise refills:
+			long[] subjects = new long[3];
+			long[] predicates = new long[3];
+			long[] objects = new long[3];
+			byte[] flags = new byte[3];
+			Set<String> results = new TreeSet<>();
+			try (StmtIterator it = kb.find(KbInstance.NULL_RSRC_ID, KbInstance.NULL_RSRC_ID,
+				KbInstance.NULL_RSRC_ID, KbInstance.SKIP_DELETED_STMT_ITER_FLAG)) {
+				for (int count; (count = it.nextBatch(subjects, predicates, objects, flags)) > 0;) {
+					for (int i = 0; i < count; ++i) {
+						results.add(formatBatchEntry(subjects[i], predicates[i], objects[i],
+							(flags[i] & StmtIterator.LITERAL_STMT_FLAG) != 0,
+							(flags[i] & StmtIterator.INFERRED_STMT_FLAG) != 0));
+					}
+				}
+				assertEquals(0, it.nextBatch(subjects, predicates, objects, flags),
+					"Batch after end of iteration");
+			}
+			assertTrue(expectedResults.size() > subjects.length, "Too few statements to test batching");
+			assertEquals(expectedResults, results, "Batched iteration results");
+			assertEquals(numOpenIterators, StmtIterator.getNumOpenIterators(),
+				"Closed iterators are freed");
+		} catch (Throwable ex) {
+			ex.printStackTrace();
+			assertTrue(false, ex.getMessage());
+		} finally {
+			KbInstance.deleteKb(cfg, null);
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBulkAddAndDelete() {
+		KbConfig cfg = buildConfig(true);
+
+		// Clearing away old KB leftovers:
+		KbInstance.deleteKb(cfg, null);
+
+		try (KbInstance kb = new KbInstance(cfg)) {
+			long rdfsSubClassOfRsrcId = kb.uriToRsrcId(RDFS_SUB_CLASS, false, true);
+			long rdfTypeRsrcId = kb.uriToRsrcId(RDF_TYPE, false, true);
+			long humanRsrcId = kb.uriToRsrcId(HUMAN_URI, false, true);
+			long mammalRsrcId = kb.uriToRsrcId(MAMMAL_URI, false, true);
+			long animalRsrcId = kb.uriToRsrcId(ANIMAL_URI, false, true);
+			long dickRsrcId = kb.uriToRsrcId(DICK_URI, false, true);
+			long janeRsrcId = kb.uriToRsrcId(JANE_URI, false, true);
+
+			long[] subjects = { mammalRsrcId, humanRsrcId, dickRsrcId, janeRsrcId };
+			long[] predicates = { rdfsSubClassOfRsrcId, rdfsSubClassOfRsrcId, rdfTypeRsrcId, rdfTypeRsrcId };
+			long[] objects = { animalRsrcId, mammalRsrcId, humanRsrcId, humanRsrcId };
+			kb.addStmts(subjects, predicates, objects, subjects.length, false);
+
+			// Should be inferred:
+			// Human subClassOf Animal
+			// Dick a Mammal
+			// Dick a Animal
+			// Jane a Mammal
+			// Jane a Animal
+			KbInstance.CountStmtsResult counts = kb.countStmts();
+			assertEquals(9, counts.getTotal(), "# total statements");
+			assertEquals(0, counts.getNumDel(), "# deleted statements");
+			assertEquals(5, counts.getNumInferred(), "# inferred statements");
+
+			// Delete only the last two entries, Dick's and Jane's types:
+			long[] delSubjects = { janeRsrcId, dickRsrcId };
+			long[] delPredicates = { rdfTypeRsrcId, rdfTypeRsrcId };
+			long[] delObjects = { humanRsrcId, humanRsrcId };
+			kb.deleteStmts(delSubjects, delPredicates, delObjects, delSubjects.length);
+
+			try (StmtIterator it = kb.find(KbInstance.NULL_RSRC_ID, rdfTypeRsrcId,
+				humanRsrcId, KbInstance.SKIP_DELETED_STMT_ITER_FLAG)) {
+				assertTrue(!it.hasNext(), "Deleted statements still visible");
+			}
+
+			// A count larger than the arrays must be rejected:
+			assertThrows(NativeCodeException.class,
+				() -> kb.addStmts(subjects, predicates, objects, subjects.length + 1, false));
+		} catch (Throwable ex) {
+			ex.printStackTrace();
+			assertTrue(false, ex.getMessage());
+		} finally {
+			KbInstance.deleteKb(cfg, null);
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBulkDictionaryLookup() {
+		KbConfig cfg = buildConfig(false);
+
+		// Clearing away old KB leftovers:
+		KbInstance.deleteKb(cfg, null);
+
+		try (KbInstance kb = new KbInstance(cfg)) {
+			long humanRsrcId = kb.uriToRsrcId(HUMAN_URI, false, true);
+			long anonRsrcId = kb.createAnonymousRsrc();
+
+			String[] uris = { HUMAN_URI, UNICODE_LABEL, DOG_URI, HUMAN_URI };
+			boolean[] isLiteral = { false, true, false, false };
+			long[] missing = kb.uriToRsrcIds(uris, isLiteral, uris.length, false);
+			assertEquals(humanRsrcId, missing[0], "Existing resource id");
+			assertEquals(KbInstance.NULL_RSRC_ID, missing[1], "Missing literal id");
+			assertEquals(KbInstance.NULL_RSRC_ID, missing[2], "Missing resource id");
+
+			long[] ids = kb.uriToRsrcIds(uris, isLiteral, uris.length, true);
+			assertEquals(humanRsrcId, ids[0], "Existing resource id");
+			assertEquals(humanRsrcId, ids[3], "Repeated resource id");
+			assertEquals(kb.uriToRsrcId(UNICODE_LABEL, true, false), ids[1], "Literal id");
+			assertEquals(kb.uriToRsrcId(DOG_URI, false, false), ids[2], "Created resource id");
+
+			long[] lookupIds = { ids[1], anonRsrcId, ids[2], ids[0] };
+			String[] results = kb.rsrcIdsToUris(lookupIds, lookupIds.length);
+			assertEquals(UNICODE_LABEL, results[0], "Literal string");
+			assertEquals(null, results[1], "Anonymous resource string");
+			assertEquals(DOG_URI, results[2], "Resource URI");
+			assertEquals(kb.rsrcIdToUri(ids[0]), results[3], "Resource URI");
+		} catch (Throwable ex) {
+			ex.printStackTrace();
+			assertTrue(false, ex.getMessage());
+		} finally {
+			KbInstance.deleteKb(cfg, null);
+		}
+	}
+
+	private static String formatBatchEntry(long subject, long predicate, long object,
+		boolean isLiteral, boolean isInferred) {
+		return "%1$d %2$d %3$d %4$b %5$b".formatted(subject, predicate, object, isLiteral, isInferred);
+	}
+
 	private static KbConfig buildConfig(boolean withInference) {
 		KbConfig cfg = new KbConfig();
 		cfg.readFromFile();
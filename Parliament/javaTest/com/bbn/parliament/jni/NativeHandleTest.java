@@ -0,0 +1,49 @@
+package com.bbn.parliament.jni;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+public class NativeHandleTest {
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCloseDisposesOnce() {
+		NativeHandle.Tracker tracker = new NativeHandle.Tracker("Test");
+		List<Long> disposed = new CopyOnWriteArrayList<>();
+		Object owner = new Object();
+		NativeHandle handle = new NativeHandle(owner, 42, disposed::add, tracker);
+		assertEquals(1, tracker.getNumOpen());
+
+		handle.close();
+		handle.close();
+		assertEquals(List.of(42L), disposed);
+		assertEquals(0, tracker.getNumOpen());
+		assertEquals(0, tracker.getNumLeaked());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testUnreachableOwnerIsDisposedAndCounted() throws InterruptedException {
+		NativeHandle.Tracker tracker = new NativeHandle.Tracker("Test");
+		List<Long> disposed = new CopyOnWriteArrayList<>();
+		createUnclosedOwner(disposed, tracker);
+
+		for (int i = 0; i < 100 && disposed.isEmpty(); ++i) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assertEquals(List.of(7L), disposed);
+		assertEquals(0, tracker.getNumOpen());
+		assertEquals(1, tracker.getNumLeaked());
+	}
+
+	private static void createUnclosedOwner(List<Long> disposed, NativeHandle.Tracker tracker) {
+		Object owner = new Object();
+		new NativeHandle(owner, 7, disposed::add, tracker);
+		assertTrue(disposed.isEmpty());
+	}
+}
@@ -0,0 +1,269 @@
+package com.bbn.parliament.recovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bbn.parliament.recovery.RecoveryManager.Durability;
+
+public class RecoveryManagerTest {
+	/** Records the replayed changes, assigning resource ids offset from the journaled ones. */
+	private static class RecordingRecoverable implements Recoverable {
+		private final List<String> changes = new ArrayList<>();
+		private long nextId = 1000;
+		private int numFlushes = 0;
+
+		@Override
+		public long recoverResource(String uri, boolean isLiteral) {
+			changes.add("rsrc %1$s %2$b".formatted(uri, isLiteral));
+			return nextId++;
+		}
+
+		@Override
+		public long recoverAnonymousResource(long journalId) {
+			changes.add("anon %1$d".formatted(journalId));
+			return nextId++;
+		}
+
+		@Override
+		public void recoverAdd(long subjectId, long predicateId, long objectId) {
+			changes.add("+ %1$d %2$d %3$d".formatted(subjectId, predicateId, objectId));
+		}
+
+		@Override
+		public void recoverDelete(long subjectId, long predicateId, long objectId) {
+			changes.add("- %1$d %2$d %3$d".formatted(subjectId, predicateId, objectId));
+		}
+
+		@Override
+		public void recoverAddQuad(long subjectId, long predicateId, long objectId, long graphId) {
+			changes.add("+ %1$d %2$d %3$d %4$d".formatted(subjectId, predicateId, objectId, graphId));
+		}
+
+		@Override
+		public void recoverDeleteQuad(long subjectId, long predicateId, long objectId, long graphId) {
+			changes.add("- %1$d %2$d %3$d %4$d".formatted(subjectId, predicateId, objectId, graphId));
+		}
+
+		@Override
+		public void recoverClearGraph(long graphId) {
+			changes.add("clear %1$d".formatted(graphId));
+		}
+
+		@Override
+		public void recoverFlush() {
+			++numFlushes;
+		}
+	}
+
+	private static RecordingRecoverable reopen(Path dir) throws IOException {
+		RecordingRecoverable recoverable = new RecordingRecoverable();
+		new RecoveryManager(dir.toString(), recoverable).close();
+		return recoverable;
+	}
+
+	private static File[] segments(Path dir) {
+		File[] files = new File(dir.toFile(), RecoveryManager.JOURNAL_DIR_NAME).listFiles();
+		return (files == null) ? new File[0] : files;
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testReplayRemapsResourceIds(@TempDir Path dir) throws IOException {
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable())) {
+			rm.startBlock();
+			rm.recordResource(7, "http://example.org/s", false);
+			rm.recordAnonymousResource(8);
+			rm.recordAdd(7, 2, 8);
+			rm.endBlock();
+			rm.recordDelete(7, 2, 3);
+		}
+
+		RecordingRecoverable recoverable = reopen(dir);
+		assertEquals(List.of("rsrc http://example.org/s false", "anon 8", "+ 1000 2 1001", "- 1000 2 3"),
+			recoverable.changes);
+		assertEquals(1, recoverable.numFlushes);
+
+		// The replayed journal is discarded:
+		assertEquals(0, reopen(dir).changes.size());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testReplayRecoversRepeatedAnonymousResourceOnce(@TempDir Path dir) throws IOException {
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable())) {
+			// Two writers may each log the same new blank node:
+			rm.startBlock();
+			rm.recordAnonymousResource(8);
+			rm.recordAdd(1, 2, 8);
+			rm.endBlock();
+			rm.startBlock();
+			rm.recordAnonymousResource(8);
+			rm.recordAdd(8, 2, 3);
+			rm.endBlock();
+		}
+
+		assertEquals(List.of("anon 8", "+ 1 2 1000", "+ 1000 2 3"), reopen(dir).changes);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testReplayRemapsGraphIds(@TempDir Path dir) throws IOException {
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable())) {
+			rm.startBlock();
+			rm.recordResource(9, "http://example.org/g", false);
+			rm.recordAdd(1, 2, 3, 9);
+			rm.endBlock();
+			rm.recordDelete(1, 2, 3, 9);
+			rm.recordClearGraph(9);
+			rm.recordClearGraph(4);
+		}
+
+		assertEquals(List.of("rsrc http://example.org/g false", "+ 1 2 3 1000", "- 1 2 3 1000",
+			"clear 1000", "clear 4"), reopen(dir).changes);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testTornFrameIsNotReplayed(@TempDir Path dir) throws IOException {
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable())) {
+			rm.recordAdd(1, 2, 3);
+			rm.startBlock();
+			rm.recordAdd(4, 5, 6);
+			rm.recordAdd(7, 8, 9);
+			rm.endBlock();
+		}
+		File segment = segments(dir)[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.setLength(file.length() - 1);
+		}
+
+		assertEquals(List.of("+ 1 2 3"), reopen(dir).changes);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCorruptFrameIsNotReplayed(@TempDir Path dir) throws IOException {
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable())) {
+			rm.recordAdd(1, 2, 3);
+			rm.recordAdd(4, 5, 6);
+		}
+		File segment = segments(dir)[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.seek(file.length() - 1);
+			file.write(0x7f);
+		}
+
+		assertEquals(List.of("+ 1 2 3"), reopen(dir).changes);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCheckpointDiscardsJournal(@TempDir Path dir) throws IOException {
+		int[] numKbSyncs = { 0 };
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable())) {
+			rm.recordAdd(1, 2, 3);
+			rm.checkpoint(() -> ++numKbSyncs[0]);
+			rm.recordAdd(4, 5, 6);
+		}
+		assertEquals(1, numKbSyncs[0]);
+		assertEquals(List.of("+ 4 5 6"), reopen(dir).changes);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSegmentsAreReplayedInOrder(@TempDir Path dir) throws IOException {
+		List<String> expected = new ArrayList<>();
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable(),
+			Durability.ASYNC, 0, 256)) {
+			for (int i = 0; i < 100; ++i) {
+				rm.recordAdd(i, i + 1, i + 2);
+				expected.add("+ %1$d %2$d %3$d".formatted(i, i + 1, i + 2));
+			}
+		}
+		assertTrue(segments(dir).length > 1);
+		assertEquals(expected, reopen(dir).changes);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testConcurrentCommits(@TempDir Path dir) throws Exception {
+		int numThreads = 8;
+		int numBlocksPerThread = 50;
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable(),
+			Durability.SYNC, 1, 4096)) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < numThreads; ++t) {
+				long thread = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < numBlocksPerThread; ++i) {
+						rm.startBlock();
+						rm.recordAdd(thread, i, 0);
+						rm.recordAdd(thread, i, 1);
+						rm.endBlock();
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		List<String> changes = reopen(dir).changes;
+		assertEquals(2 * numThreads * numBlocksPerThread, changes.size());
+		for (int i = 0; i < changes.size(); i += 2) {
+			// The records of a block are never interleaved with another's:
+			String first = changes.get(i);
+			assertEquals(first.substring(0, first.length() - 1) + "1", changes.get(i + 1));
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testConcurrentSyncCommitsShareOneForce(@TempDir Path dir) throws Exception {
+		int numThreads = 8;
+		CyclicBarrier allAppended = new CyclicBarrier(numThreads);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try (RecoveryManager rm = new RecoveryManager(dir.toString(), new RecordingRecoverable(),
+			Durability.SYNC, 0, RecoveryManager.DEFAULT_MAX_SEGMENT_SIZE)) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < numThreads; ++t) {
+				long thread = t;
+				futures.add(executor.submit(() -> {
+					rm.startBlock();
+					rm.recordAdd(thread, 1, 2);
+					long lsn = rm.endBlockUnsynced();
+					// Every frame is appended before any committer forces the log:
+					allAppended.await();
+					rm.awaitCommit(lsn);
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			assertEquals(1, rm.getNumForces());
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(numThreads, reopen(dir).changes.size());
+	}
+}
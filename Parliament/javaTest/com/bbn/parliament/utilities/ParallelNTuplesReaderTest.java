@@ -0,0 +1,114 @@
+package com.bbn.parliament.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openjena.atlas.lib.Sink;
+import org.openjena.riot.RiotException;
+
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.sparql.core.Quad;
+
+public class ParallelNTuplesReaderTest {
+	private static final int NUM_LINES = 500;
+
+	private static String nTriples() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < NUM_LINES; ++i) {
+			sb.append("<http://example.org/s%1$d> <http://example.org/p> \"caf\u00e9 %1$d\"@fr .\n".formatted(i));
+			// Refer to the same blank node from lines far apart:
+			sb.append("_:b%1$d <http://example.org/p> _:b%2$d .\n".formatted(i % 7, (i + 1) % 7));
+		}
+		return sb.toString();
+	}
+
+	private static <T> List<T> read(ParallelNTuplesReader<T> reader, String input) throws IOException {
+		List<T> result = new ArrayList<>();
+		try (InputStream in = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))) {
+			long count = reader.read(in, new Sink<T>() {
+				@Override
+				public void send(T tuple) {
+					result.add(tuple);
+				}
+
+				@Override
+				public void flush() {
+				}
+
+				@Override
+				public void close() {
+				}
+			});
+			assertEquals(result.size(), count);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("static-method")
+	@ParameterizedTest
+	@ValueSource(ints = { 16, 100, 4096, ParallelNTuplesReader.DEFAULT_CHUNK_SIZE })
+	public void testChunkedReadMatchesSerialParse(int chunkSize) throws IOException {
+		String input = nTriples();
+		List<Triple> triples = read(ParallelNTuplesReader.nTriples(chunkSize, new ForkJoinPool(4)), input);
+
+		Model expected = ModelFactory.createDefaultModel();
+		expected.read(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), null, "N-TRIPLE");
+		Model actual = ModelFactory.createDefaultModel();
+		triples.forEach(t -> actual.getGraph().add(t));
+		assertEquals(2 * NUM_LINES, triples.size());
+		assertEquals(expected.size(), actual.size());
+		assertTrue(expected.isIsomorphicWith(actual));
+
+		// The statements arrive in input order:
+		for (int i = 0; i < NUM_LINES; ++i) {
+			assertEquals("http://example.org/s" + i, triples.get(2 * i).getSubject().getURI());
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testBlankNodesAreScopedToOneRead() throws IOException {
+		String input = "_:b1 <http://example.org/p> <http://example.org/o> .\n";
+		ParallelNTuplesReader<Triple> reader = ParallelNTuplesReader.nTriples();
+		Triple first = read(reader, input).get(0);
+		Triple second = read(reader, input).get(0);
+		assertNotEquals(first.getSubject(), second.getSubject());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testNQuads() throws IOException {
+		String input = """
+			<http://example.org/s> <http://example.org/p> _:x <http://example.org/g1> .
+			_:x <http://example.org/p> "o" <http://example.org/g2> .
+			""";
+		List<Quad> quads = read(ParallelNTuplesReader.nQuads(40, ForkJoinPool.commonPool()), input);
+		assertEquals(2, quads.size());
+		assertEquals("http://example.org/g2", quads.get(1).getGraph().getURI());
+		assertEquals(quads.get(0).getObject(), quads.get(1).getSubject());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSyntaxErrorReportsLineInWholeInput() {
+		String input = nTriples() + "<http://example.org/s> <http://example.org/p> .\n";
+		RiotException ex = assertThrows(RiotException.class,
+			() -> read(ParallelNTuplesReader.nTriples(256, ForkJoinPool.commonPool()), input));
+		assertTrue(ex.getMessage().contains("line: %1$d,".formatted(2 * NUM_LINES + 1)), ex.getMessage());
+	}
+}
@@ -0,0 +1,91 @@
+package com.bbn.parliament.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bbn.parliament.jni.KbConfig;
+import com.bbn.parliament.jni.KbInstance;
+
+/**
+ * Measures the rate at which new statements are added to a KB, one at a time
+ * and in batches. Each iteration starts with a fresh KB whose resources have
+ * already been created, so that this measures the statement store alone, and
+ * every statement added is distinct.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AddStmtBenchmark {
+	private static final int BATCH_SIZE = 1000;
+
+	@Param({ "10000" })
+	public int numResources;
+
+	@Param({ "false", "true" })
+	public boolean enablePermutationIndexes;
+
+	private SyntheticKb syntheticKb;
+	private KbInstance kb;
+	private long[] resources;
+	private long predicate;
+	private long next;
+	private final long[] subjects = new long[BATCH_SIZE];
+	private final long[] predicates = new long[BATCH_SIZE];
+	private final long[] objects = new long[BATCH_SIZE];
+
+	@Setup(Level.Iteration)
+	public void setup() throws Throwable {
+		syntheticKb = SyntheticKb.createEmpty();
+		KbConfig config = syntheticKb.config();
+		config.m_enablePermutationIndexes = enablePermutationIndexes;
+		kb = new KbInstance(config);
+		resources = new long[numResources];
+		for (int i = 0; i < numResources; ++i) {
+			resources[i] = kb.uriToRsrcId(SyntheticKb.subject(i).getURI(), false, true);
+		}
+		predicate = kb.uriToRsrcId(SyntheticKb.KNOWS.getURI(), false, true);
+		next = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		kb.close();
+		syntheticKb.close();
+	}
+
+	@Benchmark
+	public long addStmt() {
+		long n = next++;
+		return kb.addStmt(resources[(int) (n % numResources)], predicate,
+			resources[(int) ((n / numResources) % numResources)], false);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void addStmts() {
+		for (int i = 0; i < BATCH_SIZE; ++i) {
+			long n = next++;
+			subjects[i] = resources[(int) (n % numResources)];
+			predicates[i] = predicate;
+			objects[i] = resources[(int) ((n / numResources) % numResources)];
+		}
+		kb.addStmts(subjects, predicates, objects, BATCH_SIZE, false);
+	}
+}
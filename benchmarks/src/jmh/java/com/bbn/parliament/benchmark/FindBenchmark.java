@@ -0,0 +1,120 @@
+package com.bbn.parliament.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.bbn.parliament.jni.KbInstance;
+import com.bbn.parliament.jni.StmtIterator;
+
+/**
+ * Measures KbInstance.find followed by a full scan of the matches, for
+ * patterns ranging from a single subject (a few matches) to the whole KB.
+ * The scan is done both a batch at a time and a statement at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FindBenchmark {
+	/** The bound positions of the pattern, from most to least selective. */
+	public enum Shape {
+		SUBJECT,				// (s, ?, ?)
+		RARE_PREDICATE,	// (?, rare, ?)
+		PREDICATE_OBJECT,	// (?, rdf:type, class)
+		PREDICATE,			// (?, knows, ?)
+		NONE					// (?, ?, ?)
+	}
+
+	private static final int NUM_PATTERNS = 1024;
+	private static final int BATCH_SIZE = 256;
+
+	@Param({ "100000" })
+	public int numSubjects;
+
+	@Param
+	public Shape shape;
+
+	private SyntheticKb syntheticKb;
+	private KbInstance kb;
+	private final long[][] patterns = new long[NUM_PATTERNS][];
+	private final long[] subjects = new long[BATCH_SIZE];
+	private final long[] predicates = new long[BATCH_SIZE];
+	private final long[] objects = new long[BATCH_SIZE];
+	private final byte[] flags = new byte[BATCH_SIZE];
+	private int next;
+
+	@Setup
+	public void setup() throws Throwable {
+		syntheticKb = SyntheticKb.create(numSubjects);
+		kb = syntheticKb.openKb();
+		long nul = KbInstance.NULL_RSRC_ID;
+		long type = SyntheticKb.idOf(kb, SyntheticKb.TYPE);
+		long knows = SyntheticKb.idOf(kb, SyntheticKb.KNOWS);
+		long rare = SyntheticKb.idOf(kb, SyntheticKb.RARE);
+
+		// Vary the bound resources, so that each find does not touch the same memory:
+		for (int i = 0; i < NUM_PATTERNS; ++i) {
+			int subject = (int) ((i * 7919L) % numSubjects);
+			patterns[i] = switch (shape) {
+				case SUBJECT -> new long[] { SyntheticKb.idOf(kb, SyntheticKb.subject(subject)), nul, nul };
+				case RARE_PREDICATE -> new long[] { nul, rare, nul };
+				case PREDICATE_OBJECT -> new long[] { nul, type,
+					SyntheticKb.idOf(kb, SyntheticKb.classNode(i % SyntheticKb.NUM_CLASSES)) };
+				case PREDICATE -> new long[] { nul, knows, nul };
+				case NONE -> new long[] { nul, nul, nul };
+			};
+		}
+		next = 0;
+	}
+
+	@TearDown
+	public void tearDown() {
+		kb.close();
+		syntheticKb.close();
+	}
+
+	private long[] nextPattern() {
+		long[] result = patterns[next];
+		next = (next + 1) % NUM_PATTERNS;
+		return result;
+	}
+
+	@Benchmark
+	public long findBatched() {
+		long[] p = nextPattern();
+		long checksum = 0;
+		try (StmtIterator it = kb.find(p[0], p[1], p[2], KbInstance.SKIP_DELETED_STMT_ITER_FLAG)) {
+			for (int count; (count = it.nextBatch(subjects, predicates, objects, flags)) > 0;) {
+				for (int i = 0; i < count; ++i) {
+					checksum += subjects[i] ^ objects[i];
+				}
+			}
+		}
+		return checksum;
+	}
+
+	@Benchmark
+	public void findPerStatement(Blackhole bh) {
+		long[] p = nextPattern();
+		try (StmtIterator it = kb.find(p[0], p[1], p[2], KbInstance.SKIP_DELETED_STMT_ITER_FLAG)) {
+			while (it.hasNext()) {
+				bh.consume(it.next());
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.bbn.parliament.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * Measures KbGraph.getKbId. The hot benchmark cycles through a few nodes,
+ * which the node id cache always holds; the scan benchmark cycles through
+ * every subject, so it hits the cache only if the cache holds them all; and
+ * the missing benchmark looks up nodes that are not in the KB, which always
+ * go to the native dictionary. A cache size of zero disables the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GetKbIdBenchmark {
+	private static final int NUM_HOT_NODES = 64;
+	private static final int NUM_MISSING_NODES = 1024;
+
+	@Param({ "100000" })
+	public int numSubjects;
+
+	@Param({ "0", "10000", "1000000" })
+	public long nodeIdCacheSize;
+
+	private SyntheticKb syntheticKb;
+	private KbGraph graph;
+	private Node[] subjects;
+	private Node[] missing;
+	private int nextHot;
+	private int nextScan;
+	private int nextMissing;
+
+	@Setup
+	public void setup() throws Throwable {
+		syntheticKb = SyntheticKb.create(numSubjects);
+		graph = syntheticKb.openGraph(nodeIdCacheSize);
+		subjects = new Node[numSubjects];
+		for (int i = 0; i < numSubjects; ++i) {
+			subjects[i] = SyntheticKb.subject(i);
+		}
+		missing = new Node[NUM_MISSING_NODES];
+		for (int i = 0; i < NUM_MISSING_NODES; ++i) {
+			missing[i] = Node.createURI(SyntheticKb.NS + "missing" + i);
+		}
+		nextHot = 0;
+		nextScan = 0;
+		nextMissing = 0;
+	}
+
+	@TearDown
+	public void tearDown() {
+		graph.close();
+		syntheticKb.close();
+	}
+
+	@Benchmark
+	public long hot() {
+		nextHot = (nextHot + 1) % NUM_HOT_NODES;
+		return graph.getKbId(subjects[nextHot], false);
+	}
+
+	@Benchmark
+	public long scan() {
+		nextScan = (nextScan + 1) % numSubjects;
+		return graph.getKbId(subjects[nextScan], false);
+	}
+
+	@Benchmark
+	public long missing() {
+		nextMissing = (nextMissing + 1) % NUM_MISSING_NODES;
+		return graph.getKbId(missing[nextMissing], false);
+	}
+}
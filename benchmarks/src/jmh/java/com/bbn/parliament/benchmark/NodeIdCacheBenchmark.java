@@ -0,0 +1,88 @@
+package com.bbn.parliament.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bbn.parliament.jena.graph.NodeIdCache;
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * Measures the node id cache on its own, shared by several threads, as it is
+ * when concurrent queries resolve nodes against the same graph. Each thread
+ * requests nodes with a skewed (roughly Zipfian) distribution over a working
+ * set four times the size of the cache, and caches each node that misses.
+ * Run with -t to vary the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NodeIdCacheBenchmark {
+	private static final int NUM_REQUESTS = 1 << 16;
+
+	@Param({ "10000", "1000000" })
+	public int cacheSize;
+
+	private NodeIdCache cache;
+	private Node[] nodes;
+
+	/** Each thread's sequence of requests, so that threads do not share a random number generator. */
+	@State(Scope.Thread)
+	public static class Requests {
+		private int[] indexes;
+		private int next;
+
+		@Setup
+		public void setup(NodeIdCacheBenchmark benchmark) {
+			Random random = new Random(Thread.currentThread().getId());
+			indexes = new int[NUM_REQUESTS];
+			int numNodes = benchmark.nodes.length;
+			for (int i = 0; i < NUM_REQUESTS; ++i) {
+				// The inverse of the CDF of a 1/x distribution over [1, numNodes]:
+				indexes[i] = (int) Math.pow(numNodes, random.nextDouble()) - 1;
+			}
+			next = 0;
+		}
+
+		public int next() {
+			next = (next + 1) & (NUM_REQUESTS - 1);
+			return indexes[next];
+		}
+	}
+
+	@Setup
+	public void setup() {
+		cache = new NodeIdCache(cacheSize);
+		nodes = new Node[4 * cacheSize];
+		for (int i = 0; i < nodes.length; ++i) {
+			nodes[i] = SyntheticKb.subject(i);
+		}
+	}
+
+	@Benchmark
+	public long getOrPut(Requests requests) {
+		int i = requests.next();
+		long id = cache.get(nodes[i]);
+		if (id == NodeIdCache.NOT_FOUND) {
+			id = i;
+			cache.put(nodes[i], id);
+		}
+		return id;
+	}
+}
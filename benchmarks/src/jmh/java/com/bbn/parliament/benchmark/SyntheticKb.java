@@ -0,0 +1,117 @@
+package com.bbn.parliament.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jena.graph.OptimizationMethod;
+import com.bbn.parliament.jena.util.NodeUtil;
+import com.bbn.parliament.jni.KbConfig;
+import com.bbn.parliament.jni.KbInstance;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * A generated KB in a temporary directory, deleted on close. Each of the
+ * subjects has a type (one of NUM_CLASSES classes), a name literal, and two
+ * knows links to other subjects. One subject in RARE_INTERVAL also has a
+ * rare property, so that the predicates span a wide range of selectivities.
+ */
+final class SyntheticKb implements Closeable {
+	static final String NS = "http://example.org/benchmark#";
+	static final int NUM_CLASSES = 100;
+	static final int RARE_INTERVAL = 1000;
+	static final Node TYPE = RDF.Nodes.type;
+	static final Node NAME = Node.createURI(NS + "name");
+	static final Node KNOWS = Node.createURI(NS + "knows");
+	static final Node RARE = Node.createURI(NS + "rare");
+
+	private static final int BATCH_SIZE = 1000;
+
+	private final Path dir;
+	private final int numSubjects;
+
+	private SyntheticKb(Path dir, int numSubjects) {
+		this.dir = dir;
+		this.numSubjects = numSubjects;
+	}
+
+	/** Creates an empty KB. */
+	public static SyntheticKb createEmpty() throws IOException {
+		return new SyntheticKb(Files.createTempDirectory("parliament-benchmark-"), 0);
+	}
+
+	/** Creates a KB with the given number of subjects, four or five statements each. */
+	public static SyntheticKb create(int numSubjects) throws IOException {
+		SyntheticKb result = new SyntheticKb(Files.createTempDirectory("parliament-benchmark-"), numSubjects);
+		KbGraph graph = result.openGraph(0);
+		try {
+			List<Triple> batch = new ArrayList<>(BATCH_SIZE);
+			for (int i = 0; i < numSubjects; ++i) {
+				Node s = subject(i);
+				batch.add(Triple.create(s, TYPE, classNode(i % NUM_CLASSES)));
+				batch.add(Triple.create(s, NAME, Node.createLiteral("Name " + i)));
+				batch.add(Triple.create(s, KNOWS, subject((int) ((i * 31L + 7) % numSubjects))));
+				batch.add(Triple.create(s, KNOWS, subject((int) ((i * 17L + 3) % numSubjects))));
+				if (i % RARE_INTERVAL == 0) {
+					batch.add(Triple.create(s, RARE, classNode(0)));
+				}
+				if (batch.size() >= BATCH_SIZE) {
+					graph.performAddBatch(batch);
+					batch.clear();
+				}
+			}
+			graph.performAddBatch(batch);
+			graph.flush();
+		} finally {
+			graph.close();
+		}
+		return result;
+	}
+
+	public static Node subject(int i) {
+		return Node.createURI(NS + "s" + i);
+	}
+
+	public static Node classNode(int i) {
+		return Node.createURI(NS + "Class" + i);
+	}
+
+	/** Returns the id of a node in the KB, or KbInstance.NULL_RSRC_ID if it is not there. */
+	public static long idOf(KbInstance kb, Node n) {
+		return kb.uriToRsrcId(NodeUtil.getStringRepresentation(n), n.isLiteral(), false);
+	}
+
+	public int getNumSubjects() {
+		return numSubjects;
+	}
+
+	/** Returns a configuration for the KB, with inference disabled. */
+	public KbConfig config() {
+		KbConfig config = new KbConfig();
+		config.disableAllRules();
+		config.m_kbDirectoryPath = dir.toString();
+		return config;
+	}
+
+	public KbInstance openKb() throws Throwable {
+		return new KbInstance(config());
+	}
+
+	public KbGraph openGraph(long nodeIdCacheSize) {
+		KbConfig config = config();
+		config.m_nodeIdCacheSize = nodeIdCacheSize;
+		return new KbGraph(config, null, OptimizationMethod.DefaultOptimization);
+	}
+
+	/** Deletes the KB, which must be closed. */
+	@Override
+	public void close() {
+		KbInstance.deleteKb(config(), null, true);
+	}
+}
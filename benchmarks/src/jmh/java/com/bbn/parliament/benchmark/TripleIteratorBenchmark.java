@@ -0,0 +1,82 @@
+package com.bbn.parliament.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Measures KbGraph.find through KbTripleIterator, including the decoding of
+ * each statement's ids into Jena nodes. The node caches are sized to the
+ * whole KB, so after the warmup this measures the iterator and cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TripleIteratorBenchmark {
+	public enum Shape {
+		TYPE_OF_CLASS,	// (?, rdf:type, class): URI objects
+		NAMES,			// (?, name, ?): literal objects
+		KNOWS,			// (?, knows, ?)
+		ALL				// (?, ?, ?)
+	}
+
+	@Param({ "100000" })
+	public int numSubjects;
+
+	@Param
+	public Shape shape;
+
+	private SyntheticKb syntheticKb;
+	private KbGraph graph;
+	private Triple pattern;
+
+	@Setup
+	public void setup() throws Throwable {
+		syntheticKb = SyntheticKb.create(numSubjects);
+		graph = syntheticKb.openGraph(6L * numSubjects);
+		pattern = switch (shape) {
+			case TYPE_OF_CLASS -> Triple.create(Node.ANY, SyntheticKb.TYPE, SyntheticKb.classNode(0));
+			case NAMES -> Triple.create(Node.ANY, SyntheticKb.NAME, Node.ANY);
+			case KNOWS -> Triple.create(Node.ANY, SyntheticKb.KNOWS, Node.ANY);
+			case ALL -> Triple.create(Node.ANY, Node.ANY, Node.ANY);
+		};
+	}
+
+	@TearDown
+	public void tearDown() {
+		graph.close();
+		syntheticKb.close();
+	}
+
+	@Benchmark
+	public void materialize(Blackhole bh) {
+		ExtendedIterator<Triple> it = graph.find(pattern);
+		try {
+			while (it.hasNext()) {
+				bh.consume(it.next());
+			}
+		} finally {
+			it.close();
+		}
+	}
+}
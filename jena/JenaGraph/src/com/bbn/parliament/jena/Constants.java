@@ -13,6 +13,18 @@ public class Constants {
 	public static final Symbol DYNAMIC_OPTIMIZATION = createSymbol("dynamic_optimization");
 	public static final Symbol DEFAULT_OPTIMIZATION = createSymbol("default_optimization");
 	public static final Symbol UPDATED_STATIC_OPTIMIZATION = createSymbol("updated_static_optimization");
+	/**
+	 * Symbol for disabling (by setting it to false) the evaluation of basic
+	 * graph patterns over Parliament graphs in terms of resource ids.
+	 */
+	public static final Symbol ID_SPACE_BGP_EXECUTION = createSymbol("id_space_bgp_execution");
+	/** Symbol for storing a query's QueryPlanCache in its execution context. */
+	public static final Symbol QUERY_PLAN_CACHE = createSymbol("query_plan_cache");
+	/**
+	 * Symbol for the number of right-side bindings above which a hash join
+	 * spills to disk, overriding QueryIterHashJoin.DEFAULT_SPILL_THRESHOLD.
+	 */
+	public static final Symbol HASH_JOIN_SPILL_THRESHOLD = createSymbol("hash_join_spill_threshold");
 
 	private static Symbol createSymbol(String name) {
 		return Symbol.create(SYMBOL_PREFIX + name);
@@ -0,0 +1,95 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * A bounded, lock-free cache from KB resource ids to decoded nodes, so that
+ * hot resources (predicates, classes, common literals) are fetched and parsed
+ * once rather than once per result row.
+ * <p>
+ * The cache is direct-mapped: each id has exactly one slot, chosen from its
+ * low-order bits. Resource ids are assigned sequentially, so this spreads
+ * them evenly. A new entry simply replaces whatever occupied its slot. The
+ * entries are immutable, so readers and writers need no locking; a reader
+ * racing with a writer sees either the old entry or the new one, and checks
+ * that the entry's id is the one it wants.
+ */
+public class IdNodeCache {
+	private static final class Entry {
+		private final long id;
+		private final Node node;
+
+		private Entry(long id, Node node) {
+			this.id = id;
+			this.node = node;
+		}
+	}
+
+	private final Entry[] entries;
+	private final int mask;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+
+	/**
+	 * Creates a cache with room for at least maxSize entries (rounded up to a
+	 * power of two).  Zero disables caching.
+	 */
+	public IdNodeCache(long maxSize) {
+		int size = 1;
+		while (size < maxSize && size < (1 << 30)) {
+			size *= 2;
+		}
+		entries = new Entry[(maxSize <= 0) ? 0 : size];
+		mask = entries.length - 1;
+	}
+
+	/** Returns the node cached for id, or null. */
+	public Node get(long id) {
+		if (entries.length > 0) {
+			Entry entry = entries[(int) id & mask];
+			if (entry != null && entry.id == id) {
+				hitCount.increment();
+				return entry.node;
+			}
+		}
+		missCount.increment();
+		return null;
+	}
+
+	public void put(long id, Node node) {
+		if (entries.length > 0) {
+			entries[(int) id & mask] = new Entry(id, node);
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(entries, null);
+	}
+
+	public long getMaxSize() {
+		return entries.length;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "IdNodeCache[maxSize=%1$d, hits=%2$d, misses=%3$d]"
+			.formatted(getMaxSize(), getHitCount(), getMissCount());
+	}
+}
@@ -7,6 +7,7 @@
 package com.bbn.parliament.jena.graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -25,38 +26,68 @@ public class KbBulkUpdateHandler extends SimpleBulkUpdateHandler {
 		super(graph);
 	}
 
+	private KbGraph kbGraph() {
+		return (KbGraph) graph;
+	}
+
 	@Override
 	public void removeAll() {
-		((KbGraph) graph).clear();
+		kbGraph().clear();
 		notifyRemoveAll();
 	}
 
+	@SuppressWarnings("deprecation")
+	@Override
+	public void add(Triple[] triples) {
+		addSlices(Arrays.asList(triples));
+		manager.notifyAddArray(graph, triples);
+	}
+
+	@Override
+	protected void add(List<Triple> triples, boolean notify) {
+		addSlices(triples);
+		if (notify) {
+			manager.notifyAddList(graph, triples);
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public void delete(Triple[] triples) {
+		deleteSlices(Arrays.asList(triples));
+		manager.notifyDeleteArray(graph, triples);
+	}
+
+	@Override
+	protected void delete(List<Triple> triples, boolean notify) {
+		deleteSlices(triples);
+		if (notify) {
+			manager.notifyDeleteList(graph, triples);
+		}
+	}
+
 	// Batch the iterator inserts/deletes so that the naive event logic in
 	// SimpleBulkUpdateHandler doesn't exhaust the memory when collapsing the iterator
-	// to a List to pass to listeners.
+	// to a List to pass to listeners.  Each slice is also handed to the KB in a
+	// single native call.
 	//
 	// TODO: are we allowed to batch this? Or do listeners expect a single event
 	// per SPARQL/Update query?)
-	@SuppressWarnings("null")
 	@Override
 	public void addIterator(Iterator<Triple> it, boolean notify) {
 		try {
-			List<Triple> triples = notify ? new ArrayList<>(SLICE_SIZE) : null;
-			int count = 0;
+			List<Triple> triples = new ArrayList<>(SLICE_SIZE);
 			while (it.hasNext()) {
-				Triple t = it.next();
-				graph.performAdd(t);
-
-				if (notify) {
-					if (count >= SLICE_SIZE) {
+				if (triples.size() >= SLICE_SIZE) {
+					kbGraph().performAddBatch(triples);
+					if (notify) {
 						manager.notifyAddIterator(graph, triples);
-						triples.clear();
-						count = 0;
 					}
-					triples.add(t);
-					++count;
+					triples.clear();
 				}
+				triples.add(it.next());
 			}
+			kbGraph().performAddBatch(triples);
 			if (notify) {
 				manager.notifyAddIterator(graph, triples);
 			}
@@ -65,26 +96,21 @@ public class KbBulkUpdateHandler extends SimpleBulkUpdateHandler {
 		}
 	}
 
-	@SuppressWarnings("null")
 	@Override
 	public void deleteIterator(Iterator<Triple> it, boolean notify) {
 		try {
-			List<Triple> triples = notify ? new ArrayList<>(SLICE_SIZE) : null;
-			int count = 0;
+			List<Triple> triples = new ArrayList<>(SLICE_SIZE);
 			while (it.hasNext()) {
-				Triple t = it.next();
-				graph.performDelete(t);
-
-				if (notify) {
-					if (count >= SLICE_SIZE) {
+				if (triples.size() >= SLICE_SIZE) {
+					kbGraph().performDeleteBatch(triples);
+					if (notify) {
 						manager.notifyDeleteIterator(graph, triples);
-						triples.clear();
-						count = 0;
 					}
-					triples.add(t);
-					count++;
+					triples.clear();
 				}
+				triples.add(it.next());
 			}
+			kbGraph().performDeleteBatch(triples);
 			if (notify) {
 				manager.notifyDeleteIterator(graph, triples);
 			}
@@ -92,4 +118,18 @@ public class KbBulkUpdateHandler extends SimpleBulkUpdateHandler {
 			NiceIterator.close(it);
 		}
 	}
+
+	private void addSlices(List<Triple> triples) {
+		for (int start = 0; start < triples.size(); start += SLICE_SIZE) {
+			int end = Math.min(start + SLICE_SIZE, triples.size());
+			kbGraph().performAddBatch(triples.subList(start, end));
+		}
+	}
+
+	private void deleteSlices(List<Triple> triples) {
+		for (int start = 0; start < triples.size(); start += SLICE_SIZE) {
+			int end = Math.min(start + SLICE_SIZE, triples.size());
+			kbGraph().performDeleteBatch(triples.subList(start, end));
+		}
+	}
 }
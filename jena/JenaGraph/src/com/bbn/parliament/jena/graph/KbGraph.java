@@ -9,8 +9,8 @@ package com.bbn.parliament.jena.graph;
 import java.io.Closeable;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.util.Collections;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,13 +27,14 @@ import com.bbn.parliament.jni.KbInstance.GetExcessCapacityResult;
 import com.bbn.parliament.jni.ReificationIterator;
 import com.bbn.parliament.jni.StmtIterator;
 import com.bbn.parliament.jni.StmtIterator.Statement;
+import com.bbn.parliament.recovery.KbJournal;
 import com.hp.hpl.jena.graph.BulkUpdateHandler;
 import com.hp.hpl.jena.graph.Capabilities;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.graph.TripleMatch;
 import com.hp.hpl.jena.graph.impl.GraphBase;
-import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import com.hp.hpl.jena.util.iterator.NiceIterator;
 
@@ -42,10 +43,13 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 
 	private static Logger log = LoggerFactory.getLogger(KbGraph.class);
 	private KbInstance kb;
+	private KbJournal journal;
 	private KbConfig config;
+	private final KbGraph quadStore;
+	private final long graphId;
 	private boolean isClosed;
-	// private NodeIdHash nodeIdHash;
-	private Map<Node, Long> nodeIdHash;
+	private NodeIdCache nodeIdCache;
+	private IdNodeCache idNodeCache;
 	private KbBulkUpdateHandler updateHandler;
 	private OptimizationMethod optimizationMethod;
 
@@ -75,15 +79,68 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 		} catch (Throwable t) {
 			throw new RuntimeException(t);
 		}
+		journal = new KbJournal(kb, config);
 		this.config = config;
+		quadStore = null;
+		graphId = KbInstance.NULL_RSRC_ID;
 		this.relativeDirectory = relativeDirectory;
 		isClosed = false;
-		// nodeIdHash = new NodeIdHash(100);
-		nodeIdHash = Collections.synchronizedMap(new LRUHash(1000));
+		nodeIdCache = new NodeIdCache(config.m_nodeIdCacheSize);
+		idNodeCache = new IdNodeCache(config.m_nodeIdCacheSize);
 		updateHandler = null;
 		this.optimizationMethod = optMethod;
 	}
 
+	/**
+	 * Creates a KbGraph that is one named graph within a quad store, i.e., a
+	 * view of the statements of the quad store's KB that are in the graph with
+	 * the given name. The view shares the quad store's KB, journal, and node
+	 * caches, and closing it leaves the quad store open. The view's configuration is used
+	 * only to locate the files of its indexes.
+	 */
+	KbGraph(KbGraph quadStore, Node graphName, KbConfig config, String relativeDirectory,
+		OptimizationMethod optMethod) {
+		kb = quadStore.kb;
+		journal = quadStore.journal;
+		this.config = config;
+		this.quadStore = quadStore;
+		this.relativeDirectory = relativeDirectory;
+		isClosed = false;
+		nodeIdCache = quadStore.nodeIdCache;
+		idNodeCache = quadStore.idNodeCache;
+		updateHandler = null;
+		this.optimizationMethod = optMethod;
+		graphId = quadStore.getKbId(graphName, true);
+	}
+
+	/** Returns true if this graph is a view of one named graph in a quad store. */
+	public boolean isInQuadStore() {
+		return quadStore != null;
+	}
+
+	/** Returns the quad store of which this graph is a view, or null. */
+	public KbGraph getQuadStore() {
+		return quadStore;
+	}
+
+	/**
+	 * Returns the KB id of this graph's name within its quad store, or
+	 * KbInstance.NULL_RSRC_ID if this graph is not in a quad store.
+	 */
+	public long getGraphId() {
+		return graphId;
+	}
+
+	/** Returns the cache of node-to-resource-id mappings, e.g., for its statistics. */
+	public NodeIdCache getNodeIdCache() {
+		return nodeIdCache;
+	}
+
+	/** Returns the cache of resource-id-to-node mappings, e.g., for its statistics. */
+	public IdNodeCache getIdNodeCache() {
+		return idNodeCache;
+	}
+
 	public KbConfig getConfig() {
 		return config;
 	}
@@ -95,13 +152,9 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 	@Override
 	public void performDelete(Triple t) {
 		if (!getReifier().handledRemove(t)){
-			long subjId, predId, objId;
-
-			subjId = getKbId(t.getSubject(), false);
-			predId = getKbId(t.getPredicate(), false);
-			objId = getKbId(t.getObject(), false);
-			if (subjId != -2 && predId != -2 && objId != -2) {
-				kb.deleteStmt(subjId, predId, objId);
+			long[] ids = getKbIds(new Node[] { t.getSubject(), t.getPredicate(), t.getObject() }, false);
+			if (ids[0] != -2 && ids[1] != -2 && ids[2] != -2) {
+				journal.deleteStmt(ids[0], ids[1], ids[2], graphId);
 			}
 		}
 	}
@@ -112,7 +165,7 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 		predId = getKbId(t.getPredicate(), false);
 		objId = getKbId(t.getObject(), false);
 		if (subjId != -2 && predId != -2 && objId != -2) {
-			try (StmtIterator si = kb.find(subjId, predId, objId, KbInstance.SKIP_DELETED_STMT_ITER_FLAG)) {
+			try (StmtIterator si = findInKb(subjId, predId, objId, KbInstance.SKIP_DELETED_STMT_ITER_FLAG)) {
 				if (si.hasNext()){
 					Statement statement = si.next();
 					return statement.isInferred();
@@ -127,22 +180,61 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 	public long getKbId(Node n, boolean createIfNotExists) {
 		long id = KbInstance.NULL_RSRC_ID;
 		if (n != null && !n.isVariable()) {
-			Long idObject = nodeIdHash.get(n);
-			if (idObject != null) {
-				id = idObject.longValue();
-			} else {
+			id = nodeIdCache.get(n);
+			if (id == NodeIdCache.NOT_FOUND) {
 				String stringRep = NodeUtil.getStringRepresentation(n);
 				id = kb.uriToRsrcId(stringRep, n.isLiteral(), createIfNotExists);
 				if (!createIfNotExists && id == KbInstance.NULL_RSRC_ID) {
 					id = -2;
 				} else {
-					nodeIdHash.put(n, id);
+					nodeIdCache.put(n, id);
 				}
 			}
 		}
 		return id;
 	}
 
+	/**
+	 * Returns the KB ids of the given nodes, just as getKbId does for a single
+	 * node, but resolves all of the nodes that are not in the node id cache with
+	 * a single call into the KB.
+	 */
+	public long[] getKbIds(Node[] nodes, boolean createIfNotExists) {
+		long[] ids = new long[nodes.length];
+		int[] missIndexes = new int[nodes.length];
+		String[] missStrings = new String[nodes.length];
+		boolean[] missIsLiteral = new boolean[nodes.length];
+		int missCount = 0;
+		for (int i = 0; i < nodes.length; ++i) {
+			Node n = nodes[i];
+			ids[i] = KbInstance.NULL_RSRC_ID;
+			if (n != null && !n.isVariable()) {
+				long id = nodeIdCache.get(n);
+				if (id != NodeIdCache.NOT_FOUND) {
+					ids[i] = id;
+				} else {
+					missIndexes[missCount] = i;
+					missStrings[missCount] = NodeUtil.getStringRepresentation(n);
+					missIsLiteral[missCount] = n.isLiteral();
+					++missCount;
+				}
+			}
+		}
+		if (missCount > 0) {
+			long[] missIds = kb.uriToRsrcIds(missStrings, missIsLiteral, missCount, createIfNotExists);
+			for (int i = 0; i < missCount; ++i) {
+				long id = missIds[i];
+				if (!createIfNotExists && id == KbInstance.NULL_RSRC_ID) {
+					id = -2;
+				} else {
+					nodeIdCache.put(nodes[missIndexes[i]], id);
+				}
+				ids[missIndexes[i]] = id;
+			}
+		}
+		return ids;
+	}
+
 	/**
 	 * Returns an iterator over all the Triples that match the triple pattern.
 	 *
@@ -154,21 +246,49 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 	@Override
 	public ExtendedIterator<Triple> graphBaseFind(TripleMatch m) {
 		try {
-			long subjId, predId, objId;
-			subjId = getKbId(m.getMatchSubject(), false);
-			predId = getKbId(m.getMatchPredicate(), false);
-			objId = getKbId(m.getMatchObject(), false);
-			if (subjId == -2 || predId == -2 || objId == -2) {
+			long[] ids = getKbIds(new Node[] { m.getMatchSubject(),
+				m.getMatchPredicate(), m.getMatchObject() }, false);
+			if (ids[0] == -2 || ids[1] == -2 || ids[2] == -2) {
 				return NiceIterator.emptyIterator();
 			} else {
 				return new KbTripleIterator(this,
-					kb.find(subjId, predId, objId, KbInstance.SKIP_DELETED_STMT_ITER_FLAG));
+					findInKb(ids[0], ids[1], ids[2], KbInstance.SKIP_DELETED_STMT_ITER_FLAG));
 			}
 		} catch (Throwable t) {
 			throw new RuntimeException(t);
 		}
 	}
 
+	/**
+	 * Returns an iterator over the non-deleted statements that match the given
+	 * resource ids, where KbInstance.NULL_RSRC_ID matches anything. This lets
+	 * callers that work with ids (see QueryIterKbIdPattern) skip the round trip
+	 * through Nodes that graphBaseFind requires. When called on a quad store
+	 * itself, this finds the statements of every graph, and each statement's
+	 * graph is the KB id of its graph's name.
+	 */
+	public StmtIterator findIds(long subjectId, long predicateId, long objectId) {
+		return findInKb(subjectId, predicateId, objectId, KbInstance.SKIP_DELETED_STMT_ITER_FLAG);
+	}
+
+	/**
+	 * Returns an iterator over the non-deleted statements of the given graph
+	 * of a quad store that match the given resource ids, where
+	 * KbInstance.NULL_RSRC_ID matches anything, including any graph. This may
+	 * be called only on a quad store itself (see getQuadStore). Read the
+	 * statements with StmtIterator.nextQuadBatch to learn their graphs.
+	 */
+	public StmtIterator findQuadIds(long subjectId, long predicateId, long objectId, long graphId) {
+		return kb.findQuads(subjectId, predicateId, objectId, graphId,
+			KbInstance.SKIP_DELETED_STMT_ITER_FLAG);
+	}
+
+	private StmtIterator findInKb(long subjectId, long predicateId, long objectId, int flags) {
+		return isInQuadStore()
+			? kb.findQuads(subjectId, predicateId, objectId, graphId, flags)
+			: kb.find(subjectId, predicateId, objectId, flags);
+	}
+
 	public ReificationIterator findReifications(Node name, Node subject, Node predicate,
 		Node object) {
 		long subjId, predId, objId, nameId;
@@ -176,7 +296,7 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 		predId = getKbId(Node.ANY.equals(predicate) ? null : predicate, false);
 		objId = getKbId(Node.ANY.equals(object) ? null : object, false);
 		nameId = getKbId(Node.ANY.equals(name) ? null : name, false);
-		if (subjId == -2 || predId == -2 || objId == -2 || nameId == -2){
+		if (isInQuadStore() || subjId == -2 || predId == -2 || objId == -2 || nameId == -2){
 			return ReificationIterator.EMPTY_ITERATOR;
 		}else{
 			ReificationIterator ri = kb.findReifications(nameId, subjId, predId, objId);
@@ -184,6 +304,11 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 		}
 	}
 
+	/**
+	 * Returns the number of triples with the given node in the given position.
+	 * In a quad store this counts the triples of every graph, and so is only
+	 * an upper bound for one graph.
+	 */
 	@Override
 	public long getNodeCountInPosition(Node node, int position) {
 		long id = getKbId(node, false);
@@ -199,36 +324,185 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 		};
 	}
 
+	/**
+	 * Returns the number of triples in this graph that match the pattern,
+	 * where nodes that are not concrete match anything. This is cheap only
+	 * when at least two of the nodes are concrete (see KbInstance.countMatches).
+	 */
+	public long getMatchCount(Node subject, Node predicate, Node object) {
+		long[] ids = getKbIds(new Node[] { concreteOrNull(subject),
+			concreteOrNull(predicate), concreteOrNull(object) }, false);
+		if (ids[0] == -2 || ids[1] == -2 || ids[2] == -2) {
+			return 0;
+		} else if (isInQuadStore()) {
+			long count = 0;
+			try (StmtIterator it = findIds(ids[0], ids[1], ids[2])) {
+				for (; it.hasNext(); it.next()) {
+					++count;
+				}
+			}
+			return count;
+		}
+		return kb.countMatches(ids[0], ids[1], ids[2]);
+	}
+
+	/**
+	 * Returns the number of triples with the given predicate and the numbers of
+	 * distinct subjects and objects that occur with it, or null if the
+	 * predicate does not occur in this graph. In a quad store these are the
+	 * statistics of every graph.
+	 */
+	public KbInstance.PredicateStatsResult getPredicateStats(Node predicate) {
+		long id = getKbId(concreteOrNull(predicate), false);
+		if (id == -2 || id == KbInstance.NULL_RSRC_ID) {
+			return null;
+		}
+		return kb.predicateStats(id);
+	}
+
+	private static Node concreteOrNull(Node n) {
+		return (n != null && n.isConcrete()) ? n : null;
+	}
+
+	/**
+	 * Makes this graph's changes durable. This is a checkpoint of the KB's
+	 * journal, so the changes logged up to now need not be replayed when the
+	 * KB is next opened.
+	 */
 	public void flush() {
-		kb.sync();
+		journal.checkpoint();
+	}
+
+	/**
+	 * Removes the deleted statements from the underlying storage, and returns
+	 * the number removed. The caller must hold this graph's write lock, because
+	 * statements move, and so an open iterator over this graph would be
+	 * invalidated. The KB is checkpointed before and after, and a crash during
+	 * compaction leaves it unrecoverable (see KbJournal.compact).
+	 */
+	public long compact() {
+		return journal.compact();
+	}
+
+	/** Returns the fraction of the statements in the underlying storage that are deleted. */
+	public double getTombstoneRatio() {
+		CountStmtsResult result = kb.countStmts();
+		return (result.getTotal() == 0)
+			? 0.0
+			: (double) result.getNumDel() / (double) result.getTotal();
 	}
 
 	@Override
 	public void performAdd(Triple t) {
-		long subject = getKbId(t.getSubject(), true);
-		long predicate = getKbId(t.getPredicate(), true);
-		long object = getKbId(t.getObject(), true);
-		kb.addStmt(subject, predicate, object, false);
+		long[] ids = getKbIds(new Node[] { t.getSubject(), t.getPredicate(), t.getObject() }, true);
+		journal.addStmt(ids[0], ids[1], ids[2], graphId);
+	}
+
+	/**
+	 * Adds a batch of triples with a single call into the underlying KB, so
+	 * that the inference rules run once for the whole batch instead of once per
+	 * triple. Like performAdd, this does not notify the graph's listeners.
+	 */
+	public void performAddBatch(List<Triple> triples) {
+		if (!triples.isEmpty()) {
+			performAddBatch(encodeBatch(triples));
+		}
+	}
+
+	/**
+	 * Returns the KB ids of the subjects, predicates, and objects of a batch of
+	 * triples (three per triple, in order), creating resources as needed. This
+	 * is the first half of performAddBatch, for loaders that encode one batch
+	 * while another is being stored.
+	 */
+	public long[] encodeBatch(List<Triple> triples) {
+		return getKbIds(toNodeArray(triples), true);
+	}
+
+	/**
+	 * Adds a batch of triples given the ids returned by encodeBatch. Like
+	 * performAdd, this does not notify the graph's listeners.
+	 */
+	public void performAddBatch(long[] ids) {
+		int count = ids.length / 3;
+		if (count > 0) {
+			long[] subjects = new long[count];
+			long[] predicates = new long[count];
+			long[] objects = new long[count];
+			for (int i = 0; i < count; ++i) {
+				subjects[i] = ids[3 * i];
+				predicates[i] = ids[3 * i + 1];
+				objects[i] = ids[3 * i + 2];
+			}
+			journal.addStmts(subjects, predicates, objects, count, graphId);
+		}
+	}
+
+	/**
+	 * Deletes a batch of triples with a single call into the underlying KB.
+	 * Like performDelete, this does not notify the graph's listeners.
+	 */
+	public void performDeleteBatch(List<Triple> triples) {
+		List<Triple> toDelete = new ArrayList<>(triples.size());
+		for (Triple t : triples) {
+			if (!getReifier().handledRemove(t)) {
+				toDelete.add(t);
+			}
+		}
+		long[] ids = getKbIds(toNodeArray(toDelete), false);
+		long[] subjects = new long[toDelete.size()];
+		long[] predicates = new long[toDelete.size()];
+		long[] objects = new long[toDelete.size()];
+		int count = 0;
+		for (int i = 0; i < toDelete.size(); ++i) {
+			long subjId = ids[3 * i];
+			long predId = ids[3 * i + 1];
+			long objId = ids[3 * i + 2];
+			if (subjId != -2 && predId != -2 && objId != -2) {
+				subjects[count] = subjId;
+				predicates[count] = predId;
+				objects[count] = objId;
+				++count;
+			}
+		}
+		if (count > 0) {
+			journal.deleteStmts(subjects, predicates, objects, count, graphId);
+		}
+	}
+
+	/** Flattens triples into an array of their subjects, predicates, and objects. */
+	private static Node[] toNodeArray(List<Triple> triples) {
+		Node[] result = new Node[3 * triples.size()];
+		int i = 0;
+		for (Triple t : triples) {
+			result[i++] = t.getSubject();
+			result[i++] = t.getPredicate();
+			result[i++] = t.getObject();
+		}
+		return result;
 	}
 
 	/**
-	 * Free all resources, any further use of this graph is an error.
+	 * Free all resources, any further use of this graph is an error. Closing
+	 * a view of a graph in a quad store leaves the quad store open. Closing a
+	 * graph checkpoints its journal, so that reopening it replays nothing.
 	 */
 	@Override
 	public void close() {
 		if (!isClosed) {
-			kb.finalize();
+			if (!isInQuadStore()) {
+				if (journal.isEnabled()) {
+					journal.checkpoint();
+				}
+				journal.close();
+				kb.close();
+			}
 			log.debug("KbGraph closed");
 			super.close();
 			isClosed = true;
 		}
 	}
 
-	@Override
-	public void finalize() {
-		close();
-	}
-
 	/**
 	 * Answer true iff this graph is empty. "Empty" means "has as few triples as
 	 * it can manage", because an inference graph may have irremovable axioms and
@@ -247,6 +521,9 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 	 */
 	@Override
 	public int graphBaseSize() {
+		if (isInQuadStore()) {
+			return (int) kb.graphStmtCount(graphId);
+		}
 		CountStmtsResult result = kb.countStmts();
 		return (int) (result.getTotal() - result.getNumDel());
 	}
@@ -331,15 +608,26 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 		return updateHandler;
 	}
 
+	/**
+	 * Deletes every statement of this graph. In a quad store this deletes the
+	 * statements of this graph only, and leaves the KB's files in place.
+	 */
 	public void clear() {
-		kb.finalize();
-		kb = null;
-		KbInstance.deleteKb(config, null);
-		nodeIdHash.clear();
-		try {
-			kb = new KbInstance(config);
-		} catch (Throwable e) {
-			throw new RuntimeException(e);
+		if (isInQuadStore()) {
+			journal.clearGraph(graphId);
+		} else {
+			journal.close();
+			kb.close();
+			kb = null;
+			KbInstance.deleteKb(config, null);
+			nodeIdCache.clear();
+			idNodeCache.clear();
+			try {
+				kb = new KbInstance(config);
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+			journal = new KbJournal(kb, config);
 		}
 
 		// since this does not "clear" in a way that a graph listener can listen
@@ -355,50 +643,51 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 	}
 
 	public Node getResourceNodeForId(long resourceId) {
-		String representation = kb.rsrcIdToUri(resourceId);
-		Node result = null;
-		if (representation.startsWith(MAGICAL_BNODE_PREFIX)) {
-			result = Node.createAnon(AnonId.create(representation
-				.substring(MAGICAL_BNODE_PREFIX.length())));
-		} else {
-			result = Node.createURI(representation);
+		Node result = idNodeCache.get(resourceId);
+		if (result == null) {
+			result = NodeUtil.getNodeRepresentation(kb.rsrcIdToUri(resourceId));
+			idNodeCache.put(resourceId, result);
 		}
 		return result;
 	}
 
 	public Node getLiteralNodeForId(long resourceId) {
-		String literal = kb.rsrcIdToUri(resourceId);
-		String lexicalForm = "";
-		String lang = "";
-		String datatype = "";
-		Node result = null;
-
-		int caretIndex = literal.lastIndexOf("^^");
-		int atIndex = literal.lastIndexOf('@');
-		int quoteIndex = literal.lastIndexOf('\"');
-		int singleQuoteIndex = literal.lastIndexOf('\'');
-		if (caretIndex > quoteIndex && caretIndex > singleQuoteIndex) {
-			datatype = literal.substring(caretIndex + 2);
-			literal = literal.substring(0, caretIndex)
-				+ literal.substring(caretIndex + 2, literal.length());
-		}
-		if (atIndex > quoteIndex && atIndex > singleQuoteIndex) {
-			lang = literal.substring(atIndex + 1);
-			literal = literal.substring(0, atIndex)
-				+ literal.substring(atIndex + 1, literal.length());
-		}
-
-		if (singleQuoteIndex > quoteIndex) {
-			lexicalForm = literal.substring(1, singleQuoteIndex);
-		} else {
-			lexicalForm = literal.substring(1, quoteIndex);
+		Node result = idNodeCache.get(resourceId);
+		if (result == null) {
+			result = NodeUtil.getLiteralNodeRepresentation(kb.rsrcIdToUri(resourceId));
+			idNodeCache.put(resourceId, result);
 		}
-		if (!datatype.equals("")) {
-			result = Node.createLiteral(lexicalForm, lang, Node.getType(datatype));
-		} else if (!lang.equals("")) {
-			result = Node.createLiteral(lexicalForm, lang, null);
-		} else {
-			result = Node.createLiteral(lexicalForm);
+		return result;
+	}
+
+	/**
+	 * Returns the nodes for the first count resource ids.  Nodes are taken from
+	 * the id-to-node cache where possible, and the string representations of
+	 * the rest are fetched with a single call into the KB.  isLiteral indicates
+	 * which of the ids are literals.
+	 */
+	public Node[] getNodesForIds(long[] resourceIds, boolean[] isLiteral, int count) {
+		Node[] result = new Node[count];
+		int[] missIndexes = new int[count];
+		long[] missIds = new long[count];
+		int missCount = 0;
+		for (int i = 0; i < count; ++i) {
+			result[i] = idNodeCache.get(resourceIds[i]);
+			if (result[i] == null) {
+				missIndexes[missCount] = i;
+				missIds[missCount] = resourceIds[i];
+				++missCount;
+			}
+		}
+		if (missCount > 0) {
+			String[] representations = kb.rsrcIdsToUris(missIds, missCount);
+			for (int j = 0; j < missCount; ++j) {
+				int i = missIndexes[j];
+				result[i] = isLiteral[i]
+					? NodeUtil.getLiteralNodeRepresentation(representations[j])
+					: NodeUtil.getNodeRepresentation(representations[j]);
+				idNodeCache.put(resourceIds[i], result[i]);
+			}
 		}
 		return result;
 	}
@@ -429,19 +718,25 @@ public class KbGraph extends GraphBase implements KbUnionableGraph, Closeable {
 
 	/**
 	 * Get a quick size estimate using Parliament's raw statement count.
-	 * This will include statements that have been deleted, and
-	 * not include statements that are virtual.
+	 * This will include statements that have been deleted since the last
+	 * compaction, and not include statements that are virtual. In a quad
+	 * store, this is instead the number of statements in this graph.
 	 *
 	 * @return Raw statement count
 	 */
 	public long getQuickSizeEstimate() {
-		return kb.stmtCount();
+		return isInQuadStore() ? kb.graphStmtCount(graphId) : kb.stmtCount();
 	}
 
 	/** Exports the KB in N-Triples format. */
 	public void dumpAsNTriples(OutputStream s, boolean includeInferredStmts,
 		boolean includeDeletedStmts, boolean useAsciiOnlyEncoding) {
-		kb.dumpKbAsNTriples(s, includeInferredStmts, includeDeletedStmts,
-			useAsciiOnlyEncoding);
+		if (isInQuadStore()) {
+			// The KB's export covers every graph, so write this one through Jena:
+			ModelFactory.createModelForGraph(this).write(s, "N-TRIPLE");
+		} else {
+			kb.dumpKbAsNTriples(s, includeInferredStmts, includeDeletedStmts,
+				useAsciiOnlyEncoding);
+		}
 	}
 }
@@ -7,7 +7,9 @@
 package com.bbn.parliament.jena.graph;
 
 import java.io.File;
+import java.util.List;
 
+import com.bbn.parliament.jena.graph.union.KbMultiUnionGraph;
 import com.bbn.parliament.jena.graph.union.KbUnionGraph;
 import com.bbn.parliament.jena.graph.union.KbUnionableGraph;
 import com.bbn.parliament.jni.KbConfig;
@@ -44,6 +46,25 @@ public class KbGraphFactory {
 		return new KbGraph(getKbConfigForNamedGraph(graphDir), graphDir, OPT_METHOD);
 	}
 
+	/**
+	 * Create the quad store, a single KB in which named graphs store their
+	 * statements with a graph id apiece. Inference is disabled, because
+	 * inferred statements would belong to no graph.
+	 */
+	public static KbGraph createQuadStore() {
+		return new KbGraph(getKbConfigForQuadStore(), KbGraphStore.QUAD_STORE_DIR, OPT_METHOD);
+	}
+
+	/**
+	 * Create a view of one named graph within the quad store. The backing
+	 * directory holds only the graph's indexes.
+	 */
+	public static KbGraph createQuadStoreGraph(KbGraph quadStore, Node graphName,
+		String graphDir) {
+		return new KbGraph(quadStore, graphName, getKbConfigForNamedGraph(graphDir),
+			graphDir, OPT_METHOD);
+	}
+
 	/** Create a Parliament union graph from the specified graphs. */
 	public static KbUnionGraph createKbUnionGraph(
 			KbUnionableGraph leftKbUnionableGraph, Node leftGraphName,
@@ -51,6 +72,11 @@ public class KbGraphFactory {
 		return new KbUnionGraph(leftKbUnionableGraph, leftGraphName, rightKbUnionableGraph, rightGraphName);
 	}
 
+	/** Create a read-only Parliament union graph of any number of graphs. */
+	public static KbMultiUnionGraph createKbMultiUnionGraph(List<? extends KbUnionableGraph> graphs) {
+		return new KbMultiUnionGraph(graphs);
+	}
+
 	private static KbConfig getKbConfigForMasterGraph() {
 		KbConfig config = new KbConfig();
 		config.readFromFile();
@@ -67,11 +93,38 @@ public class KbGraphFactory {
 		return config;
 	}
 
+	static KbConfig getKbConfigForQuadStore() {
+		KbConfig config = getKbConfigForNamedGraph(KbGraphStore.QUAD_STORE_DIR);
+		config.disableAllRules();
+		return config;
+	}
+
 	private static KbConfig getKbConfigForNamedGraph(String namedGraphSubDir) {
 		KbConfig config = new KbConfig();
 		config.readFromFile();
 		File kbDir = new File(config.m_kbDirectoryPath, namedGraphSubDir);
 		config.m_kbDirectoryPath = kbDir.getAbsolutePath();
+		applyNamedGraphSizing(config);
 		return config;
 	}
+
+	/**
+	 * Named graphs are often small, so they start with small files that grow
+	 * geometrically, rather than with the default graph's large files that
+	 * grow by large increments.
+	 */
+	static void applyNamedGraphSizing(KbConfig config) {
+		if (config.m_namedGraphInitialRsrcCapacity > 0) {
+			config.m_initialRsrcCapacity = config.m_namedGraphInitialRsrcCapacity;
+		}
+		if (config.m_namedGraphInitialStmtCapacity > 0) {
+			config.m_initialStmtCapacity = config.m_namedGraphInitialStmtCapacity;
+		}
+		if (config.m_namedGraphGrowthFactor > 1.0) {
+			config.m_rsrcGrowthFactor = config.m_namedGraphGrowthFactor;
+			config.m_rsrcGrowthIncrement = 0;
+			config.m_stmtGrowthFactor = config.m_namedGraphGrowthFactor;
+			config.m_stmtGrowthIncrement = 0;
+		}
+	}
 }
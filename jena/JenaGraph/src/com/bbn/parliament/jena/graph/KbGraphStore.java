@@ -9,9 +9,18 @@ package com.bbn.parliament.jena.graph;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +37,7 @@ import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.reasoner.InfGraph;
 import com.hp.hpl.jena.shared.JenaException;
+import com.hp.hpl.jena.shared.uuid.JenaUUID;
 import com.hp.hpl.jena.sparql.core.DatasetGraphMap;
 import com.hp.hpl.jena.sparql.core.DatasetImpl;
 import com.hp.hpl.jena.sparql.core.Quad;
@@ -47,9 +57,11 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 	public static final String LEFT_GRAPH_PROPERTY    = PARLIAMENT_NS + "leftGraph";
 	public static final String RIGHT_GRAPH_PROPERTY   = PARLIAMENT_NS + "rightGraph";
 	public static final String INDEXED_GRAPH          = PARLIAMENT_NS + "IndexedGraph";
+	public static final String QUAD_STORE_GRAPH       = PARLIAMENT_NS + "QuadStoreGraph";
 
 	public static final String MASTER_GRAPH_DIR       = "master";
 	public static final String OLD_MASTER_GRAPH_DIR   = "graphs";
+	public static final String QUAD_STORE_DIR         = "quads";
 
 	public static final Node   DEFAULT_GRAPH_NODE     = Quad.defaultGraphIRI;
 	public static final String DEFAULT_GRAPH_URI      = DEFAULT_GRAPH_NODE.getURI();
@@ -57,14 +69,92 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 
 	private static Logger LOG = LoggerFactory.getLogger(KbGraphStore.class);
 
+	/**
+	 * A named graph that is opened, along with its indexes, on first access.
+	 * Opening a graph maps its files and opens its dictionary, so opening
+	 * hundreds of them up front delays startup by minutes. (A graph in the
+	 * quad store is cheap to open, but its indexes may not be.)
+	 */
+	private class NamedGraphHandle {
+		private final Node graphName;
+		private final String graphDir;
+		private final boolean isInQuadStore;
+		private volatile boolean isIndexingEnabled;
+		private volatile Graph graph;
+
+		public NamedGraphHandle(Node graphName, String graphDir, boolean isInQuadStore,
+			boolean isIndexingEnabled) {
+			this.graphName = graphName;
+			this.graphDir = graphDir;
+			this.isInQuadStore = isInQuadStore;
+			this.isIndexingEnabled = isIndexingEnabled;
+			graph = null;
+		}
+
+		/** Returns the graph, opening it first if necessary. */
+		public Graph get() {
+			Graph result = graph;
+			if (result == null) {
+				synchronized (this) {
+					result = graph;
+					if (result == null) {
+						result = open();
+						graph = result;
+					}
+				}
+			}
+			return result;
+		}
+
+		/** Returns the graph if it has been opened, or null. */
+		public Graph getIfOpen() {
+			return graph;
+		}
+
+		private Graph open() {
+			long start = System.currentTimeMillis();
+			@SuppressWarnings("resource")
+			Graph result = isInQuadStore
+				? KbGraphFactory.createQuadStoreGraph(getQuadStore(), graphName, graphDir)
+				: KbGraphFactory.createNamedGraph(graphDir);
+			if (isIndexingEnabled) {
+				IndexManager.getInstance().createAndRegisterAll(result, graphName);
+			}
+			LOG.info("Opened named graph <{}> in {} ms", graphName.getURI(),
+				System.currentTimeMillis() - start);
+			return result;
+		}
+	}
+
+	private final Map<Node, NamedGraphHandle> namedGraphHandles = new ConcurrentHashMap<>();
+	private KbGraph quadStore = null;
+
 	public KbGraphStore(KbGraph defaultGraph) {
 		super(defaultGraph);
 	}
 
+	/**
+	 * Opens the master graph and adds the named graphs and union graphs listed
+	 * in it, opening the named graphs as directed by the namedGraphOpenThreads
+	 * setting of the default graph's configuration.
+	 */
 	public void initialize() {
+		initialize((int) getDefaultGraphConfig().m_namedGraphOpenThreads);
+	}
+
+	/**
+	 * Opens the master graph and adds the named graphs and union graphs listed
+	 * in it. If numOpenThreads is zero, each named graph is opened, along with
+	 * its indexes, on first access. Otherwise, all of them are opened now, up
+	 * to numOpenThreads at a time. (The members of union graphs are always
+	 * opened now.)
+	 */
+	public void initialize(int numOpenThreads) {
+		long start = System.currentTimeMillis();
 		@SuppressWarnings("resource")
 		Graph masterGraph = KbGraphFactory.createMasterGraph();
 		addGraph(Node.createURI(MASTER_GRAPH), masterGraph, MASTER_GRAPH_DIR, false);
+		long phaseStart = logPhase("Opened the master graph", start);
 
 		if (isIndexingEnabled(DEFAULT_GRAPH_NODE)) {
 			@SuppressWarnings("resource")
@@ -73,27 +163,36 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 				IndexManager.getInstance().createAndRegisterAll(graph, DEFAULT_GRAPH_NODE);
 				IndexManager.getInstance().rebuild(graph);
 			}
+			phaseStart = logPhase("Prepared the default graph's indexes", phaseStart);
 		}
-		// Load all of the existing named graphs
+
+		// Add all of the existing named graphs
+		List<NamedGraphHandle> handles = new ArrayList<>();
 		ExtendedIterator<Triple> it = masterGraph.find(null, RDF.Nodes.type, Node.createURI(GRAPH_CLASS));
 		try {
 			while (it.hasNext()) {
 				Triple triple = it.next();
 
 				Node graphName = triple.getSubject();
-				String graphDir = getGraphDir(graphName);
-				@SuppressWarnings("resource")
-				Graph graph = KbGraphFactory.createNamedGraph(graphDir);
-				if (isIndexingEnabled(graphName)) {
-					IndexManager.getInstance().createAndRegisterAll(graph, graphName);
-					//IndexManager.getInstance().rebuild(graph);
+				if (!containsGraph(graphName)) {
+					String graphDir = getGraphDir(graphName);
+					LOG.debug("Adding named graph: <{}> (graphDir = \"{}\")", graphName.getURI(), graphDir);
+					NamedGraphHandle handle = new NamedGraphHandle(graphName, graphDir,
+						isInQuadStore(graphName), isIndexingEnabled(graphName));
+					namedGraphHandles.put(graphName, handle);
+					handles.add(handle);
 				}
-
-				addGraph(graphName, graph, graphDir, false);
 			}
 		} finally {
 			closeQuietly(it);
 		}
+		phaseStart = logPhase("Found %1$d named graphs".formatted(handles.size()), phaseStart);
+
+		if (numOpenThreads > 0 && !handles.isEmpty()) {
+			openAll(handles, numOpenThreads);
+			phaseStart = logPhase("Opened %1$d named graphs on %2$d threads".formatted(
+				handles.size(), numOpenThreads), phaseStart);
+		}
 
 		// Load any existing union graphs
 		it = masterGraph.find(null, RDF.Nodes.type, Node.createURI(UNION_GRAPH_CLASS));
@@ -110,6 +209,52 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 		} finally {
 			closeQuietly(it);
 		}
+		logPhase("Added the union graphs", phaseStart);
+
+		long numOpened = handles.stream().filter(handle -> handle.getIfOpen() != null).count();
+		LOG.info("Initialized the graph store in {} ms, with {} of {} named graphs open",
+			System.currentTimeMillis() - start, numOpened, handles.size());
+	}
+
+	/** Logs the duration of a startup phase, and returns the start time of the next one. */
+	private static long logPhase(String phase, long phaseStart) {
+		long now = System.currentTimeMillis();
+		LOG.info("{} in {} ms", phase, now - phaseStart);
+		return now;
+	}
+
+	/** Opens the given named graphs on a pool of up to numThreads threads. */
+	private static void openAll(List<NamedGraphHandle> handles, int numThreads) {
+		AtomicInteger threadCount = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, handles.size()),
+			runnable -> {
+				Thread thread = new Thread(runnable, "graph-opener-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		try {
+			List<Future<Graph>> futures = new ArrayList<>(handles.size());
+			for (NamedGraphHandle handle : handles) {
+				futures.add(executor.submit(handle::get));
+			}
+			for (Future<Graph> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new JenaException("Interrupted while opening the named graphs", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException rtEx) {
+				throw rtEx;
+			} else if (cause instanceof Error err) {
+				throw err;
+			} else {
+				throw new JenaException(cause);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
 	}
 
 	/** Get the default graph's configuration. */
@@ -124,15 +269,205 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 		return (KbGraph) super.getDefaultGraph();
 	}
 
+	/**
+	 * Get the quad store, the single KB that holds the statements of every
+	 * named graph created while the namedGraphQuadStore setting is on,
+	 * opening it first if necessary.
+	 */
+	public synchronized KbGraph getQuadStore() {
+		if (quadStore == null) {
+			quadStore = KbGraphFactory.createQuadStore();
+		}
+		return quadStore;
+	}
+
+	/**
+	 * Returns true if the named graph keeps its statements in the quad store.
+	 * This does not open the graph.
+	 */
+	public boolean isInQuadStore(Node graphName) {
+		if (isDefaultGraphName(graphName)) {
+			return false;
+		}
+		NamedGraphHandle handle = namedGraphHandles.get(graphName);
+		if (handle != null) {
+			return handle.isInQuadStore;
+		}
+		Graph masterGraph = getMasterGraph();
+		ExtendedIterator<Triple> it = masterGraph.find(graphName, RDF.Nodes.type, Node.createURI(QUAD_STORE_GRAPH));
+		try {
+			return it.hasNext();
+		} finally {
+			closeQuietly(it);
+		}
+	}
+
+	/**
+	 * Creates (but does not add) a new named graph with a GUID backing
+	 * directory. If the namedGraphQuadStore setting is on, the graph keeps its
+	 * statements in the quad store, and the directory holds only its indexes.
+	 */
+	public KbGraph createNamedGraph(Node graphName) {
+		return isQuadStoreEnabledFor(graphName)
+			? createNamedGraph(graphName, JenaUUID.generate().asString())
+			: KbGraphFactory.createNamedGraph();
+	}
+
+	/**
+	 * Creates (but does not add) a new named graph with the specified backing
+	 * directory, in the quad store if the namedGraphQuadStore setting is on.
+	 */
+	public KbGraph createNamedGraph(Node graphName, String graphDir) {
+		return isQuadStoreEnabledFor(graphName)
+			? KbGraphFactory.createQuadStoreGraph(getQuadStore(), graphName, graphDir)
+			: KbGraphFactory.createNamedGraph(graphDir);
+	}
+
+	private boolean isQuadStoreEnabledFor(Node graphName) {
+		return !isDefaultGraphName(graphName) && getDefaultGraphConfig().m_namedGraphQuadStore;
+	}
+
 	/** Get the master graph, which contains references to all named graphs. */
 	public Graph getMasterGraph() {
 		return getGraph(Node.createURI(MASTER_GRAPH));
 	}
 
+	/**
+	 * Returns the graph, first opening it if it is a named graph that is not yet
+	 * open. As in DatasetGraphMap, a named graph that does not exist is created
+	 * and added, but in the quad store if the namedGraphQuadStore setting is on.
+	 */
+	@Override
+	public Graph getGraph(Node graphNode) {
+		NamedGraphHandle handle = (graphNode == null) ? null : namedGraphHandles.get(graphNode);
+		if (handle != null) {
+			return handle.get();
+		}
+		if (!isDefaultGraphName(graphNode) && !super.containsGraph(graphNode)) {
+			addGraph(graphNode, createNamedGraph(graphNode));
+		}
+		return super.getGraph(graphNode);
+	}
+
+	/** Returns the graph, or null if it is a named graph that is not yet open. */
+	private Graph getGraphIfOpen(Node graphNode) {
+		NamedGraphHandle handle = (graphNode == null) ? null : namedGraphHandles.get(graphNode);
+		if (handle != null) {
+			return handle.getIfOpen();
+		}
+		// Unlike super.getGraph, do not create a graph that does not exist:
+		return super.containsGraph(graphNode) ? super.getGraph(graphNode) : null;
+	}
+
+	/**
+	 * Returns true if the graph is open, and false if it is a named graph that
+	 * will be opened on first access (or if there is no such graph).
+	 */
+	public boolean isGraphOpen(Node graphNode) {
+		return getGraphIfOpen(graphNode) != null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean containsGraph(Node graphNode) {
+		return (graphNode != null && namedGraphHandles.containsKey(graphNode))
+			|| super.containsGraph(graphNode);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Iterator<Node> listGraphNodes() {
+		List<Node> result = new ArrayList<>(namedGraphHandles.keySet());
+		super.listGraphNodes().forEachRemaining(result::add);
+		return result.iterator();
+	}
+
+	/**
+	 * Finds the matching quads in every named graph. The graphs in the quad
+	 * store are searched with a single scan of the quad store, rather than
+	 * with one search per graph. The quads are streamed: each of the other
+	 * graphs is searched only when the search before it is used up.
+	 */
+	@Override
+	protected Iterator<Quad> findInAnyNamedGraphs(Node s, Node p, Node o) {
+		List<Node> otherGraphNames = new ArrayList<>();
+		long[] quadStoreGraphIds = partitionNamedGraphs(true, otherGraphNames);
+		Stream<Quad> result = otherGraphNames.stream()
+			.flatMap(graphName -> {
+				Iterator<Quad> quads = findInSpecificNamedGraph(graphName, s, p, o);
+				return StreamUtil.asStream(quads);
+			});
+		if (quadStoreGraphIds.length > 0) {
+			result = Stream.concat(StreamUtil.asStream(findInQuadStore(s, p, o, quadStoreGraphIds)), result);
+		}
+		return result.iterator();
+	}
+
+	@SuppressWarnings("resource")
+	private Iterator<Quad> findInQuadStore(Node s, Node p, Node o, long[] graphIds) {
+		KbGraph store = getQuadStore();
+		long[] ids = store.getKbIds(new Node[] { concreteOrNull(s), concreteOrNull(p),
+			concreteOrNull(o) }, false);
+		if (ids[0] == -2 || ids[1] == -2 || ids[2] == -2) {
+			return Collections.emptyIterator();
+		}
+		return new KbQuadIterator(store, store.findQuadIds(ids[0], ids[1], ids[2],
+			KbInstance.NULL_RSRC_ID), graphIds);
+	}
+
+	/**
+	 * Sorts the named graphs into those that keep their statements in the quad
+	 * store, and so can be searched together with one scan of the quad store,
+	 * and the rest. Returns the sorted KB ids, within the quad store, of the
+	 * names of the former, and adds the names of the latter to otherGraphNames.
+	 * If includeIndexedGraphs is false, a graph in the quad store that has
+	 * indexes is counted among the rest, so that its indexes are consulted.
+	 * This opens no graph.
+	 */
+	@SuppressWarnings("resource")
+	public long[] partitionNamedGraphs(boolean includeIndexedGraphs, List<Node> otherGraphNames) {
+		List<Node> quadStoreGraphNames = new ArrayList<>();
+		for (Iterator<Node> it = listGraphNodes(); it.hasNext(); ) {
+			Node graphName = it.next();
+			if (isInQuadStore(graphName) && (includeIndexedGraphs || !isIndexingEnabledFor(graphName))) {
+				quadStoreGraphNames.add(graphName);
+			} else {
+				otherGraphNames.add(graphName);
+			}
+		}
+		if (quadStoreGraphNames.isEmpty()) {
+			return new long[0];
+		}
+		long[] ids = getQuadStore().getKbIds(quadStoreGraphNames.toArray(new Node[0]), false);
+		return Arrays.stream(ids)
+			.filter(id -> id != -2)
+			.sorted()
+			.toArray();
+	}
+
+	/** Like isIndexingEnabled, but for a deferred named graph this reads its handle. */
+	private boolean isIndexingEnabledFor(Node graphName) {
+		NamedGraphHandle handle = namedGraphHandles.get(graphName);
+		return (handle != null) ? handle.isIndexingEnabled : isIndexingEnabled(graphName);
+	}
+
+	private static Node concreteOrNull(Node n) {
+		return (n != null && n.isConcrete()) ? n : null;
+	}
+
 	/** {@inheritDoc} */
 	@Override
+	public long size() {
+		return super.size() + namedGraphHandles.size();
+	}
+
+	/**
+	 * {@inheritDoc} This is the creation path for graphs with no name; getGraph
+	 * and addGraph create named graphs with createNamedGraph(Node) instead.
+	 */
+	@Override
 	protected Graph getGraphCreate() {
-		return KbGraphFactory.createNamedGraph();
+		return createNamedGraph(null);
 	}
 
 	/** {@inheritDoc} */
@@ -146,7 +481,7 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 
 		// If we are passed a non-Parliament graph, then create a new KbGraph and copy all the statements into it
 		if (!((toAdd instanceof KbGraph) || (toAdd instanceof KbUnionGraph))) {
-			Graph kbGraph = getGraphCreate();
+			Graph kbGraph = createNamedGraph(graphName);
 			kbGraph.getBulkUpdateHandler().add(toAdd);
 			toAdd = kbGraph;
 		}
@@ -167,6 +502,9 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 				Graph masterGraph = getMasterGraph();
 				masterGraph.add(Triple.create(graphName, RDF.Nodes.type, Node.createURI(GRAPH_CLASS)));
 				masterGraph.add(Triple.create(graphName, Node.createURI(GRAPH_DIR_PROPERTY), Node.createLiteral(graphDir)));
+				if (graph instanceof KbGraph kbGraph && kbGraph.isInQuadStore()) {
+					masterGraph.add(Triple.create(graphName, RDF.Nodes.type, Node.createURI(QUAD_STORE_GRAPH)));
+				}
 			}
 		}
 	}
@@ -221,27 +559,37 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 			.collect(Collectors.toList());
 
 		// Delete all of the KbUnionGraphs first
-		graphNames.stream()
-			.filter(graphName -> getGraph(graphName) instanceof KbUnionGraph)
-			.forEach(graphName -> removeGraph(graphName));
+		List<Node> unionGraphNames = listUnionGraphNames();
+		unionGraphNames.forEach(graphName -> removeGraph(graphName));
 
 		// Then delete all the named graphs except the master graph:
 		graphNames.stream()
 			.filter(graphName -> !MASTER_GRAPH.equals(graphName.getURI()))
-			.filter(graphName -> getGraph(graphName) instanceof KbGraph)
+			.filter(graphName -> !unionGraphNames.contains(graphName))
 			.forEach(graphName -> removeGraph(graphName));
 
 		// Remove the default graph
 		removeGraph(null);
 
-		// Finally, delete the master graph:
+		// Finally, delete the master graph and the quad store:
 		removeGraph(Node.createURI(MASTER_GRAPH));
+		deleteQuadStore();
 
 		if (deleteContainingDirectory) {
 			deleteDirectory(containingDir);
 		}
 	}
 
+	/**
+	 * Returns the names of the union graphs. Union graphs are always open, and
+	 * are never among the lazily opened named graphs, so this opens no graph.
+	 */
+	private List<Node> listUnionGraphNames() {
+		return StreamUtil.asStream(super.listGraphNodes())
+			.filter(graphName -> getGraphIfOpen(graphName) instanceof KbUnionGraph)
+			.collect(Collectors.toList());
+	}
+
 	/**
 	 * Deletes any of the named graphs, including the default graph and
 	 * master graph.  All aspects of the graph will be deleted, including its
@@ -274,11 +622,8 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 			isKbGraph = (graph instanceof KbGraph);
 
 			// Make sure we don't delete a member of a union graph
-			for (Iterator<Node> iter = listGraphNodes(); iter.hasNext(); )
-			{
-				Node gName = iter.next();
-				Graph g = getGraph(gName);
-				if (g instanceof KbUnionGraph unionGraph) {
+			for (Node gName : listUnionGraphNames()) {
+				if (getGraphIfOpen(gName) instanceof KbUnionGraph unionGraph) {
 					if (graphName.equals(unionGraph.getLeftGraphName()) || graphName.equals(unionGraph.getRightGraphName())) {
 						throw new JenaException("""
 							Cannot delete a named graph while it is a member of a union. \
@@ -289,6 +634,7 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 
 			toReturn = getGraph(graphName);
 			super.removeGraph(graphName);
+			namedGraphHandles.remove(graphName);
 
 			Graph masterGraph = getMasterGraph();
 			List<Triple> triplesToRemoveFromMaster = new ArrayList<>(2);
@@ -319,7 +665,10 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 			}
 		}
 
-		// Close the graph
+		// Close the graph, first deleting its statements if they are in the quad store
+		if (toReturn instanceof KbGraph kbGraph && kbGraph.isInQuadStore()) {
+			kbGraph.clear();
+		}
 		toReturn.close();
 
 		// delete indexes
@@ -333,6 +682,14 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 		}
 	}
 
+	private synchronized void deleteQuadStore() {
+		if (quadStore != null) {
+			quadStore.close();
+			quadStore = null;
+		}
+		KbInstance.deleteKb(KbGraphFactory.getKbConfigForQuadStore(), null, true);
+	}
+
 	private static void deleteDirectory(File dir) {
 		try {
 			// Sometimes Linux takes a short time to fully execute file deletions from
@@ -374,8 +731,51 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 			flushGraph(defaultGraph, null);
 		}
 
+		// Graphs that have not been opened have nothing to flush:
 		StreamUtil.asStream(listGraphNodes())
-			.forEach(graphName -> flushGraph(getGraph(graphName), graphName.getURI()));
+			.forEach(graphName -> flushGraph(getGraphIfOpen(graphName), graphName.getURI()));
+
+		// The graphs in the quad store share its KB, so it is flushed once for all of them:
+		KbGraph store;
+		synchronized (this) {
+			store = quadStore;
+		}
+		if (store != null) {
+			flushGraph(store, "quad store");
+		}
+	}
+
+	/**
+	 * Removes the deleted statements of one graph, or of the default graph if
+	 * graphName is null, and returns the number removed. The caller must hold
+	 * the graph's write lock.
+	 */
+	public long compact(Node graphName) {
+		@SuppressWarnings("resource")
+		KbGraph kbGraph = getInnerKbGraph(isDefaultGraphName(graphName)
+			? getDefaultGraph() : getGraph(graphName));
+		if (kbGraph == null) {
+			return 0;
+		}
+		long start = System.currentTimeMillis();
+		long numRemoved = kbGraph.compact();
+		LOG.info("Compacted graph <{}>, removing {} deleted statements in {} ms",
+			isDefaultGraphName(graphName) ? "default" : graphName.getURI(), numRemoved,
+			System.currentTimeMillis() - start);
+		return numRemoved;
+	}
+
+	/**
+	 * Returns the fraction of the statements of one graph, or of the default
+	 * graph if graphName is null, that are deleted. This is zero for a named
+	 * graph that has not been opened, so that checking every graph's ratio
+	 * does not open them all.
+	 */
+	public double getTombstoneRatio(Node graphName) {
+		@SuppressWarnings("resource")
+		KbGraph kbGraph = getInnerKbGraph(isDefaultGraphName(graphName)
+			? getDefaultGraph() : getGraphIfOpen(graphName));
+		return (kbGraph == null) ? 0.0 : kbGraph.getTombstoneRatio();
 	}
 
 	private KbGraph getInnerKbGraph(Graph graph) {
@@ -392,7 +792,7 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 	private void flushGraph(Graph graph, String graphName) {
 		@SuppressWarnings("resource")
 		KbGraph kbGraph = getInnerKbGraph(graph);
-		if (kbGraph != null) {
+		if (kbGraph != null && !kbGraph.isInQuadStore()) {
 			long start = 0;
 			if (LOG.isDebugEnabled()) {
 				start = System.currentTimeMillis();
@@ -414,6 +814,11 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 			name = Node.createURI(DEFAULT_GRAPH_URI);
 		}
 
+		NamedGraphHandle handle = namedGraphHandles.get(name);
+		if (handle != null) {
+			handle.isIndexingEnabled = enabled;
+		}
+
 		Graph masterGraph = getMasterGraph();
 		Triple t = Triple.create(name, RDF.Nodes.type, Node.createURI(INDEXED_GRAPH));
 		if (enabled) {
@@ -511,10 +916,16 @@ public class KbGraphStore extends DatasetGraphMap implements GraphStore {
 	@Override
 	public void close() {
 		StreamUtil.asStream(listGraphNodes())
-			.map(graphName -> getGraph(graphName))
+			.map(graphName -> getGraphIfOpen(graphName))
 			.forEach(KbGraphStore::closeGraph);
 		KbGraph defaultGraph = getDefaultGraph();
 		closeGraph(defaultGraph);
+		synchronized (this) {
+			if (quadStore != null) {
+				quadStore.close();
+				quadStore = null;
+			}
+		}
 	}
 
 	private static void closeGraph(Graph graph) {
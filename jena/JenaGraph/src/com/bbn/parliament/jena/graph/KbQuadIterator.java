@@ -0,0 +1,111 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.bbn.parliament.jni.StmtIterator;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.core.Quad;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+/**
+ * Adapts a StmtIterator over a quad store to an iterator of quads, in the
+ * manner of KbTripleIterator. Statements are pulled from the native iterator
+ * in batches of primitive ids, together with their graphs (see
+ * StmtIterator.nextQuadBatch), and the nodes of each batch, graph names
+ * included, are decoded with a single dictionary lookup. Statements whose
+ * graph is not among the given graph ids, such as those of a graph that has
+ * been removed but not yet compacted away, are skipped.
+ */
+public class KbQuadIterator extends NiceIterator<Quad> {
+	private static final int BATCH_SIZE = KbTripleIterator.BATCH_SIZE;
+
+	private final KbGraph quadStore;
+	private final StmtIterator si;
+	private final long[] graphIds;
+	private final long[] subjects = new long[BATCH_SIZE];
+	private final long[] predicates = new long[BATCH_SIZE];
+	private final long[] objects = new long[BATCH_SIZE];
+	private final long[] graphs = new long[BATCH_SIZE];
+	private final byte[] flags = new byte[BATCH_SIZE];
+	private final long[] nodeIds = new long[4 * BATCH_SIZE];
+	private final boolean[] nodeIsLiteral = new boolean[4 * BATCH_SIZE];
+	private Node[] nodes = null;
+	private int batchCount = 0;
+	private int batchPos = 0;
+	private boolean isExhausted = false;
+
+	/**
+	 * @param quadStore the quad store over which si iterates
+	 * @param si the statements to return
+	 * @param graphIds the sorted KB ids of the names of the graphs whose
+	 *        statements are to be returned
+	 */
+	public KbQuadIterator(KbGraph quadStore, StmtIterator si, long[] graphIds) {
+		this.quadStore = quadStore;
+		this.si = si;
+		this.graphIds = graphIds;
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		isExhausted = true;
+		si.close();
+	}
+
+	@Override
+	public Quad next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("Iteration has no more elements");
+		}
+		if (nodes == null) {
+			nodes = quadStore.getNodesForIds(nodeIds, nodeIsLiteral, 4 * batchCount);
+		}
+		int i = 4 * batchPos;
+		++batchPos;
+		return Quad.create(nodes[i], nodes[i + 1], nodes[i + 2], nodes[i + 3]);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (batchPos >= batchCount) {
+			if (isExhausted) {
+				return false;
+			}
+			int numRead = si.nextQuadBatch(subjects, predicates, objects, graphs, flags);
+			batchPos = 0;
+			nodes = null;
+
+			// The native side fills the batch unless it reaches the end of the
+			// iteration, so a short batch means there is no need to ask again:
+			isExhausted = (numRead < BATCH_SIZE);
+			if (isExhausted) {
+				si.close();
+			}
+
+			batchCount = 0;
+			for (int i = 0; i < numRead; ++i) {
+				if (Arrays.binarySearch(graphIds, graphs[i]) >= 0) {
+					int j = 4 * batchCount;
+					nodeIds[j] = graphs[i];
+					nodeIds[j + 1] = subjects[i];
+					nodeIds[j + 2] = predicates[i];
+					nodeIds[j + 3] = objects[i];
+					nodeIsLiteral[j] = false;
+					nodeIsLiteral[j + 1] = false;
+					nodeIsLiteral[j + 2] = false;
+					nodeIsLiteral[j + 3] = ((flags[i] & StmtIterator.LITERAL_STMT_FLAG) != 0);
+					++batchCount;
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -6,27 +6,68 @@
 
 package com.bbn.parliament.jena.graph;
 
+import java.util.NoSuchElementException;
+
 import com.bbn.parliament.jni.StmtIterator;
-import com.bbn.parliament.jni.StmtIterator.Statement;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.util.iterator.NiceIterator;
 
+/**
+ * Adapts a StmtIterator to Jena's triple iterator interface. Statements are
+ * pulled from the native iterator in batches of primitive ids (see
+ * StmtIterator.nextBatch) so that a scan does not pay one JNI transition and
+ * one Statement allocation per triple.  The nodes of each batch are likewise
+ * decoded with a single dictionary lookup (see KbGraph.getNodesForIds). The
+ * first batch is small, so that point lookups such as contains stay cheap,
+ * and each batch after that is larger, up to the maximum batch size.
+ */
 public class KbTripleIterator extends NiceIterator<Triple> {
+	static final int INITIAL_BATCH_SIZE = 4;
+	static final int BATCH_SIZE = 256;
+	private static final int BATCH_GROWTH_FACTOR = 4;
+
 	private StmtIterator si;
 	private KbGraph graph;
 	private Triple lastTriple;
+	private final int maxBatchSize;
+	private long[] subjects;
+	private long[] predicates;
+	private long[] objects;
+	private byte[] flags;
+	private long[] nodeIds;
+	private boolean[] nodeIsLiteral;
+	private Node[] nodes;
+	private int batchCount;
+	private int batchPos;
+	private boolean isExhausted;
 
 	public KbTripleIterator(KbGraph graph, StmtIterator si) throws Throwable {
+		this(graph, si, BATCH_SIZE);
+	}
+
+	KbTripleIterator(KbGraph graph, StmtIterator si, int maxBatchSize) {
 		super();
 		this.graph = graph;
 		this.si = si;
+		this.maxBatchSize = maxBatchSize;
+		subjects = null;
+		predicates = null;
+		objects = null;
+		flags = null;
+		nodeIds = null;
+		nodeIsLiteral = null;
+		nodes = null;
+		batchCount = 0;
+		batchPos = 0;
+		isExhausted = false;
 	}
 
 	@Override
 	public void close() {
 		super.close();
-		si.finalize();
+		isExhausted = true;
+		si.close();
 	}
 
 	@Override
@@ -36,17 +77,59 @@ public class KbTripleIterator extends NiceIterator<Triple> {
 
 	@Override
 	public Triple next() {
-		Statement statement = si.next();
-		Node s = graph.getResourceNodeForId(statement.getSubject());
-		Node p = graph.getResourceNodeForId(statement.getPredicate());
-		Node o = statement.isLiteral() ? graph.getLiteralNodeForId(statement.getObject())
-			: graph.getResourceNodeForId(statement.getObject());
-		lastTriple = Triple.create(s, p, o);
+		if (!hasNext()) {
+			throw new NoSuchElementException("Iteration has no more elements");
+		}
+		if (nodes == null) {
+			for (int i = 0; i < batchCount; ++i) {
+				nodeIds[3 * i] = subjects[i];
+				nodeIds[3 * i + 1] = predicates[i];
+				nodeIds[3 * i + 2] = objects[i];
+				nodeIsLiteral[3 * i + 2] = ((flags[i] & StmtIterator.LITERAL_STMT_FLAG) != 0);
+			}
+			nodes = graph.getNodesForIds(nodeIds, nodeIsLiteral, 3 * batchCount);
+		}
+		int i = 3 * batchPos;
+		++batchPos;
+		lastTriple = Triple.create(nodes[i], nodes[i + 1], nodes[i + 2]);
 		return lastTriple;
 	}
 
 	@Override
 	public boolean hasNext() {
-		return si.hasNext();
+		if (batchPos < batchCount) {
+			return true;
+		} else if (isExhausted) {
+			return false;
+		}
+		allocateNextBatch();
+		batchCount = si.nextBatch(subjects, predicates, objects, flags);
+		batchPos = 0;
+		nodes = null;
+
+		// The native side fills the batch unless it reaches the end of the
+		// iteration, so a short batch means there is no need to ask again:
+		isExhausted = (batchCount < subjects.length);
+		if (isExhausted) {
+			// Free the native iterator now, rather than when the caller closes
+			// this iterator, which many callers that read to the end never do:
+			si.close();
+		}
+		return batchCount > 0;
+	}
+
+	/** Allocates the arrays for the first batch, or grows them for the next one. */
+	private void allocateNextBatch() {
+		int batchSize = (subjects == null)
+			? Math.min(INITIAL_BATCH_SIZE, maxBatchSize)
+			: Math.min(BATCH_GROWTH_FACTOR * subjects.length, maxBatchSize);
+		if (subjects == null || batchSize > subjects.length) {
+			subjects = new long[batchSize];
+			predicates = new long[batchSize];
+			objects = new long[batchSize];
+			flags = new byte[batchSize];
+			nodeIds = new long[3 * batchSize];
+			nodeIsLiteral = new boolean[3 * batchSize];
+		}
 	}
 }
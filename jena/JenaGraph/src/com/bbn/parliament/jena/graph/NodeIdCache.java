@@ -0,0 +1,269 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * A bounded, concurrent cache from nodes to KB resource ids.
+ * <p>
+ * The cache is split into independently locked segments, so that threads
+ * looking up different nodes rarely contend. Each segment is an open-addressed
+ * table with primitive long values (see NodeIdHash) of fixed capacity. When a
+ * segment is full, a victim is chosen by the CLOCK algorithm, and the new node
+ * replaces it only if the node has been requested at least as often recently,
+ * as estimated by a count-min sketch of request frequencies (the admission
+ * policy of TinyLFU). This keeps hot vocabulary cached across scans of
+ * one-off nodes, such as the subjects of a bulk load.
+ */
+public class NodeIdCache {
+	/** The value returned by get() for nodes that are not in the cache. */
+	public static final long NOT_FOUND = -1;
+
+	private static final int MIN_SEGMENT_SIZE = 16;
+
+	private final long maxSize;
+	private final Segment[] segments;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/** Creates a cache holding up to maxSize entries.  Zero disables caching. */
+	public NodeIdCache(long maxSize) {
+		this(maxSize, 4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	NodeIdCache(long maxSize, int concurrency) {
+		this.maxSize = Math.max(0, Math.min(maxSize, Integer.MAX_VALUE / 4));
+		int numSegments = 1;
+		while (numSegments < concurrency && (numSegments * 2L) * MIN_SEGMENT_SIZE <= this.maxSize) {
+			numSegments *= 2;
+		}
+		segments = new Segment[numSegments];
+		int segmentSize = (int) (this.maxSize / numSegments);
+		for (int i = 0; i < numSegments; ++i) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/** Returns the id cached for n, or NOT_FOUND. */
+	public long get(Node n) {
+		long result = segmentFor(n).lookup(n);
+		if (result == NOT_FOUND) {
+			missCount.increment();
+		} else {
+			hitCount.increment();
+		}
+		return result;
+	}
+
+	/** Caches the id of n, possibly evicting another node. */
+	public void put(Node n, long id) {
+		if (segmentFor(n).store(n, id)) {
+			evictionCount.increment();
+		}
+	}
+
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.reset();
+		}
+	}
+
+	public long size() {
+		long result = 0;
+		for (Segment segment : segments) {
+			result += segment.entryCount();
+		}
+		return result;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "NodeIdCache[size=%1$d, maxSize=%2$d, hits=%3$d, misses=%4$d, evictions=%5$d]"
+			.formatted(size(), maxSize, getHitCount(), getMissCount(), getEvictionCount());
+	}
+
+	private Segment segmentFor(Node n) {
+		int h = n.hashCode() * 0x9e3779b9;
+		return segments[(h >>> 16) & (segments.length - 1)];
+	}
+
+	private static class Segment extends NodeIdHash {
+		private static final byte MAX_REF_COUNT = 3;
+
+		private final int maxEntries;
+		private final byte[] refCounts;
+		private final FrequencySketch sketch;
+		private int hand;
+
+		// The table is sized so that it never reaches the growth threshold
+		// (half the capacity):
+		public Segment(int maxEntries) {
+			super(2 * maxEntries + 2);
+			this.maxEntries = maxEntries;
+			refCounts = new byte[capacity];
+			sketch = new FrequencySketch(maxEntries);
+			hand = 0;
+		}
+
+		public synchronized long lookup(Node key) {
+			sketch.increment(key.hashCode());
+			int slot = findSlot(key);
+			if (slot < 0) {
+				if (refCounts[~slot] < MAX_REF_COUNT) {
+					++refCounts[~slot];
+				}
+				return values[~slot];
+			}
+			return NOT_FOUND;
+		}
+
+		/** Returns true if an entry was evicted to make room for key. */
+		public synchronized boolean store(Node key, long value) {
+			int slot = findSlot(key);
+			if (slot < 0) {
+				values[~slot] = value;
+				return false;
+			} else if (maxEntries <= 0) {
+				return false;
+			}
+
+			boolean evicted = false;
+			if (size >= maxEntries) {
+				int victim = findVictim();
+				if (sketch.frequency(key.hashCode()) < sketch.frequency(keys[victim].hashCode())) {
+					return false;
+				}
+				removeFrom(victim);
+				slot = findSlot(key);
+				evicted = true;
+			}
+			keys[slot] = key;
+			values[slot] = value;
+			refCounts[slot] = 0;
+			++size;
+			return evicted;
+		}
+
+		public synchronized void reset() {
+			clear();
+			Arrays.fill(refCounts, (byte) 0);
+			sketch.clear();
+			size = 0;
+		}
+
+		public synchronized int entryCount() {
+			return size;
+		}
+
+		private int findVictim() {
+			for (;;) {
+				hand = (hand == 0) ? capacity - 1 : hand - 1;
+				if (keys[hand] != null) {
+					if (refCounts[hand] == 0) {
+						return hand;
+					}
+					--refCounts[hand];
+				}
+			}
+		}
+
+		@Override
+		protected void removeAssociatedValues(int here) {
+			super.removeAssociatedValues(here);
+			refCounts[here] = 0;
+		}
+
+		@Override
+		protected void moveAssociatedValues(int here, int scan) {
+			super.moveAssociatedValues(here, scan);
+			refCounts[here] = refCounts[scan];
+		}
+	}
+
+	/**
+	 * A count-min sketch of 4-bit counters that estimates how often each hash
+	 * code has been seen recently. All counters are halved periodically so
+	 * that the estimates favor recent requests.
+	 */
+	private static class FrequencySketch {
+		private static final int[] SEEDS = { 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f };
+		private static final byte MAX_COUNT = 15;
+
+		private final byte[] counts;
+		private final int width;
+		private final int sampleSize;
+		private int additions;
+
+		public FrequencySketch(int maxEntries) {
+			int w = MIN_SEGMENT_SIZE;
+			while (w < maxEntries) {
+				w *= 2;
+			}
+			width = w;
+			counts = new byte[SEEDS.length * width];
+			sampleSize = 10 * Math.max(maxEntries, 1);
+			additions = 0;
+		}
+
+		public void increment(int hash) {
+			boolean wasAdded = false;
+			for (int row = 0; row < SEEDS.length; ++row) {
+				int i = indexOf(hash, row);
+				if (counts[i] < MAX_COUNT) {
+					++counts[i];
+					wasAdded = true;
+				}
+			}
+			if (wasAdded && ++additions >= sampleSize) {
+				for (int i = 0; i < counts.length; ++i) {
+					counts[i] >>= 1;
+				}
+				additions /= 2;
+			}
+		}
+
+		public int frequency(int hash) {
+			int result = MAX_COUNT;
+			for (int row = 0; row < SEEDS.length; ++row) {
+				result = Math.min(result, counts[indexOf(hash, row)]);
+			}
+			return result;
+		}
+
+		public void clear() {
+			Arrays.fill(counts, (byte) 0);
+			additions = 0;
+		}
+
+		private int indexOf(int hash, int row) {
+			int h = (hash + SEEDS[row]) * SEEDS[row];
+			h ^= h >>> 16;
+			return row * width + (h & (width - 1));
+		}
+	}
+}
@@ -93,6 +93,20 @@ public interface Index<T> {
 	 */
 	public boolean add(Record<T> r) throws IndexException;
 
+	/**
+	 * Load a bulk set of records into the index when it is built from scratch,
+	 * as when the {@link IndexManager} rebuilds it. The index has just been
+	 * cleared, and the records arrive in no particular order, so an
+	 * implementation may sort or pack them in whatever way builds the index
+	 * fastest. By default, this is the same as {@link #add(Iterator)}.
+	 *
+	 * @param records the records to load.
+	 * @throws IndexException if an error occurs while loading a record.
+	 */
+	public default void bulkLoad(Iterator<Record<T>> records) throws IndexException {
+		add(records);
+	}
+
 	/**
 	 * Remove a bulk set of records from the index.
 	 *
@@ -58,6 +58,17 @@ public abstract class IndexBase<T> implements Index<T> {
 	 */
 	protected abstract void doAdd(Iterator<Record<T>> records) throws IndexException;
 
+	/**
+	 * Load records into the cleared index. By default, this is the same as
+	 * {@link #doAdd(Iterator)}.
+	 *
+	 * @param records records to load.
+	 * @throws IndexException if an error occurs while loading the records.
+	 */
+	protected void doBulkLoad(Iterator<Record<T>> records) throws IndexException {
+		doAdd(records);
+	}
+
 	/**
 	 * Remove a record.
 	 *
@@ -169,6 +180,19 @@ public abstract class IndexBase<T> implements Index<T> {
 		doAdd(records);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalStateException if the index is closed
+	 */
+	@Override
+	public final void bulkLoad(Iterator<Record<T>> records) throws IndexException {
+		if (closed) {
+			throw new IllegalStateException("Index closed");
+		}
+		doBulkLoad(records);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
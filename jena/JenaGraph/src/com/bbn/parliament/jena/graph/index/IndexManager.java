@@ -5,8 +5,22 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,7 +28,6 @@ import org.slf4j.LoggerFactory;
 import com.bbn.parliament.jena.graph.index.IndexFactory.IndexFactoryHelper;
 import com.bbn.parliament.jena.util.FileUtil;
 import com.hp.hpl.jena.graph.Graph;
-import com.hp.hpl.jena.graph.GraphEventManager;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
@@ -30,6 +43,11 @@ import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 public class IndexManager {
 	private static final Logger LOG = LoggerFactory.getLogger(IndexManager.class);
 
+	/** The number of triples handed to an index at a time during a rebuild. */
+	private static final int REBUILD_BATCH_SIZE = 1024;
+	/** The number of batches that may wait for each index during a rebuild. */
+	private static final int REBUILD_QUEUE_CAPACITY = 16;
+
 	private static class IndexRegistryHolder {
 		private static final IndexManager INSTANCE = new IndexManager();
 	}
@@ -119,13 +137,15 @@ public class IndexManager {
 			graph.getEventManager().register(l);
 			indexToFactory.put(index, indexFactory);
 			index.register(graph, graphName);
+		}
 
-			if (index.isClosed()) {
-				try {
-					index.open();
-				} catch (IndexException e) {
-					LOG.error("Error while opening index", e);
-				}
+		// Open the index outside of the lock, so that the indexes of several
+		// graphs (e.g., as named graphs are opened at startup) open in parallel:
+		if (index.isClosed()) {
+			try {
+				index.open();
+			} catch (IndexException e) {
+				LOG.error("Error while opening index", e);
 			}
 		}
 	}
@@ -216,8 +236,13 @@ public class IndexManager {
 	}
 
 	/**
-	 * Rebuild all indexes for the given graph. This iterates through all the triples in
-	 * the graph.
+	 * Rebuild all indexes for the given graph. The indexes are cleared, and then
+	 * loaded in parallel from a single pass through the graph: each distinct
+	 * triple matcher of the indexes is found once, and its triples are handed to
+	 * every index that uses it. Each index is loaded on its own thread through
+	 * {@link Index#bulkLoad(Iterator)}. The sub indexes of a composite index are
+	 * loaded by the composite. If any index fails to load, this throws once all
+	 * of the loaders have finished.
 	 */
 	public void rebuild(Graph graph) {
 		List<Index<?>> indexes = getIndexes(graph);
@@ -239,18 +264,177 @@ public class IndexManager {
 				LOG.error("Error clearing index", e);
 				return;
 			}
-			for (Triple triple : index.getRecordFactory().getTripleMatchers()) {
-				ExtendedIterator<Triple> it = graph.find(triple);
-				GraphEventManager eventManager = graph.getEventManager();
-				try {
-					while (it.hasNext()) {
-						eventManager.notifyAddTriple(graph, it.next());
+		}
+
+		Set<Index<?>> subIndexes = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Index<?> index : indexes) {
+			if (index instanceof CompositeIndex<?> composite) {
+				subIndexes.addAll(composite.getSubIndexes());
+			}
+		}
+		List<IndexLoader<?>> loaders = new ArrayList<>();
+		Map<Triple, List<IndexLoader<?>>> matcherToLoaders = new LinkedHashMap<>();
+		for (Index<?> index : indexes) {
+			if (!subIndexes.contains(index)) {
+				IndexLoader<?> loader = new IndexLoader<>(index);
+				loaders.add(loader);
+				for (Triple matcher : index.getRecordFactory().getTripleMatchers()) {
+					matcherToLoaders.computeIfAbsent(matcher, k -> new ArrayList<>()).add(loader);
+				}
+			}
+		}
+
+		AtomicInteger threadCount = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(loaders.size(), runnable -> {
+			Thread thread = new Thread(runnable, "index-rebuild-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		RuntimeException failure = null;
+		try {
+			for (IndexLoader<?> loader : loaders) {
+				loader.start(executor);
+			}
+			try {
+				for (Map.Entry<Triple, List<IndexLoader<?>>> entry : matcherToLoaders.entrySet()) {
+					scan(graph, entry.getKey(), entry.getValue());
+				}
+			} finally {
+				for (IndexLoader<?> loader : loaders) {
+					RuntimeException ex = loader.finish();
+					if (ex != null && failure == null) {
+						failure = ex;
+					} else if (ex != null) {
+						failure.addSuppressed(ex);
+					}
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		} finally {
+			executor.shutdown();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/** Hands the triples that match the given matcher to the given loaders, in batches. */
+	private static void scan(Graph graph, Triple matcher, List<IndexLoader<?>> loaders)
+		throws InterruptedException {
+		ExtendedIterator<Triple> it = graph.find(matcher);
+		try {
+			List<Triple> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+			while (it.hasNext()) {
+				batch.add(it.next());
+				if (batch.size() >= REBUILD_BATCH_SIZE) {
+					for (IndexLoader<?> loader : loaders) {
+						loader.send(batch);
 					}
-				} catch (Throwable t) {
-					throw new RuntimeException(t);
-				} finally {
-					it.close();
+					batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+				}
+			}
+			if (!batch.isEmpty()) {
+				for (IndexLoader<?> loader : loaders) {
+					loader.send(batch);
+				}
+			}
+		} finally {
+			it.close();
+		}
+	}
+
+	/**
+	 * Loads one index during a rebuild. Batches of triples are queued for the
+	 * loader's thread, which turns them into records and passes them to the
+	 * index's bulk load.
+	 */
+	private static class IndexLoader<T> implements Callable<Void> {
+		private static final List<Triple> END = new ArrayList<>();
+
+		private final Index<T> index;
+		private final BlockingQueue<List<Triple>> queue;
+		private Future<Void> future;
+
+		public IndexLoader(Index<T> index) {
+			this.index = index;
+			queue = new ArrayBlockingQueue<>(REBUILD_QUEUE_CAPACITY);
+			future = null;
+		}
+
+		public void start(ExecutorService executor) {
+			future = executor.submit(this);
+		}
+
+		@Override
+		public Void call() throws IndexException {
+			index.bulkLoad(new RecordIterator());
+			return null;
+		}
+
+		/** Queues a batch of triples, unless the loader has already stopped. */
+		public void send(List<Triple> batch) throws InterruptedException {
+			while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+				if (future.isDone()) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Signals the end of the triples, and waits for the index to be loaded.
+		 * Returns the reason the index failed to load, or null if it succeeded.
+		 */
+		public RuntimeException finish() throws InterruptedException {
+			send(END);
+			try {
+				future.get();
+				return null;
+			} catch (ExecutionException ex) {
+				String msg = "Error while rebuilding index %1$s".formatted(index);
+				LOG.error(msg, ex.getCause());
+				return new RuntimeException(msg, ex.getCause());
+			}
+		}
+
+		private class RecordIterator implements Iterator<Record<T>> {
+			private Iterator<Triple> batch = Collections.emptyIterator();
+			private boolean ended = false;
+			private Record<T> next = null;
+
+			@Override
+			public boolean hasNext() {
+				while (null == next && !ended) {
+					if (batch.hasNext()) {
+						// next will be null if record factory cannot create a record
+						next = index.getRecordFactory().createRecord(batch.next());
+					} else {
+						List<Triple> triples = take();
+						ended = (triples == END);
+						batch = triples.iterator();
+					}
+				}
+				return (null != next);
+			}
+
+			private List<Triple> take() {
+				try {
+					return queue.take();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(ex);
+				}
+			}
+
+			@Override
+			public Record<T> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
 				}
+				Record<T> record = next;
+				next = null;
+				return record;
 			}
 		}
 	}
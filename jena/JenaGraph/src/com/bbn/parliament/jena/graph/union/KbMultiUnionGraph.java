@@ -0,0 +1,326 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.graph.union;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jni.StmtIterator;
+import com.bbn.parliament.jni.StmtIterator.Statement;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+/**
+ * A read-only union of any number of graphs, in which a triple that occurs
+ * in several members occurs once. Nested unions are flattened into their
+ * members. A tree of binary unions records every triple of the left side of
+ * each union in a hash set, but this graph records nothing per triple: it
+ * streams the members in turn, and rejects a triple if an earlier member
+ * contains it. Members that are graphs in the same quad store are instead
+ * read together with one scan of the quad store, and their duplicates are
+ * rejected by resource id (see LongTripleSet).
+ */
+public class KbMultiUnionGraph extends GraphBase implements KbUnionableGraph {
+	/** The most of a member's triples that getNodeCountInPosition examines. */
+	static final int SAMPLE_SIZE = 1000;
+	/** The fewest of a member's triples that getNodeCountInPosition examines. */
+	static final int MIN_SAMPLE_SIZE = 32;
+	/** The number of contains probes that getNodeCountInPosition keeps within, if it can. */
+	static final int MAX_PROBES = 10 * SAMPLE_SIZE;
+
+	/** Members that are read together, i.e., one graph or several in the same quad store. */
+	private static class MemberGroup {
+		private final KbGraph quadStore;
+		private final List<KbUnionableGraph> graphs = new ArrayList<>();
+		private final List<Long> graphIds = new ArrayList<>();
+
+		public MemberGroup(KbGraph quadStore) {
+			this.quadStore = quadStore;
+		}
+
+		public ExtendedIterator<Triple> find(TripleMatch m) {
+			return (graphs.size() == 1)
+				? graphs.get(0).find(m)
+				: new QuadStoreIterator(quadStore, graphIds, m);
+		}
+	}
+
+	private final List<KbUnionableGraph> members;
+	private final List<MemberGroup> groups;
+
+	public KbMultiUnionGraph(List<? extends KbUnionableGraph> graphs) {
+		List<KbUnionableGraph> flattened = new ArrayList<>();
+		graphs.forEach(graph -> flatten(graph, flattened));
+		members = Collections.unmodifiableList(flattened);
+		groups = groupMembers(members);
+	}
+
+	private static void flatten(KbUnionableGraph graph, List<KbUnionableGraph> result) {
+		if (graph instanceof KbMultiUnionGraph multiUnion) {
+			multiUnion.members.forEach(member -> flatten(member, result));
+		} else if (graph instanceof KbUnionGraph union) {
+			flatten((KbUnionableGraph) union.getL(), result);
+			flatten((KbUnionableGraph) union.getR(), result);
+		} else if (result.stream().noneMatch(member -> member == graph)) {
+			result.add(graph);
+		}
+	}
+
+	private static List<MemberGroup> groupMembers(List<KbUnionableGraph> members) {
+		List<MemberGroup> result = new ArrayList<>();
+		Map<KbGraph, MemberGroup> quadStoreGroups = new IdentityHashMap<>();
+		for (KbUnionableGraph member : members) {
+			MemberGroup group;
+			if (member instanceof KbGraph kbGraph && kbGraph.isInQuadStore()) {
+				group = quadStoreGroups.computeIfAbsent(kbGraph.getQuadStore(), MemberGroup::new);
+				group.graphIds.add(kbGraph.getGraphId());
+			} else {
+				group = new MemberGroup(null);
+			}
+			if (group.graphs.isEmpty()) {
+				result.add(group);
+			}
+			group.graphs.add(member);
+		}
+		return result;
+	}
+
+	/** Returns the members of this union, with nested unions flattened. */
+	public List<KbUnionableGraph> getMembers() {
+		return members;
+	}
+
+	@Override
+	public ExtendedIterator<Triple> graphBaseFind(TripleMatch m) {
+		return new MultiUnionIterator(m);
+	}
+
+	/**
+	 * Estimates the number of distinct triples in the union with the given
+	 * node in the given position. The members' counts are not simply summed,
+	 * because that counts a triple once for every member that contains it.
+	 * Instead, a sample of each member's triples is checked against the
+	 * earlier members, and the member's count is scaled by the fraction that
+	 * are new. A member with fewer matching triples than the sample size is
+	 * counted exactly. Since a triple of the i-th member costs up to i contains
+	 * probes, the sample shrinks as members are added (see sampleSize).
+	 */
+	@Override
+	public long getNodeCountInPosition(Node node, int position) {
+		TripleMatch pattern = switch (position) {
+			case 1 -> Triple.createMatch(node, null, null);
+			case 2 -> Triple.createMatch(null, node, null);
+			case 3 -> Triple.createMatch(null, null, node);
+			default -> null;
+		};
+		if (pattern == null) {
+			return Long.MAX_VALUE;
+		}
+
+		int sampleSize = sampleSize(members.size());
+		long result = 0;
+		for (int i = 0; i < members.size(); ++i) {
+			KbUnionableGraph member = members.get(i);
+			long count = member.getNodeCountInPosition(node, position);
+			if (count == 0) {
+				continue;
+			}
+			int numSampled = 0;
+			int numNew = 0;
+			ExtendedIterator<Triple> it = member.find(pattern);
+			try {
+				for (; numSampled < sampleSize && it.hasNext(); ++numSampled) {
+					if (!isInMembers(it.next(), i)) {
+						++numNew;
+					}
+				}
+			} finally {
+				it.close();
+			}
+			result += (numSampled < sampleSize)
+				? numNew
+				: Math.round((double) count * numNew / numSampled);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of each member's triples to sample so that the contains
+	 * probes for all of them come to at most MAX_PROBES, within the bounds
+	 * MIN_SAMPLE_SIZE and SAMPLE_SIZE.
+	 */
+	static int sampleSize(int numMembers) {
+		long numMemberPairs = (long) numMembers * (numMembers - 1) / 2;
+		return (numMemberPairs == 0)
+			? SAMPLE_SIZE
+			: (int) Math.max(MIN_SAMPLE_SIZE, Math.min(SAMPLE_SIZE, MAX_PROBES / numMemberPairs));
+	}
+
+	/** Returns true if any of the first numMembers members contains the triple. */
+	private boolean isInMembers(Triple t, int numMembers) {
+		for (int i = 0; i < numMembers; ++i) {
+			if (members.get(i).contains(t)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Returns true if a member of any group before the given one contains the triple. */
+	private boolean isInEarlierGroup(Triple t, int groupIndex) {
+		for (int i = 0; i < groupIndex; ++i) {
+			for (KbUnionableGraph graph : groups.get(i).graphs) {
+				if (graph.contains(t)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Reads the groups in turn, opening each one's iterator only when it is reached. */
+	private class MultiUnionIterator extends NiceIterator<Triple> {
+		private final TripleMatch match;
+		private int groupIndex;
+		private ExtendedIterator<Triple> current;
+		private Triple next;
+
+		public MultiUnionIterator(TripleMatch match) {
+			this.match = match;
+			groupIndex = 0;
+			current = null;
+			next = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null) {
+				if (current == null) {
+					if (groupIndex >= groups.size()) {
+						return false;
+					}
+					current = groups.get(groupIndex).find(match);
+				}
+				if (current.hasNext()) {
+					Triple t = current.next();
+					if (!isInEarlierGroup(t, groupIndex)) {
+						next = t;
+					}
+				} else {
+					current.close();
+					current = null;
+					++groupIndex;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Triple next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("Iteration has no more elements");
+			}
+			Triple result = next;
+			next = null;
+			return result;
+		}
+
+		@Override
+		public void close() {
+			super.close();
+			if (current != null) {
+				current.close();
+				current = null;
+			}
+			groupIndex = groups.size();
+			next = null;
+		}
+	}
+
+	/**
+	 * Reads the triples of several graphs in a quad store with one scan of the
+	 * quad store, and returns each distinct triple once. Unlike the rest of the
+	 * union, this records every triple it returns, so its memory grows with the
+	 * number of matching triples, though by only a few dozen bytes apiece.
+	 */
+	private static class QuadStoreIterator extends NiceIterator<Triple> {
+		private final KbGraph quadStore;
+		private final long[] graphIds;
+		private final LongTripleSet seen;
+		private final StmtIterator si;
+		private Triple next;
+
+		public QuadStoreIterator(KbGraph quadStore, List<Long> graphIds, TripleMatch m) {
+			this.quadStore = quadStore;
+			this.graphIds = graphIds.stream().mapToLong(Long::longValue).toArray();
+			seen = new LongTripleSet();
+			long[] ids = quadStore.getKbIds(new Node[] { concreteOrNull(m.getMatchSubject()),
+				concreteOrNull(m.getMatchPredicate()), concreteOrNull(m.getMatchObject()) }, false);
+			si = (ids[0] == -2 || ids[1] == -2 || ids[2] == -2)
+				? null
+				: quadStore.findIds(ids[0], ids[1], ids[2]);
+			next = null;
+		}
+
+		private static Node concreteOrNull(Node n) {
+			return (n != null && n.isConcrete()) ? n : null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && si != null && si.hasNext()) {
+				Statement stmt = si.next();
+				if (isInGraphs(stmt.getGraph())
+					&& seen.add(stmt.getSubject(), stmt.getPredicate(), stmt.getObject())) {
+					next = Triple.create(
+						quadStore.getResourceNodeForId(stmt.getSubject()),
+						quadStore.getResourceNodeForId(stmt.getPredicate()),
+						stmt.isLiteral()
+							? quadStore.getLiteralNodeForId(stmt.getObject())
+							: quadStore.getResourceNodeForId(stmt.getObject()));
+				}
+			}
+			return next != null;
+		}
+
+		private boolean isInGraphs(long graphId) {
+			for (long id : graphIds) {
+				if (id == graphId) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Triple next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("Iteration has no more elements");
+			}
+			Triple result = next;
+			next = null;
+			return result;
+		}
+
+		@Override
+		public void close() {
+			super.close();
+			if (si != null) {
+				si.close();
+			}
+		}
+	}
+}
@@ -6,7 +6,7 @@
 
 package com.bbn.parliament.jena.graph.union;
 
-import java.util.Set;
+import java.util.List;
 
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
@@ -14,7 +14,6 @@ import com.hp.hpl.jena.graph.TripleMatch;
 import com.hp.hpl.jena.graph.compose.Union;
 import com.hp.hpl.jena.graph.query.QueryHandler;
 import com.hp.hpl.jena.graph.query.SimpleQueryHandler;
-import com.hp.hpl.jena.util.CollectionFactory;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 
 /** @author dkolas */
@@ -22,6 +21,7 @@ public class KbUnionGraph extends Union implements KbUnionableGraph
 {
 	private KbUnionableGraph left;
 	private KbUnionableGraph right;
+	private final KbMultiUnionGraph merged;
 	private boolean          filtering = true;
 
 	private Node leftGraphName;
@@ -33,6 +33,7 @@ public class KbUnionGraph extends Union implements KbUnionableGraph
 		super(L, R);
 		left = L;
 		right = R;
+		merged = new KbMultiUnionGraph(List.of(L, R));
 		this.leftGraphName = leftGraphName;
 		this.rightGraphName = rightGraphName;
 	}
@@ -67,20 +68,28 @@ public class KbUnionGraph extends Union implements KbUnionableGraph
 		return queryHandler;
 	}
 
+	/**
+	 * Estimates the number of distinct triples with the node in the given
+	 * position, as KbMultiUnionGraph does for the members of this union and of
+	 * any unions nested within it.
+	 */
 	@Override
 	public long getNodeCountInPosition(Node node, int position)
 	{
-		return left.getNodeCountInPosition(node, position)
-			+ right.getNodeCountInPosition(node, position);
+		return merged.getNodeCountInPosition(node, position);
 	}
 
+	/**
+	 * When filtering, nested unions are read as one flat union of their
+	 * members (see KbMultiUnionGraph), rather than with a hash set of triples
+	 * at each level.
+	 */
 	@Override
 	public ExtendedIterator<Triple> graphBaseFind(TripleMatch t)
 	{
 		if (filtering)
 		{
-			Set<Triple> seen = CollectionFactory.createHashedSet();
-			return recording(L.find(t), seen).andThen(rejecting(R.find(t), seen));
+			return merged.graphBaseFind(t);
 		}
 		return L.find(t).andThen(R.find(t));
 	}
@@ -0,0 +1,97 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.graph.union;
+
+import java.util.Arrays;
+
+/**
+ * A set of triples of resource ids, for rejecting duplicates among the
+ * statements of several graphs that share a KB. The triples are stored by
+ * open addressing in a single array of longs, so that each costs a few dozen
+ * bytes, rather than a Triple and a hash set entry apiece. Resource ids are
+ * never negative, which frees -1 to mark an empty slot.
+ */
+final class LongTripleSet {
+	private static final long EMPTY = -1;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private long[] slots;
+	private int size;
+
+	public LongTripleSet() {
+		slots = newSlots(INITIAL_CAPACITY);
+		size = 0;
+	}
+
+	/** Adds a triple, and returns true if it was not already present. */
+	public boolean add(long subject, long predicate, long object) {
+		if (2 * (size + 1) > capacity()) {
+			grow();
+		}
+		int i = find(slots, subject, predicate, object);
+		if (slots[i] != EMPTY) {
+			return false;
+		}
+		slots[i] = subject;
+		slots[i + 1] = predicate;
+		slots[i + 2] = object;
+		++size;
+		return true;
+	}
+
+	public boolean contains(long subject, long predicate, long object) {
+		return slots[find(slots, subject, predicate, object)] != EMPTY;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private int capacity() {
+		return slots.length / 3;
+	}
+
+	/** Returns the index of the triple's slot, or of the empty slot where it belongs. */
+	private static int find(long[] slots, long subject, long predicate, long object) {
+		int mask = slots.length / 3 - 1;
+		int slot = hash(subject, predicate, object) & mask;
+		for (;;) {
+			int i = 3 * slot;
+			if (slots[i] == EMPTY || (slots[i] == subject && slots[i + 1] == predicate
+				&& slots[i + 2] == object)) {
+				return i;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private void grow() {
+		long[] oldSlots = slots;
+		slots = newSlots(2 * capacity());
+		for (int i = 0; i < oldSlots.length; i += 3) {
+			if (oldSlots[i] != EMPTY) {
+				int j = find(slots, oldSlots[i], oldSlots[i + 1], oldSlots[i + 2]);
+				slots[j] = oldSlots[i];
+				slots[j + 1] = oldSlots[i + 1];
+				slots[j + 2] = oldSlots[i + 2];
+			}
+		}
+	}
+
+	private static long[] newSlots(int capacity) {
+		long[] result = new long[3 * capacity];
+		Arrays.fill(result, EMPTY);
+		return result;
+	}
+
+	private static int hash(long subject, long predicate, long object) {
+		long h = subject * 0x9E3779B97F4A7C15L;
+		h = (h ^ predicate) * 0x9E3779B97F4A7C15L;
+		h = (h ^ object) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -7,7 +7,6 @@
 package com.bbn.parliament.jena.modify;
 
 import com.bbn.parliament.jena.graph.KbGraph;
-import com.bbn.parliament.jena.graph.KbGraphFactory;
 import com.bbn.parliament.jena.graph.KbGraphStore;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.sparql.AlreadyExists;
@@ -18,8 +17,11 @@ import com.hp.hpl.jena.sparql.util.Context;
 
 /** @author sallen */
 public class KbUpdateEngineWorker extends UpdateEngineWorker {
+	private final KbGraphStore kbGraphStore;
+
 	public KbUpdateEngineWorker(KbGraphStore graphStore, Binding initialBinding, Context context) {
 		super(graphStore, initialBinding, context);
+		kbGraphStore = graphStore;
 	}
 
 	@Override
@@ -36,7 +38,7 @@ public class KbUpdateEngineWorker extends UpdateEngineWorker {
 		}
 
 		@SuppressWarnings("resource")
-		KbGraph newGraph = KbGraphFactory.createNamedGraph();
+		KbGraph newGraph = kbGraphStore.createNamedGraph(graphName);
 		graphStore.addGraph(graphName, newGraph);
 	}
 }
@@ -6,17 +6,24 @@
 
 package com.bbn.parliament.jena.query;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.bbn.parliament.jena.Constants;
 import com.bbn.parliament.jena.Kb;
 import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jena.graph.KbGraphStore;
 import com.bbn.parliament.jena.query.index.pfunction.algebra.OpIndexPropFunc;
 import com.hp.hpl.jena.sparql.algebra.Op;
 import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
 import com.hp.hpl.jena.sparql.algebra.op.OpExt;
 import com.hp.hpl.jena.sparql.algebra.op.OpFilter;
+import com.hp.hpl.jena.sparql.algebra.op.OpGraph;
 import com.hp.hpl.jena.sparql.algebra.op.OpJoin;
 import com.hp.hpl.jena.sparql.algebra.op.OpLeftJoin;
 import com.hp.hpl.jena.sparql.algebra.op.OpSequence;
 import com.hp.hpl.jena.sparql.core.BasicPattern;
+import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext;
 import com.hp.hpl.jena.sparql.engine.QueryIterator;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterFilterExpr;
@@ -24,6 +31,7 @@ import com.hp.hpl.jena.sparql.engine.main.JoinClassifier;
 import com.hp.hpl.jena.sparql.engine.main.LeftJoinClassifier;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutor;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory;
+import com.hp.hpl.jena.sparql.engine.main.VarFinder;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterJoin;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterLeftJoin;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterOptionalIndex;
@@ -32,8 +40,9 @@ import com.hp.hpl.jena.sparql.expr.ExprList;
 
 /**
  * An algebra executor for Parliament. The <code>KbOpExecutor</code> processes
- * BGPs, Index Property Functions, Filters, and Joins. Other algebra operations
- * are delegated to the base <code>OpExecutor</code>.
+ * BGPs, Index Property Functions, Filters, Joins, and GRAPH patterns over the
+ * quad store. Other algebra operations are delegated to the base
+ * <code>OpExecutor</code>.
  *
  * @see SolverUtil
  * @author rbattle
@@ -78,6 +87,21 @@ public class KbOpExecutor extends OpExecutor {
 
 	}
 
+	/**
+	 * {@inheritDoc} A GRAPH pattern with a variable graph over a BGP (or a
+	 * filtered BGP) is matched against all of the graphs in the quad store with
+	 * one scan per triple pattern (see {@link QueryIterQuadStoreGraph}).
+	 */
+	@Override
+	protected QueryIterator execute(OpGraph opGraph, QueryIterator input) {
+		if (execCxt.getDataset() instanceof KbGraphStore store
+			&& execCxt.getContext().isTrueOrUndef(Constants.ID_SPACE_BGP_EXECUTION)
+			&& QueryIterQuadStoreGraph.isApplicable(opGraph)) {
+			return new QueryIterQuadStoreGraph(input, opGraph, store, execCxt);
+		}
+		return super.execute(opGraph, input);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	protected QueryIterator execute(OpExt opExt, QueryIterator input) {
@@ -139,7 +163,10 @@ public class KbOpExecutor extends OpExecutor {
 
 		QueryIterator left = executeOp(opJoin.getLeft(), input);
 		QueryIterator right = executeOp(opJoin.getRight(), root());
-		QueryIterator qIter = new QueryIterJoin(left, right, execCxt);
+		Set<Var> joinVars = joinVars(opJoin.getLeft(), opJoin.getRight());
+		QueryIterator qIter = joinVars.isEmpty()
+			? new QueryIterJoin(left, right, execCxt)
+			: QueryIterHashJoin.join(left, right, joinVars, execCxt);
 		return qIter;
 		// Worth doing anything about join(join(..))?
 	}
@@ -171,17 +198,27 @@ public class KbOpExecutor extends OpExecutor {
 		}
 
 		// Not index-able.
-		// Do it by sub-evaluation of left and right then left join.
-		// Can be expensive if RHS returns a lot.
+		// Do it by sub-evaluation of left and right then a hash left join.
 		// To consider: partial substitution for improved performance (but does it
 		// occur for real?)
 
 		QueryIterator left = executeOp(opLeftJoin.getLeft(), input);
 		QueryIterator right = executeOp(opLeftJoin.getRight(), root());
-		QueryIterator qIter = new QueryIterLeftJoin(left, right, exprs, execCxt);
+		Set<Var> joinVars = joinVars(opLeftJoin.getLeft(), opLeftJoin.getRight());
+		QueryIterator qIter = joinVars.isEmpty()
+			? new QueryIterLeftJoin(left, right, exprs, execCxt)
+			: QueryIterHashJoin.leftJoin(left, right, joinVars, exprs, execCxt);
 		return qIter;
 	}
 
+	// The variables that both sides always bind, on which to hash the join.
+	// With none, a hash join degenerates to the nested loop join.
+	private static Set<Var> joinVars(Op opLeft, Op opRight) {
+		Set<Var> result = new LinkedHashSet<>(VarFinder.fixed(opLeft));
+		result.retainAll(VarFinder.fixed(opRight));
+		return result;
+	}
+
 	// Pass iterator from left directly into the right.
 	protected QueryIterator stream(Op opLeft, Op opRight, QueryIterator input) {
 		QueryIterator left = executeOp(opLeft, input);
@@ -0,0 +1,528 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.query;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.openjena.atlas.data.SerializationFactory;
+import org.openjena.atlas.lib.Sink;
+import org.openjena.riot.SerializationFactoryFinder;
+
+import com.bbn.parliament.jena.Constants;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.QueryExecException;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter2;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.util.Context;
+
+/**
+ * A hash join (or left join) of two sub-iterators, for the joins that
+ * {@link KbOpExecutor} cannot evaluate by substituting the left side into the
+ * right. The right side is read into a hash table keyed on the values of the
+ * join variables, and then the left side is streamed past it, so the cost is
+ * linear in the sizes of the two sides rather than their product.
+ * <p>
+ * If the right side holds more bindings than the spill threshold (see
+ * {@link Constants#HASH_JOIN_SPILL_THRESHOLD}), both sides are split by the
+ * hash of their keys into temporary files, and the pairs of partitions are
+ * joined one at a time (a Grace hash join).
+ * <p>
+ * A binding that lacks a value for some join variable is compatible with
+ * bindings having any value for it. Such bindings are rare, since the join
+ * variables are those that both sides always bind, so they are kept in memory
+ * and compared with every binding of the other side.
+ */
+public class QueryIterHashJoin extends QueryIter2 {
+	/** The number of right-side bindings above which the join spills to disk. */
+	public static final long DEFAULT_SPILL_THRESHOLD = 100_000;
+
+	private static final int PARTITION_BITS = 5;
+	private static final Cleaner SPILL_FILE_CLEANER = Cleaner.create();
+	private static final SerializationFactory<Binding> SERIALIZATION
+		= SerializationFactoryFinder.bindingSerializationFactory();
+
+	private final List<Var> joinVars;
+	private final ExprList exprs;
+	private final boolean isLeftJoin;
+	private final long spillThreshold;
+	private final Deque<Binding> pending = new ArrayDeque<>();
+	private final List<SpillFile> spillFiles = new ArrayList<>();
+	private Iterator<Supplier<Stage>> stages = null;
+	private Stage currentStage = null;
+
+	/** Creates an inner join of left and right on the given variables. */
+	public static QueryIterHashJoin join(QueryIterator left, QueryIterator right,
+		Collection<Var> joinVars, ExecutionContext execCxt) {
+		return new QueryIterHashJoin(left, right, joinVars, null, false, execCxt);
+	}
+
+	/**
+	 * Creates a left join of left and right on the given variables, keeping
+	 * only the joined bindings that satisfy exprs (which may be null).
+	 */
+	public static QueryIterHashJoin leftJoin(QueryIterator left, QueryIterator right,
+		Collection<Var> joinVars, ExprList exprs, ExecutionContext execCxt) {
+		return new QueryIterHashJoin(left, right, joinVars, exprs, true, execCxt);
+	}
+
+	private QueryIterHashJoin(QueryIterator left, QueryIterator right,
+		Collection<Var> joinVars, ExprList exprs, boolean isLeftJoin,
+		ExecutionContext execCxt) {
+		super(left, right, execCxt);
+		this.joinVars = new ArrayList<>(joinVars);
+		this.exprs = exprs;
+		this.isLeftJoin = isLeftJoin;
+		spillThreshold = getSpillThreshold(execCxt.getContext());
+	}
+
+	private static long getSpillThreshold(Context context) {
+		Object value = context.get(Constants.HASH_JOIN_SPILL_THRESHOLD);
+		if (value instanceof Number number) {
+			return number.longValue();
+		} else if (value != null) {
+			return Long.parseLong(value.toString());
+		}
+		return DEFAULT_SPILL_THRESHOLD;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected boolean hasNextBinding() {
+		try {
+			if (stages == null) {
+				stages = buildRightSide();
+			}
+			while (pending.isEmpty()) {
+				if (currentStage != null && currentStage.step()) {
+					continue;
+				}
+				if (!stages.hasNext()) {
+					currentStage = null;
+					deleteSpillFiles();
+					return false;
+				}
+				currentStage = stages.next().get();
+			}
+			return true;
+		} catch (RuntimeException | Error ex) {
+			// A cancelled or failed join may never be closed, so discard its files now:
+			deleteSpillFiles();
+			throw ex;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected Binding moveToNextBinding() {
+		return pending.removeFirst();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void requestSubCancel() {
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void closeSubIterator() {
+		pending.clear();
+		deleteSpillFiles();
+	}
+
+	private void deleteSpillFiles() {
+		for (SpillFile file : spillFiles) {
+			file.delete();
+		}
+		spillFiles.clear();
+	}
+
+	/**
+	 * Reads the right side into memory, or if it proves too large, partitions
+	 * both sides to disk. Returns the stages that produce the join's results,
+	 * which are created lazily so that only one partition is in memory at a
+	 * time.
+	 */
+	private Iterator<Supplier<Stage>> buildRightSide() {
+		List<Binding> rightWildcards = new ArrayList<>();
+		HashTable table = new HashTable(rightWildcards);
+		QueryIterator right = getRight();
+		while (right.hasNext() && table.size() <= spillThreshold) {
+			table.add(right.next());
+		}
+		if (!right.hasNext()) {
+			Stage stage = new ProbeStage(table, getLeft(), List.of(), null);
+			return List.<Supplier<Stage>>of(() -> stage).iterator();
+		}
+
+		SpillFile[] rightPartitions = newPartitions();
+		for (Binding b : table.keyed) {
+			rightPartitions[partitionOf(keyOf(b))].add(b);
+		}
+		while (right.hasNext()) {
+			Binding b = right.next();
+			List<Node> key = keyOf(b);
+			if (key == null) {
+				rightWildcards.add(b);
+			} else {
+				rightPartitions[partitionOf(key)].add(b);
+			}
+		}
+
+		SpillFile[] leftPartitions = newPartitions();
+		List<Binding> leftWildcards = new ArrayList<>();
+		QueryIterator left = getLeft();
+		while (left.hasNext()) {
+			Binding b = left.next();
+			List<Node> key = keyOf(b);
+			if (key == null) {
+				leftWildcards.add(b);
+			} else {
+				leftPartitions[partitionOf(key)].add(b);
+			}
+		}
+
+		BitSet leftWildcardsMatched = new BitSet(leftWildcards.size());
+		List<Supplier<Stage>> result = new ArrayList<>();
+		for (int i = 0; i < rightPartitions.length; ++i) {
+			SpillFile rightPartition = rightPartitions[i];
+			SpillFile leftPartition = leftPartitions[i];
+			if (leftPartition.isEmpty() && leftWildcards.isEmpty()) {
+				rightPartition.delete();
+				leftPartition.delete();
+			} else {
+				result.add(() -> new PartitionStage(rightPartition, leftPartition,
+					rightWildcards, leftWildcards, leftWildcardsMatched));
+			}
+		}
+		result.add(() -> new WildcardStage(leftWildcards, rightWildcards, leftWildcardsMatched));
+		return result.iterator();
+	}
+
+	private SpillFile[] newPartitions() {
+		SpillFile[] result = new SpillFile[1 << PARTITION_BITS];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = new SpillFile();
+			spillFiles.add(result[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Chooses the partition from the high bits of the mixed hash code, so that
+	 * the keys within a partition still differ in the low bits that HashMap
+	 * uses.
+	 */
+	private static int partitionOf(List<Node> key) {
+		return (key.hashCode() * 0x9e3779b9) >>> (Integer.SIZE - PARTITION_BITS);
+	}
+
+	/** Returns the values of the join variables, or null if any is unbound. */
+	private List<Node> keyOf(Binding b) {
+		List<Node> key = new ArrayList<>(joinVars.size());
+		for (Var v : joinVars) {
+			Node n = b.get(v);
+			if (n == null) {
+				return null;
+			}
+			key.add(n);
+		}
+		return key;
+	}
+
+	/**
+	 * Adds to the pending results the merge of left with each compatible
+	 * binding in candidates that passes the filter. Returns true if any did.
+	 */
+	private boolean addMatches(Binding left, List<Binding> candidates) {
+		boolean matched = false;
+		for (Binding right : candidates) {
+			if (Algebra.compatible(left, right)) {
+				Binding merged = Algebra.merge(left, right);
+				if (exprs == null || exprs.isSatisfied(merged, getExecContext())) {
+					pending.add(merged);
+					matched = true;
+				}
+			}
+		}
+		return matched;
+	}
+
+	private interface Stage {
+		/**
+		 * Adds the results for the next probe binding (possibly none) to the
+		 * pending list. Returns false once the stage is finished.
+		 */
+		boolean step();
+	}
+
+	/** The right-side bindings of one partition (or of the whole join). */
+	private final class HashTable {
+		private final Map<List<Node>, List<Binding>> buckets = new HashMap<>();
+		private final List<Binding> keyed = new ArrayList<>();
+		private final List<Binding> wildcards;
+
+		public HashTable(List<Binding> wildcards) {
+			this.wildcards = wildcards;
+		}
+
+		public void add(Binding b) {
+			List<Node> key = keyOf(b);
+			if (key == null) {
+				wildcards.add(b);
+			} else {
+				buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(b);
+				keyed.add(b);
+			}
+		}
+
+		public long size() {
+			return keyed.size() + wildcards.size();
+		}
+
+		public void probe(Binding left) {
+			List<Node> key = keyOf(left);
+			List<Binding> candidates = (key == null)
+				? keyed
+				: buckets.getOrDefault(key, List.of());
+			boolean matched = addMatches(left, candidates);
+			matched |= addMatches(left, wildcards);
+			if (isLeftJoin && !matched) {
+				pending.add(left);
+			}
+		}
+	}
+
+	/**
+	 * Streams probe bindings past a hash table, and then compares the left
+	 * wildcard bindings with the table's keyed bindings.
+	 */
+	private class ProbeStage implements Stage {
+		private final HashTable table;
+		private final Iterator<Binding> probe;
+		private final List<Binding> leftWildcards;
+		private final BitSet leftWildcardsMatched;
+		private int nextWildcard = 0;
+
+		public ProbeStage(HashTable table, Iterator<Binding> probe,
+			List<Binding> leftWildcards, BitSet leftWildcardsMatched) {
+			this.table = table;
+			this.probe = probe;
+			this.leftWildcards = leftWildcards;
+			this.leftWildcardsMatched = leftWildcardsMatched;
+		}
+
+		@Override
+		public boolean step() {
+			if (probe.hasNext()) {
+				table.probe(probe.next());
+				return true;
+			} else if (nextWildcard < leftWildcards.size()) {
+				int i = nextWildcard++;
+				if (addMatches(leftWildcards.get(i), table.keyed)) {
+					leftWildcardsMatched.set(i);
+				}
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private HashTable load(SpillFile rightPartition, List<Binding> rightWildcards) {
+		HashTable table = new HashTable(rightWildcards);
+		Iterator<Binding> it = rightPartition.read();
+		while (it.hasNext()) {
+			table.add(it.next());
+		}
+		rightPartition.delete();
+		return table;
+	}
+
+	/** Loads one right partition from disk and probes it with its left partition. */
+	private final class PartitionStage extends ProbeStage {
+		private final SpillFile leftPartition;
+
+		public PartitionStage(SpillFile rightPartition, SpillFile leftPartition,
+			List<Binding> rightWildcards, List<Binding> leftWildcards,
+			BitSet leftWildcardsMatched) {
+			super(load(rightPartition, rightWildcards), leftPartition.read(), leftWildcards,
+				leftWildcardsMatched);
+			this.leftPartition = leftPartition;
+		}
+
+		@Override
+		public boolean step() {
+			if (super.step()) {
+				return true;
+			}
+			leftPartition.delete();
+			return false;
+		}
+	}
+
+	/**
+	 * Compares the left wildcard bindings with the right wildcard bindings, and
+	 * for a left join, emits those left wildcard bindings that matched nothing.
+	 */
+	private final class WildcardStage implements Stage {
+		private final List<Binding> leftWildcards;
+		private final List<Binding> rightWildcards;
+		private final BitSet leftWildcardsMatched;
+		private int next = 0;
+
+		public WildcardStage(List<Binding> leftWildcards, List<Binding> rightWildcards,
+			BitSet leftWildcardsMatched) {
+			this.leftWildcards = leftWildcards;
+			this.rightWildcards = rightWildcards;
+			this.leftWildcardsMatched = leftWildcardsMatched;
+		}
+
+		@Override
+		public boolean step() {
+			if (next >= leftWildcards.size()) {
+				return false;
+			}
+			int i = next++;
+			Binding left = leftWildcards.get(i);
+			if (addMatches(left, rightWildcards)) {
+				leftWildcardsMatched.set(i);
+			}
+			if (isLeftJoin && !leftWildcardsMatched.get(i)) {
+				pending.add(left);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The file behind a SpillFile and its open streams. This is also run by
+	 * the cleaner if the SpillFile becomes unreachable without being deleted,
+	 * as when a join is abandoned without being closed, so it must not refer
+	 * to the SpillFile.
+	 */
+	private static final class SpillFileState implements Runnable {
+		private final File file;
+		private OutputStream out = null;
+		private InputStream in = null;
+
+		public SpillFileState(File file) {
+			this.file = file;
+		}
+
+		@Override
+		public void run() {
+			closeQuietly(out);
+			out = null;
+			closeQuietly(in);
+			in = null;
+			file.delete();
+		}
+
+		private static void closeQuietly(AutoCloseable stream) {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (Exception ex) {
+					// Nothing useful to do, since the file is being discarded
+				}
+			}
+		}
+	}
+
+	/**
+	 * A temporary file of serialized bindings, written once and then read. The
+	 * file is deleted by delete, or failing that once the SpillFile is garbage
+	 * collected, rather than when the JVM exits, since a server runs for a long
+	 * time and would otherwise accumulate the files of every abandoned join.
+	 */
+	private static final class SpillFile {
+		private final SpillFileState state;
+		private final Cleaner.Cleanable cleanable;
+		private Sink<Binding> sink;
+		private long size = 0;
+
+		public SpillFile() {
+			File file;
+			try {
+				file = File.createTempFile("parliament-hashjoin-", ".tmp");
+			} catch (IOException ex) {
+				throw new QueryExecException("Unable to create hash join spill file", ex);
+			}
+			state = new SpillFileState(file);
+			cleanable = SPILL_FILE_CLEANER.register(this, state);
+			try {
+				state.out = new BufferedOutputStream(new FileOutputStream(file));
+				sink = SERIALIZATION.createSerializer(state.out);
+			} catch (IOException ex) {
+				cleanable.clean();
+				throw new QueryExecException("Unable to create hash join spill file", ex);
+			}
+		}
+
+		public void add(Binding b) {
+			sink.send(b);
+			++size;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public Iterator<Binding> read() {
+			finishWriting();
+			try {
+				state.in = new BufferedInputStream(new FileInputStream(state.file));
+				return SERIALIZATION.createDeserializer(state.in);
+			} catch (IOException ex) {
+				throw new QueryExecException("Unable to read hash join spill file " + state.file, ex);
+			}
+		}
+
+		/** Closes and deletes the file. This is safe to call more than once. */
+		public void delete() {
+			// The file is being discarded, so the serializer need not be flushed:
+			sink = null;
+			cleanable.clean();
+		}
+
+		private void finishWriting() {
+			if (sink != null) {
+				sink.close();
+				sink = null;
+				try {
+					state.out.close();
+				} catch (IOException ex) {
+					throw new QueryExecException("Unable to write hash join spill file " + state.file, ex);
+				} finally {
+					state.out = null;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jena.graph.KbGraphStore;
+import com.bbn.parliament.jena.query.optimize.QueryIterKbIdPattern;
+import com.bbn.parliament.jena.query.optimize.ReorderQueryIterTriplePattern;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter;
+import com.hp.hpl.jena.sparql.algebra.op.OpGraph;
+import com.hp.hpl.jena.sparql.core.BasicPattern;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterConcat;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterFilterExpr;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterGraph;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+
+/**
+ * Evaluates <code>GRAPH ?g { BGP }</code>, or a filtered BGP, over a
+ * {@link KbGraphStore} whose named graphs keep their statements in the quad
+ * store. Where ARQ's QueryIterGraph evaluates the pattern once per named
+ * graph, this evaluates it over all of the graphs in the quad store at once,
+ * as a {@link QueryIterKbIdPattern} that scans the quad store and binds the
+ * graph variable from the graph of each statement. The other named graphs,
+ * and the graphs in the quad store that have indexes, are evaluated one at a
+ * time as QueryIterGraph would. An input binding that binds the graph
+ * variable is handed to QueryIterGraph unchanged.
+ *
+ * @see KbOpExecutor
+ */
+public class QueryIterQuadStoreGraph extends QueryIterGraph {
+	private final KbGraphStore store;
+	private final Var graphVar;
+	private final BasicPattern pattern;
+	private final ExprList exprs;
+	private final List<Node> otherGraphNames = new ArrayList<>();
+	private final long[] quadStoreGraphIds;
+
+	/**
+	 * Construct a new instance.
+	 *
+	 * @param input an iterator of bindings
+	 * @param opGraph a GRAPH operator with a variable graph and a BGP (see
+	 *        {@link #isApplicable(OpGraph)})
+	 * @param store the dataset
+	 * @param context the context
+	 */
+	public QueryIterQuadStoreGraph(QueryIterator input, OpGraph opGraph, KbGraphStore store,
+		ExecutionContext context) {
+		super(input, opGraph, context);
+		this.store = store;
+		graphVar = Var.alloc(opGraph.getNode());
+		Op subOp = opGraph.getSubOp();
+		if (subOp instanceof OpFilter opFilter) {
+			exprs = opFilter.getExprs();
+			subOp = opFilter.getSubOp();
+		} else {
+			exprs = new ExprList();
+		}
+		pattern = ((OpBGP) subOp).getPattern();
+		quadStoreGraphIds = store.partitionNamedGraphs(false, otherGraphNames);
+	}
+
+	/**
+	 * Returns true if the GRAPH operator has a variable graph, and its body is a
+	 * BGP without reified triples, or a filter over one.
+	 */
+	public static boolean isApplicable(OpGraph opGraph) {
+		Op subOp = opGraph.getSubOp();
+		if (subOp instanceof OpFilter opFilter) {
+			subOp = opFilter.getSubOp();
+		}
+		return Var.isVar(opGraph.getNode())
+			&& subOp instanceof OpBGP opBGP
+			&& opBGP.getPattern().getList().stream().noneMatch(ReifiedTriple.class::isInstance);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected QueryIterator nextStage(Binding binding) {
+		if (binding.contains(graphVar) || quadStoreGraphIds.length == 0) {
+			return super.nextStage(binding);
+		}
+
+		@SuppressWarnings("resource")
+		KbGraph quadStore = store.getQuadStore();
+		BasicPattern bound = SolverUtil.optimizeTripleOrder(
+			ReorderQueryIterTriplePattern.substitute(pattern, binding), quadStore, getExecContext());
+		QueryIterator quadStoreResult = new QueryIterKbIdPattern(binding, bound.getList(),
+			quadStore, graphVar, quadStoreGraphIds, getExecContext());
+		for (Expr expr : exprs) {
+			quadStoreResult = new QueryIterFilterExpr(quadStoreResult, expr, getExecContext());
+		}
+		QueryIterConcat result = new QueryIterConcat(getExecContext());
+		result.add(quadStoreResult);
+		if (!otherGraphNames.isEmpty()) {
+			result.add(new QueryIterGraphInner(binding, otherGraphNames.iterator(), opGraph,
+				getExecContext()) {});
+		}
+		return result;
+	}
+}
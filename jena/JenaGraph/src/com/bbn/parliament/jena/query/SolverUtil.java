@@ -21,6 +21,7 @@ import com.bbn.parliament.jena.query.index.IndexPatternQuerierManager;
 import com.bbn.parliament.jena.query.index.RangeIndexQueryIterator;
 import com.bbn.parliament.jena.query.optimize.DefaultCountTransformation;
 import com.bbn.parliament.jena.query.optimize.IndexTransformation;
+import com.bbn.parliament.jena.query.optimize.QueryPlanCache;
 import com.bbn.parliament.jena.query.optimize.ReorderQueryIterTriplePattern;
 import com.bbn.parliament.jena.query.optimize.UpdatedStaticCountTransformation;
 import com.bbn.parliament.jena.query.optimize.pattern.IndexSubPatternPropertyFunction;
@@ -102,20 +103,27 @@ public class SolverUtil {
 		return chain;
 	}
 
+	/**
+	 * Orders the triples of the pattern by their counts in the graph. Plans and
+	 * counts are cached for the duration of the query (see QueryPlanCache), so
+	 * a pattern that is planned once per input binding is only really
+	 * reordered once per shape.
+	 */
 	public static BasicPattern optimizeTripleOrder(BasicPattern pattern,
 		KbGraph graph, ExecutionContext context) {
 		// run graph level optimizations
+		QueryPlanCache cache = QueryPlanCache.get(context.getContext());
 		ReorderTransformation transformation = null;
 		if (context.getContext().isTrue(Constants.DYNAMIC_OPTIMIZATION)) {
-			transformation = new UpdatedStaticCountTransformation(graph);
+			transformation = new UpdatedStaticCountTransformation(cache.getCounts(graph));
 		} else if (context.getContext()
 			.isTrueOrUndef(Constants.DEFAULT_OPTIMIZATION)) {
-			transformation = new DefaultCountTransformation(graph);
+			transformation = new DefaultCountTransformation(cache.getCounts(graph));
 		}
 		if (null == transformation) {
 			return pattern;
 		}
-		return transformation.reorder(pattern);
+		return cache.reorder(pattern, graph, transformation);
 	}
 
 	public static QueryIterator solve(GraphSubPattern pattern, QueryIterator input,
@@ -1,6 +1,7 @@
 package com.bbn.parliament.jena.query.index;
 
 import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jena.graph.union.KbMultiUnionGraph;
 import com.bbn.parliament.jena.graph.union.KbUnionGraph;
 import com.bbn.parliament.jena.query.SolverUtil;
 import com.bbn.parliament.jena.query.optimize.DefaultCountTransformation;
@@ -47,6 +48,16 @@ public final class GraphSubPattern extends IndexSubPatternBGP {
 				return lest;
 			}
 			return (lest < rest) ? lest : rest;
+		} else if (graph instanceof KbMultiUnionGraph union) {
+			BasicPattern pattern = BasicPattern.wrap(getList());
+			long result = -1;
+			for (Graph member : union.getMembers()) {
+				long est = new GraphSubPattern(member, pattern).estimate();
+				if (est != -1 && (result == -1 || est < result)) {
+					result = est;
+				}
+			}
+			return result;
 		}
 		return -1;
 	}
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jni.KbInstance;
 import com.bbn.parliament.jena.query.ReifiedTriple;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
@@ -16,14 +17,27 @@ import com.hp.hpl.jena.vocabulary.RDF;
 public abstract class AbstractCountTransformation extends AbstractKbGraphReorderTransformation {
 	private static final Logger LOG = LoggerFactory.getLogger(AbstractCountTransformation.class);
 
+	/**
+	 * Exact counts are taken only for patterns whose upper bound is at most
+	 * this, because counting walks that many statements.
+	 */
+	private static final long MAX_EXACT_COUNT_BOUND = 100_000;
+
+	private final GraphCountMemo counts;
+
 	public AbstractCountTransformation(KbGraph graph) {
-		super(graph);
+		this(new GraphCountMemo(graph));
+	}
+
+	/** Creates a transformation that shares the given memo of the graph's counts. */
+	public AbstractCountTransformation(GraphCountMemo counts) {
+		super(counts.getGraph());
+		this.counts = counts;
 	}
 
 	protected long checkVar(long min, Node node, int position) {
 		if (node.isConcrete()) {
-			@SuppressWarnings("resource")
-			long count = getGraph().getNodeCountInPosition(node, position);
+			long count = counts.getNodeCountInPosition(node, position);
 			if (count < min) {
 				return count;
 			}
@@ -60,6 +74,7 @@ public abstract class AbstractCountTransformation extends AbstractKbGraphReorder
 			long min = getTripleMinimum(tp);
 
 			TriplePatternCount tpc = new TriplePatternCount(tp, min);
+			setFanOuts(tpc);
 			triplePatterns.add(tpc);
 			LOG.debug("TripleCount: {}", tpc);
 		}
@@ -76,6 +91,11 @@ public abstract class AbstractCountTransformation extends AbstractKbGraphReorder
 			min = checkVar(min, tp.getObject(), 3);
 			if (tp instanceof ReifiedTriple reifTriple) {
 				min = checkVar(min, reifTriple.getName(),3);
+			} else if (min > 0 && min <= MAX_EXACT_COUNT_BOUND && countConcrete(tp) >= 2) {
+				// The minimum of the single-position counts can be far larger
+				// than the number of matches (e.g., ?x rdf:type :RareClass):
+				long count = counts.getMatchCount(tp.getSubject(), tp.getPredicate(), tp.getObject());
+				min = Math.min(min, count);
 			}
 		}else{
 			min = checkVar(min, tp.getSubject(), 3);
@@ -93,6 +113,33 @@ public abstract class AbstractCountTransformation extends AbstractKbGraphReorder
 		return min;
 	}
 
+	private static int countConcrete(Triple tp) {
+		return (tp.getSubject().isConcrete() ? 1 : 0)
+			+ (tp.getPredicate().isConcrete() ? 1 : 0)
+			+ (tp.getObject().isConcrete() ? 1 : 0);
+	}
+
+	/**
+	 * Records how many triples the pattern matches per binding of its subject
+	 * or object variable, from the statistics for its predicate.
+	 */
+	private void setFanOuts(TriplePatternCount tpc) {
+		Triple tp = tpc.triple;
+		if ((tp instanceof ReifiedTriple) || isPartOfReification(tp)
+			|| !tp.getPredicate().isConcrete()) {
+			return;
+		}
+		KbInstance.PredicateStatsResult stats = counts.getPredicateStats(tp.getPredicate());
+		if (stats != null) {
+			tpc.subjectFanOut = fanOut(stats.getNumStmts(), stats.getNumDistinctSubjects());
+			tpc.objectFanOut = fanOut(stats.getNumStmts(), stats.getNumDistinctObjects());
+		}
+	}
+
+	private static long fanOut(long numStmts, long numDistinct) {
+		return (numDistinct <= 0) ? 0 : Math.max(1, (numStmts + numDistinct - 1) / numDistinct);
+	}
+
 	private static boolean isPartOfReification(Triple tp) {
 		if ((tp instanceof ReifiedTriple) || !tp.getPredicate().isConcrete()) {
 			return false;
@@ -160,7 +207,8 @@ public abstract class AbstractCountTransformation extends AbstractKbGraphReorder
 	private static void setEstimate(TriplePatternCount tpc, List<Node> boundVariables,
 		long currentResultSetEstimate) {
 		if (sharesVariables(tpc, boundVariables)) {
-			tpc.estimate = tpc.count;
+			tpc.estimate = Math.min(tpc.count,
+				joinEstimate(tpc, boundVariables, currentResultSetEstimate));
 		} else {
 			tpc.estimate = tpc.count * currentResultSetEstimate;
 			if ((tpc.count > tpc.estimate || currentResultSetEstimate > tpc.estimate)
@@ -170,6 +218,28 @@ public abstract class AbstractCountTransformation extends AbstractKbGraphReorder
 		}
 	}
 
+	/**
+	 * Estimates the size of the join of the current results with a pattern
+	 * whose subject or object variable they bind, from the pattern's fan-outs.
+	 * Returns Long.MAX_VALUE if there is no applicable fan-out.
+	 */
+	private static long joinEstimate(TriplePatternCount tpc, List<Node> boundVariables,
+		long currentResultSetEstimate) {
+		long fanOut = Long.MAX_VALUE;
+		if (tpc.subjectFanOut > 0 && boundVariables.contains(tpc.triple.getSubject())) {
+			fanOut = tpc.subjectFanOut;
+		}
+		if (tpc.objectFanOut > 0 && boundVariables.contains(tpc.triple.getObject())) {
+			fanOut = Math.min(fanOut, tpc.objectFanOut);
+		}
+		if (fanOut == Long.MAX_VALUE || currentResultSetEstimate <= 0) {
+			return Long.MAX_VALUE;
+		}
+		return (fanOut > Long.MAX_VALUE / currentResultSetEstimate)
+			? Long.MAX_VALUE
+			: fanOut * currentResultSetEstimate;
+	}
+
 	private static boolean sharesVariables(TriplePatternCount tpc,
 		List<Node> boundVariables) {
 		boolean result = false;
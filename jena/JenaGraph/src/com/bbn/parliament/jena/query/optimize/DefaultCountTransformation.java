@@ -14,6 +14,10 @@ public class DefaultCountTransformation extends AbstractCountTransformation {
 		super(graph);
 	}
 
+	public DefaultCountTransformation(GraphCountMemo counts) {
+		super(counts);
+	}
+
 	@Override
 	public ReorderProc reorderIndexes(BasicPattern pattern) {
 		return new ReorderProc() {
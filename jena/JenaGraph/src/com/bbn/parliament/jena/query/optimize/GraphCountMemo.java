@@ -0,0 +1,59 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.query.optimize;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jni.KbInstance;
+import com.hp.hpl.jena.graph.Node;
+
+/**
+ * Remembers the counts and statistics that the count-based transformations
+ * fetch from a {@link KbGraph}, so that planning the same constants again
+ * within a query costs no further calls into the KB. The counts may go stale
+ * if the graph changes, which is harmless for the purpose of ordering
+ * triples, but means that an instance should live no longer than a query.
+ *
+ * @see QueryPlanCache
+ */
+public class GraphCountMemo {
+	private final KbGraph graph;
+	private final Map<List<Object>, Long> positionCounts = new ConcurrentHashMap<>();
+	private final Map<List<Node>, Long> matchCounts = new ConcurrentHashMap<>();
+	private final Map<Node, Optional<KbInstance.PredicateStatsResult>> predicateStats
+		= new ConcurrentHashMap<>();
+
+	public GraphCountMemo(KbGraph graph) {
+		this.graph = graph;
+	}
+
+	public KbGraph getGraph() {
+		return graph;
+	}
+
+	/** @see KbGraph#getNodeCountInPosition(Node, int) */
+	public long getNodeCountInPosition(Node node, int position) {
+		return positionCounts.computeIfAbsent(List.of(node, position),
+			k -> graph.getNodeCountInPosition(node, position));
+	}
+
+	/** @see KbGraph#getMatchCount(Node, Node, Node) */
+	public long getMatchCount(Node subject, Node predicate, Node object) {
+		return matchCounts.computeIfAbsent(List.of(subject, predicate, object),
+			k -> graph.getMatchCount(subject, predicate, object));
+	}
+
+	/** @see KbGraph#getPredicateStats(Node) */
+	public KbInstance.PredicateStatsResult getPredicateStats(Node predicate) {
+		return predicateStats.computeIfAbsent(predicate,
+			k -> Optional.ofNullable(graph.getPredicateStats(predicate))).orElse(null);
+	}
+}
@@ -0,0 +1,379 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2011, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.query.optimize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jni.KbInstance;
+import com.bbn.parliament.jni.StmtIterator;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingBase;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter;
+
+/**
+ * Evaluates a sequence of triple patterns against a {@link KbGraph} entirely
+ * in terms of resource ids. Where a chain of QueryIterTriplePatterns converts
+ * each match to Nodes and the next pattern converts those Nodes back to ids,
+ * this iterator joins rows of ids (one column per variable) through all of
+ * the patterns, as nested loops in the given order. The rows are returned as
+ * bindings that decode a variable's id to a Node only when the variable is
+ * first read, so variables that are never projected or filtered on are never
+ * decoded at all.
+ * <p>
+ * Over a quad store, the patterns can also be matched across a set of its
+ * graphs, with a variable for the graph. Each pattern is then one scan of the
+ * quad store, and the graph of each matching statement binds the variable, so
+ * that the patterns after the first are matched within that graph.
+ *
+ * @see ReorderQueryIterTriplePattern
+ */
+public class QueryIterKbIdPattern extends QueryIter {
+	private static final int BATCH_SIZE = 256;
+
+	private final KbGraph graph;
+	private final Binding parent;
+	private final long[] graphIds;
+	private final Var[] vars;
+	private final Level[] levels;
+	private int depth;
+	private long[] slot = null;
+
+	/**
+	 * Construct a new instance.
+	 *
+	 * @param parent the input binding, whose variables are treated as constants
+	 * @param triples the triple patterns, in the order in which to evaluate them
+	 * @param graph the graph to query
+	 * @param context the context
+	 */
+	public QueryIterKbIdPattern(Binding parent, List<Triple> triples, KbGraph graph,
+		ExecutionContext context) {
+		this(parent, triples, graph, null, null, context);
+	}
+
+	/**
+	 * Construct a new instance that matches the patterns within each of the
+	 * given graphs of a quad store, binding graphVar to the graph.
+	 *
+	 * @param parent the input binding, whose variables are treated as constants
+	 * @param triples the triple patterns, in the order in which to evaluate them
+	 * @param quadStore the quad store to query
+	 * @param graphVar the variable for the graph
+	 * @param graphIds the sorted KB ids of the names of the graphs to query
+	 * @param context the context
+	 */
+	public QueryIterKbIdPattern(Binding parent, List<Triple> triples, KbGraph quadStore,
+		Var graphVar, long[] graphIds, ExecutionContext context) {
+		super(context);
+		this.graph = quadStore;
+		this.parent = parent;
+		this.graphIds = graphIds;
+
+		Map<Var, Integer> varColumns = new LinkedHashMap<>();
+		List<Node> constants = new ArrayList<>();
+		int[][] positions = new int[triples.size()][];
+		int graphCode = (graphVar == null) ? 0 : encode(graphVar, varColumns, constants);
+		for (int i = 0; i < positions.length; ++i) {
+			Triple t = triples.get(i);
+			positions[i] = (graphVar == null)
+				? new int[] {
+					encode(t.getSubject(), varColumns, constants),
+					encode(t.getPredicate(), varColumns, constants),
+					encode(t.getObject(), varColumns, constants) }
+				: new int[] {
+					encode(t.getSubject(), varColumns, constants),
+					encode(t.getPredicate(), varColumns, constants),
+					encode(t.getObject(), varColumns, constants),
+					graphCode };
+		}
+		vars = varColumns.keySet().toArray(new Var[0]);
+
+		long[] constantIds = graph.getKbIds(constants.toArray(new Node[0]), false);
+		boolean isAnyConstantMissing = false;
+		for (long id : constantIds) {
+			isAnyConstantMissing |= (id == -2);
+		}
+		if (graphVar != null && graphCode < 0 && !isAnyConstantMissing) {
+			// The parent binding names the graph, which must be one of the given graphs:
+			isAnyConstantMissing = !isGraphIncluded(constantIds[~graphCode]);
+		}
+
+		levels = new Level[positions.length];
+		for (int i = 0; i < levels.length; ++i) {
+			levels[i] = new Level(positions[i], constantIds);
+		}
+
+		long[] row = new long[vars.length + literalWordCount(vars.length)];
+		for (int i = 0; i < vars.length; ++i) {
+			row[i] = KbInstance.NULL_RSRC_ID;
+		}
+		if (isAnyConstantMissing) {
+			depth = -1;
+		} else if (levels.length == 0) {
+			depth = -1;
+			slot = row;
+		} else {
+			depth = 0;
+			levels[0].open(row);
+		}
+	}
+
+	/**
+	 * Returns the column of a variable (as a non-negative number) or the index
+	 * of a constant (as a negative number, i.e., ~index). Variables that the
+	 * parent binding binds are constants.
+	 */
+	private int encode(Node n, Map<Var, Integer> varColumns, List<Node> constants) {
+		if (Var.isVar(n)) {
+			Var v = Var.alloc(n);
+			Node value = parent.get(v);
+			if (value == null) {
+				return varColumns.computeIfAbsent(v, k -> varColumns.size());
+			}
+			n = value;
+		}
+		constants.add(n);
+		return ~(constants.size() - 1);
+	}
+
+	private boolean isGraphIncluded(long graphId) {
+		return Arrays.binarySearch(graphIds, graphId) >= 0;
+	}
+
+	private static int literalWordCount(int numVars) {
+		return (numVars + Long.SIZE - 1) / Long.SIZE;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected boolean hasNextBinding() {
+		while (slot == null && depth >= 0) {
+			long[] row = levels[depth].next();
+			if (row == null) {
+				levels[depth].close();
+				--depth;
+			} else if (depth == levels.length - 1) {
+				slot = row;
+			} else {
+				levels[++depth].open(row);
+			}
+		}
+		return slot != null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected Binding moveToNextBinding() {
+		if (!hasNextBinding()) {
+			throw new ARQInternalErrorException();
+		}
+		Binding result = new IdRowBinding(parent, graph, vars, slot);
+		slot = null;
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void closeIterator() {
+		for (Level level : levels) {
+			level.close();
+		}
+		depth = -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void requestCancel() {
+		// Cancellation is signaled to the StmtIterators through their
+		// query-canceled flag.
+	}
+
+	/**
+	 * The state of one triple pattern in the nested loop join: the row it is
+	 * extending, and the statements it has fetched that match that row.
+	 */
+	private final class Level {
+		private final int[] positions;
+		private final long[] constantIds;
+		private final long[][] batchIds;
+		private final byte[] flags = new byte[BATCH_SIZE];
+		private StmtIterator stmtIter = null;
+		private long[] inputRow = null;
+		private int batchCount = 0;
+		private int batchPos = 0;
+		private boolean isExhausted = true;
+
+		public Level(int[] positions, long[] constantIds) {
+			this.positions = positions;
+			this.constantIds = constantIds;
+			batchIds = new long[positions.length][BATCH_SIZE];
+		}
+
+		public void open(long[] row) {
+			close();
+			inputRow = row;
+			stmtIter = (positions.length > 3)
+				? graph.findQuadIds(idAt(0), idAt(1), idAt(2), idAt(3))
+				: graph.findIds(idAt(0), idAt(1), idAt(2));
+			batchCount = 0;
+			batchPos = 0;
+			isExhausted = false;
+		}
+
+		private long idAt(int position) {
+			int code = positions[position];
+			return (code >= 0) ? inputRow[code] : constantIds[~code];
+		}
+
+		/** Returns the next extension of the input row, or null when there are no more. */
+		public long[] next() {
+			for (;;) {
+				if (batchPos >= batchCount) {
+					if (isExhausted) {
+						return null;
+					}
+					batchCount = (positions.length > 3)
+						? stmtIter.nextQuadBatch(batchIds[0], batchIds[1], batchIds[2], batchIds[3], flags)
+						: stmtIter.nextBatch(batchIds[0], batchIds[1], batchIds[2], flags);
+					batchPos = 0;
+					// The native side fills the batch unless it reaches the end of
+					// the iteration, so a short batch means there is no need to ask again:
+					isExhausted = (batchCount < BATCH_SIZE);
+					if (isExhausted) {
+						closeStmtIter();
+					}
+					if (batchCount == 0) {
+						return null;
+					}
+				}
+				long[] row = extend(batchPos++);
+				if (row != null) {
+					return row;
+				}
+			}
+		}
+
+		/**
+		 * Binds the variables of this pattern to the ids of the given statement
+		 * of the batch. Returns null if a variable that occurs more than once in
+		 * the pattern would be bound to two different ids, or if the statement
+		 * is in none of the graphs to query.
+		 */
+		private long[] extend(int stmt) {
+			long[] row = inputRow.clone();
+			for (int position = 0; position < positions.length; ++position) {
+				int column = positions[position];
+				if (column < 0) {
+					continue;
+				}
+				long id = batchIds[position][stmt];
+				if (position == 3 && !isGraphIncluded(id)) {
+					return null;
+				} else if (row[column] == KbInstance.NULL_RSRC_ID) {
+					row[column] = id;
+					if (position == 2 && (flags[stmt] & StmtIterator.LITERAL_STMT_FLAG) != 0) {
+						row[vars.length + column / Long.SIZE] |= 1L << (column % Long.SIZE);
+					}
+				} else if (row[column] != id) {
+					return null;
+				}
+			}
+			return row;
+		}
+
+		public void close() {
+			closeStmtIter();
+			isExhausted = true;
+			batchCount = 0;
+			batchPos = 0;
+		}
+
+		private void closeStmtIter() {
+			if (stmtIter != null) {
+				stmtIter.close();
+				stmtIter = null;
+			}
+		}
+	}
+
+	/**
+	 * A binding backed by a row of resource ids. Each variable's Node is
+	 * decoded (and then remembered) when the variable is first read.
+	 */
+	private static final class IdRowBinding extends BindingBase {
+		private final KbGraph graph;
+		private final Var[] vars;
+		private final long[] row;
+		private final Node[] nodes;
+
+		public IdRowBinding(Binding parent, KbGraph graph, Var[] vars, long[] row) {
+			super(parent);
+			this.graph = graph;
+			this.vars = vars;
+			this.row = row;
+			nodes = new Node[vars.length];
+		}
+
+		@Override
+		protected Iterator<Var> vars1() {
+			return List.of(vars).iterator();
+		}
+
+		@Override
+		protected int size1() {
+			return vars.length;
+		}
+
+		@Override
+		protected boolean isEmpty1() {
+			return vars.length == 0;
+		}
+
+		@Override
+		protected boolean contains1(Var var) {
+			return columnOf(var) >= 0;
+		}
+
+		@Override
+		protected Node get1(Var var) {
+			int column = columnOf(var);
+			if (column < 0) {
+				return null;
+			}
+			if (nodes[column] == null) {
+				boolean isLiteral = (row[vars.length + column / Long.SIZE]
+					& (1L << (column % Long.SIZE))) != 0;
+				nodes[column] = isLiteral
+					? graph.getLiteralNodeForId(row[column])
+					: graph.getResourceNodeForId(row[column]);
+			}
+			return nodes[column];
+		}
+
+		// BGPs rarely have more than a handful of variables, so a linear scan
+		// beats hashing here.
+		private int columnOf(Var var) {
+			for (int i = 0; i < vars.length; ++i) {
+				if (vars[i].equals(var)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
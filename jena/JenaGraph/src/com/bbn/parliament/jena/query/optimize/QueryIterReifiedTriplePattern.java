@@ -128,7 +128,10 @@ public class QueryIterReifiedTriplePattern extends QueryIterRepeatApply
 				slot = mapper(t) ;
 			}
 			if ( slot == null )
+			{
 				finished = true ;
+				closeIterator() ;
+			}
 			return slot != null ;
 		}
 
@@ -157,7 +160,7 @@ public class QueryIterReifiedTriplePattern extends QueryIterRepeatApply
 		protected void closeIterator()
 		{
 			if ( reificationIterator != null ){
-				reificationIterator.finalize();
+				reificationIterator.close();
 			}
 			reificationIterator = null ;
 		}
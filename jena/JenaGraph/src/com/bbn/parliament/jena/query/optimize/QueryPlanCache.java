@@ -0,0 +1,161 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.query.optimize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.bbn.parliament.jena.Constants;
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.jena.query.ReifiedTriple;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.ARQ;
+import com.hp.hpl.jena.sparql.core.BasicPattern;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import com.hp.hpl.jena.sparql.util.Context;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * The triple orders chosen for the basic graph patterns of one query, along
+ * with a {@link GraphCountMemo} per graph. An instance lives in the query's
+ * context (see {@link #get(Context)}).
+ * <p>
+ * The same pattern is often planned many times per query, once per binding
+ * of an enclosing OPTIONAL or join, with the binding's values substituted
+ * for some of its variables. The plan is keyed by the pattern's shape, in
+ * which a subject or object that is bound to a constant is represented only
+ * by the fact that it is bound. Predicates, and the classes in rdf:type
+ * triples, are kept, since the plan depends heavily on them. The ordering
+ * chosen for the first pattern of a given shape is then applied to the
+ * others.
+ */
+public class QueryPlanCache {
+	/** The most plans kept per graph, as a guard against unbounded growth. */
+	static final int MAX_PLANS = 10_000;
+
+	private static final Object BOUND = new Object() {
+		@Override
+		public String toString() {
+			return "<bound>";
+		}
+	};
+	private static final Node RDF_TYPE = RDF.type.asNode();
+
+	private final Map<KbGraph, GraphPlans> graphPlans = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the cache for the query with the given context, creating it if
+	 * needed. The global ARQ context outlives any query, so code that executes
+	 * directly in it gets a fresh, unshared cache.
+	 */
+	public static QueryPlanCache get(Context context) {
+		if (context == ARQ.getContext()) {
+			return new QueryPlanCache();
+		}
+		synchronized (context) {
+			Object cache = context.get(Constants.QUERY_PLAN_CACHE);
+			if (cache instanceof QueryPlanCache queryPlanCache) {
+				return queryPlanCache;
+			}
+			QueryPlanCache result = new QueryPlanCache();
+			context.set(Constants.QUERY_PLAN_CACHE, result);
+			return result;
+		}
+	}
+
+	public GraphCountMemo getCounts(KbGraph graph) {
+		return plansFor(graph).counts;
+	}
+
+	/**
+	 * Returns the pattern in the order that transformation chooses for
+	 * patterns of its shape, running the transformation only if this is the
+	 * first pattern of that shape.
+	 */
+	public BasicPattern reorder(BasicPattern pattern, KbGraph graph,
+		ReorderTransformation transformation) {
+		GraphPlans plans = plansFor(graph);
+		List<Object> key = shapeOf(pattern);
+		int[] plan = plans.plans.get(key);
+		if (plan != null) {
+			BasicPattern result = new BasicPattern();
+			for (int i : plan) {
+				result.add(pattern.get(i));
+			}
+			return result;
+		}
+
+		BasicPattern result = transformation.reorder(pattern);
+		plan = planOf(pattern, result);
+		if (plan != null && plans.plans.size() < MAX_PLANS) {
+			plans.plans.putIfAbsent(key, plan);
+		}
+		return result;
+	}
+
+	int getPlanCount(KbGraph graph) {
+		return plansFor(graph).plans.size();
+	}
+
+	private GraphPlans plansFor(KbGraph graph) {
+		return graphPlans.computeIfAbsent(graph, GraphPlans::new);
+	}
+
+	private static List<Object> shapeOf(BasicPattern pattern) {
+		List<Object> result = new ArrayList<>(4 * pattern.size());
+		for (Triple t : pattern) {
+			result.add((t instanceof ReifiedTriple rt) ? shapeOf(rt.getName()) : null);
+			result.add(shapeOf(t.getSubject()));
+			result.add(t.getPredicate());
+			result.add(RDF_TYPE.equals(t.getPredicate())
+				? t.getObject()
+				: shapeOf(t.getObject()));
+		}
+		return result;
+	}
+
+	private static Object shapeOf(Node n) {
+		return n.isConcrete() ? BOUND : n;
+	}
+
+	/**
+	 * Returns, for each triple of the reordered pattern, its index in the
+	 * original pattern, or null if the reordered pattern is not a permutation
+	 * of the original.
+	 */
+	private static int[] planOf(BasicPattern original, BasicPattern reordered) {
+		if (original.size() != reordered.size()) {
+			return null;
+		}
+		int[] result = new int[reordered.size()];
+		boolean[] isUsed = new boolean[original.size()];
+		for (int i = 0; i < result.length; ++i) {
+			int j = 0;
+			while (j < isUsed.length && (isUsed[j] || !original.get(j).equals(reordered.get(i)))) {
+				++j;
+			}
+			if (j >= isUsed.length) {
+				return null;
+			}
+			isUsed[j] = true;
+			result[i] = j;
+		}
+		return result;
+	}
+
+	private static class GraphPlans {
+		private final GraphCountMemo counts;
+		private final Map<List<Object>, int[]> plans = new ConcurrentHashMap<>();
+
+		public GraphPlans(KbGraph graph) {
+			counts = new GraphCountMemo(graph);
+		}
+	}
+}
@@ -9,6 +9,7 @@ package com.bbn.parliament.jena.query.optimize;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.bbn.parliament.jena.Constants;
 import com.bbn.parliament.jena.graph.KbGraph;
 import com.bbn.parliament.jena.query.ReifiedTriple;
 import com.bbn.parliament.jena.query.SolverUtil;
@@ -34,8 +35,14 @@ import com.hp.hpl.jena.sparql.util.IterLib;
  * <br><br>
  * If they are bound and the graph is a {@link KbGraph}, the pattern is reordered via the
  * {@link SolverUtil#optimizeTripleOrder(BasicPattern, KbGraph, ExecutionContext)}
- * method. If the graph is any other type, the triples with bound variables are
+ * method, which reuses the order chosen for earlier bindings that left the
+ * pattern in the same shape (see {@link QueryPlanCache}). If the graph is any other type, the triples with bound variables are
  * ordered before triples with no bound variables.
+ * <br><br>
+ * Unless the {@link Constants#ID_SPACE_BGP_EXECUTION} symbol is false, a
+ * pattern over a {@link KbGraph} that contains no reified triples is then
+ * evaluated by a single {@link QueryIterKbIdPattern}, which joins the triples
+ * on resource ids rather than Nodes.
  *
  * @author rbattle
  */
@@ -84,6 +91,9 @@ public class ReorderQueryIterTriplePattern extends QueryIterRepeatApply {
 				bound = SolverUtil.optimizeTripleOrder(bound, kbGraph, getExecContext());
 			}
 			triples = bound.getList();
+			if (isIdSpaceExecutionEnabled() && !containsReifiedTriple(triples)) {
+				return new QueryIterKbIdPattern(binding, triples, kbGraph, getExecContext());
+			}
 		} else {
 			// order triples by those with bound variables first
 			List<Triple> remaining = new ArrayList<>();
@@ -118,6 +128,19 @@ public class ReorderQueryIterTriplePattern extends QueryIterRepeatApply {
 		return ret;
 	}
 
+	private boolean isIdSpaceExecutionEnabled() {
+		return getExecContext().getContext().isTrueOrUndef(Constants.ID_SPACE_BGP_EXECUTION);
+	}
+
+	private static boolean containsReifiedTriple(List<Triple> triples) {
+		for (Triple t : triples) {
+			if (t instanceof ReifiedTriple) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * We need our own version of the substitute method, because some of the triples could
 	 * be ReifiedTriples
@@ -9,12 +9,18 @@ class TriplePatternCount {
 	public Triple triple;
 	public long count;
 	public long estimate;
+	/** Triples per distinct subject of the pattern's predicate, or 0 if unknown */
+	public long subjectFanOut;
+	/** Triples per distinct object of the pattern's predicate, or 0 if unknown */
+	public long objectFanOut;
 	public List<Node> unboundVariables = new ArrayList<>();
 
 	TriplePatternCount(Triple triple, long count) {
 		this.triple = triple;
 		this.count = count;
 		estimate = 0;
+		subjectFanOut = 0;
+		objectFanOut = 0;
 		unboundVariables = OptimizeUtil.getVariables(triple);
 	}
 
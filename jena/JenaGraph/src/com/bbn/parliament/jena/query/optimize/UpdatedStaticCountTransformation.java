@@ -14,6 +14,10 @@ public class UpdatedStaticCountTransformation extends AbstractCountTransformatio
 		super(graph);
 	}
 
+	public UpdatedStaticCountTransformation(GraphCountMemo counts) {
+		super(counts);
+	}
+
 	@Override
 	public ReorderProc reorderIndexes(BasicPattern pattern) {
 		return new ReorderProc() {
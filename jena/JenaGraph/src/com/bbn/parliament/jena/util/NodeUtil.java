@@ -38,4 +38,37 @@ public class NodeUtil {
 		}
 		return result;
 	}
+
+	/**
+	 * Get the node representation of a literal's string, i.e., the lexical form
+	 * in quotes, optionally followed by "@" and a language tag or by "^^" and a
+	 * datatype URI. The string is scanned once, backward from the end, to find
+	 * the closing quote, and the parts are then taken as substrings.
+	 *
+	 * @param representation a representation of a literal.
+	 * @return the literal node.
+	 */
+	public static final Node getLiteralNodeRepresentation(String representation) {
+		int closeQuote = representation.length() - 1;
+		while (closeQuote > 0 && representation.charAt(closeQuote) != '"'
+			&& representation.charAt(closeQuote) != '\'') {
+			--closeQuote;
+		}
+		String lexicalForm = representation.substring(1, closeQuote);
+		int suffixStart = closeQuote + 1;
+		if (representation.startsWith("^^", suffixStart)) {
+			int dtStart = suffixStart + 2;
+			int dtEnd = representation.length();
+			if (representation.startsWith("<", dtStart) && representation.endsWith(">")) {
+				++dtStart;
+				--dtEnd;
+			}
+			return Node.createLiteral(lexicalForm, "",
+				Node.getType(representation.substring(dtStart, dtEnd)));
+		} else if (representation.startsWith("@", suffixStart)) {
+			return Node.createLiteral(lexicalForm, representation.substring(suffixStart + 1), null);
+		} else {
+			return Node.createLiteral(lexicalForm);
+		}
+	}
 }
@@ -0,0 +1,227 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.openjena.riot.out.NodeFmtLib;
+import org.openjena.riot.out.NodeToLabel;
+import org.openjena.riot.out.SinkTripleOutput;
+
+import com.bbn.parliament.jena.joseki.client.RDFFormat;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * Writes triples to an output stream as they are produced, so that the
+ * results of a large CONSTRUCT or DESCRIBE need never be gathered into a
+ * Model. N-Triples is written for the N-Triples, Turtle, and N3 formats (of
+ * which N-Triples is a subset), and JSON-LD is written in expanded form, one
+ * node object per run of triples with the same subject.
+ * <p>
+ * Duplicate triples are suppressed only within a window of the most recently
+ * written triples. That catches the common case of a template or description
+ * that repeats itself for consecutive solutions, and a duplicate that slips
+ * through is harmless because the reader treats the triples as a set.
+ */
+public abstract class StreamingTripleWriter implements Closeable {
+	/** The default number of recent triples checked for duplicates. */
+	public static final int DEFAULT_DEDUP_WINDOW = 100_000;
+
+	private final Set<Triple> recentTriples;
+	private long tripleCount = 0;
+
+	/** Returns true if triples can be streamed in the given format. */
+	public static boolean canStream(RDFFormat format) {
+		return switch (format) {
+			case NTRIPLES, TURTLE, N3, JSON_LD -> true;
+			default -> false;
+		};
+	}
+
+	/**
+	 * Creates a writer for the given format. Closing the writer completes the
+	 * document, but does not close the output stream.
+	 *
+	 * @param out the stream to write to
+	 * @param format the format, for which {@link #canStream(RDFFormat)} must be true
+	 * @param dedupWindow the number of recent triples checked for duplicates,
+	 *        or zero to write duplicates as they come
+	 */
+	public static StreamingTripleWriter create(OutputStream out, RDFFormat format,
+		int dedupWindow) throws IOException {
+		return switch (format) {
+			case NTRIPLES, TURTLE, N3 -> new NTriplesWriter(out, dedupWindow);
+			case JSON_LD -> new JsonLdWriter(out, dedupWindow);
+			default -> throw new IllegalArgumentException(
+				"Unable to stream triples in the format %1$s".formatted(format));
+		};
+	}
+
+	protected StreamingTripleWriter(int dedupWindow) {
+		recentTriples = (dedupWindow <= 0)
+			? null
+			: Collections.newSetFromMap(new LinkedHashMap<Triple, Boolean>() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Triple, Boolean> eldest) {
+					return size() > dedupWindow;
+				}
+			});
+	}
+
+	/**
+	 * Writes a triple, unless it was among the recently written ones or it is
+	 * not valid RDF (e.g., a CONSTRUCT template that puts a literal in the
+	 * subject position).
+	 */
+	public void write(Triple triple) throws IOException {
+		if (isValid(triple) && (recentTriples == null || recentTriples.add(triple))) {
+			writeTriple(triple);
+			++tripleCount;
+		}
+	}
+
+	/** Writes each of the triples in turn. */
+	public void write(Iterator<Triple> triples) throws IOException {
+		while (triples.hasNext()) {
+			write(triples.next());
+		}
+	}
+
+	/** Returns the number of triples written so far. */
+	public long getTripleCount() {
+		return tripleCount;
+	}
+
+	private static boolean isValid(Triple t) {
+		Node s = t.getSubject();
+		Node o = t.getObject();
+		return (s.isURI() || s.isBlank())
+			&& t.getPredicate().isURI()
+			&& (o.isURI() || o.isBlank() || o.isLiteral());
+	}
+
+	protected abstract void writeTriple(Triple triple) throws IOException;
+
+	/** Writes one triple per line. Blank node labels are derived from the nodes' own labels. */
+	private static class NTriplesWriter extends StreamingTripleWriter {
+		private final SinkTripleOutput sink;
+
+		public NTriplesWriter(OutputStream out, int dedupWindow) {
+			super(dedupWindow);
+			sink = new SinkTripleOutput(out);
+			sink.setLabelPolicy(NodeToLabel.createBNodeByLabelEncoded());
+		}
+
+		@Override
+		protected void writeTriple(Triple triple) {
+			sink.send(triple);
+		}
+
+		@Override
+		public void close() {
+			sink.flush();
+		}
+	}
+
+	/**
+	 * Writes an array of expanded JSON-LD node objects. A node object is closed
+	 * when the subject changes, or when its predicate has already appeared in
+	 * it, because JSON does not allow repeated keys. Node objects with the same
+	 * "@id" are merged by the reader.
+	 */
+	private static class JsonLdWriter extends StreamingTripleWriter {
+		private final JsonGenerator gen;
+		private final Set<Node> predicatesInNode = new HashSet<>();
+		private Node currentSubject = null;
+		private Node currentPredicate = null;
+
+		public JsonLdWriter(OutputStream out, int dedupWindow) throws IOException {
+			super(dedupWindow);
+			gen = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+			gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			gen.writeStartArray();
+		}
+
+		@Override
+		protected void writeTriple(Triple triple) throws IOException {
+			Node s = triple.getSubject();
+			Node p = triple.getPredicate();
+			if (!s.equals(currentSubject)
+				|| (!p.equals(currentPredicate) && predicatesInNode.contains(p))) {
+				endNode();
+				gen.writeStartObject();
+				gen.writeStringField("@id", idOf(s));
+				currentSubject = s;
+			}
+			if (!p.equals(currentPredicate)) {
+				if (currentPredicate != null) {
+					gen.writeEndArray();
+				}
+				gen.writeArrayFieldStart(p.getURI());
+				currentPredicate = p;
+				predicatesInNode.add(p);
+			}
+			writeObject(triple.getObject());
+		}
+
+		private void writeObject(Node o) throws IOException {
+			gen.writeStartObject();
+			if (o.isLiteral()) {
+				gen.writeStringField("@value", o.getLiteralLexicalForm());
+				String lang = o.getLiteralLanguage();
+				String datatype = o.getLiteralDatatypeURI();
+				if (lang != null && !lang.isEmpty()) {
+					gen.writeStringField("@language", lang);
+				} else if (datatype != null) {
+					gen.writeStringField("@type", datatype);
+				}
+			} else {
+				gen.writeStringField("@id", idOf(o));
+			}
+			gen.writeEndObject();
+		}
+
+		private static String idOf(Node n) {
+			return n.isBlank()
+				? "_:" + NodeFmtLib.encodeBNodeLabel(n.getBlankNodeLabel())
+				: n.getURI();
+		}
+
+		private void endNode() throws IOException {
+			if (currentPredicate != null) {
+				gen.writeEndArray();
+			}
+			if (currentSubject != null) {
+				gen.writeEndObject();
+			}
+			currentSubject = null;
+			currentPredicate = null;
+			predicatesInNode.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			endNode();
+			gen.writeEndArray();
+			gen.close();
+		}
+	}
+}
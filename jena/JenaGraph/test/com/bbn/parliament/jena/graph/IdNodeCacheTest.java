@@ -0,0 +1,55 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import com.hp.hpl.jena.graph.Node;
+
+public class IdNodeCacheTest {
+	private static Node uri(long i) {
+		return Node.createURI("http://example.org/#node" + i);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testGetAndPut() {
+		IdNodeCache cache = new IdNodeCache(100);
+		assertEquals(128, cache.getMaxSize());
+		assertNull(cache.get(1));
+		cache.put(1, uri(1));
+		cache.put(2, Node.createLiteral("two"));
+		assertEquals(uri(1), cache.get(1));
+		assertEquals(Node.createLiteral("two"), cache.get(2));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		cache.clear();
+		assertNull(cache.get(1));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testCollidingIdsReplaceEachOther() {
+		IdNodeCache cache = new IdNodeCache(16);
+		cache.put(3, uri(3));
+		cache.put(3 + 16, uri(3 + 16));
+		assertNull(cache.get(3));
+		assertEquals(uri(3 + 16), cache.get(3 + 16));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testZeroSizeDisablesCaching() {
+		IdNodeCache cache = new IdNodeCache(0);
+		cache.put(1, uri(1));
+		assertNull(cache.get(1));
+	}
+}
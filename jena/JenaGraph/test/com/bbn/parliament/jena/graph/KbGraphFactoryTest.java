@@ -0,0 +1,44 @@
+package com.bbn.parliament.jena.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.bbn.parliament.jni.KbConfig;
+
+public class KbGraphFactoryTest {
+	@SuppressWarnings("static-method")
+	@Test
+	public void testNamedGraphsStartSmallAndGrowGeometrically() {
+		KbConfig config = new KbConfig();
+		config.m_namedGraphInitialRsrcCapacity = 100;
+		config.m_namedGraphInitialStmtCapacity = 200;
+		config.m_namedGraphGrowthFactor = 1.5;
+		KbGraphFactory.applyNamedGraphSizing(config);
+
+		assertEquals(100, config.m_initialRsrcCapacity);
+		assertEquals(200, config.m_initialStmtCapacity);
+		assertEquals(1.5, config.m_rsrcGrowthFactor);
+		assertEquals(0, config.m_rsrcGrowthIncrement);
+		assertEquals(1.5, config.m_stmtGrowthFactor);
+		assertEquals(0, config.m_stmtGrowthIncrement);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDisabledProfileKeepsGeneralSizing() {
+		KbConfig defaults = new KbConfig();
+		KbConfig config = new KbConfig();
+		config.m_namedGraphInitialRsrcCapacity = 0;
+		config.m_namedGraphInitialStmtCapacity = 0;
+		config.m_namedGraphGrowthFactor = 1.0;
+		KbGraphFactory.applyNamedGraphSizing(config);
+
+		assertEquals(defaults.m_initialRsrcCapacity, config.m_initialRsrcCapacity);
+		assertEquals(defaults.m_initialStmtCapacity, config.m_initialStmtCapacity);
+		assertEquals(defaults.m_rsrcGrowthFactor, config.m_rsrcGrowthFactor);
+		assertEquals(defaults.m_rsrcGrowthIncrement, config.m_rsrcGrowthIncrement);
+		assertEquals(defaults.m_stmtGrowthFactor, config.m_stmtGrowthFactor);
+		assertEquals(defaults.m_stmtGrowthIncrement, config.m_stmtGrowthIncrement);
+	}
+}
@@ -0,0 +1,165 @@
+package com.bbn.parliament.jena.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.bbn.parliament.jena.joseki.client.StreamUtil;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.sparql.core.Quad;
+
+public class KbGraphStoreTest {
+	private static final Node GRAPH_NAME = Node.createURI("http://example.org/reopened-graph");
+	private static final Node OTHER_GRAPH_NAME = Node.createURI("http://example.org/other-graph");
+	private static final Triple TRIPLE = Triple.create(Node.createURI("http://example.org/s"),
+		Node.createURI("http://example.org/p"), Node.createURI("http://example.org/o"));
+
+	@SuppressWarnings({ "static-method", "resource" })
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 2 })
+	public void testNamedGraphsAreReopened(int numOpenThreads) {
+		KbGraphStore store = new KbGraphStore(KbGraphFactory.createDefaultGraph());
+		try {
+			store.initialize(numOpenThreads);
+			KbGraph graph = KbGraphFactory.createNamedGraph();
+			graph.add(TRIPLE);
+			store.addGraph(GRAPH_NAME, graph);
+			store.close();
+
+			store = new KbGraphStore(KbGraphFactory.createDefaultGraph());
+			store.initialize(numOpenThreads);
+			assertTrue(store.containsGraph(GRAPH_NAME));
+			assertTrue(StreamUtil.asStream(store.listGraphNodes()).anyMatch(GRAPH_NAME::equals));
+
+			// Without threads to open them, the named graphs open on first access:
+			assertEquals(numOpenThreads > 0, store.isGraphOpen(GRAPH_NAME));
+			assertTrue(store.getGraph(GRAPH_NAME).contains(TRIPLE));
+			assertTrue(store.isGraphOpen(GRAPH_NAME));
+		} finally {
+			store.clear();
+		}
+	}
+
+	@SuppressWarnings({ "static-method", "resource" })
+	@Test
+	public void testRemoveGraphDoesNotOpenOtherGraphs() {
+		KbGraphStore store = new KbGraphStore(KbGraphFactory.createDefaultGraph());
+		try {
+			store.initialize(0);
+			store.addGraph(GRAPH_NAME, KbGraphFactory.createNamedGraph());
+			store.addGraph(OTHER_GRAPH_NAME, KbGraphFactory.createNamedGraph());
+			store.close();
+
+			store = new KbGraphStore(KbGraphFactory.createDefaultGraph());
+			store.initialize(0);
+			store.removeGraph(OTHER_GRAPH_NAME);
+			assertFalse(store.containsGraph(OTHER_GRAPH_NAME));
+			assertFalse(store.isGraphOpen(GRAPH_NAME));
+		} finally {
+			store.clear();
+		}
+	}
+
+	@SuppressWarnings({ "static-method", "resource" })
+	@Test
+	public void testQuadStoreGraphsAreSeparate() {
+		Triple other = Triple.create(Node.createURI("http://example.org/s"),
+			Node.createURI("http://example.org/p"), Node.createURI("http://example.org/other"));
+		KbGraphStore store = new KbGraphStore(KbGraphFactory.createDefaultGraph());
+		try {
+			store.initialize(0);
+			store.getDefaultGraphConfig().m_namedGraphQuadStore = true;
+			KbGraph graph = store.createNamedGraph(GRAPH_NAME);
+			KbGraph otherGraph = store.createNamedGraph(OTHER_GRAPH_NAME);
+			assertTrue(graph.isInQuadStore());
+			graph.add(TRIPLE);
+			otherGraph.add(TRIPLE);
+			otherGraph.add(other);
+			store.addGraph(GRAPH_NAME, graph);
+			store.addGraph(OTHER_GRAPH_NAME, otherGraph);
+
+			assertEquals(1, graph.size());
+			assertEquals(2, otherGraph.size());
+			assertFalse(graph.contains(other));
+			List<Quad> quads = StreamUtil.asStream(store.find(Node.ANY, Node.ANY, Node.ANY, Node.ANY))
+				.filter(quad -> !KbGraphStore.MASTER_GRAPH.equals(quad.getGraph().getURI()))
+				.collect(Collectors.toList());
+			assertEquals(3, quads.size());
+			assertTrue(quads.contains(new Quad(GRAPH_NAME, TRIPLE)));
+			assertTrue(quads.contains(new Quad(OTHER_GRAPH_NAME, other)));
+			store.close();
+
+			store = new KbGraphStore(KbGraphFactory.createDefaultGraph());
+			store.initialize(0);
+			assertTrue(store.isInQuadStore(GRAPH_NAME));
+			assertTrue(store.getGraph(OTHER_GRAPH_NAME).contains(other));
+
+			// Removing a graph deletes its statements, but not those of the other graph:
+			store.removeGraph(OTHER_GRAPH_NAME);
+			assertTrue(store.getGraph(GRAPH_NAME).contains(TRIPLE));
+			assertEquals(1, store.getGraph(GRAPH_NAME).size());
+		} finally {
+			store.clear();
+		}
+	}
+
+	@SuppressWarnings({ "static-method", "resource" })
+	@Test
+	public void testGraphVariableQueryOverQuadStore() {
+		Node standaloneGraphName = Node.createURI("http://example.org/standalone-graph");
+		Triple other = Triple.create(Node.createURI("http://example.org/s"),
+			Node.createURI("http://example.org/p"), Node.createURI("http://example.org/other"));
+		KbGraphStore store = new KbGraphStore(KbGraphFactory.createDefaultGraph());
+		try {
+			store.initialize(0);
+			KbGraph standaloneGraph = KbGraphFactory.createNamedGraph();
+			standaloneGraph.add(TRIPLE);
+			store.addGraph(standaloneGraphName, standaloneGraph);
+
+			store.getDefaultGraphConfig().m_namedGraphQuadStore = true;
+			KbGraph graph = store.createNamedGraph(GRAPH_NAME);
+			KbGraph otherGraph = store.createNamedGraph(OTHER_GRAPH_NAME);
+			graph.add(TRIPLE);
+			otherGraph.add(other);
+			store.addGraph(GRAPH_NAME, graph);
+			store.addGraph(OTHER_GRAPH_NAME, otherGraph);
+
+			String query = """
+				select ?g ?o where {
+					graph ?g { <http://example.org/s> <http://example.org/p> ?o }
+				}
+				""";
+			List<Quad> results = new ArrayList<>();
+			QueryExecution qe = QueryExecutionFactory.create(query, store.toDataset());
+			try {
+				ResultSet rs = qe.execSelect();
+				while (rs.hasNext()) {
+					QuerySolution qs = rs.next();
+					results.add(new Quad(qs.get("g").asNode(), TRIPLE.getSubject(),
+						TRIPLE.getPredicate(), qs.get("o").asNode()));
+				}
+			} finally {
+				qe.close();
+			}
+			assertEquals(3, results.size());
+			assertTrue(results.contains(new Quad(GRAPH_NAME, TRIPLE)));
+			assertTrue(results.contains(new Quad(OTHER_GRAPH_NAME, other)));
+			assertTrue(results.contains(new Quad(standaloneGraphName, TRIPLE)));
+		} finally {
+			store.clear();
+		}
+	}
+}
@@ -7,9 +7,11 @@
 package com.bbn.parliament.jena.graph;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.File;
 import java.util.Map;
 import java.util.StringTokenizer;
 
@@ -20,8 +22,11 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
 import com.bbn.parliament.jena.NodeCreateUtils;
+import com.bbn.parliament.jena.util.NodeUtil;
 import com.bbn.parliament.jni.KbConfig;
 import com.bbn.parliament.jni.KbInstance;
+import com.bbn.parliament.recovery.KbRecoverable;
+import com.bbn.parliament.recovery.RecoveryManager;
 import com.hp.hpl.jena.graph.Factory;
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.GraphUtil;
@@ -80,6 +85,52 @@ public class KbGraphTest {
 		assertEquals("en", ((Node_Literal) obj).getLiteralLanguage());
 	}
 
+	@Test
+	public void testJournalIsReplayedOnOpen() throws Throwable {
+		getGraph().close();
+		graph = null;
+
+		// Leave a journal behind, as a crash between checkpoints would:
+		Triple t = NodeCreateUtils.createTriple("a p b");
+		try (KbInstance kb = new KbInstance(config);
+			RecoveryManager rm = new RecoveryManager(config.m_kbDirectoryPath, new KbRecoverable(kb))) {
+			rm.startBlock();
+			rm.recordResource(1000001, NodeUtil.getStringRepresentation(t.getSubject()), false);
+			rm.recordResource(1000002, NodeUtil.getStringRepresentation(t.getPredicate()), false);
+			rm.recordResource(1000003, NodeUtil.getStringRepresentation(t.getObject()), false);
+			rm.recordAdd(1000001, 1000002, 1000003);
+			rm.endBlock();
+		}
+
+		graph = KbGraphFactory.createDefaultGraph();
+		assertTrue(graph.contains(t));
+
+		// The replayed journal is discarded:
+		String[] segments = new File(config.m_kbDirectoryPath, RecoveryManager.JOURNAL_DIR_NAME).list();
+		assertEquals(0, (segments == null) ? 0 : segments.length);
+	}
+
+	@Test
+	public void testCompactedKbReopens() {
+		KbGraph kbGraph = (KbGraph) getGraphWith("a p b; a p c; a p d; b q c");
+		kbGraph.delete(NodeCreateUtils.createTriple("a p c"));
+		kbGraph.delete(NodeCreateUtils.createTriple("a p d"));
+		assertEquals(2, kbGraph.compact());
+
+		// Compaction leaves no journal to replay over the compacted files:
+		String[] segments = new File(config.m_kbDirectoryPath, RecoveryManager.JOURNAL_DIR_NAME).list();
+		assertEquals(0, (segments == null) ? 0 : segments.length);
+
+		kbGraph.add(NodeCreateUtils.createTriple("c r d"));
+		graph.close();
+		graph = KbGraphFactory.createDefaultGraph();
+		assertTrue(graph.contains(NodeCreateUtils.createTriple("a p b")));
+		assertTrue(graph.contains(NodeCreateUtils.createTriple("b q c")));
+		assertTrue(graph.contains(NodeCreateUtils.createTriple("c r d")));
+		assertFalse(graph.contains(NodeCreateUtils.createTriple("a p c")));
+		assertEquals(3, graph.size());
+	}
+
 	public static void main(String[] args) {
 		KbConfig config = new KbConfig();
 		config.readFromFile();
@@ -0,0 +1,127 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.hp.hpl.jena.graph.Node;
+
+public class NodeIdCacheTest {
+	private static Node uri(int i) {
+		return Node.createURI("http://example.org/#node" + i);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testGetAndPut() {
+		NodeIdCache cache = new NodeIdCache(100, 1);
+		assertEquals(NodeIdCache.NOT_FOUND, cache.get(uri(1)));
+		cache.put(uri(1), 42);
+		cache.put(Node.createLiteral("42"), 43);
+		assertEquals(42, cache.get(uri(1)));
+		assertEquals(43, cache.get(Node.createLiteral("42")));
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(NodeIdCache.NOT_FOUND, cache.get(uri(1)));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSizeIsBounded() {
+		NodeIdCache cache = new NodeIdCache(64, 4);
+		for (int i = 0; i < 10_000; ++i) {
+			if (cache.get(uri(i)) == NodeIdCache.NOT_FOUND) {
+				cache.put(uri(i), i);
+			}
+			assertTrue(cache.size() <= cache.getMaxSize(), "Cache exceeded its maximum size");
+		}
+		assertTrue(cache.getEvictionCount() > 0, "Nothing was evicted");
+
+		// Every entry that survived must still map to the right id:
+		for (int i = 0; i < 10_000; ++i) {
+			long id = cache.get(uri(i));
+			assertTrue(id == NodeIdCache.NOT_FOUND || id == i, "Wrong id for node " + i);
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testFrequentNodesSurviveScan() {
+		NodeIdCache cache = new NodeIdCache(64, 1);
+		for (int round = 0; round < 10; ++round) {
+			for (int i = 0; i < 16; ++i) {
+				if (cache.get(uri(i)) == NodeIdCache.NOT_FOUND) {
+					cache.put(uri(i), i);
+				}
+			}
+		}
+
+		// A scan of one-off nodes several times larger than the cache (which
+		// would flush an LRU cache) should not evict the frequently used ones:
+		for (int i = 1000; i < 1200; ++i) {
+			if (cache.get(uri(i)) == NodeIdCache.NOT_FOUND) {
+				cache.put(uri(i), i);
+			}
+		}
+		for (int i = 0; i < 16; ++i) {
+			assertEquals(i, cache.get(uri(i)), "Frequent node " + i + " was evicted");
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testZeroSizeDisablesCaching() {
+		NodeIdCache cache = new NodeIdCache(0);
+		cache.put(uri(1), 1);
+		assertEquals(NodeIdCache.NOT_FOUND, cache.get(uri(1)));
+		assertEquals(0, cache.size());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		NodeIdCache cache = new NodeIdCache(1000, 8);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; ++t) {
+				int seed = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 20_000; ++i) {
+						int n = (i * 31 + seed) % 3000;
+						long id = cache.get(uri(n));
+						if (id == NodeIdCache.NOT_FOUND) {
+							cache.put(uri(n), n);
+						} else {
+							assertEquals(n, id, "Wrong id for node " + n);
+						}
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(cache.size() <= cache.getMaxSize(), "Cache exceeded its maximum size");
+		assertEquals(8 * 20_000, cache.getHitCount() + cache.getMissCount(), "Lookup count");
+	}
+}
@@ -0,0 +1,185 @@
+package com.bbn.parliament.jena.graph.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.hp.hpl.jena.graph.Factory;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+
+public class IndexManagerTest {
+	private static final String NS = "http://example.org/";
+	private static final Node INDEXED = Node.createURI(NS + "indexed");
+	private static final Node OTHER = Node.createURI(NS + "other");
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRebuildBulkLoadsEachIndexOnce() {
+		Graph graph = Factory.createGraphMem();
+		int numIndexed = 5000;
+		for (int i = 0; i < numIndexed; ++i) {
+			Node s = Node.createURI(NS + "s" + i);
+			graph.add(Triple.create(s, INDEXED, Node.createLiteral("value " + i)));
+			graph.add(Triple.create(s, OTHER, Node.createLiteral("other " + i)));
+		}
+
+		IndexManager manager = IndexManager.getInstance();
+		CountingIndex first = new CountingIndex();
+		CountingIndex second = new CountingIndex();
+		manager.register(graph, null, new CountingIndexFactory(), first);
+		manager.register(graph, null, new CountingIndexFactory(), second);
+		try {
+			manager.rebuild(graph);
+
+			for (CountingIndex index : List.of(first, second)) {
+				assertEquals(1, index.numClears.get());
+				assertEquals(1, index.numBulkLoads.get());
+				assertEquals(numIndexed, index.numBulkLoaded.get());
+				assertEquals(0, index.numAdded.get());
+			}
+		} finally {
+			manager.unregisterAll(graph, null);
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRebuildThrowsAfterAllIndexesFinish() {
+		Graph graph = Factory.createGraphMem();
+		for (int i = 0; i < 10; ++i) {
+			graph.add(Triple.create(Node.createURI(NS + "s" + i), INDEXED, Node.createLiteral("value " + i)));
+		}
+
+		IndexManager manager = IndexManager.getInstance();
+		CountingIndex failing = new CountingIndex() {
+			@Override
+			protected void doBulkLoad(Iterator<Record<Node>> records) {
+				throw new IllegalStateException("Simulated bulk load failure");
+			}
+		};
+		CountingIndex working = new CountingIndex();
+		manager.register(graph, null, new CountingIndexFactory(), failing);
+		manager.register(graph, null, new CountingIndexFactory(), working);
+		try {
+			RuntimeException ex = assertThrows(RuntimeException.class, () -> manager.rebuild(graph));
+			assertEquals(IllegalStateException.class, ex.getCause().getClass());
+			assertEquals(10, working.numBulkLoaded.get());
+		} finally {
+			manager.unregisterAll(graph, null);
+		}
+	}
+
+	private static class CountingIndexFactory extends IndexFactory<CountingIndex, Node> {
+		public CountingIndexFactory() {
+			super("Counting");
+		}
+
+		@Override
+		public void configure(Properties configuration) {
+		}
+
+		@Override
+		public CountingIndex createIndex(Graph graph, Node graphName, String indexDir) {
+			return new CountingIndex();
+		}
+	}
+
+	/** An index of the values of INDEXED that counts the records it is given. */
+	private static class CountingIndex extends IndexBase<Node> {
+		final AtomicInteger numClears = new AtomicInteger();
+		final AtomicInteger numBulkLoads = new AtomicInteger();
+		final AtomicInteger numBulkLoaded = new AtomicInteger();
+		final AtomicInteger numAdded = new AtomicInteger();
+
+		@Override
+		public RecordFactory<Node> getRecordFactory() {
+			return new RecordFactory<>() {
+				@Override
+				public Record<Node> createRecord(Triple triple) {
+					return INDEXED.equals(triple.getPredicate())
+						? Record.create(triple.getSubject(), triple.getObject())
+						: null;
+				}
+
+				@Override
+				public List<Triple> getTripleMatchers() {
+					return List.of(Triple.create(Node.ANY, INDEXED, Node.ANY));
+				}
+			};
+		}
+
+		@Override
+		public void register(Graph graph, Node graphName) {
+		}
+
+		@Override
+		public void unregister(Graph graph, Node graphName) {
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		protected void doClose() {
+		}
+
+		@Override
+		protected void doOpen() {
+		}
+
+		@Override
+		protected void doDelete() {
+		}
+
+		@Override
+		protected void doClear() {
+			numClears.incrementAndGet();
+		}
+
+		@Override
+		protected boolean doAdd(Record<Node> record) {
+			numAdded.incrementAndGet();
+			return true;
+		}
+
+		@Override
+		protected void doAdd(Iterator<Record<Node>> records) {
+			records.forEachRemaining(r -> numAdded.incrementAndGet());
+		}
+
+		@Override
+		protected void doBulkLoad(Iterator<Record<Node>> records) {
+			numBulkLoads.incrementAndGet();
+			records.forEachRemaining(r -> numBulkLoaded.incrementAndGet());
+		}
+
+		@Override
+		protected boolean doRemove(Record<Node> record) {
+			return true;
+		}
+
+		@Override
+		protected void doRemove(Iterator<Record<Node>> records) {
+		}
+
+		@Override
+		protected Iterator<Record<Node>> doIterator() {
+			return Collections.emptyIterator();
+		}
+
+		@Override
+		protected long doSize() {
+			return numBulkLoaded.get();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.bbn.parliament.jena.graph.union;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.mem.GraphMem;
+
+public class KbMultiUnionGraphTest {
+	private static final Node S1 = Node.createURI("http://example.org/s1");
+	private static final Node S2 = Node.createURI("http://example.org/s2");
+	private static final Node P = Node.createURI("http://example.org/p");
+	private static final Node O1 = Node.createURI("http://example.org/o1");
+	private static final Node O2 = Node.createURI("http://example.org/o2");
+
+	/** An in-memory member whose counts are exact. */
+	private static class MemGraph extends GraphMem implements KbUnionableGraph {
+		public MemGraph(Triple... triples) {
+			for (Triple t : triples) {
+				add(t);
+			}
+		}
+
+		@Override
+		public long getNodeCountInPosition(Node node, int position) {
+			return switch (position) {
+				case 1 -> find(node, null, null).toList().size();
+				case 2 -> find(null, node, null).toList().size();
+				case 3 -> find(null, null, node).toList().size();
+				default -> Long.MAX_VALUE;
+			};
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testTriplesInSeveralMembersOccurOnce() {
+		Triple shared = Triple.create(S1, P, O1);
+		MemGraph g1 = new MemGraph(shared, Triple.create(S1, P, O2));
+		MemGraph g2 = new MemGraph(shared);
+		MemGraph g3 = new MemGraph(shared, Triple.create(S2, P, O1));
+		KbMultiUnionGraph union = new KbMultiUnionGraph(List.of(g1, g2, g3));
+
+		List<Triple> triples = union.find(Node.ANY, Node.ANY, Node.ANY).toList();
+		assertEquals(3, triples.size());
+		assertEquals(Set.of(shared, Triple.create(S1, P, O2), Triple.create(S2, P, O1)),
+			Set.copyOf(triples));
+		assertEquals(2, union.find(S1, P, Node.ANY).toList().size());
+		assertTrue(union.contains(S2, P, O1));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testNestedUnionsAreFlattened() {
+		MemGraph g1 = new MemGraph(Triple.create(S1, P, O1));
+		MemGraph g2 = new MemGraph(Triple.create(S1, P, O1), Triple.create(S2, P, O2));
+		MemGraph g3 = new MemGraph(Triple.create(S2, P, O2));
+		KbUnionGraph inner = new KbUnionGraph(g1, null, g2, null);
+		KbUnionGraph outer = new KbUnionGraph(inner, null, g3, null);
+
+		assertEquals(List.of(g1, g2, g3), new KbMultiUnionGraph(List.of(outer, g1)).getMembers());
+		assertEquals(2, outer.find(Node.ANY, Node.ANY, Node.ANY).toList().size());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testNodeCountsAreNotSummed() {
+		MemGraph g1 = new MemGraph(Triple.create(S1, P, O1), Triple.create(S1, P, O2));
+		MemGraph g2 = new MemGraph(Triple.create(S1, P, O1), Triple.create(S2, P, O2));
+		KbMultiUnionGraph union = new KbMultiUnionGraph(List.of(g1, g2, g1));
+
+		assertEquals(2, union.getNodeCountInPosition(S1, 1));
+		assertEquals(3, union.getNodeCountInPosition(P, 2));
+		assertEquals(2, union.getNodeCountInPosition(O2, 3));
+		assertEquals(0, union.getNodeCountInPosition(S2, 3));
+		assertEquals(2, new KbUnionGraph(g1, null, g2, null).getNodeCountInPosition(O2, 3));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSampleShrinksWithMemberCount() {
+		assertEquals(KbMultiUnionGraph.SAMPLE_SIZE, KbMultiUnionGraph.sampleSize(1));
+		assertEquals(KbMultiUnionGraph.SAMPLE_SIZE, KbMultiUnionGraph.sampleSize(2));
+		for (int numMembers = 2; numMembers <= 100; ++numMembers) {
+			int sampleSize = KbMultiUnionGraph.sampleSize(numMembers);
+			long maxProbes = (long) sampleSize * numMembers * (numMembers - 1) / 2;
+			assertTrue(sampleSize >= KbMultiUnionGraph.MIN_SAMPLE_SIZE);
+			assertTrue(sampleSize == KbMultiUnionGraph.MIN_SAMPLE_SIZE
+				|| maxProbes <= KbMultiUnionGraph.MAX_PROBES, "%1$d members".formatted(numMembers));
+		}
+	}
+}
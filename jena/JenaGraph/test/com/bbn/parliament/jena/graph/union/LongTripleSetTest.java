@@ -0,0 +1,38 @@
+package com.bbn.parliament.jena.graph.union;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LongTripleSetTest {
+	@SuppressWarnings("static-method")
+	@Test
+	public void testAddRejectsDuplicates() {
+		LongTripleSet set = new LongTripleSet();
+		assertTrue(set.add(1, 2, 3));
+		assertFalse(set.add(1, 2, 3));
+		assertTrue(set.add(3, 2, 1));
+		assertTrue(set.add(0, 0, 0));
+		assertEquals(3, set.size());
+		assertTrue(set.contains(0, 0, 0));
+		assertFalse(set.contains(1, 3, 2));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testGrowthKeepsEveryTriple() {
+		LongTripleSet set = new LongTripleSet();
+		int numTriples = 100_000;
+		for (int i = 0; i < numTriples; ++i) {
+			assertTrue(set.add(i, i % 7, i / 3));
+		}
+		assertEquals(numTriples, set.size());
+		for (int i = 0; i < numTriples; ++i) {
+			assertTrue(set.contains(i, i % 7, i / 3));
+			assertFalse(set.add(i, i % 7, i / 3));
+		}
+		assertFalse(set.contains(numTriples, 0, 0));
+	}
+}
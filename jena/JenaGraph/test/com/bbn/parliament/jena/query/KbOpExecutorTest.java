@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import com.bbn.parliament.jena.Constants;
 import com.bbn.parliament.jena.TestingDataset;
 import com.bbn.parliament.jena.graph.KbGraph;
 import com.hp.hpl.jena.graph.Triple;
@@ -22,6 +25,7 @@ import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext;
 import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRoot;
 import com.hp.hpl.jena.sparql.sse.SSE;
 import com.hp.hpl.jena.sparql.util.Context;
@@ -197,6 +201,41 @@ public class KbOpExecutorTest {
 		assertEquals(1, count);
 	}
 
+	@Test
+	public void testIdSpaceBGPMatchesNodeSpace() throws IOException {
+		@SuppressWarnings("resource")
+		KbGraph defaultGraph = dataset.getDefaultGraph();
+		QueryTestUtil.loadResource("data/data-r2/triple-match/dawg-data-01.ttl", defaultGraph);
+
+		Op op = SSE.parseOp("""
+			(bgp
+				(triple ?s <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://xmlns.com/foaf/0.1/Person>)
+				(triple ?s <http://xmlns.com/foaf/0.1/knows> ?o)
+				(triple ?o <http://xmlns.com/foaf/0.1/mbox> ?m))
+			""");
+
+		Map<Binding, Integer> idSpaceResults = toMultiset(opExecutor.executeOp(op, createInput()));
+
+		Context nodeSpaceParams = execCxt.getContext().copy();
+		nodeSpaceParams.set(Constants.ID_SPACE_BGP_EXECUTION, false);
+		ExecutionContext nodeSpaceCxt = new ExecutionContext(nodeSpaceParams, defaultGraph,
+			dataset.getGraphStore(), KbOpExecutor.KbOpExecutorFactory);
+		Map<Binding, Integer> nodeSpaceResults = toMultiset(new KbOpExecutor(nodeSpaceCxt)
+			.executeOp(op, QueryIterRoot.create(nodeSpaceCxt)));
+
+		assertEquals(4, idSpaceResults.values().stream().mapToInt(Integer::intValue).sum());
+		assertEquals(nodeSpaceResults, idSpaceResults);
+	}
+
+	private static Map<Binding, Integer> toMultiset(QueryIterator it) {
+		Map<Binding, Integer> result = new HashMap<>();
+		while (it.hasNext()) {
+			result.merge(it.nextBinding(), 1, Integer::sum);
+		}
+		it.close();
+		return result;
+	}
+
 	@Test
 	@Disabled
 	public void testExecuteOpBGPBound() {
@@ -0,0 +1,175 @@
+package com.bbn.parliament.jena.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.bbn.parliament.jena.Constants;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterJoin;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterLeftJoin;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.util.Context;
+import com.hp.hpl.jena.sparql.util.ExprUtils;
+
+public class QueryIterHashJoinTest {
+	private static final Var X = Var.alloc("x");
+	private static final Var Y = Var.alloc("y");
+	private static final Var Z = Var.alloc("z");
+	private static final Set<Var> JOIN_VARS = Set.of(X);
+
+	// The first threshold keeps the join in memory, the second forces a spill
+	@SuppressWarnings("static-method")
+	@ParameterizedTest
+	@ValueSource(longs = { 1_000_000, 10 })
+	public void testJoinMatchesNestedLoopJoin(long spillThreshold) {
+		List<Binding> left = bindings(1, 400, Y);
+		List<Binding> right = bindings(2, 300, Z);
+		ExecutionContext execCxt = execCxt(spillThreshold);
+
+		Map<Binding, Integer> expected = toMultiset(new QueryIterJoin(
+			iter(left, execCxt), iter(right, execCxt), execCxt));
+		Map<Binding, Integer> actual = toMultiset(QueryIterHashJoin.join(
+			iter(left, execCxt), iter(right, execCxt), JOIN_VARS, execCxt));
+		assertTrue(expected.size() > 0, "The test data produced no join results");
+		assertEquals(expected, actual);
+	}
+
+	@SuppressWarnings("static-method")
+	@ParameterizedTest
+	@ValueSource(longs = { 1_000_000, 10 })
+	public void testLeftJoinMatchesNestedLoopLeftJoin(long spillThreshold) {
+		List<Binding> left = bindings(3, 400, Y);
+		List<Binding> right = bindings(4, 300, Z);
+		ExecutionContext execCxt = execCxt(spillThreshold);
+		ExprList exprs = new ExprList(ExprUtils.parse("?z != \"v3\""));
+
+		Map<Binding, Integer> expected = toMultiset(new QueryIterLeftJoin(
+			iter(left, execCxt), iter(right, execCxt), exprs, execCxt));
+		Map<Binding, Integer> actual = toMultiset(QueryIterHashJoin.leftJoin(
+			iter(left, execCxt), iter(right, execCxt), JOIN_VARS, exprs, execCxt));
+		assertEquals(expected, actual);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSpillFilesAreDeletedWhenJoinIsClosedEarly() {
+		int numFilesBefore = numSpillFiles();
+		ExecutionContext execCxt = execCxt(10);
+		QueryIterator it = QueryIterHashJoin.join(iter(bindings(5, 400, Y), execCxt),
+			iter(bindings(6, 300, Z), execCxt), JOIN_VARS, execCxt);
+		assertTrue(it.hasNext());
+		assertTrue(numSpillFiles() > numFilesBefore);
+		it.nextBinding();
+		it.close();
+		assertEquals(numFilesBefore, numSpillFiles());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSpillFilesAreDeletedWhenJoinFails() {
+		int numFilesBefore = numSpillFiles();
+		ExecutionContext execCxt = execCxt(10);
+		// The left side fails part way through, as a cancelled query would:
+		Iterator<Binding> leftBindings = bindings(7, 400, Y).iterator();
+		Iterator<Binding> failingLeft = new Iterator<>() {
+			private int count = 0;
+
+			@Override
+			public boolean hasNext() {
+				return leftBindings.hasNext();
+			}
+
+			@Override
+			public Binding next() {
+				if (++count > 200) {
+					throw new IllegalStateException("Left side failed");
+				}
+				return leftBindings.next();
+			}
+		};
+		QueryIterator it = QueryIterHashJoin.join(new QueryIterPlainWrapper(failingLeft, execCxt),
+			iter(bindings(8, 300, Z), execCxt), JOIN_VARS, execCxt);
+		assertThrows(IllegalStateException.class, it::hasNext);
+		// The join is never closed:
+		assertEquals(numFilesBefore, numSpillFiles());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testSpillFilesAreDeletedWhenJoinIsExhausted() {
+		int numFilesBefore = numSpillFiles();
+		ExecutionContext execCxt = execCxt(10);
+		QueryIterator it = QueryIterHashJoin.join(iter(bindings(9, 400, Y), execCxt),
+			iter(bindings(10, 300, Z), execCxt), JOIN_VARS, execCxt);
+		while (it.hasNext()) {
+			it.nextBinding();
+		}
+		// The join is never closed:
+		assertEquals(numFilesBefore, numSpillFiles());
+	}
+
+	private static int numSpillFiles() {
+		String[] names = new File(System.getProperty("java.io.tmpdir")).list(
+			(dir, name) -> name.startsWith("parliament-hashjoin-"));
+		return (names == null) ? 0 : names.length;
+	}
+
+	// Random bindings of ?x and one other variable, with a few leaving ?x
+	// unbound so that they join with every binding of the other side.
+	private static List<Binding> bindings(long seed, int count, Var other) {
+		Random random = new Random(seed);
+		List<Binding> result = new ArrayList<>();
+		for (int i = 0; i < count; ++i) {
+			BindingMap b = BindingFactory.create();
+			if (random.nextInt(50) != 0) {
+				b.add(X, Node.createURI("http://example.org/#x" + random.nextInt(100)));
+			}
+			b.add(other, Node.createLiteral("v" + random.nextInt(5)));
+			result.add(b);
+		}
+		return result;
+	}
+
+	private static ExecutionContext execCxt(long spillThreshold) {
+		Context context = new Context();
+		context.set(Constants.HASH_JOIN_SPILL_THRESHOLD, spillThreshold);
+		return new ExecutionContext(context, null, null, null);
+	}
+
+	private static QueryIterator iter(List<Binding> bindings, ExecutionContext execCxt) {
+		return new QueryIterPlainWrapper(bindings.iterator(), execCxt);
+	}
+
+	private static Map<Binding, Integer> toMultiset(QueryIterator it) {
+		Map<Binding, Integer> result = new HashMap<>();
+		try {
+			while (it.hasNext()) {
+				result.merge(it.nextBinding(), 1, Integer::sum);
+			}
+		} finally {
+			it.close();
+		}
+		return result;
+	}
+}
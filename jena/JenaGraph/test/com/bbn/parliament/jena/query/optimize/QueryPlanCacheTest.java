@@ -0,0 +1,87 @@
+package com.bbn.parliament.jena.query.optimize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.bbn.parliament.jena.TestingDataset;
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.sparql.core.BasicPattern;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProc;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProcIndexes;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import com.hp.hpl.jena.sparql.util.Context;
+
+public class QueryPlanCacheTest {
+	private static final Node P = Node.createURI("http://example.org/#p");
+	private static final Node Q = Node.createURI("http://example.org/#q");
+
+	private static TestingDataset dataset;
+
+	@BeforeAll
+	public static void beforeAll() {
+		dataset = new TestingDataset();
+	}
+
+	@AfterAll
+	public static void afterAll() {
+		dataset.clear();
+	}
+
+	// Reverses the pattern, counting how often it is asked to
+	private static class CountingTransformation implements ReorderTransformation {
+		int reorderCount = 0;
+
+		@Override
+		public BasicPattern reorder(BasicPattern pattern) {
+			return reorderIndexes(pattern).reorder(pattern);
+		}
+
+		@Override
+		public ReorderProc reorderIndexes(BasicPattern pattern) {
+			++reorderCount;
+			int[] indexes = new int[pattern.size()];
+			for (int i = 0; i < indexes.length; ++i) {
+				indexes[i] = indexes.length - 1 - i;
+			}
+			return new ReorderProcIndexes(indexes);
+		}
+	}
+
+	private static BasicPattern pattern(Node subject) {
+		BasicPattern result = new BasicPattern();
+		result.add(Triple.create(subject, P, Var.alloc("o")));
+		result.add(Triple.create(Var.alloc("o"), Q, Var.alloc("z")));
+		return result;
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testPlanIsReusedForPatternsOfTheSameShape() {
+		@SuppressWarnings("resource")
+		KbGraph graph = dataset.getDefaultGraph();
+		Context context = new Context();
+		QueryPlanCache cache = QueryPlanCache.get(context);
+		assertSame(cache, QueryPlanCache.get(context));
+
+		CountingTransformation transformation = new CountingTransformation();
+		for (int i = 0; i < 10; ++i) {
+			BasicPattern bound = pattern(Node.createURI("http://example.org/#s" + i));
+			BasicPattern result = cache.reorder(bound, graph, transformation);
+			assertEquals(bound.get(1), result.get(0));
+			assertEquals(bound.get(0), result.get(1));
+		}
+		assertEquals(1, transformation.reorderCount);
+
+		// A pattern with a variable in place of the constant has a different shape:
+		cache.reorder(pattern(Var.alloc("s")), graph, transformation);
+		assertEquals(2, transformation.reorderCount);
+		assertEquals(2, cache.getPlanCount(graph));
+	}
+}
@@ -0,0 +1,49 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.AnonId;
+
+public class NodeUtilTest {
+	private static Stream<Node> literals() {
+		return Stream.of(
+			Node.createLiteral("plain"),
+			Node.createLiteral(""),
+			Node.createLiteral("with \"quotes\" and 'apostrophes'"),
+			Node.createLiteral("user@example.org"),
+			Node.createLiteral("a^^b"),
+			Node.createLiteral("chat", "fr", null),
+			Node.createLiteral("42", "", XSDDatatype.XSDinteger),
+			Node.createLiteral("x@y\"^^z", "", XSDDatatype.XSDstring));
+	}
+
+	@ParameterizedTest
+	@MethodSource("literals")
+	public void testLiteralRoundTrip(Node literal) {
+		String representation = NodeUtil.getStringRepresentation(literal);
+		assertEquals(literal, NodeUtil.getLiteralNodeRepresentation(representation));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testResourceRoundTrip() {
+		Node uri = Node.createURI("http://example.org/#Dick");
+		Node bnode = Node.createAnon(AnonId.create("b0"));
+		assertEquals(uri, NodeUtil.getNodeRepresentation(NodeUtil.getStringRepresentation(uri)));
+		assertEquals(bnode, NodeUtil.getNodeRepresentation(NodeUtil.getStringRepresentation(bnode)));
+	}
+}
@@ -0,0 +1,81 @@
+package com.bbn.parliament.jena.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.bbn.parliament.jena.joseki.client.RDFFormat;
+import com.github.jsonldjava.core.JsonLdError;
+import com.github.jsonldjava.core.JsonLdOptions;
+import com.github.jsonldjava.core.JsonLdProcessor;
+import com.github.jsonldjava.utils.JsonUtils;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+public class StreamingTripleWriterTest {
+	private static final String NS = "http://example.org/#";
+
+	private static List<Triple> triples() {
+		Node a = Node.createURI(NS + "a");
+		Node b = Node.createURI(NS + "b");
+		Node p = Node.createURI(NS + "p");
+		Node q = Node.createURI(NS + "q");
+		Node bnode = Node.createAnon();
+		return List.of(
+			Triple.create(a, p, b),
+			Triple.create(a, p, Node.createLiteral("chat", "fr", null)),
+			Triple.create(a, q, Node.createLiteral("42", "", XSDDatatype.XSDinteger)),
+			// A repeated predicate within the same subject:
+			Triple.create(a, p, Node.createLiteral("with \"quotes\"")),
+			Triple.create(a, q, bnode),
+			Triple.create(bnode, p, a),
+			// An exact duplicate, and a triple that is not valid RDF:
+			Triple.create(a, p, b),
+			Triple.create(Node.createLiteral("lit"), p, a));
+	}
+
+	@SuppressWarnings("static-method")
+	@ParameterizedTest
+	@EnumSource(value = RDFFormat.class, names = { "NTRIPLES", "TURTLE", "N3", "JSON_LD" })
+	public void testStreamedTriplesReadBackAsTheSameGraph(RDFFormat format)
+		throws IOException, JsonLdError {
+		List<Triple> triples = triples();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long count;
+		try (StreamingTripleWriter wtr = StreamingTripleWriter.create(out, format,
+			StreamingTripleWriter.DEFAULT_DEDUP_WINDOW)) {
+			wtr.write(triples.iterator());
+			count = wtr.getTripleCount();
+		}
+		assertEquals(triples.size() - 2, count);
+
+		Model expected = ModelFactory.createDefaultModel();
+		triples.stream()
+			.limit(triples.size() - 1)
+			.forEach(t -> expected.getGraph().add(t));
+		Model actual = ModelFactory.createDefaultModel();
+		if (format == RDFFormat.JSON_LD) {
+			JsonLdOptions options = new JsonLdOptions();
+			options.format = "application/nquads";
+			Object json = JsonUtils.fromInputStream(new ByteArrayInputStream(out.toByteArray()));
+			actual.read(new StringReader((String) JsonLdProcessor.toRDF(json, options)), null, "N-TRIPLE");
+		} else {
+			actual.read(new ByteArrayInputStream(out.toByteArray()), null, format.toString());
+		}
+		assertEquals(expected.size(), actual.size(),
+			() -> new String(out.toByteArray(), StandardCharsets.UTF_8));
+		assertTrue(expected.isIsomorphicWith(actual));
+	}
+}
@@ -1,7 +1,11 @@
 package com.bbn.parliament.jena.graph.index.numeric;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import com.bbn.parliament.jena.graph.index.IndexBase;
 import com.bbn.parliament.jena.graph.index.IndexException;
@@ -59,6 +63,8 @@ public abstract class NumericIndex<T extends Number & Comparable<T>>
 
 	private static final String NODES_DB_NAME = "nodes";
 	private static final String NUMBERS_DB_NAME = "numbers";
+	/** The number of records that doBulkLoad sorts at a time. */
+	private static final int BULK_LOAD_RUN_SIZE = 100_000;
 
 	private final String dirName;
 	private final NumericRecordFactory<T> recordFactory;
@@ -258,15 +264,13 @@ public abstract class NumericIndex<T extends Number & Comparable<T>>
 	/** {@inheritDoc} */
 	@Override
 	public boolean doAdd(Record<T> r) throws IndexException {
-		Node node = r.getKey();
-		T n = r.getValue();
-
-		DatabaseEntry key = new DatabaseEntry();
-		DatabaseEntry data = new DatabaseEntry();
-		key.setData(NodeUtil.getStringRepresentation(node).getBytes());
+		put(NodeUtil.getStringRepresentation(r.getKey()).getBytes(), r.getValue());
+		return true;
+	}
 
-		byte[] value = recordFactory.getBytesForNumber(n);
-		data.setData(value);
+	private void put(byte[] nodeKey, T n) throws IndexException {
+		DatabaseEntry key = new DatabaseEntry(nodeKey);
+		DatabaseEntry data = new DatabaseEntry(recordFactory.getBytesForNumber(n));
 		try {
 			db.put(null, key, data);
 		} catch (DatabaseException e) {
@@ -279,7 +283,6 @@ public abstract class NumericIndex<T extends Number & Comparable<T>>
 		if (n.compareTo(max) > 0) {
 			max = n;
 		}
-		return true;
 	}
 
 	/** {@inheritDoc} */
@@ -290,6 +293,27 @@ public abstract class NumericIndex<T extends Number & Comparable<T>>
 		}
 	}
 
+	/**
+	 * {@inheritDoc} The records are sorted by node, in runs of up to
+	 * BULK_LOAD_RUN_SIZE, so that each run is put into the nodes database in
+	 * key order.
+	 */
+	@Override
+	protected void doBulkLoad(Iterator<Record<T>> records) throws IndexException {
+		List<Map.Entry<byte[], T>> run = new ArrayList<>();
+		while (records.hasNext()) {
+			Record<T> r = records.next();
+			run.add(Map.entry(NodeUtil.getStringRepresentation(r.getKey()).getBytes(), r.getValue()));
+			if (run.size() >= BULK_LOAD_RUN_SIZE || !records.hasNext()) {
+				run.sort((e1, e2) -> Arrays.compareUnsigned(e1.getKey(), e2.getKey()));
+				for (Map.Entry<byte[], T> entry : run) {
+					put(entry.getKey(), entry.getValue());
+				}
+				run.clear();
+			}
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public boolean doRemove(Record<T> r) throws IndexException {
@@ -0,0 +1,62 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.graph.index.spatial;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import com.bbn.parliament.jena.graph.index.Record;
+
+/**
+ * Orders geometry records for loading into a spatial index by
+ * sort-tile-recursive (STR) packing. The records are sorted by the x
+ * coordinate of the centre of their envelopes and cut into vertical slices,
+ * each of which is sorted by the y coordinate. Consecutive runs of
+ * nodeCapacity records are then close together in space, so that an index
+ * built by inserting the records in this order fills its nodes with nearby
+ * records, much as one packed from the bottom up would. Records with empty
+ * geometries come last.
+ */
+final class SortTileRecursive {
+	private record Entry(Record<Geometry> record, double x, double y) {
+		public static Entry create(Record<Geometry> record) {
+			Envelope e = record.getValue().getEnvelopeInternal();
+			return e.isNull()
+				? new Entry(record, Double.NaN, Double.NaN)
+				: new Entry(record, (e.getMinX() + e.getMaxX()) / 2, (e.getMinY() + e.getMaxY()) / 2);
+		}
+	}
+
+	private SortTileRecursive() {}
+
+	/** Reorders the given records in place. */
+	public static void sort(List<Record<Geometry>> records, int nodeCapacity) {
+		int numRecords = records.size();
+		if (numRecords <= nodeCapacity) {
+			return;
+		}
+		List<Entry> entries = new ArrayList<>(numRecords);
+		records.forEach(r -> entries.add(Entry.create(r)));
+		entries.sort(Comparator.comparingDouble(Entry::x));
+
+		int numLeaves = (numRecords + nodeCapacity - 1) / nodeCapacity;
+		int numSlices = (int) Math.ceil(Math.sqrt(numLeaves));
+		int sliceSize = numSlices * nodeCapacity;
+		for (int start = 0; start < numRecords; start += sliceSize) {
+			entries.subList(start, Math.min(start + sliceSize, numRecords))
+				.sort(Comparator.comparingDouble(Entry::y));
+		}
+
+		for (int i = 0; i < numRecords; ++i) {
+			records.set(i, entries.get(i).record());
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package com.bbn.parliament.jena.graph.index.spatial;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -49,6 +51,7 @@ public abstract class SpatialIndex extends IndexBase<Geometry> implements Querya
 	private static final String ID_NODE_INDEX = "id_node_index";
 	private static final String DATA_DB = "data";
 	private static final String CATALOG_DB = "catalog";
+	private static final int DEFAULT_BULK_LOAD_NODE_CAPACITY = 50;
 
 	private static final ThreadLocal<WKBWriter> WKB_WRITER = new ThreadLocal<>() {
 		@Override
@@ -393,6 +396,23 @@ public abstract class SpatialIndex extends IndexBase<Geometry> implements Querya
 		}
 	}
 
+	/**
+	 * {@inheritDoc} The records are added in sort-tile-recursive order, so that
+	 * records that are near one another in space are added one after another.
+	 */
+	@Override
+	protected void doBulkLoad(Iterator<Record<Geometry>> records) throws IndexException {
+		List<Record<Geometry>> recordList = new ArrayList<>();
+		records.forEachRemaining(recordList::add);
+		SortTileRecursive.sort(recordList, getBulkLoadNodeCapacity());
+		doAdd(recordList.iterator());
+	}
+
+	/** Returns the number of entries in a node of the index, for ordering a bulk load. */
+	protected int getBulkLoadNodeCapacity() {
+		return DEFAULT_BULK_LOAD_NODE_CAPACITY;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	protected void doRemove(Iterator<Record<Geometry>> records) throws IndexException {
@@ -76,6 +76,11 @@ public class RTreeIndex extends SpatialIndex {
 		}
 	}
 
+	@Override
+	protected int getBulkLoadNodeCapacity() {
+		return MAX_NODE_LOAD;
+	}
+
 	@Override
 	protected void indexDelete() {
 		deleteTree();
@@ -0,0 +1,69 @@
+package com.bbn.parliament.jena.graph.index.spatial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import com.bbn.parliament.jena.graph.index.Record;
+import com.hp.hpl.jena.graph.Node;
+
+public class SortTileRecursiveTest {
+	private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testRunsOfNodeCapacityAreCompact() {
+		// A 20 x 20 grid of points, in row-major order:
+		int gridSize = 20;
+		int nodeCapacity = 25;
+		List<Record<Geometry>> records = new ArrayList<>();
+		for (int y = 0; y < gridSize; ++y) {
+			for (int x = 0; x < gridSize; ++x) {
+				records.add(point(x, y));
+			}
+		}
+		Set<Record<Geometry>> before = new HashSet<>(records);
+
+		SortTileRecursive.sort(records, nodeCapacity);
+
+		assertEquals(before, new HashSet<>(records));
+		// 16 leaves in 4 slices of 5 columns each, so each leaf is 5 x 5:
+		for (int start = 0; start < records.size(); start += nodeCapacity) {
+			Envelope e = new Envelope();
+			records.subList(start, start + nodeCapacity)
+				.forEach(r -> e.expandToInclude(r.getValue().getEnvelopeInternal()));
+			assertTrue(e.getWidth() <= 4 && e.getHeight() <= 4, e.toString());
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testEmptyGeometriesComeLast() {
+		List<Record<Geometry>> records = new ArrayList<>();
+		Record<Geometry> empty = Record.create(Node.createURI("http://example.org/empty"),
+			GEOMETRY_FACTORY.createPoint((Coordinate) null));
+		records.add(empty);
+		for (int i = 0; i < 10; ++i) {
+			records.add(point(i, i));
+		}
+
+		SortTileRecursive.sort(records, 2);
+
+		assertEquals(empty, records.get(records.size() - 1));
+	}
+
+	private static Record<Geometry> point(int x, int y) {
+		return Record.create(Node.createURI("http://example.org/p%1$d_%2$d".formatted(x, y)),
+			GEOMETRY_FACTORY.createPoint(new Coordinate(x, y)));
+	}
+}
@@ -7,7 +7,11 @@
 package com.bbn.parliament.jena.graph.index.temporal.bdb;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.slf4j.Logger;
@@ -64,6 +68,8 @@ public class PersistentTemporalIndex extends TemporalIndex {
 	private static final String NODES_DATABASE_NAME = "nodes";
 	private static final String STARTS_DATABASE_NAME = "starts";
 	private static final String ENDS_DATABASE_NAME = "ends";
+	/** The number of records that bulkLoad sorts at a time. */
+	private static final int BULK_LOAD_RUN_SIZE = 100_000;
 
 	private boolean initialized = false;
 	private long size;
@@ -458,19 +464,9 @@ public class PersistentTemporalIndex extends TemporalIndex {
 		}
 
 		DatabaseEntry key = convertToKey(node);
-		DatabaseEntry data = new DatabaseEntry();
-		byte[] databytes = new byte[16];
-
-		minStart = Math.min(minStart, extent.getStart().getInstant());
-		maxStart = Math.max(maxStart, extent.getStart().getInstant());
-		minEnd = Math.min(minEnd, extent.getEnd().getInstant());
-		maxEnd = Math.max(maxEnd, extent.getEnd().getInstant());
-
-		getBytesForLong(databytes, extent.getStart().getInstant(), 0);
-		getBytesForLong(databytes, extent.getEnd().getInstant(), 8);
-		data.setData(databytes);
+		updateMinAndMaxes(extent);
 		try {
-			nodeIndexedDatabase.put(null, key, data);
+			nodeIndexedDatabase.put(null, key, convertToData(extent));
 			size++;
 		} catch (DatabaseException e) {
 			throw new RuntimeException("Error with the BDB database", e);
@@ -479,12 +475,26 @@ public class PersistentTemporalIndex extends TemporalIndex {
 		return true;
 	}
 
+	private void updateMinAndMaxes(TemporalExtent extent) {
+		minStart = Math.min(minStart, extent.getStart().getInstant());
+		maxStart = Math.max(maxStart, extent.getStart().getInstant());
+		minEnd = Math.min(minEnd, extent.getEnd().getInstant());
+		maxEnd = Math.max(maxEnd, extent.getEnd().getInstant());
+	}
+
 	private static DatabaseEntry convertToKey(Node node) {
 		DatabaseEntry key = new DatabaseEntry();
 		key.setData(getStringRepresentation(node).getBytes());
 		return key;
 	}
 
+	private static DatabaseEntry convertToData(TemporalExtent extent) {
+		byte[] databytes = new byte[16];
+		getBytesForLong(databytes, extent.getStart().getInstant(), 0);
+		getBytesForLong(databytes, extent.getEnd().getInstant(), 8);
+		return new DatabaseEntry(databytes);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void add(Iterator<Record<TemporalExtent>> records) {
@@ -493,6 +503,44 @@ public class PersistentTemporalIndex extends TemporalIndex {
 		}
 	}
 
+	/**
+	 * {@inheritDoc} The records are sorted by node, in runs of up to
+	 * BULK_LOAD_RUN_SIZE, so that each run is put into the nodes database in
+	 * key order. Since the index starts out empty, a record is not looked up
+	 * before it is put, as in add; a record whose node is already present
+	 * replaces the earlier one.
+	 */
+	@Override
+	public void bulkLoad(Iterator<Record<TemporalExtent>> records) {
+		List<Map.Entry<byte[], TemporalExtent>> run = new ArrayList<>();
+		while (records.hasNext()) {
+			Record<TemporalExtent> r = records.next();
+			run.add(Map.entry(getStringRepresentation(r.getKey()).getBytes(), r.getValue()));
+			if (run.size() >= BULK_LOAD_RUN_SIZE || !records.hasNext()) {
+				run.sort((e1, e2) -> Arrays.compareUnsigned(e1.getKey(), e2.getKey()));
+				for (Map.Entry<byte[], TemporalExtent> entry : run) {
+					putNew(entry.getKey(), entry.getValue());
+				}
+				run.clear();
+			}
+		}
+	}
+
+	private void putNew(byte[] nodeKey, TemporalExtent extent) {
+		DatabaseEntry key = new DatabaseEntry(nodeKey);
+		DatabaseEntry data = convertToData(extent);
+		updateMinAndMaxes(extent);
+		try {
+			if (nodeIndexedDatabase.putNoOverwrite(null, key, data) == OperationStatus.SUCCESS) {
+				size++;
+			} else {
+				nodeIndexedDatabase.put(null, key, data);
+			}
+		} catch (DatabaseException e) {
+			throw new RuntimeException("Error with the BDB database", e);
+		}
+	}
+
 	@Override
 	public boolean remove(Record<TemporalExtent> r) {
 		Node node = r.getKey();
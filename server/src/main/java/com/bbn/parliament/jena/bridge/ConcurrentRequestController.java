@@ -6,42 +6,279 @@
 
 package com.bbn.parliament.jena.bridge;
 
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.parliament.jena.graph.KbGraphStore;
+import com.bbn.parliament.jena.graph.ModelManager;
+import com.bbn.parliament.jena.graph.union.KbUnionGraph;
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * Coordinates concurrent requests so that a request that writes a graph runs
+ * alone with respect to that graph, while requests that touch other graphs
+ * proceed. Locking is in two levels. First, each request takes the
+ * repository lock in a mode determined by its {@link GraphLockScope}:
+ * <ul>
+ * <li>READ_GRAPHS and WRITE_GRAPHS for requests that read, or write, known
+ * graphs. These are compatible with one another, and the request goes on to
+ * lock the individual graphs.</li>
+ * <li>READ_ALL for requests that read every graph, such as a flush. It admits
+ * READ_GRAPHS requests, but no writers.</li>
+ * <li>EXCLUSIVE for requests that change the set of graphs (including a
+ * write to a graph that does not exist yet, which creates it), write the
+ * master graph, or otherwise cannot say what they touch.</li>
+ * </ul>
+ * Second, requests in the READ_GRAPHS and WRITE_GRAPHS modes take a
+ * read/write lock per graph, in order of graph name so that two requests
+ * cannot deadlock. A union graph is locked by locking its constituents, and
+ * a graph in the quad store also locks the quad store, whose KB it shares
+ * with the other graphs there. Locks are kept only for graphs that exist.
+ */
 public final class ConcurrentRequestController {
-	private static class ReadLock implements ConcurrentRequestLock {
-		public ReadLock() {
-			lock.readLock().lock();
+	private static final Logger LOG = LoggerFactory.getLogger(ConcurrentRequestController.class);
+
+	private enum Mode { READ_GRAPHS, WRITE_GRAPHS, READ_ALL, EXCLUSIVE }
+
+	private static class ScopedLock implements ConcurrentRequestLock {
+		private Mode mode;
+		private final List<Lock> graphLocks;
+
+		public ScopedLock(GraphLockScope scope) {
+			mode = scope.isExclusive()
+				? Mode.EXCLUSIVE
+				: scope.readsAllGraphs()
+					? Mode.READ_ALL
+					: scope.getWriteGraphs().isEmpty()
+						? Mode.READ_GRAPHS
+						: Mode.WRITE_GRAPHS;
+			if (mode == Mode.WRITE_GRAPHS && writesMissingGraph(scope)) {
+				mode = Mode.EXCLUSIVE;
+			}
+			repositoryLock.lock(mode);
+			if (mode == Mode.WRITE_GRAPHS && writesMissingGraph(scope)) {
+				// A graph was dropped while this waited for the repository lock:
+				repositoryLock.unlock(mode);
+				mode = Mode.EXCLUSIVE;
+				repositoryLock.lock(mode);
+			}
+			graphLocks = new ArrayList<>();
+			if (mode == Mode.READ_GRAPHS || mode == Mode.WRITE_GRAPHS) {
+				try {
+					lockGraphs(scope);
+				} catch (RuntimeException ex) {
+					close();
+					throw ex;
+				}
+			}
+		}
+
+		/**
+		 * Returns true if the request writes a graph that does not exist. Jena
+		 * creates such a graph on first access, which adds it to the graph store
+		 * and writes the master graph, and so the request must be exclusive.
+		 */
+		private static boolean writesMissingGraph(GraphLockScope scope) {
+			return scope.getWriteGraphs().stream().anyMatch(g -> !graphExists(g));
+		}
+
+		// The repository lock keeps the set of graphs from changing while this runs
+		private void lockGraphs(GraphLockScope scope) {
+			// Maps each graph to whether it is written, sorted by graph name.  A
+			// graph that does not exist has nothing to protect, and is left out
+			// so that requests cannot fill perGraphLocks with arbitrary names:
+			Map<String, Boolean> graphs = new TreeMap<>();
+			scope.getReadGraphs().stream()
+				.filter(ConcurrentRequestController::graphExists)
+				.forEach(g -> addGraph(graphs, g, false));
+			scope.getWriteGraphs().forEach(g -> addGraph(graphs, g, true));
+			LOG.trace("Locking graphs {}", graphs);
+			graphs.forEach((graphName, isWrite) -> {
+				ReentrantReadWriteLock rwLock = perGraphLocks.computeIfAbsent(
+					graphName, k -> new ReentrantReadWriteLock());
+				Lock lock = isWrite ? rwLock.writeLock() : rwLock.readLock();
+				lock.lock();
+				graphLocks.add(lock);
+			});
+		}
+
+		private static void addGraph(Map<String, Boolean> graphs, String graphName, boolean isWrite) {
+			graphs.merge(graphName, isWrite, Boolean::logicalOr);
+			if (!KbGraphStore.DEFAULT_GRAPH_URI.equals(graphName)
+				&& graphDirectory.containsGraph(graphName)) {
+				List<String> constituents = graphDirectory.getUnionConstituents(graphName);
+				if (constituents != null) {
+					constituents.forEach(g -> addGraph(graphs, g, isWrite));
+				} else if (graphDirectory.isInQuadStore(graphName)) {
+					graphs.merge(KbGraphStore.QUAD_STORE_GRAPH, isWrite, Boolean::logicalOr);
+				}
+			}
 		}
 
 		@Override
 		public void close() {
-			lock.readLock().unlock();
+			for (int i = graphLocks.size() - 1; i >= 0; --i) {
+				graphLocks.get(i).unlock();
+			}
+			graphLocks.clear();
+			if (mode == Mode.EXCLUSIVE) {
+				// No other request holds a graph lock now, and this request may
+				// have dropped graphs, so discard the locks of missing graphs:
+				perGraphLocks.keySet().removeIf(g -> !graphExists(g));
+			}
+			repositoryLock.unlock(mode);
+		}
+	}
+
+	/**
+	 * A lock with the four modes above. A thread that already holds the lock
+	 * in a mode that covers the requested one is granted it at once, which
+	 * permits (for instance) an exclusive repository import to clear the KB.
+	 * To keep the stronger modes from starving, a waiting EXCLUSIVE request
+	 * holds back all new requests, and a waiting READ_ALL request holds back
+	 * new WRITE_GRAPHS requests.
+	 */
+	private static class RepositoryLock {
+		private final int[] holdCounts = new int[Mode.values().length];
+		private final int[] waitCounts = new int[Mode.values().length];
+		private final ThreadLocal<int[]> threadHoldCounts =
+			ThreadLocal.withInitial(() -> new int[Mode.values().length]);
+
+		public synchronized void lock(Mode mode) {
+			int[] threadHolds = threadHoldCounts.get();
+			if (!isHeldInCoveringMode(threadHolds, mode)) {
+				boolean isInterrupted = false;
+				++waitCounts[mode.ordinal()];
+				try {
+					while (!canGrant(mode)) {
+						try {
+							wait();
+						} catch (InterruptedException ex) {
+							isInterrupted = true;
+						}
+					}
+				} finally {
+					--waitCounts[mode.ordinal()];
+				}
+				if (isInterrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			++holdCounts[mode.ordinal()];
+			++threadHolds[mode.ordinal()];
+		}
+
+		public synchronized void unlock(Mode mode) {
+			--holdCounts[mode.ordinal()];
+			--threadHoldCounts.get()[mode.ordinal()];
+			notifyAll();
+		}
+
+		private static boolean isHeldInCoveringMode(int[] threadHolds, Mode mode) {
+			return threadHolds[Mode.EXCLUSIVE.ordinal()] > 0
+				|| threadHolds[mode.ordinal()] > 0
+				|| (mode == Mode.READ_GRAPHS && (threadHolds[Mode.READ_ALL.ordinal()] > 0
+					|| threadHolds[Mode.WRITE_GRAPHS.ordinal()] > 0));
 		}
+
+		private boolean canGrant(Mode mode) {
+			for (Mode held : Mode.values()) {
+				if (holdCounts[held.ordinal()] > 0 && !isCompatible(mode, held)) {
+					return false;
+				}
+			}
+			return switch (mode) {
+				case EXCLUSIVE -> true;
+				case WRITE_GRAPHS -> waitCounts[Mode.EXCLUSIVE.ordinal()] == 0
+					&& waitCounts[Mode.READ_ALL.ordinal()] == 0;
+				default -> waitCounts[Mode.EXCLUSIVE.ordinal()] == 0;
+			};
+		}
+
+		private static boolean isCompatible(Mode m1, Mode m2) {
+			if (m1 == Mode.EXCLUSIVE || m2 == Mode.EXCLUSIVE) {
+				return false;
+			} else if (m1 == Mode.READ_GRAPHS || m2 == Mode.READ_GRAPHS) {
+				return true;
+			} else {
+				return m1 == m2;
+			}
+		}
+	}
+
+	/** The repository's named graphs, as far as locking is concerned. */
+	interface GraphDirectory {
+		boolean containsGraph(String graphName);
+
+		/** Returns the names of the two graphs of a union graph, or null if the graph is not a union. */
+		List<String> getUnionConstituents(String graphName);
+
+		boolean isInQuadStore(String graphName);
 	}
 
-	private static class WriteLock implements ConcurrentRequestLock {
-		public WriteLock() {
-			lock.writeLock().lock();
+	/** The graphs known to the ModelManager. */
+	private static class ModelManagerDirectory implements GraphDirectory {
+		@Override
+		public boolean containsGraph(String graphName) {
+			return ModelManager.inst().containsModel(graphName);
 		}
 
 		@Override
-		public void close() {
-			lock.writeLock().unlock();
+		public List<String> getUnionConstituents(String graphName) {
+			Model model = ModelManager.inst().getModel(graphName);
+			return (model != null && model.getGraph() instanceof KbUnionGraph union)
+				? List.of(union.getLeftGraphName().getURI(), union.getRightGraphName().getURI())
+				: null;
+		}
+
+		@Override
+		public boolean isInQuadStore(String graphName) {
+			return ModelManager.inst().isInQuadStore(graphName);
 		}
 	}
 
-	private static final boolean FAIR_READ_WRITE_LOCK = true;
-	private static ReadWriteLock lock = new ReentrantReadWriteLock(FAIR_READ_WRITE_LOCK);
+	private static final RepositoryLock repositoryLock = new RepositoryLock();
+	private static final Map<String, ReentrantReadWriteLock> perGraphLocks = new ConcurrentHashMap<>();
+	private static volatile GraphDirectory graphDirectory = new ModelManagerDirectory();
 
 	private ConcurrentRequestController() {}	// prevents instantiation
 
+	/**
+	 * Replaces the directory of graphs, for testing, and returns the previous
+	 * one. No lock may be held meanwhile.
+	 */
+	static GraphDirectory setGraphDirectory(GraphDirectory directory) {
+		GraphDirectory previous = graphDirectory;
+		graphDirectory = directory;
+		return previous;
+	}
+
+	private static boolean graphExists(String graphName) {
+		return KbGraphStore.DEFAULT_GRAPH_URI.equals(graphName)
+			|| KbGraphStore.QUAD_STORE_GRAPH.equals(graphName)
+			|| graphDirectory.containsGraph(graphName);
+	}
+
+	/** Locks every graph for reading. */
 	public static ConcurrentRequestLock getReadLock() {
-		return new ReadLock();
+		return getLock(GraphLockScope.allGraphs());
 	}
 
+	/** Locks the whole repository for the exclusive use of the caller. */
 	public static ConcurrentRequestLock getWriteLock() {
-		return new WriteLock();
+		return getLock(GraphLockScope.exclusive());
+	}
+
+	/** Locks the graphs that a request reads and writes. */
+	public static ConcurrentRequestLock getLock(GraphLockScope scope) {
+		return new ScopedLock(scope);
 	}
 }
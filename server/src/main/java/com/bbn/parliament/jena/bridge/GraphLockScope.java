@@ -0,0 +1,332 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.bridge;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.bbn.parliament.jena.graph.KbGraphStore;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.SortCondition;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.algebra.op.Op0;
+import com.hp.hpl.jena.sparql.algebra.op.Op1;
+import com.hp.hpl.jena.sparql.algebra.op.Op2;
+import com.hp.hpl.jena.sparql.algebra.op.OpAssign;
+import com.hp.hpl.jena.sparql.algebra.op.OpDatasetNames;
+import com.hp.hpl.jena.sparql.algebra.op.OpExtend;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter;
+import com.hp.hpl.jena.sparql.algebra.op.OpGraph;
+import com.hp.hpl.jena.sparql.algebra.op.OpGroup;
+import com.hp.hpl.jena.sparql.algebra.op.OpLeftJoin;
+import com.hp.hpl.jena.sparql.algebra.op.OpN;
+import com.hp.hpl.jena.sparql.algebra.op.OpNull;
+import com.hp.hpl.jena.sparql.algebra.op.OpOrder;
+import com.hp.hpl.jena.sparql.algebra.op.OpQuadPattern;
+import com.hp.hpl.jena.sparql.algebra.op.OpService;
+import com.hp.hpl.jena.sparql.algebra.op.OpTable;
+import com.hp.hpl.jena.sparql.core.Quad;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprFunctionOp;
+import com.hp.hpl.jena.sparql.expr.ExprVisitorBase;
+import com.hp.hpl.jena.sparql.expr.ExprWalker;
+import com.hp.hpl.jena.sparql.modify.request.UpdateClear;
+import com.hp.hpl.jena.sparql.modify.request.UpdateData;
+import com.hp.hpl.jena.sparql.modify.request.UpdateDeleteWhere;
+import com.hp.hpl.jena.sparql.modify.request.UpdateModify;
+import com.hp.hpl.jena.update.Update;
+import com.hp.hpl.jena.update.UpdateRequest;
+
+/**
+ * The graphs that a request reads and writes, from which
+ * {@link ConcurrentRequestController} determines the locks to take for it.
+ * Graphs are identified by URI, with the default graph identified by
+ * {@link KbGraphStore#DEFAULT_GRAPH_URI}.
+ * <p>
+ * A request that reads a variable graph (e.g., GRAPH ?g) reads all graphs. A
+ * request that changes the set of graphs (e.g., CREATE or DROP), writes to the
+ * master graph, or writes to a graph that cannot be determined in advance is
+ * exclusive of all other requests, as is a request that both reads all graphs
+ * and writes some of them.
+ */
+public final class GraphLockScope {
+	private static final GraphLockScope EXCLUSIVE = new GraphLockScope(
+		true, true, Collections.emptySet(), Collections.emptySet());
+	private static final GraphLockScope ALL_GRAPHS = new GraphLockScope(
+		false, true, Collections.emptySet(), Collections.emptySet());
+
+	private final boolean isExclusive;
+	private final boolean readsAllGraphs;
+	private final Set<String> readGraphs;
+	private final Set<String> writeGraphs;
+
+	private GraphLockScope(boolean isExclusive, boolean readsAllGraphs,
+		Set<String> readGraphs, Set<String> writeGraphs) {
+		this.isExclusive = isExclusive;
+		this.readsAllGraphs = readsAllGraphs;
+		this.readGraphs = readGraphs;
+		this.writeGraphs = writeGraphs;
+	}
+
+	/** A request that must run alone, such as clearing or importing the whole repository. */
+	public static GraphLockScope exclusive() {
+		return EXCLUSIVE;
+	}
+
+	/** A request that reads every graph, such as exporting or flushing the repository. */
+	public static GraphLockScope allGraphs() {
+		return ALL_GRAPHS;
+	}
+
+	/** A request that reads the named graph, or the default graph if graphName is null. */
+	public static GraphLockScope forGraphRead(String graphName) {
+		Builder builder = new Builder();
+		builder.read(toNode(graphName));
+		return builder.build();
+	}
+
+	/** A request that writes the named graph, or the default graph if graphName is null. */
+	public static GraphLockScope forGraphWrite(String graphName) {
+		Builder builder = new Builder();
+		builder.write(toNode(graphName));
+		return builder.build();
+	}
+
+	/**
+	 * A query. A query with a dataset description reads its graphs from outside
+	 * the repository, and so needs no graph locks.
+	 */
+	public static GraphLockScope forQuery(Query query) {
+		Builder builder = new Builder();
+		if (!query.hasDatasetDescription()) {
+			builder.readPattern(Algebra.compile(query), null);
+		}
+		return builder.build();
+	}
+
+	/** An update request. */
+	public static GraphLockScope forUpdate(UpdateRequest request) {
+		Builder builder = new Builder();
+		for (Update update : request.getOperations()) {
+			if (update instanceof UpdateData data) {
+				data.getQuads().forEach(q -> builder.write(q.getGraph()));
+			} else if (update instanceof UpdateDeleteWhere deleteWhere) {
+				deleteWhere.getQuads().forEach(q -> {
+					builder.read(q.getGraph());
+					builder.write(q.getGraph());
+				});
+			} else if (update instanceof UpdateModify modify) {
+				Node with = modify.getWithIRI();
+				modify.getDeleteQuads().forEach(q -> builder.write(withDefault(q.getGraph(), with)));
+				modify.getInsertQuads().forEach(q -> builder.write(withDefault(q.getGraph(), with)));
+				modify.getUsingNamed().forEach(builder::read);
+				if (modify.getWherePattern() != null) {
+					// USING, or failing that WITH, replaces the default graph of the WHERE clause:
+					List<Node> defaultGraphs = !modify.getUsing().isEmpty()
+						? modify.getUsing()
+						: (with != null) ? List.of(with) : null;
+					builder.readPattern(Algebra.compile(modify.getWherePattern()), defaultGraphs);
+				}
+			} else if (update instanceof UpdateClear clear && (clear.isOneGraph() || clear.isDefault())) {
+				builder.write(clear.isDefault() ? null : clear.getGraph());
+			} else {
+				// CREATE, DROP, LOAD, ADD, MOVE, COPY, and CLEAR of many graphs:
+				builder.isExclusive = true;
+			}
+		}
+		return builder.build();
+	}
+
+	/** The scope of a set of requests that run together as one. */
+	public static GraphLockScope union(Collection<GraphLockScope> scopes) {
+		Builder builder = new Builder();
+		for (GraphLockScope scope : scopes) {
+			builder.isExclusive |= scope.isExclusive;
+			builder.readsAllGraphs |= scope.readsAllGraphs;
+			builder.readGraphs.addAll(scope.readGraphs);
+			builder.writeGraphs.addAll(scope.writeGraphs);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns true if this request and the other may not run at the same time,
+	 * because one is exclusive or writes a graph that the other touches.
+	 * Graphs are compared by name only, so this does not see that a union graph
+	 * shares its constituents, but the locks taken for the requests do.
+	 */
+	public boolean conflictsWith(GraphLockScope other) {
+		return isExclusive || other.isExclusive
+			|| writesAnyOf(other) || other.writesAnyOf(this);
+	}
+
+	private boolean writesAnyOf(GraphLockScope other) {
+		if (writeGraphs.isEmpty()) {
+			return false;
+		} else if (other.readsAllGraphs) {
+			return true;
+		}
+		return writeGraphs.stream().anyMatch(
+			g -> other.readGraphs.contains(g) || other.writeGraphs.contains(g));
+	}
+
+	private static Node toNode(String graphName) {
+		return (graphName == null || graphName.isEmpty()
+			|| KbGraphStore.DEFAULT_GRAPH_BASENAME.equals(graphName))
+			? null
+			: Node.createURI(graphName);
+	}
+
+	private static Node withDefault(Node graphName, Node with) {
+		return (with != null && (graphName == null || Quad.isDefaultGraph(graphName)))
+			? with
+			: graphName;
+	}
+
+	public boolean isExclusive() {
+		return isExclusive;
+	}
+
+	public boolean readsAllGraphs() {
+		return readsAllGraphs;
+	}
+
+	/** The graphs read but not written. Empty if the request is exclusive or reads all graphs. */
+	public Set<String> getReadGraphs() {
+		return readGraphs;
+	}
+
+	/** The graphs written. Empty if the request is exclusive. */
+	public Set<String> getWriteGraphs() {
+		return writeGraphs;
+	}
+
+	@Override
+	public String toString() {
+		if (isExclusive) {
+			return "exclusive";
+		}
+		return "read %1$s, write %2$s".formatted(
+			readsAllGraphs ? "all graphs" : readGraphs, writeGraphs);
+	}
+
+	private static final class Builder {
+		private boolean isExclusive = false;
+		private boolean readsAllGraphs = false;
+		private final Set<String> readGraphs = new HashSet<>();
+		private final Set<String> writeGraphs = new HashSet<>();
+
+		public void read(Node graphName) {
+			if (graphName == null || Quad.isDefaultGraph(graphName)) {
+				readGraphs.add(KbGraphStore.DEFAULT_GRAPH_URI);
+			} else if (graphName.isURI() && !Quad.isUnionGraph(graphName)) {
+				readGraphs.add(graphName.getURI());
+			} else {
+				readsAllGraphs = true;
+			}
+		}
+
+		public void write(Node graphName) {
+			if (graphName == null || Quad.isDefaultGraph(graphName)) {
+				writeGraphs.add(KbGraphStore.DEFAULT_GRAPH_URI);
+			} else if (graphName.isURI() && !Quad.isUnionGraph(graphName)
+				&& !KbGraphStore.MASTER_GRAPH.equals(graphName.getURI())) {
+				writeGraphs.add(graphName.getURI());
+			} else {
+				isExclusive = true;
+			}
+		}
+
+		/**
+		 * Adds the graphs read by a pattern. Patterns outside of any GRAPH
+		 * clause read the given default graphs, or the repository's default graph
+		 * if that is null.
+		 */
+		public void readPattern(Op op, List<Node> defaultGraphs) {
+			readPattern(op, false, defaultGraphs);
+		}
+
+		private void readPattern(Op op, boolean isInGraph, List<Node> defaultGraphs) {
+			if (op instanceof OpGraph opGraph) {
+				read(opGraph.getNode());
+				readPattern(opGraph.getSubOp(), true, defaultGraphs);
+			} else if (op instanceof OpQuadPattern quadPattern) {
+				read(quadPattern.getGraphNode());
+			} else if (op instanceof OpDatasetNames) {
+				readsAllGraphs = true;
+			} else if (op instanceof OpService) {
+				// The pattern is evaluated by a remote endpoint
+			} else if (op instanceof Op0) {
+				if (!isInGraph && !(op instanceof OpTable) && !(op instanceof OpNull)) {
+					if (defaultGraphs == null) {
+						read(null);
+					} else {
+						defaultGraphs.forEach(this::read);
+					}
+				}
+			} else if (op instanceof Op1 op1) {
+				readExprs(op, isInGraph, defaultGraphs);
+				readPattern(op1.getSubOp(), isInGraph, defaultGraphs);
+			} else if (op instanceof Op2 op2) {
+				if (op instanceof OpLeftJoin leftJoin && leftJoin.getExprs() != null) {
+					readExprs(leftJoin.getExprs().getList(), isInGraph, defaultGraphs);
+				}
+				readPattern(op2.getLeft(), isInGraph, defaultGraphs);
+				readPattern(op2.getRight(), isInGraph, defaultGraphs);
+			} else if (op instanceof OpN opN) {
+				opN.getElements().forEach(subOp -> readPattern(subOp, isInGraph, defaultGraphs));
+			} else {
+				// Unknown operator -- assume the worst
+				readsAllGraphs = true;
+			}
+		}
+
+		/** Adds the graphs read by EXISTS and NOT EXISTS in an operator's expressions. */
+		private void readExprs(Op op, boolean isInGraph, List<Node> defaultGraphs) {
+			if (op instanceof OpFilter filter) {
+				readExprs(filter.getExprs().getList(), isInGraph, defaultGraphs);
+			} else if (op instanceof OpExtend extend) {
+				readExprs(extend.getVarExprList().getExprs().values(), isInGraph, defaultGraphs);
+			} else if (op instanceof OpAssign assign) {
+				readExprs(assign.getVarExprList().getExprs().values(), isInGraph, defaultGraphs);
+			} else if (op instanceof OpGroup group) {
+				readExprs(group.getGroupVars().getExprs().values(), isInGraph, defaultGraphs);
+			} else if (op instanceof OpOrder order) {
+				readExprs(order.getConditions().stream()
+					.map(SortCondition::getExpression)
+					.toList(), isInGraph, defaultGraphs);
+			}
+		}
+
+		private void readExprs(Collection<Expr> exprs, boolean isInGraph, List<Node> defaultGraphs) {
+			ExprVisitorBase visitor = new ExprVisitorBase() {
+				@Override
+				public void visit(ExprFunctionOp funcOp) {
+					readPattern(funcOp.getGraphPattern(), isInGraph, defaultGraphs);
+				}
+			};
+			exprs.forEach(expr -> ExprWalker.walk(visitor, expr));
+		}
+
+		public GraphLockScope build() {
+			// Reading all graphs while writing some is rare enough to treat as exclusive:
+			if (isExclusive || (readsAllGraphs && !writeGraphs.isEmpty())) {
+				return EXCLUSIVE;
+			}
+			Set<String> reads = new HashSet<>(readGraphs);
+			reads.removeAll(writeGraphs);
+			return new GraphLockScope(false, readsAllGraphs,
+				readsAllGraphs ? Collections.emptySet() : Collections.unmodifiableSet(reads),
+				Collections.unmodifiableSet(new HashSet<>(writeGraphs)));
+		}
+	}
+}
@@ -0,0 +1,243 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.bridge;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.parliament.jena.bridge.tracker.TrackableException;
+import com.bbn.parliament.jena.bridge.tracker.TrackableUpdate;
+import com.bbn.parliament.jena.exception.DataFormatException;
+import com.bbn.parliament.jena.exception.MissingGraphException;
+import com.bbn.parliament.recovery.JournalBatch;
+
+/**
+ * Runs SPARQL updates with group commit. Updates that cannot start at once,
+ * because a running batch touches their graphs, are queued. Whenever a batch
+ * finishes, each waiting thread takes the queued updates (up to a limit) that
+ * no running batch conflicts with, and runs them in order within one critical
+ * section, covering the union of their graphs. Batches on disjoint graphs
+ * run concurrently. An update that is exclusive (see GraphLockScope) runs in
+ * a batch by itself, and the updates queued after it that it conflicts with
+ * wait for it. Each update still succeeds or fails on its own, and its
+ * submitter sees only its own outcome.
+ * <p>
+ * The changes of a batch are journaled as one frame per KB (see
+ * JournalBatch), so after a crash a batch is replayed all or nothing. If the
+ * journal syncs on commit, the batch is durable by the time its submitters
+ * return, and concurrent batches share the sync. Otherwise the writes reach
+ * disk when the journal, or the flush timer, next syncs.
+ * <p>
+ * This follows the "lazy initialization holder class" idiom, like ModelManager.
+ */
+public final class UpdateQueue {
+	private static final Logger LOG = LoggerFactory.getLogger(UpdateQueue.class);
+	private static final int MAX_BATCH_SIZE = 256;
+
+	private static class UpdateQueueHolder {
+		private static final UpdateQueue INSTANCE = new UpdateQueue();
+	}
+
+	/** The work of an update, run within its batch's critical section. */
+	@FunctionalInterface
+	interface UpdateTask {
+		void run() throws TrackableException, DataFormatException, MissingGraphException, IOException;
+	}
+
+	/** An update waiting in the queue, and then its outcome. */
+	private static class PendingUpdate {
+		private final UpdateTask task;
+		private final GraphLockScope scope;
+		private boolean isDone = false;
+		private Throwable failure = null;
+
+		public PendingUpdate(UpdateTask task, GraphLockScope scope) {
+			this.task = task;
+			this.scope = scope;
+		}
+	}
+
+	private final Function<GraphLockScope, ConcurrentRequestLock> lockFactory;
+	private final Deque<PendingUpdate> queue = new ArrayDeque<>();
+	private final List<GraphLockScope> runningScopes = new ArrayList<>();
+
+	public static UpdateQueue inst() {
+		return UpdateQueueHolder.INSTANCE;
+	}
+
+	private UpdateQueue() {
+		this(ConcurrentRequestController::getLock);
+	}
+
+	/** Creates a queue whose batches take the locks returned by lockFactory, for testing. */
+	UpdateQueue(Function<GraphLockScope, ConcurrentRequestLock> lockFactory) {
+		this.lockFactory = lockFactory;
+	}
+
+	/**
+	 * Runs an update, returning once it has been applied, and
+	 * throwing whatever exception the update itself threw.
+	 */
+	public void submit(TrackableUpdate trackable) throws TrackableException,
+		DataFormatException, MissingGraphException, IOException {
+		// Parse and scope the update here, so that a syntax error never enters a batch:
+		submit(GraphLockScope.forUpdate(trackable.getRequest()), trackable::run);
+	}
+
+	/** Runs a task with the given scope as an update, as for submit(TrackableUpdate). */
+	void submit(GraphLockScope scope, UpdateTask task) throws TrackableException,
+		DataFormatException, MissingGraphException, IOException {
+		PendingUpdate update = new PendingUpdate(task, scope);
+
+		List<PendingUpdate> batch = null;
+		boolean isInterrupted = false;
+		synchronized (this) {
+			queue.addLast(update);
+		}
+		for (;;) {
+			GraphLockScope batchScope;
+			synchronized (this) {
+				while (!update.isDone && (batch = takeBatch()) == null) {
+					isInterrupted |= waitUninterruptibly();
+				}
+				if (update.isDone) {
+					break;
+				}
+				batchScope = GraphLockScope.union(batch.stream().map(u -> u.scope).toList());
+				runningScopes.add(batchScope);
+			}
+			Error error = null;
+			try {
+				runBatch(batch, batchScope);
+			} catch (Error ex) {
+				error = ex;
+				throw ex;
+			} finally {
+				synchronized (this) {
+					for (PendingUpdate u : batch) {
+						if (error != null && u.failure == null) {
+							u.failure = error;
+						}
+						u.isDone = true;
+					}
+					runningScopes.remove(batchScope);
+					notifyAll();
+				}
+			}
+		}
+		if (isInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+		rethrow(update.failure);
+	}
+
+	/** Returns the number of updates waiting in the queue, for testing. */
+	synchronized int getNumQueued() {
+		return queue.size();
+	}
+
+	/**
+	 * Waits for a notification, returning true if interrupted. An update that
+	 * has been queued must run to completion, so interruption only ends the wait.
+	 */
+	private boolean waitUninterruptibly() {
+		try {
+			wait();
+			return false;
+		} catch (InterruptedException ex) {
+			return true;
+		}
+	}
+
+	/**
+	 * Removes from the queue and returns the updates that can start now, or
+	 * null if there are none. An update can start if it conflicts with no
+	 * running batch, and with no update ahead of it in the queue that is left
+	 * waiting, so that conflicting updates start in the order they arrived. An
+	 * exclusive update is returned alone, and is not joined by other updates.
+	 */
+	private List<PendingUpdate> takeBatch() {
+		List<PendingUpdate> batch = new ArrayList<>();
+		List<GraphLockScope> blockers = new ArrayList<>(runningScopes);
+		for (Iterator<PendingUpdate> it = queue.iterator();
+			it.hasNext() && batch.size() < MAX_BATCH_SIZE;) {
+			PendingUpdate u = it.next();
+			boolean canStart = blockers.stream().noneMatch(u.scope::conflictsWith)
+				&& (!u.scope.isExclusive() || batch.isEmpty());
+			if (canStart) {
+				it.remove();
+				batch.add(u);
+				if (u.scope.isExclusive()) {
+					break;
+				}
+			} else {
+				blockers.add(u.scope);
+				if (blockers.stream().anyMatch(GraphLockScope::isExclusive)) {
+					// Nothing after an update that waits on, or for, an exclusive one can start:
+					break;
+				}
+			}
+		}
+		return batch.isEmpty() ? null : batch;
+	}
+
+	/**
+	 * Runs the updates of a batch, journaling their changes as one frame per
+	 * journal. The frames are appended before the lock is released, so that a
+	 * flush cannot sync the changes without them, and waiting for the frames
+	 * to reach disk happens after, so that other batches can share the fsync.
+	 */
+	private void runBatch(List<PendingUpdate> batch, GraphLockScope scope) {
+		LOG.debug("Running a batch of {} updates, {}", batch.size(), scope);
+		try (JournalBatch journalBatch = JournalBatch.begin()) {
+			try (ConcurrentRequestLock lock = lockFactory.apply(scope)) {
+				@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
+				for (PendingUpdate update : batch) {
+					try {
+						update.task.run();
+					} catch (TrackableException | DataFormatException | MissingGraphException
+						| IOException | RuntimeException ex) {
+						update.failure = ex;
+					}
+				}
+				journalBatch.append();
+			}
+		} catch (RuntimeException ex) {
+			LOG.error("Error while running a batch of updates", ex);
+			batch.stream()
+				.filter(u -> u.failure == null)
+				.forEach(u -> u.failure = ex);
+		}
+	}
+
+	private static void rethrow(Throwable failure) throws TrackableException,
+		DataFormatException, MissingGraphException, IOException {
+		if (failure == null) {
+			return;
+		} else if (failure instanceof TrackableException ex) {
+			throw ex;
+		} else if (failure instanceof DataFormatException ex) {
+			throw ex;
+		} else if (failure instanceof MissingGraphException ex) {
+			throw ex;
+		} else if (failure instanceof IOException ex) {
+			throw ex;
+		} else if (failure instanceof RuntimeException ex) {
+			throw ex;
+		} else {
+			throw new IllegalStateException(failure);
+		}
+	}
+}
@@ -47,7 +47,10 @@ public class TrackableInsert extends Trackable {
 
 	@Override
 	public String getDisplay() {
-		return _display;
+		String progress = _inserter.getProgress();
+		return (progress == null)
+			? _display
+			: "%1$s (%2$s)".formatted(_display, progress);
 	}
 
 	public Inserter getInserter() {
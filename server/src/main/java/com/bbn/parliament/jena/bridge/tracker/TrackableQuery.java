@@ -1,13 +1,20 @@
 package com.bbn.parliament.jena.bridge.tracker;
 
 import java.beans.ConstructorProperties;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bbn.parliament.jena.graph.ModelManager;
 import com.bbn.parliament.jni.KbConfig;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QueryExecutionFactory;
@@ -16,7 +23,16 @@ import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.query.Syntax;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.sparql.ARQConstants;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.core.describe.DescribeHandler;
+import com.hp.hpl.jena.sparql.core.describe.DescribeHandlerRegistry;
 import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.util.Context;
+import com.hp.hpl.jena.sparql.util.ModelUtils;
 
 /**
  * A trackable query. Currently the only cancellable Trackable object.
@@ -31,6 +47,7 @@ public class TrackableQuery extends Trackable {
 	// private final AtomicBoolean _cancelled;
 	private QueryExecution _qExec;
 	private Object _queryResult;
+	private boolean _streamTriples;
 
 	@ConstructorProperties({ "id", "query", "creator" })
 	TrackableQuery(long id, String query, String creator) {
@@ -44,6 +61,16 @@ public class TrackableQuery extends Trackable {
 			_log.debug("Create query: {}\n{}", _id, query.toString());
 		}
 		// _cancelled = new AtomicBoolean(false);
+		_streamTriples = false;
+	}
+
+	/**
+	 * If set before the query is run, a CONSTRUCT or DESCRIBE query produces an
+	 * iterator of triples (see {@link #getTriples()}) that evaluates the query
+	 * as it is consumed, instead of a Model holding the whole result.
+	 */
+	public void setStreamTriples(boolean streamTriples) {
+		_streamTriples = streamTriples;
 	}
 
 	@Override
@@ -65,10 +92,10 @@ public class TrackableQuery extends Trackable {
 		}
 	}
 
-	private void createQueryExecution() {
-		_qExec = !_query.hasDatasetDescription()
-			? QueryExecutionFactory.create(_query, ModelManager.inst().getDataset())
-			: QueryExecutionFactory.create(_query);
+	private void createQueryExecution(Query query) {
+		_qExec = !query.hasDatasetDescription()
+			? QueryExecutionFactory.create(query, ModelManager.inst().getDataset())
+			: QueryExecutionFactory.create(query);
 			KbConfig cfg = ModelManager.inst().getDefaultGraphConfig();
 			_qExec.setTimeout(cfg.m_timeoutDuration, cfg.m_timeoutUnit);
 
@@ -95,8 +122,16 @@ public class TrackableQuery extends Trackable {
 
 	@Override
 	protected void doRun() {
+		if (_streamTriples && (_query.isConstructType() || _query.isDescribeType())) {
+			// As with select, the status is set to finished when the triples run out
+			_setFinishedOnRun = false;
+			_queryResult = new TrackableTripleIterator(_query.isConstructType()
+				? execConstructTriples()
+				: execDescribeTriples());
+			return;
+		}
 
-		createQueryExecution();
+		createQueryExecution(_query);
 
 		if (_query.isAskType()) {
 			_queryResult = _qExec.execAsk();
@@ -116,6 +151,39 @@ public class TrackableQuery extends Trackable {
 		}
 	}
 
+	private Iterator<Triple> execConstructTriples() {
+		createQueryExecution(_query);
+		return _qExec.execConstructTriples();
+	}
+
+	/**
+	 * Mirrors ARQ's execDescribe, except that the resources are described one at
+	 * a time, and each description is handed on before the next one is made.
+	 * Only the set of resources to describe is held in memory.
+	 */
+	private Iterator<Triple> execDescribeTriples() {
+		Query selectQuery = _query.cloneQuery();
+		selectQuery.setQuerySelectType();
+		if (selectQuery.getQueryPattern() == null) {
+			selectQuery.setQueryPattern(new ElementGroup());
+		}
+		createQueryExecution(selectQuery);
+
+		Set<Node> resources = new LinkedHashSet<>(_query.getResultURIs());
+		ResultSet rs = _qExec.execSelect();
+		List<String> vars = rs.getResultVars();
+		while (rs.hasNext()) {
+			Binding b = rs.nextBinding();
+			for (String varName : vars) {
+				Node n = b.get(Var.alloc(varName));
+				if (n != null && (n.isURI() || n.isBlank())) {
+					resources.add(n);
+				}
+			}
+		}
+		return new DescribedTripleIterator(resources.iterator());
+	}
+
 	public Object getQueryResult() {
 		return _queryResult;
 	}
@@ -128,6 +196,12 @@ public class TrackableQuery extends Trackable {
 		return Model.class.cast(_queryResult);
 	}
 
+	/** The result of a CONSTRUCT or DESCRIBE query run with {@link #setStreamTriples(boolean)} */
+	@SuppressWarnings("unchecked")
+	public Iterator<Triple> getTriples() {
+		return Iterator.class.cast(_queryResult);
+	}
+
 	public boolean getBoolean() {
 		return Boolean.class.cast(_queryResult);
 	}
@@ -237,4 +311,93 @@ public class TrackableQuery extends Trackable {
 			}
 		}
 	}
+
+	/**
+	 * Runs the describe handlers on one resource at a time, collecting each
+	 * description in a scratch model that is emptied before the next one.
+	 */
+	private class DescribedTripleIterator implements Iterator<Triple> {
+		private final Iterator<Node> _resources;
+		private final Dataset _dataset;
+		private final Model _description;
+		private final List<DescribeHandler> _handlers;
+		private Iterator<Triple> _current;
+
+		public DescribedTripleIterator(Iterator<Node> resources) {
+			_resources = resources;
+			_dataset = _qExec.getDataset();
+			_description = ModelFactory.createDefaultModel();
+			_handlers = DescribeHandlerRegistry.get().newHandlerList();
+			_current = Collections.emptyIterator();
+
+			Context context = _qExec.getContext();
+			context.put(ARQConstants.sysCurrentDataset, _dataset);
+			for (DescribeHandler handler : _handlers) {
+				handler.start(_description, context);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!_current.hasNext()) {
+				if (!_resources.hasNext()) {
+					_handlers.forEach(DescribeHandler::finish);
+					_handlers.clear();
+					return false;
+				}
+				_description.removeAll();
+				Resource r = (Resource) ModelUtils.convertGraphNodeToRDFNode(
+					_resources.next(), _dataset.getDefaultModel());
+				for (DescribeHandler handler : _handlers) {
+					handler.describe(r);
+				}
+				_current = _description.getGraph().find(Node.ANY, Node.ANY, Node.ANY)
+					.toList().iterator();
+			}
+			return true;
+		}
+
+		@Override
+		public Triple next() {
+			hasNext();
+			return _current.next();
+		}
+	}
+
+	/**
+	 * An iterator of triples that sets the status of the TrackableQuery to
+	 * finished when there are no more triples.
+	 */
+	private class TrackableTripleIterator implements Iterator<Triple> {
+		private final Iterator<Triple> _base;
+
+		public TrackableTripleIterator(Iterator<Triple> base) {
+			_base = base;
+		}
+
+		@Override
+		public boolean hasNext() {
+			boolean ret = false;
+			try {
+				ret = _base.hasNext();
+			} catch (RuntimeException e) {
+				setError();
+				throw e;
+			}
+			if (!ret) {
+				setFinished();
+			}
+			return ret;
+		}
+
+		@Override
+		public Triple next() {
+			try {
+				return _base.next();
+			} catch (RuntimeException e) {
+				setError();
+				throw e;
+			}
+		}
+	}
 }
@@ -7,21 +7,33 @@ import org.slf4j.LoggerFactory;
 
 import com.bbn.parliament.jena.graph.ModelManager;
 import com.hp.hpl.jena.update.UpdateAction;
+import com.hp.hpl.jena.update.UpdateFactory;
+import com.hp.hpl.jena.update.UpdateRequest;
 
 public class TrackableUpdate extends Trackable {
 	private static Logger _log = LoggerFactory.getLogger(TrackableUpdate.class);
 	private String _query;
+	private UpdateRequest _request;
 
 	@ConstructorProperties({"id", "query", "creator"})
 	TrackableUpdate(long id, String query, String creator) {
 		super(id, creator);
 		_query = query;
+		_request = null;
 	}
 
 	public String getQuery() {
 		return _query;
 	}
 
+	/** Parses the update on first use, so that it can be inspected before it is run. */
+	public UpdateRequest getRequest() {
+		if (_request == null) {
+			_request = UpdateFactory.create(_query);
+		}
+		return _request;
+	}
+
 	@Override
 	protected void doCancel() {
 	}
@@ -31,7 +43,7 @@ public class TrackableUpdate extends Trackable {
 		_log.debug("UPDATE QUERY: \n{}", _query);
 		_log.debug("OK/Update");
 
-		UpdateAction.parseExecute(_query, ModelManager.inst().getDataset());
+		UpdateAction.execute(getRequest(), ModelManager.inst().getDataset());
 
 		_log.debug("UPDATE complete.");
 	}
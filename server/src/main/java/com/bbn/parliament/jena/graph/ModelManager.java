@@ -10,6 +10,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -21,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import com.bbn.parliament.jena.bridge.ConcurrentRequestController;
 import com.bbn.parliament.jena.bridge.ConcurrentRequestLock;
+import com.bbn.parliament.jena.bridge.GraphLockScope;
 import com.bbn.parliament.jena.bridge.configuration.ReasonerConfigurationHandler;
 import com.bbn.parliament.jena.graph.index.IndexFactoryRegistry;
 import com.bbn.parliament.jena.graph.index.IndexManager;
@@ -44,6 +46,7 @@ public class ModelManager {
 	private KbGraphStore _kbGraphStore;
 	private Dataset _dataSource;
 	private FlushTimerTask flushTimerTask = null;
+	private CompactionTimerTask compactionTimerTask = null;
 
 	/**
 	 * Get the singleton instance of the model manager. This follows the "lazy
@@ -89,6 +92,11 @@ public class ModelManager {
 		return _kbGraphStore.getGraphDir(Node.createURI(namedGraphUri));
 	}
 
+	/** Returns true if the named graph keeps its statements in the quad store. */
+	public boolean isInQuadStore(String namedGraphUri) {
+		return _kbGraphStore.isInQuadStore(Node.createURI(namedGraphUri));
+	}
+
 	/** Get the default graph's configuration. */
 	public KbConfig getDefaultGraphConfig() {
 		return _kbGraphStore.getDefaultGraphConfig();
@@ -97,13 +105,12 @@ public class ModelManager {
 	@SuppressWarnings("resource")
 	public Model createAndAddNamedModel(String graphName, String graphDir,
 		boolean indexEnabled) {
-		KbGraph graph = KbGraphFactory.createNamedGraph(graphDir);
+		Node graphNode = null;
+		if (null != graphName) {
+			graphNode = Node.createURI(graphName);
+		}
+		KbGraph graph = _kbGraphStore.createNamedGraph(graphNode, graphDir);
 		if (indexEnabled) {
-			Node graphNode = null;
-			if (null != graphName) {
-				graphNode = Node.createURI(graphName);
-			}
-
 			IndexManager.getInstance().createAndRegisterAll(graph, graphNode);
 		}
 		Model toReturn = ModelFactory.createModelForGraph(graph);
@@ -154,6 +161,7 @@ public class ModelManager {
 		try (ConcurrentRequestLock lock = ConcurrentRequestController.getWriteLock()) {
 			@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
 			stopFlushTimer();
+			stopCompactionTimer();
 
 			_kbGraphStore.clear();
 			_dataSource = null;
@@ -166,6 +174,7 @@ public class ModelManager {
 
 	public void closeKb() {
 		stopFlushTimer();
+		stopCompactionTimer();
 
 		_dataSource.close();
 		_dataSource = null;
@@ -173,6 +182,10 @@ public class ModelManager {
 		LOG.info("Flushed and closed the knowledge base");
 	}
 
+	/**
+	 * Syncs the KB files to disk. For a KB with a journal, this is the
+	 * checkpoint that lets it discard the changes logged so far (see KbJournal).
+	 */
 	public void flushKb() {
 		// We need a read-lock here to prevent a write operation during
 		// flushing that might cause a reallocation of a memory-mapped file.
@@ -186,6 +199,51 @@ public class ModelManager {
 		LOG.debug("Flushed the KB models to disk");
 	}
 
+	/**
+	 * Removes the deleted statements from the given graphs (identified as in
+	 * {@link GraphLockScope}), or from all graphs if graphNames is null, and
+	 * returns the number removed. Each graph is compacted under its own write
+	 * lock, so that requests on other graphs continue meanwhile.
+	 */
+	public long compactGraphs(Collection<String> graphNames) {
+		long numRemoved = 0;
+		for (String graphName : (graphNames == null) ? getAllGraphNames() : graphNames) {
+			try (ConcurrentRequestLock lock = ConcurrentRequestController.getLock(
+				GraphLockScope.forGraphWrite(graphName))) {
+				@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
+				numRemoved += _kbGraphStore.compact(toGraphNode(graphName));
+			}
+		}
+		return numRemoved;
+	}
+
+	/** Compacts each graph in which the fraction of deleted statements has reached the threshold. */
+	public void compactGraphsAboveTombstoneRatio(double threshold) {
+		for (String graphName : getAllGraphNames()) {
+			double tombstoneRatio;
+			try (ConcurrentRequestLock lock = ConcurrentRequestController.getLock(
+				GraphLockScope.forGraphRead(graphName))) {
+				@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
+				tombstoneRatio = _kbGraphStore.getTombstoneRatio(toGraphNode(graphName));
+			}
+			if (tombstoneRatio >= threshold) {
+				compactGraphs(Collections.singletonList(graphName));
+			}
+		}
+	}
+
+	/** Returns the names of the default graph (as null) and of the named graphs. */
+	private List<String> getAllGraphNames() {
+		List<String> result = new ArrayList<>();
+		result.add(null);
+		result.addAll(getSortedModelNames());
+		return result;
+	}
+
+	private static Node toGraphNode(String graphName) {
+		return (graphName == null) ? null : Node.createURI(graphName);
+	}
+
 	/** Load all RDF files in the given directory and all its sub-directories. */
 	public void loadDirectory(File dir) {
 		File[] children = dir.listFiles();
@@ -265,6 +323,7 @@ public class ModelManager {
 			KbUpdateEngine.register();
 
 			startFlushTimer(defaultGraph.getConfig().m_fileSyncTimerDelay);
+			startCompactionTimer(defaultGraph.getConfig().m_compactionTombstoneRatio);
 		}
 	}
 
@@ -282,6 +341,20 @@ public class ModelManager {
 		}
 	}
 
+	private void startCompactionTimer(double tombstoneRatio) {
+		stopCompactionTimer();
+		if (tombstoneRatio > 0) {
+			compactionTimerTask = new CompactionTimerTask(this, tombstoneRatio);
+		}
+	}
+
+	private void stopCompactionTimer() {
+		if (compactionTimerTask != null) {
+			compactionTimerTask.cancel();
+			compactionTimerTask = null;
+		}
+	}
+
 	private static class FlushTimerTask extends TimerTask {
 		private static Logger _log = LoggerFactory
 			.getLogger(FlushTimerTask.class);
@@ -318,4 +391,46 @@ public class ModelManager {
 			}
 		}
 	}
+
+	/**
+	 * Periodically compacts the graphs in which the fraction of deleted
+	 * statements has reached the configured threshold. Counting the deleted
+	 * statements takes a pass over a graph's statements, so the check runs far
+	 * less often than a flush.
+	 */
+	private static class CompactionTimerTask extends TimerTask {
+		private static final long CHECK_INTERVAL = 60 * 60 * 1000;
+		private static Logger _log = LoggerFactory
+			.getLogger(CompactionTimerTask.class);
+
+		private Timer _timer;
+		private ModelManager _modelMgr;
+		private double _tombstoneRatio;
+
+		public CompactionTimerTask(ModelManager modelMgr, double tombstoneRatio) {
+			_timer = new Timer("CompactionTimerThread", true);
+			_modelMgr = modelMgr;
+			_tombstoneRatio = tombstoneRatio;
+			_timer.schedule(this, CHECK_INTERVAL, CHECK_INTERVAL);
+		}
+
+		@Override
+		public boolean cancel() {
+			boolean result = super.cancel();
+			if (_timer != null) {
+				_timer.cancel();
+				_timer = null;
+			}
+			return result;
+		}
+
+		@Override
+		public void run() {
+			try {
+				_modelMgr.compactGraphsAboveTombstoneRatio(_tombstoneRatio);
+			} catch (RuntimeException ex) {
+				_log.error("Scheduled compaction failed", ex);
+			}
+		}
+	}
 }
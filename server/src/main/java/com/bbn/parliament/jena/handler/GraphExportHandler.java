@@ -16,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 import com.bbn.parliament.jena.bridge.ConcurrentRequestController;
 import com.bbn.parliament.jena.bridge.ConcurrentRequestLock;
+import com.bbn.parliament.jena.bridge.GraphLockScope;
 import com.bbn.parliament.jena.exception.MissingGraphException;
 import com.bbn.parliament.jena.graph.KbGraphStore;
 import com.bbn.parliament.jena.graph.ModelManager;
@@ -47,7 +48,8 @@ public class GraphExportHandler {
 	}
 
 	public void handleRequest(OutputStream out) throws IOException {
-		try (ConcurrentRequestLock lock = ConcurrentRequestController.getReadLock()) {
+		try (ConcurrentRequestLock lock = ConcurrentRequestController.getLock(
+			GraphLockScope.forGraphRead(graphName))) {
 			@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
 			Model model = graphName.equals(KbGraphStore.DEFAULT_GRAPH_BASENAME)
 				? ModelManager.inst().getDefaultModel()
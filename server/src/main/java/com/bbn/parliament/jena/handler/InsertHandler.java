@@ -12,6 +12,7 @@ import java.util.function.Supplier;
 
 import com.bbn.parliament.jena.bridge.ConcurrentRequestController;
 import com.bbn.parliament.jena.bridge.ConcurrentRequestLock;
+import com.bbn.parliament.jena.bridge.GraphLockScope;
 import com.bbn.parliament.jena.bridge.tracker.TrackableException;
 import com.bbn.parliament.jena.bridge.tracker.TrackableInsert;
 import com.bbn.parliament.jena.bridge.tracker.Tracker;
@@ -27,9 +28,28 @@ public class InsertHandler {
 
 		Inserter inserter = Inserter.newGraphInserter(graphName, dataFormat, fileName,
 			VerifyOption.VERIFY, null, strmSupplier);
-		TrackableInsert ti = Tracker.getInstance().createInsert(inserter, requestor);
+		GraphLockScope scope = inserter.isImport()
+			? GraphLockScope.exclusive()
+			: GraphLockScope.forGraphWrite(graphName);
+		return runInsert(inserter, scope, requestor);
+	}
+
+	// Replaces the repository with a zip archive of its graphs, as written by
+	// DatasetExportHandler, and returns the number of statements imported
+	@SuppressWarnings("static-method")
+	public long handleImportRequest(ImportOption importOption, String requestor,
+		Supplier<InputStream> strmSupplier)
+		throws TrackableException, DataFormatException, MissingGraphException, IOException {
 
-		try (ConcurrentRequestLock lock = ConcurrentRequestController.getWriteLock()) {
+		Inserter inserter = Inserter.newRepositoryInserter(null, importOption, strmSupplier);
+		return runInsert(inserter, GraphLockScope.exclusive(), requestor);
+	}
+
+	private static long runInsert(Inserter inserter, GraphLockScope scope, String requestor)
+		throws TrackableException, DataFormatException, MissingGraphException, IOException {
+
+		TrackableInsert ti = Tracker.getInstance().createInsert(inserter, requestor);
+		try (ConcurrentRequestLock lock = ConcurrentRequestController.getLock(scope)) {
 			@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
 			ti.run();
 			return ti.getInserter().getNumStatements();
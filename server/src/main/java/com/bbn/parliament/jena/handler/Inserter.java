@@ -6,31 +6,57 @@
 
 package com.bbn.parliament.jena.handler;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import org.openjena.riot.lang.SinkTriplesToGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bbn.parliament.jena.exception.DataFormatException;
 import com.bbn.parliament.jena.exception.MissingGraphException;
 import com.bbn.parliament.jena.graph.ForgetfulGraph;
+import com.bbn.parliament.jena.graph.KbGraph;
 import com.bbn.parliament.jena.graph.KbGraphStore;
 import com.bbn.parliament.jena.graph.ModelManager;
+import com.bbn.parliament.jena.graph.index.IndexManager;
+import com.bbn.parliament.jena.handler.PipelinedLoader.TripleSource;
 import com.bbn.parliament.jena.joseki.client.RDFFormat;
 import com.bbn.parliament.jena.util.JsonLdRdfReader;
+import com.bbn.parliament.recovery.JournalBatch;
+import com.bbn.parliament.utilities.ParallelNTuplesReader;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
@@ -38,34 +64,48 @@ import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.ResourceFactory;
 import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.shared.NotFoundException;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import com.hp.hpl.jena.vocabulary.RDF;
 
 public final class Inserter {
 	private static final Logger LOG = LoggerFactory.getLogger(Inserter.class);
+	private static final int MAX_CONCURRENT_GRAPH_LOADS =
+		Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	private static final AtomicInteger importThreadCount = new AtomicInteger(0);
 
 	private final boolean importRepository;
 	private final String graphName;
 	private final String dataFormat;
 	private final String fileName;
 	private final VerifyOption verifyOption;
+	private final ImportOption importOption;
 	private final String baseUri;
 	private final Supplier<InputStream> streamSupplier;
 	private long numStatements;
+	private volatile int numGraphsToLoad;
+	private final AtomicInteger numGraphsLoaded = new AtomicInteger(0);
 
 	public static Inserter newGraphInserter(String graphName, String dataFormat,
 		String fileName, VerifyOption verifyOption, String baseUri,
 		Supplier<InputStream> streamSupplier) {
-		return new Inserter(false, graphName, dataFormat, fileName, verifyOption, baseUri,
-			streamSupplier);
+		return new Inserter(false, graphName, dataFormat, fileName, verifyOption, null,
+			baseUri, streamSupplier);
 	}
 
 	public static Inserter newRepositoryInserter(String baseUri,
 		Supplier<InputStream> streamSupplier) {
-		return new Inserter(true, null, null, null, null, baseUri, streamSupplier);
+		return newRepositoryInserter(baseUri, ImportOption.SEQUENTIAL, streamSupplier);
+	}
+
+	public static Inserter newRepositoryInserter(String baseUri, ImportOption importOption,
+		Supplier<InputStream> streamSupplier) {
+		return new Inserter(true, null, null, null, null, importOption, baseUri,
+			streamSupplier);
 	}
 
 	private Inserter(boolean importRepository, String graphName, String dataFormat,
-		String fileName, VerifyOption verifyOption, String baseUri,
+		String fileName, VerifyOption verifyOption, ImportOption importOption, String baseUri,
 		Supplier<InputStream> streamSupplier) {
 
 		this.importRepository = importRepository;
@@ -74,22 +114,37 @@ public final class Inserter {
 			this.dataFormat = null;
 			this.fileName = null;
 			this.verifyOption = null;
+			this.importOption = Objects.requireNonNull(importOption, "importOption");
 		} else {
 			this.graphName = graphName;
 			this.dataFormat = dataFormat;
 			this.fileName = fileName;
 			this.verifyOption = Objects.requireNonNull(verifyOption, "verifyOption");
+			this.importOption = null;
 		}
 		this.baseUri = baseUri;
 		this.streamSupplier = Objects.requireNonNull(streamSupplier, "streamSupplier");
 
 		numStatements = 0;
+		numGraphsToLoad = 0;
 	}
 
 	public long getNumStatements() {
 		return numStatements;
 	}
 
+	/**
+	 * Returns how many of the graphs of a repository import have been loaded,
+	 * or null if this is not a repository import or its graphs are not yet
+	 * being loaded.
+	 */
+	public String getProgress() {
+		int toLoad = numGraphsToLoad;
+		return (importRepository && toLoad > 0)
+			? "%1$d of %2$d graphs loaded".formatted(numGraphsLoaded.get(), toLoad)
+			: null;
+	}
+
 	public boolean isImport() {
 		return importRepository;
 	}
@@ -100,6 +155,8 @@ public final class Inserter {
 
 	public void run() throws IOException, DataFormatException, MissingGraphException {
 		numStatements = 0;
+		numGraphsToLoad = 0;
+		numGraphsLoaded.set(0);
 		if (importRepository) {
 			importRepository();
 		} else {
@@ -107,39 +164,33 @@ public final class Inserter {
 		}
 	}
 
-	//TODO: refactor this method into smaller units
 	private void importRepository() throws IOException, DataFormatException {
 		LOG.info("Repository import");
+		if (importOption == ImportOption.PARALLEL) {
+			if (!ModelManager.inst().getDefaultGraphConfig().m_namedGraphQuadStore) {
+				importRepositoryConcurrently();
+				return;
+			}
+			// The named graphs share the quad store's KB, which is not safe for concurrent writes:
+			LOG.info("Importing the graphs one at a time, because they share the quad store");
+		}
 
 		// First verify that we have a legitimate import
 		Model masterGraph = null;
 		Set<String> dirNamesSeen = new HashSet<>();
+		int numGraphs = 0;
 		try (
 			InputStream in = streamSupplier.get();
 			ZipInputStream zin = new ZipInputStream(in);
 		) {
 			ZipEntry ze = null;
 			while ((ze = zin.getNextEntry()) != null) {
-				String zipEntryName = ze.getName();
-				FileNameDecomposition decomp = new FileNameDecomposition(zipEntryName);
-				if (RDFFormat.UNKNOWN == decomp.getFormat()) {
-					var extList = Arrays.stream(RDFFormat.values())
-						.filter(rdfFmt -> rdfFmt.isJenaReadable() || rdfFmt == RDFFormat.JSON_LD)
-						.flatMap(rdfFmt -> Arrays.stream(rdfFmt.getExtensions()))
-						.collect(Collectors.joining("', '"));
-					throw new DataFormatException(
-						"Unsupported file extension on \"%1$s\": Must be one of '%2$s'",
-						zipEntryName, extList);
-				}
-
+				FileNameDecomposition decomp = decompose(ze.getName());
 				Supplier<InputStream> entryStrmProvider = getZipStrmProvider(zin);
 
 				// Get the Master Graph separately as a temporary in-memory model
 				if (decomp.isMasterGraph()) {
-					masterGraph = ModelFactory.createDefaultModel();
-					try (InputStream entryStream = entryStrmProvider.get()) {
-						masterGraph.read(entryStream, baseUri, decomp.getFormat().toString());
-					}
+					masterGraph = readMasterGraph(entryStrmProvider, decomp.getFormat());
 				} else {
 					long num = verify(entryStrmProvider, decomp.getFormat());
 					if (num > 0) {
@@ -149,17 +200,252 @@ public final class Inserter {
 					if (!decomp.isDefaultGraph()) {
 						dirNamesSeen.add(decomp.getDirName());
 					}
+					++numGraphs;
 				}
 
 				zin.closeEntry();
 			}
 		}
 
+		Map<String, String> dirToGraphNameMap = mapDirsToGraphNames(masterGraph, dirNamesSeen);
+		numGraphsToLoad = numGraphs;
+
+		// Now that we like the input, we can clear the old repo
+		LOG.info("Clearing current repository...");
+		ModelManager.inst().clearKb();
+
+		Set<String> indexGraphs = getIndexedGraphs(masterGraph);
+
+		// Insert the new data
+		try (
+			InputStream in = streamSupplier.get();
+			ZipInputStream zin = new ZipInputStream(in);
+		) {
+			ZipEntry ze = null;
+			while ((ze = zin.getNextEntry()) != null) {
+				FileNameDecomposition decomp = new FileNameDecomposition(ze.getName());
+				// We can assume that decomp.getFormat() is not RDFFormat.UNKNOWN
+				// because that was checked in the verification loop above.
+
+				Supplier<InputStream> entryStrmProvider = getZipStrmProvider(zin);
+
+				if (decomp.isMasterGraph()) {
+					// Do nothing (ignore the Master Graph)
+				} else if (decomp.isDefaultGraph()) {
+					Model model = ModelManager.inst().getDefaultModel();
+					insert(model, "Default Graph", parserFor(entryStrmProvider, decomp.getFormat()));
+					numGraphsLoaded.incrementAndGet();
+				} else {
+					String graphDir = decomp.getDirName();
+					String graphNm = dirToGraphNameMap.get(graphDir);
+					Model model = ModelManager.inst().createAndAddNamedModel(graphNm, graphDir, indexGraphs.contains(graphNm));
+					insert(model, graphNm, parserFor(entryStrmProvider, decomp.getFormat()));
+					numGraphsLoaded.incrementAndGet();
+				}
+
+				zin.closeEntry();
+			}
+		}
+
+		addUnionGraphs(masterGraph);
+	}
+
+	/**
+	 * Imports a repository, loading its graphs concurrently. Each graph is a
+	 * separate KB, so distinct graphs can be loaded independently. The archive
+	 * is read once: each graph's entry is copied to a temporary file and
+	 * verified on the pool, and then, once the whole archive checks out, the
+	 * graphs are loaded from those files on the pool. The indexes of an indexed
+	 * graph are built after its statements are loaded, rather than statement
+	 * by statement.
+	 */
+	private void importRepositoryConcurrently() throws IOException, DataFormatException {
+		ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_GRAPH_LOADS, runnable -> {
+			Thread thread = new Thread(runnable, "repository-import-" + importThreadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<SpooledEntry> entries = new ArrayList<>();
+		try {
+			Model masterGraph = null;
+			Set<String> dirNamesSeen = new HashSet<>();
+			List<Future<Long>> verifications = new ArrayList<>();
+			try (
+				InputStream in = streamSupplier.get();
+				ZipInputStream zin = new ZipInputStream(in);
+			) {
+				ZipEntry ze = null;
+				while ((ze = zin.getNextEntry()) != null) {
+					FileNameDecomposition decomp = decompose(ze.getName());
+					if (decomp.isMasterGraph()) {
+						masterGraph = readMasterGraph(getZipStrmProvider(zin), decomp.getFormat());
+					} else {
+						SpooledEntry entry = new SpooledEntry(decomp, zin);
+						entries.add(entry);
+						verifications.add(executor.submit(() -> verify(entry::open, decomp.getFormat())));
+						if (!decomp.isDefaultGraph()) {
+							dirNamesSeen.add(decomp.getDirName());
+						}
+					}
+					zin.closeEntry();
+				}
+			}
+			for (Future<Long> verification : verifications) {
+				long num = await(verification);
+				if (num > 0) {
+					numStatements += num;
+				}
+			}
+
+			Map<String, String> dirToGraphNameMap = mapDirsToGraphNames(masterGraph, dirNamesSeen);
+			numGraphsToLoad = entries.size();
+
+			LOG.info("Clearing current repository...");
+			ModelManager.inst().clearKb();
+
+			Set<String> indexGraphs = getIndexedGraphs(masterGraph);
+
+			// The graphs are created here, because the set of graphs is not
+			// thread-safe, and then loaded on the pool:
+			List<Future<Long>> loads = new ArrayList<>();
+			for (SpooledEntry entry : entries) {
+				RDFFormat format = entry.decomp.getFormat();
+				if (entry.decomp.isDefaultGraph()) {
+					Model model = ModelManager.inst().getDefaultModel();
+					loads.add(executor.submit(() -> loadGraph(model, "Default Graph", null,
+						parserFor(entry::open, format))));
+				} else {
+					String graphDir = entry.decomp.getDirName();
+					String graphNm = dirToGraphNameMap.get(graphDir);
+					Model model = ModelManager.inst().createAndAddNamedModel(graphNm, graphDir, false);
+					Node indexGraphName = indexGraphs.contains(graphNm) ? Node.createURI(graphNm) : null;
+					loads.add(executor.submit(() -> loadGraph(model, graphNm, indexGraphName,
+						parserFor(entry::open, format))));
+				}
+			}
+			for (Future<Long> load : loads) {
+				await(load);
+			}
+
+			addUnionGraphs(masterGraph);
+		} finally {
+			// Stop any loads still running before the caller's lock is released:
+			executor.shutdownNow();
+			PipelinedLoader.awaitTermination(executor);
+			entries.forEach(SpooledEntry::delete);
+		}
+	}
+
+	/**
+	 * Loads one graph of a concurrent repository import. If indexGraphName is
+	 * not null, the graph's indexes are then created and built.
+	 */
+	private long loadGraph(Model model, String graphLabel, Node indexGraphName,
+		TripleSource source) throws IOException {
+		long numStmts = insert(model, graphLabel, source);
+		if (indexGraphName != null) {
+			long start = Calendar.getInstance().getTimeInMillis();
+			IndexManager.getInstance().createAndRegisterAll(model.getGraph(), indexGraphName);
+			IndexManager.getInstance().rebuild(model.getGraph());
+			if (LOG.isInfoEnabled()) {
+				long end = Calendar.getInstance().getTimeInMillis();
+				LOG.info("Built indexes for \"%1$s\" in %2$.3f seconds".formatted(
+					graphLabel, (end - start) / 1000.0));
+			}
+		}
+		int numLoaded = numGraphsLoaded.incrementAndGet();
+		LOG.info("Loaded {} of {} graphs", numLoaded, numGraphsToLoad);
+		return numStmts;
+	}
+
+	/** Waits for a task of a concurrent import, rethrowing its failure. */
+	private static <T> T await(Future<T> future) throws IOException, DataFormatException {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while importing the repository");
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException ioEx) {
+				throw ioEx;
+			} else if (cause instanceof DataFormatException dfEx) {
+				throw dfEx;
+			} else if (cause instanceof RuntimeException rtEx) {
+				throw rtEx;
+			} else if (cause instanceof Error err) {
+				throw err;
+			} else {
+				throw new IllegalStateException(cause);
+			}
+		}
+	}
+
+	/** A zip entry copied to a temporary file, so that it can be read on another thread. */
+	private static class SpooledEntry {
+		private final FileNameDecomposition decomp;
+		private final File file;
+
+		public SpooledEntry(FileNameDecomposition decomp, InputStream entryStream) throws IOException {
+			this.decomp = decomp;
+			file = File.createTempFile("parliament-import-", "." + decomp.getFormat().getExtensions()[0]);
+			try {
+				Files.copy(entryStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException ex) {
+				delete();
+				throw ex;
+			}
+		}
+
+		public InputStream open() {
+			try {
+				return new BufferedInputStream(new FileInputStream(file));
+			} catch (FileNotFoundException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		public void delete() {
+			if (file.exists() && !file.delete()) {
+				LOG.warn("Unable to delete the import file {}", file.getAbsolutePath());
+			}
+		}
+	}
+
+	private static FileNameDecomposition decompose(String zipEntryName) throws DataFormatException {
+		FileNameDecomposition decomp = new FileNameDecomposition(zipEntryName);
+		if (RDFFormat.UNKNOWN == decomp.getFormat()) {
+			var extList = Arrays.stream(RDFFormat.values())
+				.filter(rdfFmt -> rdfFmt.isJenaReadable() || rdfFmt == RDFFormat.JSON_LD)
+				.flatMap(rdfFmt -> Arrays.stream(rdfFmt.getExtensions()))
+				.collect(Collectors.joining("', '"));
+			throw new DataFormatException(
+				"Unsupported file extension on \"%1$s\": Must be one of '%2$s'",
+				zipEntryName, extList);
+		}
+		return decomp;
+	}
+
+	private Model readMasterGraph(Supplier<InputStream> entryStrmProvider, RDFFormat format)
+		throws IOException {
+		Model masterGraph = ModelFactory.createDefaultModel();
+		try (InputStream entryStream = entryStrmProvider.get()) {
+			masterGraph.read(entryStream, baseUri, format.toString());
+		}
+		return masterGraph;
+	}
+
+	/**
+	 * Verifies that all the directory names seen in the archive are in the
+	 * Master Graph, and vice-versa, and returns the mapping from directory
+	 * name to graph name.
+	 */
+	private static Map<String, String> mapDirsToGraphNames(Model masterGraph,
+		Set<String> dirNamesSeen) throws DataFormatException {
 		if (masterGraph == null) {
 			throw new DataFormatException("Archive has no Master Graph");
 		}
 
-		// Verify that all the filenames seen are in the Master Graph, and vice-versa
 		Map<String, String> dirToGraphNameMap = new HashMap<>();
 		StmtIterator it = masterGraph.listStatements(null,
 			ResourceFactory.createProperty(KbGraphStore.GRAPH_DIR_PROPERTY),
@@ -193,13 +479,12 @@ public final class Inserter {
 				Mismatch between the number of files in the zip file and the number in the \
 				Master Graph.  There are extra directories in the zip file: %1$s""", extraDirs);
 		}
+		return dirToGraphNameMap;
+	}
 
-		// Now that we like the input, we can clear the old repo
-		LOG.info("Clearing current repository...");
-		ModelManager.inst().clearKb();
-
-		Set<String> indexGraphs = new HashSet<>(dirToGraphNameMap.size());
-		it = masterGraph.listStatements(null, RDF.type, ResourceFactory.createResource(KbGraphStore.INDEXED_GRAPH));
+	private static Set<String> getIndexedGraphs(Model masterGraph) {
+		Set<String> indexGraphs = new HashSet<>();
+		StmtIterator it = masterGraph.listStatements(null, RDF.type, ResourceFactory.createResource(KbGraphStore.INDEXED_GRAPH));
 		try {
 			while (it.hasNext()) {
 				indexGraphs.add(it.next().getSubject().getURI());
@@ -209,37 +494,12 @@ public final class Inserter {
 				it.close();
 			}
 		}
-		// Insert the new data
-		try (
-			InputStream in = streamSupplier.get();
-			ZipInputStream zin = new ZipInputStream(in);
-		) {
-			ZipEntry ze = null;
-			while ((ze = zin.getNextEntry()) != null) {
-				FileNameDecomposition decomp = new FileNameDecomposition(ze.getName());
-				// We can assume that decomp.getFormat() is not RDFFormat.UNKNOWN
-				// because that was checked in the verification loop above.
-
-				Supplier<InputStream> entryStrmProvider = getZipStrmProvider(zin);
-
-				if (decomp.isMasterGraph()) {
-					// Do nothing (ignore the Master Graph)
-				} else if (decomp.isDefaultGraph()) {
-					Model model = ModelManager.inst().getDefaultModel();
-					insert(model, "Default Graph", entryStrmProvider, decomp.getFormat());
-				} else {
-					String graphDir = decomp.getDirName();
-					String graphNm = dirToGraphNameMap.get(graphDir);
-					Model model = ModelManager.inst().createAndAddNamedModel(graphNm, graphDir, indexGraphs.contains(graphNm));
-					insert(model, graphNm, entryStrmProvider, decomp.getFormat());
-				}
-
-				zin.closeEntry();
-			}
-		}
+		return indexGraphs;
+	}
 
-		// Add any KbUnionGraphs
-		it = masterGraph.listStatements(null, RDF.type, ResourceFactory.createResource(KbGraphStore.UNION_GRAPH_CLASS));
+	/** Adds the KbUnionGraphs described in the Master Graph. */
+	private static void addUnionGraphs(Model masterGraph) {
+		StmtIterator it = masterGraph.listStatements(null, RDF.type, ResourceFactory.createResource(KbGraphStore.UNION_GRAPH_CLASS));
 		try {
 			while (it.hasNext()) {
 				Resource subject = it.next().getSubject();
@@ -330,11 +590,16 @@ public final class Inserter {
 			throw new MissingGraphException("There is no graph named \"%1$s\"", graphName);
 		}
 
+		TripleSource parser = parserFor(streamSupplier, format);
 		if (verifyOption == VerifyOption.VERIFY) {
-			numStatements = verify(streamSupplier, format);
+			// Parse once into a spool, so that a syntax error leaves the graph untouched:
+			try (TripleSpool spool = new TripleSpool()) {
+				verify(spool, parser);
+				numStatements = insert(model, graphLabel, spool::replay);
+			}
+		} else {
+			numStatements = insert(model, graphLabel, parser);
 		}
-
-		insert(model, graphLabel, streamSupplier, format);
 	}
 
 	/**
@@ -361,20 +626,116 @@ public final class Inserter {
 		return numStmts;
 	}
 
-	/** Inserts the statements from the InputStream into the given Model. */
-	private void insert(Model model, String graphLabel, Supplier<InputStream> inputStreamSupplier,
-		RDFFormat format) throws IOException {
+	/**
+	 * Verifies the statements from the source by writing them to the spool. If
+	 * the statements are not valid, we throw a RuntimeException.
+	 *
+	 * @return the number of statements in the source
+	 */
+	private static long verify(TripleSpool spool, TripleSource source) throws IOException {
 		long start = Calendar.getInstance().getTimeInMillis();
-		try (InputStream in = inputStreamSupplier.get()) {
-			model.setReaderClassName(JsonLdRdfReader.formatName, JsonLdRdfReader.class.getName());
-			model.read(in, baseUri, format.toString());
+		long numStmts = spool.write(source);
+		if (LOG.isInfoEnabled()) {
+			long end = Calendar.getInstance().getTimeInMillis();
+			LOG.info("Verified %1$d statements in %2$.3f seconds".formatted(
+				numStmts, (end - start) / 1000.0));
+		}
+		return numStmts;
+	}
 
-			if (LOG.isInfoEnabled()) {
-				long end = Calendar.getInstance().getTimeInMillis();
-				LOG.info("Added statements to \"%1$s\" in %2$.3f seconds".formatted(
-					graphLabel, (end - start) / 1000.0));
+	/**
+	 * Returns a source that parses the statements from the InputStream.
+	 * N-Triples is split into chunks that are parsed on all cores.
+	 */
+	private TripleSource parserFor(Supplier<InputStream> inputStreamSupplier, RDFFormat format) {
+		if (format == RDFFormat.NTRIPLES) {
+			return sink -> {
+				try (InputStream in = inputStreamSupplier.get()) {
+					readNTriples(in, sink);
+				}
+			};
+		}
+		return sink -> {
+			try (InputStream in = inputStreamSupplier.get()) {
+				Model model = ModelFactory.createModelForGraph(sink);
+				model.setReaderClassName(JsonLdRdfReader.formatName, JsonLdRdfReader.class.getName());
+				model.read(in, baseUri, format.toString());
+			}
+		};
+	}
+
+	/** Adds the N-Triples statements from the InputStream to the sink, parsing them in parallel. */
+	static long readNTriples(InputStream in, Graph sink) throws IOException {
+		SinkTriplesToGraph graphSink = new SinkTriplesToGraph(sink);
+		try {
+			return ParallelNTuplesReader.nTriples().read(in, graphSink);
+		} finally {
+			graphSink.close();
+		}
+	}
+
+	/**
+	 * Inserts the statements from the source into the given Model. A KbGraph is
+	 * loaded by a PipelinedLoader, so that parsing overlaps with storing. Any
+	 * other graph is loaded in chunks, each journaled as one frame.
+	 *
+	 * @return the number of statements inserted
+	 */
+	private static long insert(Model model, String graphLabel, TripleSource source)
+		throws IOException {
+		long start = Calendar.getInstance().getTimeInMillis();
+		long numStmts;
+		if (model.getGraph() instanceof KbGraph kbGraph) {
+			numStmts = new PipelinedLoader(kbGraph).load(source);
+		} else {
+			long initialSize = model.size();
+			ChunkingSink sink = new ChunkingSink(model.getGraph());
+			source.parse(sink);
+			sink.flush();
+			numStmts = model.size() - initialSize;
+		}
+
+		if (LOG.isInfoEnabled()) {
+			long end = Calendar.getInstance().getTimeInMillis();
+			LOG.info("Added %1$d statements to \"%2$s\" in %3$.3f seconds".formatted(
+				numStmts, graphLabel, (end - start) / 1000.0));
+		}
+		return numStmts;
+	}
+
+	/** Adds parsed triples to a graph in chunks, each within one JournalBatch. */
+	private static class ChunkingSink extends GraphBase {
+		private static final int CHUNK_SIZE = 1000;
+
+		private final Graph target;
+		private List<Triple> chunk = new ArrayList<>(CHUNK_SIZE);
+
+		public ChunkingSink(Graph target) {
+			this.target = target;
+		}
+
+		@Override
+		public void performAdd(Triple t) {
+			chunk.add(t);
+			if (chunk.size() >= CHUNK_SIZE) {
+				flush();
 			}
 		}
+
+		public void flush() {
+			if (!chunk.isEmpty()) {
+				try (JournalBatch journalBatch = JournalBatch.begin()) {
+					@SuppressWarnings("unused") int intentionallyUnused = journalBatch.hashCode();
+					target.getBulkUpdateHandler().add(chunk);
+				}
+				chunk = new ArrayList<>(CHUNK_SIZE);
+			}
+		}
+
+		@Override
+		protected ExtendedIterator<Triple> graphBaseFind(TripleMatch m) {
+			throw new NotFoundException("ChunkingSink::graphBaseFind");
+		}
 	}
 
 	/** Use the dataFormat and file extension to determine the RDF serialization format */
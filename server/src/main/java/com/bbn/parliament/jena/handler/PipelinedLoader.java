@@ -0,0 +1,284 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.handler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.parliament.jena.graph.KbGraph;
+import com.bbn.parliament.recovery.JournalBatch;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.shared.NotFoundException;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Loads triples into a KbGraph in three stages connected by bounded queues:
+ * a parser thread that collects the triples of a document into batches, an
+ * encoder thread that looks up (or creates) the resource ids of each batch,
+ * and the calling thread, which stores each encoded batch with one native
+ * call and notifies the graph's listeners. The queues bound the number of
+ * batches in flight, so memory use does not depend on the size of the input.
+ * <p>
+ * The native KB is not safe for concurrent writers, because creating a
+ * resource and adding statements can both grow its memory-mapped files.
+ * The encoder and store stages therefore take turns with the KB, and the
+ * gain comes from parsing, and the Java side of each stage, running
+ * alongside the native work.
+ * <p>
+ * Each stored batch is journaled as one frame, and the store stage waits for
+ * the frame to become durable only after handing the KB back to the encoder.
+ */
+class PipelinedLoader {
+	private static final Logger LOG = LoggerFactory.getLogger(PipelinedLoader.class);
+	static final int BATCH_SIZE = 1000;
+	static final int QUEUE_CAPACITY = 8;
+	private static final AtomicInteger threadCount = new AtomicInteger(0);
+
+	/** Parses a document, adding its triples to the given graph. */
+	@FunctionalInterface
+	interface TripleSource {
+		void parse(Graph sink) throws IOException;
+	}
+
+	/**
+	 * The KB operations the loader drives. encodeBatch and addBatch are called
+	 * while holding the loader's lock on the native KB, and notifyAdded after
+	 * releasing it.
+	 */
+	interface BatchTarget {
+		long[] encodeBatch(List<Triple> triples);
+		void addBatch(long[] ids);
+		void notifyAdded(List<Triple> triples);
+	}
+
+	private static class EncodedBatch {
+		private final List<Triple> triples;
+		private final long[] ids;
+
+		public EncodedBatch(List<Triple> triples, long[] ids) {
+			this.triples = triples;
+			this.ids = ids;
+		}
+	}
+
+	private static final List<Triple> END_OF_TRIPLES = new ArrayList<>(0);
+	private static final EncodedBatch END_OF_BATCHES = new EncodedBatch(END_OF_TRIPLES, new long[0]);
+
+	private final BatchTarget target;
+	private final ReentrantLock nativeLock = new ReentrantLock();
+	private final BlockingQueue<List<Triple>> parsedBatches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final BlockingQueue<EncodedBatch> encodedBatches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	public PipelinedLoader(KbGraph graph) {
+		this(new BatchTarget() {
+			@Override
+			public long[] encodeBatch(List<Triple> triples) {
+				return graph.encodeBatch(triples);
+			}
+
+			@Override
+			public void addBatch(long[] ids) {
+				graph.performAddBatch(ids);
+			}
+
+			@Override
+			public void notifyAdded(List<Triple> triples) {
+				graph.getEventManager().notifyAddList(graph, triples);
+			}
+		});
+	}
+
+	PipelinedLoader(BatchTarget target) {
+		this.target = target;
+	}
+
+	/**
+	 * Loads the triples of the source into the graph, returning the number of
+	 * triples loaded. If any stage fails, the others are stopped and the
+	 * failure is rethrown. Triples stored before the failure remain in the graph.
+	 */
+	public long load(TripleSource source) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+			Thread thread = new Thread(runnable, "pipelined-loader-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		long numTriples = 0;
+		try {
+			executor.execute(() -> runParser(source));
+			executor.execute(this::runEncoder);
+			for (EncodedBatch batch = encodedBatches.take(); batch != END_OF_BATCHES;
+				batch = encodedBatches.take()) {
+				try (JournalBatch journalBatch = JournalBatch.begin()) {
+					@SuppressWarnings("unused") int intentionallyUnused = journalBatch.hashCode();
+					nativeLock.lock();
+					try {
+						target.addBatch(batch.ids);
+					} finally {
+						nativeLock.unlock();
+					}
+				}
+				target.notifyAdded(batch.triples);
+				numTriples += batch.triples.size();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			fail(new InterruptedIOException("Interrupted while loading triples"));
+		} catch (RuntimeException | Error ex) {
+			fail(ex);
+		} finally {
+			executor.shutdownNow();
+			awaitTermination(executor);
+		}
+		rethrow(failure.get());
+		return numTriples;
+	}
+
+	/** Collects the parsed triples into batches for the encoder. */
+	private class BatchingSink extends GraphBase {
+		private List<Triple> batch = new ArrayList<>(BATCH_SIZE);
+
+		@Override
+		public void performAdd(Triple t) {
+			batch.add(t);
+			if (batch.size() >= BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		public void flush() {
+			if (!batch.isEmpty()) {
+				put(parsedBatches, batch);
+				batch = new ArrayList<>(BATCH_SIZE);
+			}
+		}
+
+		@Override
+		protected ExtendedIterator<Triple> graphBaseFind(TripleMatch m) {
+			throw new NotFoundException("PipelinedLoader::graphBaseFind");
+		}
+	}
+
+	private void runParser(TripleSource source) {
+		try {
+			BatchingSink sink = new BatchingSink();
+			source.parse(sink);
+			sink.flush();
+		} catch (IOException | RuntimeException | Error ex) {
+			fail(ex);
+		} finally {
+			// The encoder stops at the end marker, even after a failure:
+			putEndMarker(parsedBatches, END_OF_TRIPLES);
+		}
+	}
+
+	private void runEncoder() {
+		try {
+			for (List<Triple> batch = parsedBatches.take(); batch != END_OF_TRIPLES;
+				batch = parsedBatches.take()) {
+				if (failure.get() != null) {
+					continue;	// Drain the queue so the parser is not left blocked
+				}
+				long[] ids;
+				nativeLock.lock();
+				try {
+					ids = target.encodeBatch(batch);
+				} finally {
+					nativeLock.unlock();
+				}
+				put(encodedBatches, new EncodedBatch(batch, ids));
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();	// The loader is shutting down
+		} catch (CancellationException ex) {
+			// The loader is shutting down
+		} catch (RuntimeException | Error ex) {
+			fail(ex);
+		} finally {
+			putEndMarker(encodedBatches, END_OF_BATCHES);
+		}
+	}
+
+	private void fail(Throwable ex) {
+		if (!failure.compareAndSet(null, ex)) {
+			LOG.debug("Suppressing a subsequent failure in the loader", ex);
+		}
+	}
+
+	/** Adds a batch to a queue, aborting the current stage if the loader is shut down. */
+	private static <T> void put(BlockingQueue<T> queue, T batch) {
+		try {
+			queue.put(batch);
+		} catch (InterruptedException ex) {
+			// Keep the interrupt, so that the end marker is not waited for either
+			Thread.currentThread().interrupt();
+			throw new CancellationException("The loader was shut down");
+		}
+	}
+
+	/**
+	 * Adds an end marker to a queue. Once the loader is shut down, no one is
+	 * waiting for the marker, and it is dropped.
+	 */
+	private static <T> void putEndMarker(BlockingQueue<T> queue, T marker) {
+		try {
+			queue.put(marker);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Waits for the executor's threads to stop, even if interrupted. */
+	static void awaitTermination(ExecutorService executor) {
+		boolean isInterrupted = false;
+		for (;;) {
+			try {
+				if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+					break;
+				}
+				LOG.warn("Still waiting for the loader threads to stop");
+			} catch (InterruptedException ex) {
+				isInterrupted = true;
+			}
+		}
+		if (isInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void rethrow(Throwable ex) throws IOException {
+		if (ex == null) {
+			return;
+		} else if (ex instanceof IOException ioEx) {
+			throw ioEx;
+		} else if (ex instanceof RuntimeException rtEx) {
+			throw rtEx;
+		} else if (ex instanceof Error err) {
+			throw err;
+		} else {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
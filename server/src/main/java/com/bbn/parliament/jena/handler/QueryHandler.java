@@ -8,6 +8,7 @@ package com.bbn.parliament.jena.handler;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 
@@ -16,6 +17,7 @@ import org.slf4j.LoggerFactory;
 
 import com.bbn.parliament.jena.bridge.ConcurrentRequestController;
 import com.bbn.parliament.jena.bridge.ConcurrentRequestLock;
+import com.bbn.parliament.jena.bridge.GraphLockScope;
 import com.bbn.parliament.jena.bridge.SparqlStmtLogger;
 import com.bbn.parliament.jena.bridge.tracker.TrackableException;
 import com.bbn.parliament.jena.bridge.tracker.TrackableQuery;
@@ -26,6 +28,7 @@ import com.bbn.parliament.jena.exception.MissingGraphException;
 import com.bbn.parliament.jena.exception.NoAcceptableException;
 import com.bbn.parliament.jena.exception.QueryExecutionException;
 import com.bbn.parliament.jena.util.JsonLdRdfWriter;
+import com.bbn.parliament.jena.util.StreamingTripleWriter;
 import com.bbn.parliament.spring_boot.service.AcceptableMediaType;
 import com.bbn.parliament.spring_boot.service.QueryResultCategory;
 import com.hp.hpl.jena.query.QueryParseException;
@@ -52,6 +55,10 @@ public class QueryHandler {
 			? QueryResultCategory.RDF
 			: QueryResultCategory.RESULT_SET;
 		contentType = chooseMediaType(acceptList, queryCategory);
+		if (queryCategory == QueryResultCategory.RDF
+			&& StreamingTripleWriter.canStream(contentType.getRdfFormat())) {
+			trackable.setStreamTriples(true);
+		}
 	}
 
 	public AcceptableMediaType getContentType() {
@@ -61,7 +68,8 @@ public class QueryHandler {
 	public void handleRequest(OutputStream out) throws IOException {
 		try {
 			SparqlStmtLogger.logSparqlStmt(query);
-			try (ConcurrentRequestLock lock = ConcurrentRequestController.getReadLock()) {
+			try (ConcurrentRequestLock lock = ConcurrentRequestController.getLock(
+				GraphLockScope.forQuery(trackable.getQuery()))) {
 				@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
 				execQuery(out);
 			}
@@ -81,6 +89,14 @@ public class QueryHandler {
 
 		if (trackable.getQueryResult() == null) {
 			throw new QueryExecutionException("Query produced no result");
+		} else if (queryCategory == QueryResultCategory.RDF && trackable.getQueryResult() instanceof Iterator) {
+			try (StreamingTripleWriter wtr = StreamingTripleWriter.create(out,
+				contentType.getRdfFormat(), StreamingTripleWriter.DEFAULT_DEDUP_WINDOW)) {
+				wtr.write(trackable.getTriples());
+				LOG.debug("{}: streamed {} triples",
+					trackable.getQuery().isConstructType() ? "OK/construct" : "OK/describe",
+					wtr.getTripleCount());
+			}
 		} else if (queryCategory == QueryResultCategory.RDF) {
 			Model respModel = trackable.getModel();
 			respModel.setWriterClassName(JsonLdRdfWriter.formatName, JsonLdRdfWriter.class.getName());
@@ -0,0 +1,81 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.handler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.openjena.riot.out.SinkTripleOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.parliament.jena.graph.ForgetfulGraph;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * A temporary file of triples, written as N-Triples. A document is parsed
+ * into the spool once, which verifies its syntax without touching the target
+ * graph, and the spool is then replayed into the loader. Replaying N-Triples
+ * is much cheaper than parsing most formats a second time. Blank node labels
+ * are scoped to the spool, so each blank node of the document is replayed as
+ * one blank node. Replay parses the spool on all cores.
+ */
+class TripleSpool implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(TripleSpool.class);
+
+	private final File file;
+	private long numTriples;
+
+	public TripleSpool() throws IOException {
+		file = File.createTempFile("parliament-load-", ".nt");
+		numTriples = 0;
+	}
+
+	/** Runs the source, writing the triples it produces to the spool. Returns the number of triples. */
+	public long write(PipelinedLoader.TripleSource source) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			SinkTripleOutput sink = new SinkTripleOutput(out);
+			ForgetfulGraph counter = new ForgetfulGraph() {
+				@Override
+				public void performAdd(Triple t) {
+					super.performAdd(t);
+					sink.send(t);
+				}
+			};
+			source.parse(counter);
+			sink.flush();
+			numTriples = counter.size();
+		}
+		return numTriples;
+	}
+
+	public long getNumTriples() {
+		return numTriples;
+	}
+
+	/** Adds the spooled triples to the given graph, in the order written. */
+	public void replay(Graph graph) throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			Inserter.readNTriples(in, graph);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (file.exists() && !file.delete()) {
+			LOG.warn("Unable to delete the spool file {}", file.getAbsolutePath());
+		}
+	}
+}
@@ -8,9 +8,8 @@ package com.bbn.parliament.jena.handler;
 
 import java.io.IOException;
 
-import com.bbn.parliament.jena.bridge.ConcurrentRequestController;
-import com.bbn.parliament.jena.bridge.ConcurrentRequestLock;
 import com.bbn.parliament.jena.bridge.SparqlStmtLogger;
+import com.bbn.parliament.jena.bridge.UpdateQueue;
 import com.bbn.parliament.jena.bridge.tracker.TrackableException;
 import com.bbn.parliament.jena.bridge.tracker.TrackableUpdate;
 import com.bbn.parliament.jena.bridge.tracker.Tracker;
@@ -27,9 +26,8 @@ public class UpdateHandler {
 		SparqlStmtLogger.logSparqlStmt(sparqlStmt);
 		TrackableUpdate trackable = Tracker.getInstance().createUpdate(sparqlStmt, requestor);
 
-		try (ConcurrentRequestLock lock = ConcurrentRequestController.getWriteLock()) {
-			@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
-			trackable.run();
+		try {
+			UpdateQueue.inst().submit(trackable);
 		} catch (TrackableException | DataFormatException | MissingGraphException | IOException ex) {
 			throw new QueryExecutionException(ex, "Error while executing query");
 		}
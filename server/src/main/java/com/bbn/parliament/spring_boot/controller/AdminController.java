@@ -0,0 +1,68 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.spring_boot.controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.bbn.parliament.jena.bridge.tracker.TrackableException;
+import com.bbn.parliament.jena.exception.DataFormatException;
+import com.bbn.parliament.jena.exception.MissingGraphException;
+import com.bbn.parliament.spring_boot.service.AdminService;
+
+@RestController
+public class AdminController {
+	private static final String ENDPOINT = "/parliament/admin";
+
+	private final AdminService adminService;
+
+	@Autowired
+	public AdminController(AdminService service) {
+		adminService = Objects.requireNonNull(service, "service");
+	}
+
+	/**
+	 * Removes the deleted statements from the given graphs, or from all graphs
+	 * if none are given, and returns the number removed.
+	 */
+	@PostMapping(value = ENDPOINT + "/compact", produces = "text/plain")
+	public String compact(
+		@RequestParam(value = "graph", required = false) List<String> graphUris)
+		throws MissingGraphException {
+
+		return adminService.compact(graphUris);
+	}
+
+	/**
+	 * Replaces the contents of the repository with a zip archive of its graphs,
+	 * in the layout written by a repository export, and returns the number of
+	 * statements imported. If parallel is true, the named graphs are loaded
+	 * concurrently, unless they share the quad store.
+	 */
+	@PostMapping(value = ENDPOINT + "/import", consumes = "multipart/form-data", produces = "text/plain")
+	public String importRepository(
+		@RequestParam(value = "parallel", defaultValue = "false") boolean parallel,
+		@RequestHeader HttpHeaders headers,
+		HttpServletRequest request,
+		@RequestPart(value = "file") MultipartFile file)
+		throws TrackableException, DataFormatException, MissingGraphException, IOException {
+
+		return adminService.importRepository(file, parallel, headers, request);
+	}
+}
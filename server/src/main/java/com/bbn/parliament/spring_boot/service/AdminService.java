@@ -0,0 +1,62 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.spring_boot.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.bbn.parliament.jena.bridge.tracker.TrackableException;
+import com.bbn.parliament.jena.exception.DataFormatException;
+import com.bbn.parliament.jena.exception.MissingGraphException;
+import com.bbn.parliament.jena.graph.KbGraphStore;
+import com.bbn.parliament.jena.graph.ModelManager;
+import com.bbn.parliament.jena.handler.ImportOption;
+import com.bbn.parliament.jena.handler.InsertHandler;
+
+@Service
+public class AdminService {
+	@SuppressWarnings("static-method")
+	public String compact(List<String> graphUris) throws MissingGraphException {
+		ModelManager modelMgr = ModelManager.inst();
+		if (graphUris != null) {
+			for (String graphUri : graphUris) {
+				if (!KbGraphStore.DEFAULT_GRAPH_URI.equals(graphUri) && !modelMgr.containsModel(graphUri)) {
+					throw new MissingGraphException("Named graph <%1$s> does not exist", graphUri);
+				}
+			}
+		}
+		long numRemoved = modelMgr.compactGraphs(graphUris);
+		return "Removed %1$d deleted statements%n".formatted(numRemoved);
+	}
+
+	@SuppressWarnings("static-method")
+	public String importRepository(MultipartFile file, boolean parallel, HttpHeaders headers,
+		HttpServletRequest request)
+		throws TrackableException, DataFormatException, MissingGraphException, IOException {
+
+		ImportOption importOption = parallel ? ImportOption.PARALLEL : ImportOption.SEQUENTIAL;
+		long numStatements = new InsertHandler().handleImportRequest(importOption,
+			ServiceUtil.getRequestor(headers, request), () -> getMultipartInputStream(file));
+		return "Imported %1$d statements%n".formatted(numStatements);
+	}
+
+	private static InputStream getMultipartInputStream(MultipartFile file) {
+		try {
+			return file.getInputStream();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
@@ -0,0 +1,186 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.bridge;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bbn.parliament.jena.bridge.ConcurrentRequestController.GraphDirectory;
+
+public class ConcurrentRequestControllerTest {
+	private static final String G1 = "http://example.org/g1";
+	private static final String G2 = "http://example.org/g2";
+	private static final String MISSING = "http://example.org/missing";
+	private static final long BLOCKED_MILLIS = 200;
+
+	/** Two named graphs, neither a union nor in the quad store. */
+	private static class TestDirectory implements GraphDirectory {
+		private final Set<String> graphs = Set.of(G1, G2);
+
+		@Override
+		public boolean containsGraph(String graphName) {
+			return graphs.contains(graphName);
+		}
+
+		@Override
+		public List<String> getUnionConstituents(String graphName) {
+			return null;
+		}
+
+		@Override
+		public boolean isInQuadStore(String graphName) {
+			return false;
+		}
+	}
+
+	/** A lock taken and held on a thread of its own until released. */
+	private class HeldLock {
+		private final CountDownLatch acquired = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		public HeldLock(GraphLockScope scope) {
+			executor.execute(() -> {
+				try (ConcurrentRequestLock lock = ConcurrentRequestController.getLock(scope)) {
+					@SuppressWarnings("unused") int intentionallyUnused = lock.hashCode();
+					acquired.countDown();
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+
+		public boolean isAcquiredPromptly() throws InterruptedException {
+			return acquired.await(10, TimeUnit.SECONDS);
+		}
+
+		public boolean isBlocked() throws InterruptedException {
+			return !acquired.await(BLOCKED_MILLIS, TimeUnit.MILLISECONDS);
+		}
+
+		public void release() {
+			release.countDown();
+		}
+	}
+
+	private GraphDirectory previousDirectory;
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void beforeEach() {
+		previousDirectory = ConcurrentRequestController.setGraphDirectory(new TestDirectory());
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void afterEach() throws InterruptedException {
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		ConcurrentRequestController.setGraphDirectory(previousDirectory);
+	}
+
+	@Test
+	public void testReadersShareAGraph() throws InterruptedException {
+		HeldLock first = new HeldLock(GraphLockScope.forGraphRead(G1));
+		assertTrue(first.isAcquiredPromptly());
+		HeldLock second = new HeldLock(GraphLockScope.forGraphRead(G1));
+		assertTrue(second.isAcquiredPromptly());
+		first.release();
+		second.release();
+	}
+
+	@Test
+	public void testWritersOfAGraphAreExclusive() throws InterruptedException {
+		HeldLock writer = new HeldLock(GraphLockScope.forGraphWrite(G1));
+		assertTrue(writer.isAcquiredPromptly());
+		HeldLock otherWriter = new HeldLock(GraphLockScope.forGraphWrite(G1));
+		HeldLock reader = new HeldLock(GraphLockScope.forGraphRead(G1));
+		assertTrue(otherWriter.isBlocked());
+		assertTrue(reader.isBlocked());
+
+		// Each releases its lock as soon as it has it:
+		otherWriter.release();
+		reader.release();
+		writer.release();
+		assertTrue(otherWriter.isAcquiredPromptly());
+		assertTrue(reader.isAcquiredPromptly());
+	}
+
+	@Test
+	public void testWritersOfDisjointGraphsRunConcurrently() throws InterruptedException {
+		HeldLock first = new HeldLock(GraphLockScope.forGraphWrite(G1));
+		assertTrue(first.isAcquiredPromptly());
+		HeldLock second = new HeldLock(GraphLockScope.forGraphWrite(G2));
+		assertTrue(second.isAcquiredPromptly());
+		first.release();
+		second.release();
+	}
+
+	@Test
+	public void testGlobalLockExcludesEverything() throws InterruptedException {
+		HeldLock global = new HeldLock(GraphLockScope.exclusive());
+		assertTrue(global.isAcquiredPromptly());
+		HeldLock reader = new HeldLock(GraphLockScope.forGraphRead(G1));
+		HeldLock writer = new HeldLock(GraphLockScope.forGraphWrite(G2));
+		HeldLock allReader = new HeldLock(GraphLockScope.allGraphs());
+		assertTrue(reader.isBlocked());
+		assertTrue(writer.isBlocked());
+		assertTrue(allReader.isBlocked());
+
+		// Each releases its lock as soon as it has it. (The waiting reader of
+		// all graphs goes ahead of the writer, so the writer cannot hold on.)
+		reader.release();
+		writer.release();
+		allReader.release();
+		global.release();
+		assertTrue(reader.isAcquiredPromptly());
+		assertTrue(writer.isAcquiredPromptly());
+		assertTrue(allReader.isAcquiredPromptly());
+	}
+
+	@Test
+	public void testReadingAllGraphsExcludesWriters() throws InterruptedException {
+		HeldLock allReader = new HeldLock(GraphLockScope.allGraphs());
+		assertTrue(allReader.isAcquiredPromptly());
+		HeldLock reader = new HeldLock(GraphLockScope.forGraphRead(G1));
+		assertTrue(reader.isAcquiredPromptly());
+		HeldLock writer = new HeldLock(GraphLockScope.forGraphWrite(G2));
+		assertTrue(writer.isBlocked());
+
+		allReader.release();
+		reader.release();
+		assertTrue(writer.isAcquiredPromptly());
+		writer.release();
+	}
+
+	@Test
+	public void testWritingMissingGraphIsExclusive() throws InterruptedException {
+		HeldLock reader = new HeldLock(GraphLockScope.forGraphRead(G1));
+		assertTrue(reader.isAcquiredPromptly());
+		// Writing a graph that does not exist creates it, and so waits for everyone:
+		HeldLock creator = new HeldLock(GraphLockScope.forGraphWrite(MISSING));
+		assertTrue(creator.isBlocked());
+
+		reader.release();
+		assertTrue(creator.isAcquiredPromptly());
+		HeldLock otherReader = new HeldLock(GraphLockScope.forGraphRead(G2));
+		assertTrue(otherReader.isBlocked());
+		creator.release();
+		assertTrue(otherReader.isAcquiredPromptly());
+		otherReader.release();
+	}
+}
@@ -0,0 +1,149 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.bridge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.bbn.parliament.jena.graph.KbGraphStore;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.update.UpdateFactory;
+
+public class GraphLockScopeTest {
+	private static final String G1 = "http://example.org/g1";
+	private static final String G2 = "http://example.org/g2";
+	private static final String G3 = "http://example.org/g3";
+	private static final String DEFAULT = KbGraphStore.DEFAULT_GRAPH_URI;
+
+	private static GraphLockScope forUpdate(String update) {
+		return GraphLockScope.forUpdate(UpdateFactory.create(update));
+	}
+
+	private static GraphLockScope forQuery(String query) {
+		return GraphLockScope.forQuery(QueryFactory.create(query));
+	}
+
+	private static void assertScope(Set<String> reads, Set<String> writes, GraphLockScope scope) {
+		assertFalse(scope.isExclusive());
+		assertFalse(scope.readsAllGraphs());
+		assertEquals(reads, scope.getReadGraphs());
+		assertEquals(writes, scope.getWriteGraphs());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testDefaultGraphOnly() {
+		assertScope(Set.of(), Set.of(DEFAULT), forUpdate("INSERT DATA { <urn:s> <urn:p> <urn:o> }"));
+		assertScope(Set.of(DEFAULT), Set.of(), forQuery("SELECT * WHERE { ?s ?p ?o }"));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testWithNamesTheWrittenAndReadGraph() {
+		assertScope(Set.of(), Set.of(G1), forUpdate("""
+			WITH <%1$s> DELETE { ?s ?p ?o } WHERE { ?s ?p ?o }
+			""".formatted(G1)));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testUsingReplacesTheDefaultGraph() {
+		assertScope(Set.of(G2), Set.of(G1), forUpdate("""
+			WITH <%1$s> INSERT { ?s ?p ?o } USING <%2$s> WHERE { ?s ?p ?o }
+			""".formatted(G1, G2)));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testUsingNamed() {
+		assertScope(Set.of(G2), Set.of(G1), forUpdate("""
+			INSERT { GRAPH <%1$s> { ?s ?p ?o } }
+			USING NAMED <%2$s>
+			WHERE { GRAPH <%2$s> { ?s ?p ?o } }
+			""".formatted(G1, G2)));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testGraphVariableReadsAllGraphs() {
+		GraphLockScope scope = forQuery("SELECT * WHERE { GRAPH ?g { ?s ?p ?o } }");
+		assertFalse(scope.isExclusive());
+		assertTrue(scope.readsAllGraphs());
+
+		// Reading every graph while writing one escalates to exclusive:
+		assertTrue(forUpdate("""
+			INSERT { GRAPH <%1$s> { ?s ?p ?o } } WHERE { GRAPH ?g { ?s ?p ?o } }
+			""".formatted(G1)).isExclusive());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testExistsAndSubqueriesAreRead() {
+		assertScope(Set.of(DEFAULT, G2), Set.of(), forQuery("""
+			SELECT * WHERE {
+				?s ?p ?o
+				FILTER EXISTS { GRAPH <%1$s> { ?s ?p ?x } }
+			}
+			""".formatted(G2)));
+		assertScope(Set.of(G3), Set.of(G1), forUpdate("""
+			INSERT { GRAPH <%1$s> { ?s <urn:p> <urn:o> } }
+			WHERE { { SELECT ?s WHERE { GRAPH <%2$s> { ?s ?p ?o } } } }
+			""".formatted(G1, G3)));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testWritingMasterGraphIsExclusive() {
+		assertTrue(forUpdate("""
+			INSERT DATA { GRAPH <%1$s> { <urn:s> <urn:p> <urn:o> } }
+			""".formatted(KbGraphStore.MASTER_GRAPH)).isExclusive());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testUnknownGraphsEscalateToExclusive() {
+		// The written graph is not known until the update runs:
+		assertTrue(forUpdate("""
+			INSERT { GRAPH ?g { <urn:s> <urn:p> <urn:o> } } WHERE { ?g <urn:p> ?o }
+			""").isExclusive());
+		// Operations that change the set of graphs:
+		assertTrue(forUpdate("CREATE GRAPH <%1$s>".formatted(G1)).isExclusive());
+		assertTrue(forUpdate("DROP GRAPH <%1$s>".formatted(G1)).isExclusive());
+		assertTrue(forUpdate("CLEAR ALL").isExclusive());
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testQueryWithDatasetDescriptionNeedsNoLocks() {
+		assertScope(Set.of(), Set.of(), forQuery("SELECT * FROM <http://example.org/remote> WHERE { ?s ?p ?o }"));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testConflicts() {
+		GraphLockScope writeG1 = GraphLockScope.forGraphWrite(G1);
+		GraphLockScope writeG2 = GraphLockScope.forGraphWrite(G2);
+		GraphLockScope readG1 = GraphLockScope.forGraphRead(G1);
+		GraphLockScope readG2 = GraphLockScope.forGraphRead(G2);
+		assertFalse(writeG1.conflictsWith(writeG2));
+		assertFalse(readG1.conflictsWith(readG1));
+		assertFalse(writeG1.conflictsWith(readG2));
+		assertTrue(writeG1.conflictsWith(writeG1));
+		assertTrue(writeG1.conflictsWith(readG1));
+		assertTrue(readG1.conflictsWith(writeG1));
+		assertTrue(GraphLockScope.allGraphs().conflictsWith(writeG2));
+		assertFalse(GraphLockScope.allGraphs().conflictsWith(readG2));
+		assertTrue(GraphLockScope.exclusive().conflictsWith(readG2));
+		assertTrue(GraphLockScope.union(List.of(writeG1, readG2)).conflictsWith(writeG2));
+	}
+}
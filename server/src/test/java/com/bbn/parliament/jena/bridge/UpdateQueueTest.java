@@ -0,0 +1,156 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.bridge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bbn.parliament.jena.bridge.UpdateQueue.UpdateTask;
+import com.bbn.parliament.jena.exception.DataFormatException;
+
+public class UpdateQueueTest {
+	private static final String GRAPH_1 = "http://example.org/graph1";
+	private static final String GRAPH_2 = "http://example.org/graph2";
+
+	private final List<GraphLockScope> lockedScopes = Collections.synchronizedList(new ArrayList<>());
+	private final List<String> ranUpdates = Collections.synchronizedList(new ArrayList<>());
+	private UpdateQueue queue;
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void beforeEach() {
+		// Record the scope of each batch, in place of the repository's locks:
+		queue = new UpdateQueue(scope -> {
+			lockedScopes.add(scope);
+			return () -> {};
+		});
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void afterEach() {
+		executor.shutdownNow();
+	}
+
+	private Future<?> submit(String graphName, UpdateTask task) {
+		return executor.submit(() -> {
+			queue.submit(GraphLockScope.forGraphWrite(graphName), task);
+			return null;
+		});
+	}
+
+	private UpdateTask recording(String name) {
+		return () -> ranUpdates.add(name);
+	}
+
+	/** Returns a task that signals it has started, and then waits to be released. */
+	private static UpdateTask blocking(CountDownLatch started, CountDownLatch release) {
+		return () -> {
+			started.countDown();
+			try {
+				assertTrue(release.await(10, TimeUnit.SECONDS));
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		};
+	}
+
+	private void awaitNumQueued(int numQueued) throws InterruptedException {
+		for (int i = 0; i < 1000 && queue.getNumQueued() < numQueued; ++i) {
+			Thread.sleep(10);
+		}
+		assertEquals(numQueued, queue.getNumQueued());
+	}
+
+	private static void await(Future<?> future) throws Exception {
+		future.get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testQueuedUpdatesRunAsOneBatch() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<?> first = submit(GRAPH_1, blocking(started, release));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		// These conflict with the running update, and so wait for it:
+		List<Future<?>> waiting = new ArrayList<>();
+		for (int i = 0; i < 3; ++i) {
+			waiting.add(submit(GRAPH_1, recording("update" + i)));
+		}
+		awaitNumQueued(3);
+		assertTrue(ranUpdates.isEmpty());
+
+		release.countDown();
+		await(first);
+		for (Future<?> future : waiting) {
+			await(future);
+		}
+		assertEquals(3, ranUpdates.size());
+		assertEquals(2, lockedScopes.size());
+	}
+
+	@Test
+	public void testDisjointUpdatesRunConcurrently() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<?> first = submit(GRAPH_1, blocking(started, release));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		// This completes while the update on the other graph is still running:
+		await(submit(GRAPH_2, recording("update")));
+		assertEquals(List.of("update"), ranUpdates);
+		assertFalse(first.isDone());
+
+		release.countDown();
+		await(first);
+	}
+
+	@Test
+	public void testFailedUpdateDoesNotFailItsBatch() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<?> first = submit(GRAPH_1, blocking(started, release));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		DataFormatException failure = new DataFormatException("Bad update");
+		Future<?> failing = submit(GRAPH_1, () -> {
+			ranUpdates.add("failing");
+			throw failure;
+		});
+		awaitNumQueued(1);
+		Future<?> succeeding = submit(GRAPH_1, recording("succeeding"));
+		awaitNumQueued(2);
+
+		release.countDown();
+		await(first);
+		await(succeeding);
+		ExecutionException ex = assertThrows(ExecutionException.class,
+			() -> failing.get(10, TimeUnit.SECONDS));
+		// The submitter sees the update's own exception:
+		assertSame(failure, ex.getCause());
+		assertEquals(List.of("failing", "succeeding"), ranUpdates);
+		assertEquals(2, lockedScopes.size());
+	}
+}
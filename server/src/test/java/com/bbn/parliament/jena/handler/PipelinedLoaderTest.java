@@ -0,0 +1,226 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bbn.parliament.jena.handler.PipelinedLoader.BatchTarget;
+import com.bbn.parliament.jena.handler.PipelinedLoader.TripleSource;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+public class PipelinedLoaderTest {
+	private static final String THREAD_NAME_PREFIX = "pipelined-loader-";
+
+	/** Records what the loader stores, in place of a KbGraph. */
+	private static class RecordingTarget implements BatchTarget {
+		final AtomicLong nextId = new AtomicLong(0);
+		final List<Long> storedIds = Collections.synchronizedList(new ArrayList<>());
+		final List<Triple> notifiedTriples = Collections.synchronizedList(new ArrayList<>());
+		final AtomicInteger numEncodedBatches = new AtomicInteger(0);
+
+		@Override
+		public long[] encodeBatch(List<Triple> triples) {
+			numEncodedBatches.incrementAndGet();
+			long[] ids = new long[3 * triples.size()];
+			for (int i = 0; i < ids.length; ++i) {
+				ids[i] = nextId.getAndIncrement();
+			}
+			return ids;
+		}
+
+		@Override
+		public void addBatch(long[] ids) {
+			for (long id : ids) {
+				storedIds.add(id);
+			}
+		}
+
+		@Override
+		public void notifyAdded(List<Triple> triples) {
+			notifiedTriples.addAll(triples);
+		}
+	}
+
+	private final AtomicLong numParsed = new AtomicLong(0);
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void beforeEach() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void afterEach() throws InterruptedException {
+		executor.shutdownNow();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	private static Triple triple(int i) {
+		return Triple.create(Node.createURI("http://example.org/#s" + i),
+			RDFS.label.asNode(), Node.createLiteral(Integer.toString(i)));
+	}
+
+	private static List<Triple> triples(int count) {
+		List<Triple> result = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			result.add(triple(i));
+		}
+		return result;
+	}
+
+	/** Returns a source that produces count triples, counting them as it goes. */
+	private TripleSource source(int count) {
+		return sink -> {
+			for (int i = 0; i < count; ++i) {
+				sink.add(triple(i));
+				numParsed.incrementAndGet();
+			}
+		};
+	}
+
+	/** Returns a source that produces count triples and then fails. */
+	private static TripleSource failingSource(int count, IOException failure) {
+		return sink -> {
+			for (int i = 0; i < count; ++i) {
+				sink.add(triple(i));
+			}
+			throw failure;
+		};
+	}
+
+	/** Waits for the threads of every loader to stop, and checks that they have. */
+	private static void assertLoaderThreadsStopped() throws InterruptedException {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith(THREAD_NAME_PREFIX)) {
+				thread.join(TimeUnit.SECONDS.toMillis(10));
+				assertFalse(thread.isAlive(), "Loader thread %1$s is still running"
+					.formatted(thread.getName()));
+			}
+		}
+	}
+
+	@Test
+	public void testTriplesPassThroughEveryStageInOrder() throws Exception {
+		int numTriples = 5 * PipelinedLoader.BATCH_SIZE / 2;
+		RecordingTarget target = new RecordingTarget();
+		assertEquals(numTriples, new PipelinedLoader(target).load(source(numTriples)));
+
+		assertEquals(3, target.numEncodedBatches.get());
+		assertEquals(triples(numTriples), target.notifiedTriples);
+		assertEquals(3 * numTriples, target.storedIds.size());
+		for (int i = 0; i < target.storedIds.size(); ++i) {
+			assertEquals(i, target.storedIds.get(i).longValue());
+		}
+		assertLoaderThreadsStopped();
+	}
+
+	@Test
+	public void testParserIsHeldBackWhileStoreIsBusy() throws Exception {
+		int numTriples = 100 * PipelinedLoader.BATCH_SIZE;
+		CountDownLatch storing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingTarget target = new RecordingTarget() {
+			@Override
+			public void addBatch(long[] ids) {
+				storing.countDown();
+				try {
+					assertTrue(release.await(10, TimeUnit.SECONDS));
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				super.addBatch(ids);
+			}
+		};
+		Future<Long> load = executor.submit(() -> new PipelinedLoader(target).load(source(numTriples)));
+		assertTrue(storing.await(10, TimeUnit.SECONDS));
+
+		// The two full queues, one batch in each stage, and the batch being
+		// collected are all the parser can get ahead by:
+		long maxInFlight = (2L * PipelinedLoader.QUEUE_CAPACITY + 3) * PipelinedLoader.BATCH_SIZE;
+		Thread.sleep(200);
+		assertTrue(numParsed.get() <= maxInFlight,
+			"Parsed %1$d triples while the first batch was stored".formatted(numParsed.get()));
+
+		release.countDown();
+		assertEquals(numTriples, load.get(10, TimeUnit.SECONDS).longValue());
+		assertEquals(triples(numTriples), target.notifiedTriples);
+	}
+
+	@Test
+	public void testParseErrorIsRethrown() throws Exception {
+		IOException failure = new IOException("Bad syntax");
+		RecordingTarget target = new RecordingTarget();
+		PipelinedLoader loader = new PipelinedLoader(target);
+		IOException ex = assertThrows(IOException.class,
+			() -> loader.load(failingSource(3 * PipelinedLoader.BATCH_SIZE / 2, failure)));
+		assertSame(failure, ex);
+		assertLoaderThreadsStopped();
+	}
+
+	@Test
+	public void testStoreFailureStopsTheLoaderThreads() throws Exception {
+		int numTriples = 100 * PipelinedLoader.BATCH_SIZE;
+		IllegalStateException failure = new IllegalStateException("Store failed");
+		RecordingTarget target = new RecordingTarget() {
+			@Override
+			public void addBatch(long[] ids) {
+				throw failure;
+			}
+		};
+		PipelinedLoader loader = new PipelinedLoader(target);
+		IllegalStateException ex = assertThrows(IllegalStateException.class,
+			() -> loader.load(source(numTriples)));
+		assertSame(failure, ex);
+		assertLoaderThreadsStopped();
+		// The parser was stopped rather than left to run to the end:
+		assertTrue(numParsed.get() < numTriples);
+		assertTrue(target.notifiedTriples.isEmpty());
+	}
+
+	@Test
+	public void testEncoderFailureIsRethrown() throws Exception {
+		IllegalStateException failure = new IllegalStateException("Encode failed");
+		RecordingTarget target = new RecordingTarget() {
+			@Override
+			public long[] encodeBatch(List<Triple> triples) {
+				if (numEncodedBatches.get() > 0) {
+					throw failure;
+				}
+				return super.encodeBatch(triples);
+			}
+		};
+		PipelinedLoader loader = new PipelinedLoader(target);
+		IllegalStateException ex = assertThrows(IllegalStateException.class,
+			() -> loader.load(source(10 * PipelinedLoader.BATCH_SIZE)));
+		assertSame(failure, ex);
+		assertLoaderThreadsStopped();
+		// The batch encoded before the failure was stored:
+		assertEquals(triples(PipelinedLoader.BATCH_SIZE), target.notifiedTriples);
+	}
+}
@@ -0,0 +1,102 @@
+// Parliament is licensed under the BSD License from the Open Source
+// Initiative, http://www.opensource.org/licenses/bsd-license.php
+//
+// Copyright (c) 2001-2009, BBN Technologies, Inc.
+// All rights reserved.
+
+package com.bbn.parliament.jena.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.sparql.graph.GraphFactory;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+public class TripleSpoolTest {
+	private static final String SPOOL_FILE_PREFIX = "parliament-load-";
+
+	/** A graph with blank nodes, and plain, language-tagged, and typed literals. */
+	private static Graph sampleGraph(int numSubjects) {
+		Graph graph = GraphFactory.createDefaultGraph();
+		Node type = Node.createURI("http://example.org/#Thing");
+		for (int i = 0; i < numSubjects; ++i) {
+			Node subject = Node.createURI("http://example.org/#s" + i);
+			Node blank = Node.createAnon();
+			graph.add(Triple.create(subject, RDF.type.asNode(), type));
+			graph.add(Triple.create(subject, RDFS.label.asNode(), Node.createLiteral("Thing \"" + i + "\"")));
+			graph.add(Triple.create(subject, RDFS.comment.asNode(), Node.createLiteral("caf\u00e9", "fr", false)));
+			graph.add(Triple.create(subject, RDFS.seeAlso.asNode(), blank));
+			graph.add(Triple.create(blank, RDFS.label.asNode(),
+				Node.createLiteral(Integer.toString(i), null, XSDDatatype.XSDint)));
+			graph.add(Triple.create(blank, RDFS.seeAlso.asNode(), subject));
+		}
+		return graph;
+	}
+
+	private static Set<String> spoolFiles() {
+		String[] names = new File(System.getProperty("java.io.tmpdir")).list(
+			(dir, name) -> name.startsWith(SPOOL_FILE_PREFIX));
+		return (names == null) ? Set.of() : Set.of(names);
+	}
+
+	private static File newSpoolFile(Set<String> filesBefore) {
+		List<String> newFiles = new ArrayList<>(spoolFiles());
+		newFiles.removeAll(filesBefore);
+		assertEquals(1, newFiles.size());
+		return new File(System.getProperty("java.io.tmpdir"), newFiles.get(0));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testReplayReproducesTheWrittenTriples() throws IOException {
+		Graph expected = sampleGraph(500);
+		Graph actual = GraphFactory.createDefaultGraph();
+		Set<String> filesBefore = spoolFiles();
+		try (TripleSpool spool = new TripleSpool()) {
+			assertEquals(expected.size(), spool.write(sink -> expected.find(Node.ANY, Node.ANY, Node.ANY)
+				.forEachRemaining(sink::add)));
+			assertEquals(expected.size(), spool.getNumTriples());
+
+			// The triples are held on disk, not in memory:
+			assertTrue(newSpoolFile(filesBefore).length() > 0);
+
+			spool.replay(actual);
+		}
+		assertEquals(filesBefore, spoolFiles());
+		assertEquals(expected.size(), actual.size());
+		assertTrue(expected.isIsomorphicWith(actual));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void testParseErrorIsRethrownAndSpoolIsDeleted() {
+		IOException failure = new IOException("Bad syntax");
+		Graph partial = sampleGraph(10);
+		Set<String> filesBefore = spoolFiles();
+		IOException ex = assertThrows(IOException.class, () -> {
+			try (TripleSpool spool = new TripleSpool()) {
+				spool.write(sink -> {
+					partial.find(Node.ANY, Node.ANY, Node.ANY).forEachRemaining(sink::add);
+					throw failure;
+				});
+			}
+		});
+		assertSame(failure, ex);
+		assertEquals(filesBefore, spoolFiles());
+	}
+}
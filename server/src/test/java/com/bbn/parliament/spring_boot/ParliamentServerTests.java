@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -13,9 +14,12 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -29,13 +33,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.bbn.parliament.jena.bridge.tracker.Tracker;
+import com.bbn.parliament.jena.graph.KbGraphStore;
 import com.bbn.parliament.jena.joseki.client.CloseableQueryExec;
 import com.bbn.parliament.jena.joseki.client.QuerySolutionStream;
 import com.bbn.parliament.jena.joseki.client.RDFFormat;
@@ -78,6 +86,9 @@ public class ParliamentServerTests {
 	private static final String TEST_SUBJECT = "http://example.org/#TestItem";
 	private static final String TEST_CLASS = "http://example.org/#TestClass";
 	private static final String TEST_LITERAL = "TestLiteral";
+	private static final String ADMIN_ENDPOINT_URL = "http://%1$s:%2$d/parliament/admin";
+	private static final int IMPORT_NUM_GRAPHS = 4;
+	private static final int IMPORT_TRIPLES_PER_GRAPH = 2500;
 	private static final Logger LOG = LoggerFactory.getLogger(ParliamentServerTests.class);
 
 	private static final String EVERYTHING_QUERY = """
@@ -134,12 +145,14 @@ public class ParliamentServerTests {
 
 	private String sparqlUrl;
 	private String bulkUrl;
+	private String adminUrl;
 	private RemoteModel rm;
 
 	@BeforeEach
 	public void beforeEach() {
 		sparqlUrl = RemoteModel.DEFAULT_SPARQL_ENDPOINT_URL.formatted(HOST, serverPort);
 		bulkUrl = RemoteModel.DEFAULT_BULK_ENDPOINT_URL.formatted(HOST, serverPort);
+		adminUrl = ADMIN_ENDPOINT_URL.formatted(HOST, serverPort);
 		rm = new RemoteModel(sparqlUrl, bulkUrl);
 	}
 
@@ -239,6 +252,85 @@ public class ParliamentServerTests {
 			.toString();
 	}
 
+	@Test
+	public void parallelRepositoryImportTest() throws IOException {
+		String graphUriFmt = "http://example.org/import/#Graph%1$d";
+		byte[] archive = createRepositoryArchive(graphUriFmt);
+
+		MultipartBodyBuilder body = new MultipartBodyBuilder();
+		body.part("file", new ByteArrayResource(archive) {
+			@Override
+			public String getFilename() {
+				return "repository.zip";
+			}
+		});
+		String response = WebClient.create(adminUrl)
+			.post()
+			.uri(uriBuilder -> uriBuilder.path("/import").queryParam("parallel", true).build())
+			.contentType(MediaType.MULTIPART_FORM_DATA)
+			.body(BodyInserters.fromMultipartData(body.build()))
+			.retrieve()
+			.bodyToMono(String.class)
+			.block();
+
+		long numExpected = (IMPORT_NUM_GRAPHS + 1L) * IMPORT_TRIPLES_PER_GRAPH;
+		assertEquals("Imported %1$d statements%n".formatted(numExpected), response);
+		assertEquals(IMPORT_TRIPLES_PER_GRAPH, countTriples(null));
+		Set<String> expectedGraphs = new HashSet<>();
+		for (int i = 0; i < IMPORT_NUM_GRAPHS; ++i) {
+			String graphUri = graphUriFmt.formatted(i);
+			expectedGraphs.add(graphUri);
+			assertEquals(IMPORT_TRIPLES_PER_GRAPH, countTriples(graphUri));
+		}
+		assertEquals(expectedGraphs, getAvailableNamedGraphs());
+
+		rm.clearAll();
+	}
+
+	/**
+	 * Builds a zip archive in the layout of a repository export: a Master Graph
+	 * that maps each named graph to its directory, plus one N-Triples file for
+	 * the default graph and one for each named graph.
+	 */
+	private static byte[] createRepositoryArchive(String graphUriFmt) throws IOException {
+		Model masterGraph = ModelFactory.createDefaultModel();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zout = new ZipOutputStream(bytes)) {
+			addGraphEntry(zout, KbGraphStore.DEFAULT_GRAPH_BASENAME, "default");
+			for (int i = 0; i < IMPORT_NUM_GRAPHS; ++i) {
+				String dirName = "graph" + i;
+				masterGraph.add(ResourceFactory.createResource(graphUriFmt.formatted(i)),
+					ResourceFactory.createProperty(KbGraphStore.GRAPH_DIR_PROPERTY), dirName);
+				addGraphEntry(zout, dirName, dirName);
+			}
+			zout.putNextEntry(new ZipEntry(KbGraphStore.MASTER_GRAPH_DIR + ".nt"));
+			masterGraph.write(zout, "N-TRIPLE");
+			zout.closeEntry();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void addGraphEntry(ZipOutputStream zout, String dirName, String label)
+		throws IOException {
+		zout.putNextEntry(new ZipEntry(dirName + ".nt"));
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < IMPORT_TRIPLES_PER_GRAPH; ++i) {
+			content.append("<http://example.org/import/#%1$s-%2$d> <%3$s> \"%2$d\" .%n"
+				.formatted(label, i, RDFS.label.getURI()));
+		}
+		zout.write(content.toString().getBytes(StandardCharsets.UTF_8));
+		zout.closeEntry();
+	}
+
+	private long countTriples(String graphUri) {
+		String pattern = (graphUri == null)
+			? "?s ?p ?o"
+			: "graph <%1$s> { ?s ?p ?o }".formatted(graphUri);
+		try (QuerySolutionStream stream = doSelectQuery("select * where { %1$s }", pattern)) {
+			return stream.count();
+		}
+	}
+
 	@Test
 	@Disabled
 	public void insertAndQueryTest() {